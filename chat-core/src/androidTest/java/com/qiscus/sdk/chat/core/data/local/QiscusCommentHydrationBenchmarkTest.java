@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.local;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.qiscus.sdk.chat.core.data.model.QiscusComment;
+import com.qiscus.sdk.chat.core.data.model.QiscusRoomMember;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Loads pages of 20, 40 and 200 comments with the sender looked up per row, the way comment reads worked before,
+ * and with the members join of {@link QiscusDb.CommentTable#SELECT_WITH_MEMBER}, then logs the number of queries
+ * and the wall time per page. Only the query counts and the hydrated senders are asserted, the timings depend on
+ * the device.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QiscusCommentHydrationBenchmarkTest {
+    private static final String TAG = QiscusCommentHydrationBenchmarkTest.class.getSimpleName();
+    private static final int[] PAGE_SIZES = {20, 40, 200};
+    private static final int ROOM_ID = 1;
+    private static final int COMMENTS = 2000;
+    private static final int SENDERS = 50;
+    private static final int WARM_UP_ROUNDS = 20;
+    private static final int ROUNDS = 100;
+
+    private SQLiteDatabase database;
+    private int queries;
+
+    @Before
+    public void setUp() {
+        database = SQLiteDatabase.create(null);
+        new QiscusDbOpenHelper(InstrumentationRegistry.getTargetContext()).onCreate(database);
+
+        database.beginTransaction();
+        try {
+            SQLiteStatement memberStatement = database.compileStatement(QiscusDb.MemberTable.INSERT_OR_REPLACE);
+            for (int i = 0; i < SENDERS; i++) {
+                QiscusDb.MemberTable.bind(memberStatement, member(i));
+                memberStatement.executeInsert();
+            }
+
+            SQLiteStatement commentStatement = database.compileStatement(QiscusDb.CommentTable.INSERT_OR_REPLACE);
+            for (int i = 0; i < COMMENTS; i++) {
+                QiscusDb.CommentTable.bind(commentStatement, comment(i));
+                commentStatement.executeInsert();
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void commentPages() {
+        for (int pageSize : PAGE_SIZES) {
+            queries = 0;
+            List<QiscusComment> perRow = loadWithMemberPerRow(pageSize);
+            assertEquals(pageSize + 1, queries);
+
+            queries = 0;
+            List<QiscusComment> joined = loadWithMemberJoin(pageSize);
+            assertEquals(1, queries);
+
+            assertEquals(pageSize, joined.size());
+            for (int i = 0; i < pageSize; i++) {
+                assertEquals(perRow.get(i).getUniqueId(), joined.get(i).getUniqueId());
+                assertEquals(perRow.get(i).getSender(), joined.get(i).getSender());
+                assertEquals(perRow.get(i).getSenderAvatar(), joined.get(i).getSenderAvatar());
+            }
+
+            for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+                loadWithMemberPerRow(pageSize);
+                loadWithMemberJoin(pageSize);
+            }
+
+            long perRowNanos = 0;
+            long joinedNanos = 0;
+            for (int i = 0; i < ROUNDS; i++) {
+                long start = System.nanoTime();
+                loadWithMemberPerRow(pageSize);
+                perRowNanos += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                loadWithMemberJoin(pageSize);
+                joinedNanos += System.nanoTime() - start;
+            }
+
+            Log.i(TAG, String.format(Locale.US, "page of %d comments, per row: %d queries %.2f ms, join: 1 query %.2f ms",
+                    pageSize, pageSize + 1, perRowNanos / 1e6 / ROUNDS, joinedNanos / 1e6 / ROUNDS));
+        }
+    }
+
+    private List<QiscusComment> loadWithMemberPerRow(int limit) {
+        List<QiscusComment> qiscusComments = new ArrayList<>();
+        Cursor cursor = rawQuery("SELECT * FROM " + QiscusDb.CommentTable.TABLE_NAME + " WHERE "
+                        + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = ? AND "
+                        + QiscusDb.CommentTable.COLUMN_HARD_DELETED + " = " + 0
+                        + " ORDER BY " + QiscusDb.CommentTable.COLUMN_TIME + " DESC"
+                        + " LIMIT ?",
+                String.valueOf(ROOM_ID), String.valueOf(limit));
+        try {
+            while (cursor.moveToNext()) {
+                QiscusComment qiscusComment = QiscusDb.CommentTable.parseCursor(cursor);
+                QiscusRoomMember qiscusRoomMember = getMember(qiscusComment.getSenderEmail());
+                if (qiscusRoomMember != null) {
+                    qiscusComment.setSender(qiscusRoomMember.getUsername());
+                    qiscusComment.setSenderAvatar(qiscusRoomMember.getAvatar());
+                }
+                qiscusComments.add(qiscusComment);
+            }
+        } finally {
+            cursor.close();
+        }
+        return qiscusComments;
+    }
+
+    private QiscusRoomMember getMember(String email) {
+        Cursor cursor = rawQuery("SELECT * FROM " + QiscusDb.MemberTable.TABLE_NAME + " WHERE "
+                + QiscusDb.MemberTable.COLUMN_USER_EMAIL + " = ?", email);
+        try {
+            return cursor.moveToNext() ? QiscusDb.MemberTable.getMember(cursor) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private List<QiscusComment> loadWithMemberJoin(int limit) {
+        List<QiscusComment> qiscusComments = new ArrayList<>();
+        Cursor cursor = rawQuery(QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
+                        + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = ? AND "
+                        + QiscusDb.CommentTable.COLUMN_HARD_DELETED + " = " + 0
+                        + " ORDER BY " + QiscusDb.CommentTable.COLUMN_TIME + " DESC"
+                        + " LIMIT ?",
+                String.valueOf(ROOM_ID), String.valueOf(limit));
+        try {
+            while (cursor.moveToNext()) {
+                qiscusComments.add(QiscusDb.CommentTable.parseCursorWithMember(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+        return qiscusComments;
+    }
+
+    private Cursor rawQuery(String query, String... args) {
+        queries++;
+        return database.rawQuery(query, args);
+    }
+
+    private static QiscusRoomMember member(int index) {
+        QiscusRoomMember qiscusRoomMember = new QiscusRoomMember();
+        qiscusRoomMember.setEmail("user" + index + "@mail.com");
+        qiscusRoomMember.setUsername("User " + index);
+        qiscusRoomMember.setAvatar("https://example.com/avatar/" + index + ".png");
+        return qiscusRoomMember;
+    }
+
+    private static QiscusComment comment(int index) {
+        QiscusComment qiscusComment = new QiscusComment();
+        qiscusComment.setId(index + 1);
+        qiscusComment.setCommentBeforeId(index);
+        qiscusComment.setRoomId(ROOM_ID);
+        qiscusComment.setUniqueId("android_" + index);
+        qiscusComment.setMessage("Message " + index);
+        qiscusComment.setSender("Stale name");
+        qiscusComment.setSenderEmail("user" + index % SENDERS + "@mail.com");
+        qiscusComment.setTime(new Date(1500000000000L + index * 1000L));
+        qiscusComment.setState(QiscusComment.STATE_ON_QISCUS);
+        qiscusComment.setRawType("text");
+        return qiscusComment;
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.local;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.qiscus.sdk.chat.core.data.model.QiscusComment;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks with EXPLAIN QUERY PLAN that the hot queries of {@link QiscusDataBaseHelper} are served by an index
+ * instead of a table scan and a sort.
+ * <p>
+ * Query shapes left out on purpose, with the plan they get today:
+ * <ul>
+ * <li>{@code getLatestComment()} without a room: scan and sort, runs once per sync.</li>
+ * <li>{@code getCommentByBeforeId}: scan, runs only when a comment is deleted.</li>
+ * <li>{@code getChatRoomWithUniqueId}: scan of the rooms table, which stays small.</li>
+ * <li>{@code getLatestSentComment}, {@code getLatestDeliveredComment}, {@code getLatestReadComment}: room or
+ * state index and a sort, used by the dropped comment recovery only.</li>
+ * <li>{@code getPendingComments}: state index and a sort over the few pending comments.</li>
+ * <li>{@code searchComments} with LIKE: scan, only a fallback while the full text index is being backfilled.</li>
+ * <li>Attachment cache lookups by local path and {@code deleteUploadSessionsBefore}: scans of tables bounded
+ * by the cache size and the number of running uploads.</li>
+ * <li>Lookups by primary key or unique column, which always use their automatic index.</li>
+ * </ul>
+ */
+@RunWith(AndroidJUnit4.class)
+public class QiscusDbQueryPlanTest {
+    private static final String ROOM_PAGE = "SELECT * FROM " + QiscusDb.RoomTable.TABLE_NAME
+            + QiscusDb.RoomTable.ORDER_BY_LAST_COMMENT
+            + " LIMIT ?";
+
+    private SQLiteDatabase database;
+
+    @Before
+    public void setUp() {
+        database = SQLiteDatabase.create(null);
+        new QiscusDbOpenHelper(InstrumentationRegistry.getTargetContext()).onCreate(database);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void commentsOfRoomUseRoomTimeIndex() {
+        String plan = explain(QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
+                + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = ? AND "
+                + QiscusDb.CommentTable.COLUMN_HARD_DELETED + " = " + 0
+                + " ORDER BY " + QiscusDb.CommentTable.COLUMN_TIME + " DESC"
+                + " LIMIT ?", "1", "20");
+
+        assertUsesIndex(plan, "comments_room_id_hard_deleted_time_index");
+        assertNotSorted(plan);
+    }
+
+    @Test
+    public void olderCommentsPageIsRangeOnRoomTimeIndex() {
+        String plan = explain(QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
+                + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = ? AND "
+                + QiscusDb.CommentTable.COLUMN_HARD_DELETED + " = " + 0 + " AND "
+                + QiscusDb.CommentTable.COLUMN_TIME + " <= ? AND ("
+                + QiscusDb.CommentTable.COLUMN_TIME + " < ? OR "
+                + QiscusDb.CommentTable.COLUMN_UNIQUE_ID + " < ?)"
+                + " ORDER BY " + QiscusDb.CommentTable.COLUMN_TIME + " DESC, "
+                + QiscusDb.CommentTable.COLUMN_UNIQUE_ID + " DESC"
+                + " LIMIT ?", "1", "1000", "1000", "unique", "20");
+
+        assertUsesIndex(plan, "comments_room_id_hard_deleted_time_index");
+        assertTrue("Expected a time range in plan:\n" + plan, plan.contains(QiscusDb.CommentTable.COLUMN_TIME + "<?"));
+        assertNotSorted(plan);
+    }
+
+    @Test
+    public void latestCommentOfRoomUseRoomTimeIndex() {
+        String plan = explain(QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
+                + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = ? AND "
+                + QiscusDb.CommentTable.COLUMN_HARD_DELETED + " = " + 0
+                + " ORDER BY " + QiscusDb.CommentTable.COLUMN_TIME + " DESC, "
+                + QiscusDb.CommentTable.COLUMN_UNIQUE_ID + " DESC"
+                + " LIMIT 1", "1");
+
+        assertUsesIndex(plan, "comments_room_id_hard_deleted_time_index");
+        assertNotSorted(plan);
+    }
+
+    @Test
+    public void commentsAfterUseRoomTimeIndex() {
+        String plan = explain(QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
+                + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = ? AND ("
+                + QiscusDb.CommentTable.COLUMN_TIME + " >= ? OR "
+                + QiscusDb.CommentTable.COLUMN_ID + " = -1) " + " AND "
+                + QiscusDb.CommentTable.COLUMN_HARD_DELETED + " = " + 0
+                + " ORDER BY " + QiscusDb.CommentTable.COLUMN_TIME + " DESC", "1", "1000");
+
+        assertUsesIndex(plan, "comments_room_id_hard_deleted_time_index");
+        assertNotSorted(plan);
+    }
+
+    @Test
+    public void deliveredAndReadUpdatesUseRoomTimeIndex() {
+        for (int state : new int[]{QiscusComment.STATE_DELIVERED, QiscusComment.STATE_READ}) {
+            String plan = explain("UPDATE " + QiscusDb.CommentTable.TABLE_NAME
+                    + " SET " + QiscusDb.CommentTable.COLUMN_STATE + " = " + state + " WHERE "
+                    + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = ? AND "
+                    + QiscusDb.CommentTable.COLUMN_ID + " <= ? AND "
+                    + QiscusDb.CommentTable.COLUMN_ID + " != -1 AND "
+                    + QiscusDb.CommentTable.COLUMN_STATE + " < " + state, "1", "100");
+
+            assertUsesIndex(plan, "comments_room_id_hard_deleted_time_index");
+        }
+    }
+
+    @Test
+    public void lastCommentUpdateUseRoomTimeIndex() {
+        String plan = explain(QiscusDb.RoomTable.UPDATE_LAST_COMMENT, "1");
+
+        assertUsesIndex(plan, "comments_room_id_hard_deleted_time_index");
+        assertNotSorted(plan);
+        assertFalse("Unexpected comments scan in plan:\n" + plan, plan.contains("SCAN TABLE comments")
+                || plan.contains("SCAN comments"));
+    }
+
+    @Test
+    public void unreadCountUpdatesUseRoomKey() {
+        assertUsesIndex(explain(QiscusDb.RoomTable.SELECT_LAST_COMMENT_TIME, "1"), "sqlite_autoindex_rooms_1");
+        assertUsesIndex(explain(QiscusDb.RoomTable.ADD_UNREAD_COUNT, "1", "1"), "sqlite_autoindex_rooms_1");
+        assertUsesIndex(explain(QiscusDb.RoomTable.SET_UNREAD_COUNT, "0", "1"), "sqlite_autoindex_rooms_1");
+    }
+
+    @Test
+    public void commentsByIdUseIdIndex() {
+        String plan = explain("SELECT * FROM " + QiscusDb.CommentTable.TABLE_NAME + " WHERE "
+                + QiscusDb.CommentTable.COLUMN_ID + " = ?", "1");
+
+        assertUsesIndex(plan, "comments_id_index");
+    }
+
+    @Test
+    public void pendingCommentsUseStateIndex() {
+        String plan = explain(QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
+                + QiscusDb.CommentTable.COLUMN_STATE + " = " + QiscusComment.STATE_PENDING
+                + " ORDER BY " + QiscusDb.CommentTable.COLUMN_TIME + " ASC");
+
+        assertUsesIndex(plan, "comments_state_index");
+    }
+
+    @Test
+    public void roomListUsesLastCommentTimeIndex() {
+        String plan = explain("SELECT * FROM " + QiscusDb.RoomTable.TABLE_NAME
+                + QiscusDb.RoomTable.ORDER_BY_LAST_COMMENT
+                + " LIMIT ? OFFSET ?", "20", "0");
+
+        assertUsesIndex(plan, "rooms_last_comment_time_index");
+        assertNotSorted(plan);
+    }
+
+    @Test
+    public void roomListPageIsRangeOnLastCommentTimeIndex() {
+        String plan = explain("SELECT * FROM " + QiscusDb.RoomTable.TABLE_NAME
+                + " WHERE " + QiscusDb.RoomTable.COLUMN_LAST_COMMENT_TIME + " <= ?"
+                + " AND (" + QiscusDb.RoomTable.COLUMN_LAST_COMMENT_TIME + " < ?"
+                + " OR " + QiscusDb.RoomTable.COLUMN_ID + " < ?)"
+                + QiscusDb.RoomTable.ORDER_BY_LAST_COMMENT
+                + " LIMIT ?", "1000", "1000", "1", "20");
+
+        assertUsesIndex(plan, "rooms_last_comment_time_index");
+        assertTrue("Expected a last comment time range in plan:\n" + plan,
+                plan.contains(QiscusDb.RoomTable.COLUMN_LAST_COMMENT_TIME + "<?"));
+        assertNotSorted(plan);
+    }
+
+    @Test
+    public void roomListLastCommentsUseUniqueIdKey() {
+        String plan = explain(QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
+                + QiscusDb.CommentTable.TABLE_NAME + "." + QiscusDb.CommentTable.COLUMN_UNIQUE_ID + " IN (SELECT "
+                + QiscusDb.RoomTable.COLUMN_LAST_COMMENT_UNIQUE_ID + " FROM (" + ROOM_PAGE + "))", "20");
+
+        assertUsesIndex(plan, "sqlite_autoindex_comments_1");
+        assertUsesIndex(plan, "rooms_last_comment_time_index");
+        assertNotSorted(plan);
+    }
+
+    @Test
+    public void roomListMembersUseRoomMemberKey() {
+        String plan = explain("SELECT " + QiscusDb.MemberTable.TABLE_NAME + ".*, "
+                + QiscusDb.RoomMemberTable.TABLE_NAME + "." + QiscusDb.RoomMemberTable.COLUMN_ROOM_ID
+                + " FROM " + QiscusDb.RoomMemberTable.TABLE_NAME
+                + " INNER JOIN " + QiscusDb.MemberTable.TABLE_NAME
+                + " ON " + QiscusDb.RoomMemberTable.TABLE_NAME + "." + QiscusDb.RoomMemberTable.COLUMN_USER_EMAIL
+                + " = " + QiscusDb.MemberTable.TABLE_NAME + "." + QiscusDb.MemberTable.COLUMN_USER_EMAIL
+                + " WHERE " + QiscusDb.RoomMemberTable.TABLE_NAME + "." + QiscusDb.RoomMemberTable.COLUMN_ROOM_ID
+                + " IN (SELECT " + QiscusDb.RoomTable.COLUMN_ID + " FROM (" + ROOM_PAGE + "))", "20");
+
+        assertUsesIndex(plan, "sqlite_autoindex_room_members_1");
+        assertUsesIndex(plan, "rooms_last_comment_time_index");
+        assertNotSorted(plan);
+    }
+
+    @Test
+    public void roomMembersOfRoomUseRoomMemberKey() {
+        String plan = explain("SELECT * FROM " + QiscusDb.RoomMemberTable.TABLE_NAME + " WHERE "
+                + QiscusDb.RoomMemberTable.COLUMN_ROOM_ID + " = ?", "1");
+
+        assertUsesIndex(plan, "sqlite_autoindex_room_members_1");
+    }
+
+    @Test
+    public void searchIsDrivenByFullTextIndex() {
+        String commentTableName = QiscusDb.CommentTable.TABLE_NAME;
+        String plan = explain(QiscusDb.CommentSearchTable.SELECT_WITH_RESULT
+                + " WHERE " + QiscusDb.CommentSearchTable.TABLE_NAME + " MATCH ?"
+                + " AND " + commentTableName + "." + QiscusDb.CommentTable.COLUMN_HARD_DELETED + " = " + 0
+                + " AND " + commentTableName + "." + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = ?"
+                + " ORDER BY " + commentTableName + "." + QiscusDb.CommentTable.COLUMN_TIME + " DESC, "
+                + commentTableName + "." + QiscusDb.CommentTable.COLUMN_UNIQUE_ID + " DESC"
+                + " LIMIT ?", "hello*", "1", "20");
+
+        // The matches are sorted in a temp b-tree, there is no index that orders full text results by time.
+        assertUsesIndex(plan, QiscusDb.CommentSearchTable.TABLE_NAME + " VIRTUAL TABLE");
+        assertUsesIndex(plan, "INTEGER PRIMARY KEY");
+    }
+
+    @Test
+    public void searchIndexMaintenanceUseCommentKeys() {
+        assertUsesIndex(explain(QiscusDb.CommentSearchTable.INSERT_BY_UNIQUE_ID, "1", "unique"),
+                "sqlite_autoindex_comments_1");
+        assertUsesIndex(explain("SELECT rowid AS " + QiscusDb.CommentSearchTable.COLUMN_ROW_ID + ", * FROM "
+                + QiscusDb.CommentTable.TABLE_NAME + " WHERE rowid > ? ORDER BY rowid LIMIT ?", "0", "200"), "INTEGER PRIMARY KEY");
+    }
+
+    @Test
+    public void roomMembersByEmailUseEmailIndex() {
+        String plan = explain("SELECT * FROM " + QiscusDb.RoomMemberTable.TABLE_NAME + " WHERE "
+                + QiscusDb.RoomMemberTable.COLUMN_DISTINCT_ID + " = ?"
+                + " AND " + QiscusDb.RoomMemberTable.COLUMN_USER_EMAIL + " = ?", "default", "user@mail.com");
+
+        assertUsesIndex(plan, "room_members_user_email_index");
+    }
+
+    @Test
+    public void filesByLocalPathUseLocalPathIndex() {
+        String plan = explain("SELECT COUNT(*) FROM " + QiscusDb.FilesTable.TABLE_NAME + " WHERE "
+                + QiscusDb.FilesTable.COLUMN_LOCAL_PATH + " = ?", "/data/file.jpg");
+
+        assertUsesIndex(plan, "files_local_path_index");
+    }
+
+    private String explain(String query, String... args) {
+        StringBuilder plan = new StringBuilder();
+        Cursor cursor = database.rawQuery("EXPLAIN QUERY PLAN " + query, args);
+        try {
+            int detailIndex = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(detailIndex)).append('\n');
+            }
+        } finally {
+            cursor.close();
+        }
+        return plan.toString();
+    }
+
+    private static void assertUsesIndex(String plan, String indexName) {
+        assertTrue("Expected " + indexName + " in plan:\n" + plan, plan.contains(indexName));
+    }
+
+    private static void assertNotSorted(String plan) {
+        assertFalse("Unexpected sort in plan:\n" + plan, plan.contains("TEMP B-TREE FOR"));
+    }
+}
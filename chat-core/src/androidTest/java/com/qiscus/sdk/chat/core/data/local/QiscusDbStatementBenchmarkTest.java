@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.local;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.qiscus.sdk.chat.core.data.model.QiscusChatRoom;
+import com.qiscus.sdk.chat.core.data.model.QiscusComment;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Date;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Measures the per call latency of the statements hit by every incoming comment, once with the values concatenated
+ * into the SQL the way {@link QiscusDataBaseHelper} used to build it, and once with bound parameters on a statement
+ * compiled once. Each call uses a different value, like a stream of realtime comments does, so the concatenated SQL
+ * never hits the prepared statement cache of the connection. Only the results are asserted, the timings are logged.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QiscusDbStatementBenchmarkTest {
+    private static final String TAG = QiscusDbStatementBenchmarkTest.class.getSimpleName();
+    private static final int ROOMS = 100;
+    private static final int COMMENTS = 5000;
+    private static final int WARM_UP_CALLS = 500;
+    private static final int CALLS = 5000;
+
+    private SQLiteDatabase database;
+
+    @Before
+    public void setUp() {
+        database = SQLiteDatabase.create(null);
+        new QiscusDbOpenHelper(InstrumentationRegistry.getTargetContext()).onCreate(database);
+
+        database.beginTransaction();
+        try {
+            for (int i = 0; i < ROOMS; i++) {
+                QiscusChatRoom qiscusChatRoom = new QiscusChatRoom();
+                qiscusChatRoom.setId(i);
+                qiscusChatRoom.setDistinctId("default");
+                qiscusChatRoom.setUniqueId("room_" + i);
+                qiscusChatRoom.setName("Room " + i);
+                database.insertOrThrow(QiscusDb.RoomTable.TABLE_NAME, null,
+                        QiscusDb.RoomTable.toContentValues(qiscusChatRoom));
+            }
+
+            SQLiteStatement commentStatement = database.compileStatement(QiscusDb.CommentTable.INSERT_OR_REPLACE);
+            for (int i = 0; i < COMMENTS; i++) {
+                QiscusDb.CommentTable.bind(commentStatement, comment(i));
+                commentStatement.executeInsert();
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void commentByUniqueId() {
+        String concatenated = QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
+                + QiscusDb.CommentTable.COLUMN_UNIQUE_ID + " = ";
+        String bound = QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
+                + QiscusDb.CommentTable.COLUMN_UNIQUE_ID + " = ?";
+
+        for (int i = 0; i < WARM_UP_CALLS; i++) {
+            queryComment(concatenated + DatabaseUtils.sqlEscapeString(uniqueId(i)));
+            queryComment(bound, uniqueId(i));
+        }
+
+        long concatenatedNanos = 0;
+        long boundNanos = 0;
+        for (int i = 0; i < CALLS; i++) {
+            String uniqueId = uniqueId(i % COMMENTS);
+            long start = System.nanoTime();
+            QiscusComment fromConcatenated = queryComment(concatenated + DatabaseUtils.sqlEscapeString(uniqueId));
+            concatenatedNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            QiscusComment fromBound = queryComment(bound, uniqueId);
+            boundNanos += System.nanoTime() - start;
+
+            assertNotNull(fromBound);
+            assertEquals(fromConcatenated.getId(), fromBound.getId());
+        }
+
+        log("getComment(uniqueId)", concatenatedNanos, boundNanos);
+    }
+
+    @Test
+    public void lastCommentTimeOfRoom() {
+        SQLiteStatement statement = database.compileStatement(QiscusDb.RoomTable.SELECT_LAST_COMMENT_TIME);
+        String concatenated = "SELECT " + QiscusDb.RoomTable.COLUMN_LAST_COMMENT_TIME + " FROM "
+                + QiscusDb.RoomTable.TABLE_NAME + " WHERE " + QiscusDb.RoomTable.COLUMN_ID + " = ";
+
+        long concatenatedNanos = 0;
+        long boundNanos = 0;
+        for (int i = -WARM_UP_CALLS; i < CALLS; i++) {
+            long roomId = (i + WARM_UP_CALLS) % ROOMS;
+            long start = System.nanoTime();
+            long fromConcatenated = DatabaseUtils.longForQuery(database, concatenated + roomId, null);
+            long concatenatedCall = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            statement.clearBindings();
+            statement.bindLong(1, roomId);
+            long fromBound = statement.simpleQueryForLong();
+            long boundCall = System.nanoTime() - start;
+
+            assertEquals(fromConcatenated, fromBound);
+            if (i >= 0) {
+                concatenatedNanos += concatenatedCall;
+                boundNanos += boundCall;
+            }
+        }
+        statement.close();
+
+        log("SELECT_LAST_COMMENT_TIME", concatenatedNanos, boundNanos);
+    }
+
+    @Test
+    public void addUnreadCount() {
+        SQLiteStatement statement = database.compileStatement(QiscusDb.RoomTable.ADD_UNREAD_COUNT);
+
+        long concatenatedNanos = 0;
+        long boundNanos = 0;
+        database.beginTransaction();
+        try {
+            for (int i = -WARM_UP_CALLS; i < CALLS; i++) {
+                long roomId = (i + WARM_UP_CALLS) % ROOMS;
+                int unreadCount = i % 7 + 1;
+                long start = System.nanoTime();
+                database.execSQL("UPDATE " + QiscusDb.RoomTable.TABLE_NAME + " SET "
+                        + QiscusDb.RoomTable.COLUMN_UNREAD_COUNT + " = "
+                        + QiscusDb.RoomTable.COLUMN_UNREAD_COUNT + " + " + unreadCount
+                        + " WHERE " + QiscusDb.RoomTable.COLUMN_ID + " = " + roomId);
+                long concatenatedCall = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                statement.clearBindings();
+                statement.bindLong(1, unreadCount);
+                statement.bindLong(2, roomId);
+                assertEquals(1, statement.executeUpdateDelete());
+                long boundCall = System.nanoTime() - start;
+
+                if (i >= 0) {
+                    concatenatedNanos += concatenatedCall;
+                    boundNanos += boundCall;
+                }
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        statement.close();
+
+        log("ADD_UNREAD_COUNT", concatenatedNanos, boundNanos);
+    }
+
+    @Test
+    public void boundUniqueIdMayContainQuotes() {
+        QiscusComment qiscusComment = comment(COMMENTS);
+        qiscusComment.setUniqueId("android_'quoted\"_" + COMMENTS);
+        SQLiteStatement statement = database.compileStatement(QiscusDb.CommentTable.INSERT_OR_REPLACE);
+        QiscusDb.CommentTable.bind(statement, qiscusComment);
+        statement.executeInsert();
+        statement.close();
+
+        QiscusComment saved = queryComment(QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
+                + QiscusDb.CommentTable.COLUMN_UNIQUE_ID + " = ?", qiscusComment.getUniqueId());
+
+        assertNotNull(saved);
+        assertEquals(qiscusComment.getId(), saved.getId());
+    }
+
+    private QiscusComment queryComment(String query, String... args) {
+        Cursor cursor = database.rawQuery(query, args);
+        try {
+            return cursor.moveToNext() ? QiscusDb.CommentTable.parseCursorWithMember(cursor) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static void log(String statement, long concatenatedNanos, long boundNanos) {
+        Log.i(TAG, String.format(Locale.US, "%s over %d calls, concatenated: %.1f us/call, bound: %.1f us/call",
+                statement, CALLS, concatenatedNanos / 1e3 / CALLS, boundNanos / 1e3 / CALLS));
+    }
+
+    private static String uniqueId(int index) {
+        return "android_" + index;
+    }
+
+    private static QiscusComment comment(int index) {
+        QiscusComment qiscusComment = new QiscusComment();
+        qiscusComment.setId(index + 1);
+        qiscusComment.setCommentBeforeId(index);
+        qiscusComment.setRoomId(index % ROOMS);
+        qiscusComment.setUniqueId(uniqueId(index));
+        qiscusComment.setMessage("Message " + index);
+        qiscusComment.setSender("User " + index % 10);
+        qiscusComment.setSenderEmail("user" + index % 10 + "@mail.com");
+        qiscusComment.setTime(new Date(1500000000000L + index * 1000L));
+        qiscusComment.setState(QiscusComment.STATE_ON_QISCUS);
+        qiscusComment.setRawType("text");
+        return qiscusComment;
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.model;
+
+import android.util.Log;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Scrolls a list of 5k mixed comments and runs, for every position, the comment accessors that
+ * QiscusBaseChatAdapter.getItemViewType, onBindViewHolder and the message view holders call. It runs once with the
+ * cached type and payload, and once invalidating them before every accessor, which is what each call cost before
+ * they were cached. The adapter itself lives in the chat module and needs an initialized Qiscus to bind its view
+ * holders, so only the comment side of the bind is measured here. Only the view types are asserted, the timings are
+ * logged.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QiscusCommentBindBenchmarkTest {
+    private static final String TAG = QiscusCommentBindBenchmarkTest.class.getSimpleName();
+    private static final String MY_EMAIL = "me@mail.com";
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+    private static final int COMMENTS = 5000;
+    private static final int WARM_UP_ROUNDS = 3;
+    private static final int ROUNDS = 10;
+
+    @Test
+    public void scrollCommentList() {
+        List<QiscusComment> comments = comments();
+        assertArrayEquals(scroll(comments, false), scroll(comments, true));
+
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            scroll(comments, false);
+            scroll(comments, true);
+        }
+
+        long uncachedNanos = 0;
+        long cachedNanos = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            scroll(comments, false);
+            uncachedNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            scroll(comments, true);
+            cachedNanos += System.nanoTime() - start;
+        }
+
+        Log.i(TAG, String.format(Locale.US, "bind %d comments, recomputed: %.2f ms (%.1f us/bind), "
+                        + "cached: %.2f ms (%.1f us/bind)",
+                COMMENTS, uncachedNanos / 1e6 / ROUNDS, uncachedNanos / 1e3 / ROUNDS / COMMENTS,
+                cachedNanos / 1e6 / ROUNDS, cachedNanos / 1e3 / ROUNDS / COMMENTS));
+    }
+
+    private static int[] scroll(List<QiscusComment> comments, boolean cached) {
+        int[] viewTypes = new int[comments.size()];
+        for (int position = 0; position < comments.size(); position++) {
+            QiscusComment qiscusComment = comments.get(position);
+            viewTypes[position] = getItemViewType(qiscusComment, cached);
+            if (position < comments.size() - 1) {
+                type(comments.get(position + 1), cached);
+            }
+            bind(qiscusComment, cached);
+        }
+        return viewTypes;
+    }
+
+    /**
+     * Same decisions as QiscusChatAdapter, the view type is the ordinal of the comment type, with multi line text
+     * and my messages told apart.
+     */
+    private static int getItemViewType(QiscusComment qiscusComment, boolean cached) {
+        QiscusComment.Type type = type(qiscusComment, cached);
+        int viewType = type.ordinal() * 4;
+        if (type == QiscusComment.Type.TEXT && qiscusComment.getMessage().contains(LINE_SEPARATOR)) {
+            viewType += 1;
+        }
+        if (type != QiscusComment.Type.CUSTOM && qiscusComment.getSenderEmail().equals(MY_EMAIL)) {
+            viewType += 2;
+        }
+        return viewType;
+    }
+
+    private static void bind(QiscusComment qiscusComment, boolean cached) {
+        switch (type(qiscusComment, cached)) {
+            case IMAGE:
+            case VIDEO:
+            case AUDIO:
+            case FILE:
+                invalidate(qiscusComment, cached);
+                qiscusComment.getAttachmentUri();
+                invalidate(qiscusComment, cached);
+                qiscusComment.getAttachmentName();
+                invalidate(qiscusComment, cached);
+                qiscusComment.getCaption();
+                invalidate(qiscusComment, cached);
+                qiscusComment.getExtension();
+                invalidate(qiscusComment, cached);
+                qiscusComment.isImage();
+                break;
+            case REPLY:
+                invalidate(qiscusComment, cached);
+                qiscusComment.getReplyTo();
+                break;
+            case CONTACT:
+                invalidate(qiscusComment, cached);
+                qiscusComment.getContact();
+                break;
+            case LOCATION:
+                invalidate(qiscusComment, cached);
+                qiscusComment.getLocation();
+                break;
+            default:
+                qiscusComment.getMessage();
+                break;
+        }
+    }
+
+    private static QiscusComment.Type type(QiscusComment qiscusComment, boolean cached) {
+        invalidate(qiscusComment, cached);
+        return qiscusComment.getType();
+    }
+
+    private static void invalidate(QiscusComment qiscusComment, boolean cached) {
+        if (!cached) {
+            qiscusComment.setMessage(qiscusComment.getMessage());
+            qiscusComment.setReplyTo(null);
+            qiscusComment.setContact(null);
+            qiscusComment.setLocation(null);
+        }
+    }
+
+    private static List<QiscusComment> comments() {
+        List<QiscusComment> comments = new ArrayList<>(COMMENTS);
+        for (int i = 0; i < COMMENTS; i++) {
+            QiscusComment qiscusComment = new QiscusComment();
+            qiscusComment.setId(i + 1);
+            qiscusComment.setRoomId(1);
+            qiscusComment.setUniqueId("android_" + i);
+            qiscusComment.setSenderEmail(i % 3 == 0 ? MY_EMAIL : "user" + i % 7 + "@mail.com");
+            qiscusComment.setSender("User " + i % 7);
+            qiscusComment.setTime(new Date(1500000000000L + i * 60000L));
+            qiscusComment.setState(QiscusComment.STATE_ON_QISCUS);
+            fill(qiscusComment, i);
+            comments.add(qiscusComment);
+        }
+        return comments;
+    }
+
+    private static void fill(QiscusComment qiscusComment, int index) {
+        switch (index % 12) {
+            case 0:
+                text(qiscusComment, "Message " + index + LINE_SEPARATOR + "second line");
+                break;
+            case 1:
+                text(qiscusComment, "Have a look at https://www.qiscus.com/blog/" + index);
+                break;
+            case 2:
+                attachment(qiscusComment, "https://files.qiscus.com/photo_" + index + ".jpg", "Photo " + index);
+                break;
+            case 3:
+                attachment(qiscusComment, "https://files.qiscus.com/video_" + index + ".mp4", "");
+                break;
+            case 4:
+                attachment(qiscusComment, "https://files.qiscus.com/voice_" + index + ".m4a", "");
+                break;
+            case 5:
+                attachment(qiscusComment, "https://files.qiscus.com/report_" + index + ".pdf", "Report");
+                break;
+            case 6:
+                typed(qiscusComment, "reply", "Reply " + index, "{\"text\":\"Reply " + index + "\","
+                        + "\"replied_comment_id\":" + index + ",\"replied_comment_message\":\"Message\","
+                        + "\"replied_comment_sender_username\":\"User\","
+                        + "\"replied_comment_sender_email\":\"user@mail.com\","
+                        + "\"replied_comment_type\":\"text\",\"replied_comment_payload\":\"\"}");
+                break;
+            case 7:
+                typed(qiscusComment, "contact_person", "Fauzi" + LINE_SEPARATOR + "0812345678",
+                        "{\"name\":\"Fauzi\",\"value\":\"0812345678\",\"type\":\"phone\"}");
+                break;
+            case 8:
+                typed(qiscusComment, "location", "Qiscus - Yogyakarta",
+                        "{\"name\":\"Qiscus\",\"address\":\"Yogyakarta\",\"latitude\":-7.78,"
+                                + "\"longitude\":110.36,\"map_url\":\"https://maps.google.com/?q=-7.78,110.36\"}");
+                break;
+            case 9:
+                typed(qiscusComment, "custom", "Custom " + index,
+                        "{\"type\":\"promo\",\"content\":{\"code\":\"" + index + "\"}}");
+                break;
+            default:
+                text(qiscusComment, "Message " + index);
+                break;
+        }
+    }
+
+    private static void text(QiscusComment qiscusComment, String message) {
+        typed(qiscusComment, "text", message, null);
+    }
+
+    private static void attachment(QiscusComment qiscusComment, String url, String caption) {
+        String fileName = url.substring(url.lastIndexOf('/') + 1);
+        typed(qiscusComment, "file_attachment", "[file] " + url + " [/file]", "{\"url\":\"" + url + "\","
+                + "\"caption\":\"" + caption + "\",\"file_name\":\"" + fileName + "\"}");
+    }
+
+    private static void typed(QiscusComment qiscusComment, String rawType, String message, String payload) {
+        qiscusComment.setRawType(rawType);
+        qiscusComment.setMessage(message);
+        qiscusComment.setExtraPayload(payload);
+    }
+}
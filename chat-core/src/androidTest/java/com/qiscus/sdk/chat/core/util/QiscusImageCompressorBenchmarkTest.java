@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.util;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.LinearGradient;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.media.ExifInterface;
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.qiscus.sdk.chat.core.data.model.QiscusImageCompressionConfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compresses generated 12, 24 and 48 MP photos with {@link QiscusImageCompressor} and with the pipeline it replaced
+ * (bounds pass, sampled decode, scaled copy drawn on a canvas, rotated copy), and logs the latency and the peak of
+ * the Java plus native heap above the idle level while each one runs. Only the output size is asserted, the numbers
+ * depend on the device. Sizes the device can not even generate are reported and skipped.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QiscusImageCompressorBenchmarkTest {
+    private static final String TAG = QiscusImageCompressorBenchmarkTest.class.getSimpleName();
+    private static final int[][] SIZES = {{4000, 3000}, {6000, 4000}, {8000, 6000}};
+    private static final int ROUNDS = 3;
+    private static final long SAMPLE_INTERVAL_MILLIS = 2;
+
+    private final QiscusImageCompressionConfig config = new QiscusImageCompressionConfig();
+    private File directory;
+
+    @Before
+    public void setUp() {
+        directory = new File(InstrumentationRegistry.getTargetContext().getCacheDir(), TAG);
+        directory.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void compressLargePhotos() throws Exception {
+        for (int[] size : SIZES) {
+            String name = String.format(Locale.US, "%d MP", size[0] * size[1] / 1000000);
+            File source = new File(directory, "photo_" + size[0] + "x" + size[1] + ".jpg");
+            try {
+                generatePhoto(source, size[0], size[1]);
+            } catch (OutOfMemoryError e) {
+                Log.i(TAG, name + " skipped, the device can not allocate the source photo");
+                continue;
+            }
+
+            File legacyOutput = new File(directory, "legacy.jpg");
+            File output = new File(directory, "compressed.jpg");
+            String legacy = measure(() -> compressLegacy(source, legacyOutput));
+            String compressor = measure(() -> QiscusImageCompressor.getInstance()
+                    .compress(source, output, config, null));
+
+            assertFitsMaxSize(output);
+            Log.i(TAG, String.format(Locale.US, "%s, legacy: %s, compressor: %s", name, legacy, compressor));
+            source.delete();
+        }
+    }
+
+    private String measure(Compression compression) throws Exception {
+        long nanos = 0;
+        long peakBytes = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            Runtime.getRuntime().gc();
+            HeapSampler sampler = new HeapSampler();
+            sampler.start();
+            long start = System.nanoTime();
+            try {
+                compression.run();
+            } catch (OutOfMemoryError e) {
+                sampler.finish();
+                return "out of memory";
+            }
+            nanos += System.nanoTime() - start;
+            peakBytes = Math.max(peakBytes, sampler.finish());
+        }
+        return String.format(Locale.US, "%.0f ms, peak %.1f MB", nanos / 1e6 / ROUNDS, peakBytes / 1048576.0);
+    }
+
+    private void assertFitsMaxSize(File output) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(output.getAbsolutePath(), options);
+        int orientation = new ExifInterface(output.getAbsolutePath())
+                .getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        boolean transposed = orientation >= ExifInterface.ORIENTATION_TRANSPOSE;
+        int displayedWidth = transposed ? options.outHeight : options.outWidth;
+        int displayedHeight = transposed ? options.outWidth : options.outHeight;
+
+        assertTrue("Unexpected size " + displayedWidth + "x" + displayedHeight,
+                displayedWidth > 0 && displayedWidth <= config.getMaxWidth() + 1
+                        && displayedHeight > 0 && displayedHeight <= config.getMaxHeight() + 1);
+    }
+
+    /**
+     * A portrait shot as cameras store it, landscape pixels with a rotate 90 EXIF orientation.
+     */
+    private static void generatePhoto(File file, int width, int height) throws IOException {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        try {
+            Canvas canvas = new Canvas(bitmap);
+            Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            paint.setShader(new LinearGradient(0, 0, width, height, Color.rgb(30, 90, 160), Color.rgb(240, 200, 90),
+                    Shader.TileMode.CLAMP));
+            canvas.drawRect(0, 0, width, height, paint);
+            paint.setShader(null);
+            for (int i = 0; i < 200; i++) {
+                paint.setColor(Color.rgb(i * 37 % 256, i * 91 % 256, i * 53 % 256));
+                canvas.drawCircle(i * 7919 % width, i * 104729 % height, width / 40f + i % 17 * 10, paint);
+            }
+
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+            try {
+                bitmap.compress(Bitmap.CompressFormat.JPEG, 95, out);
+            } finally {
+                out.close();
+            }
+        } finally {
+            bitmap.recycle();
+        }
+
+        ExifInterface exif = new ExifInterface(file.getAbsolutePath());
+        exif.setAttribute(ExifInterface.TAG_ORIENTATION, String.valueOf(ExifInterface.ORIENTATION_ROTATE_90));
+        exif.saveAttributes();
+    }
+
+    /**
+     * The compression QiscusImageUtil.compressImage did before QiscusImageCompressor, kept here as the baseline.
+     */
+    private void compressLegacy(File imageFile, File output) throws IOException {
+        String filePath = imageFile.getAbsolutePath();
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(filePath, options);
+
+        int actualHeight = options.outHeight;
+        int actualWidth = options.outWidth;
+        float maxHeight = config.getMaxHeight();
+        float maxWidth = config.getMaxWidth();
+        float imgRatio = actualWidth / actualHeight;
+        float maxRatio = maxWidth / maxHeight;
+        if (actualHeight > maxHeight || actualWidth > maxWidth) {
+            if (imgRatio < maxRatio) {
+                imgRatio = maxHeight / actualHeight;
+                actualWidth = (int) (imgRatio * actualWidth);
+                actualHeight = (int) maxHeight;
+            } else if (imgRatio > maxRatio) {
+                imgRatio = maxWidth / actualWidth;
+                actualHeight = (int) (imgRatio * actualHeight);
+                actualWidth = (int) maxWidth;
+            } else {
+                actualHeight = (int) maxHeight;
+                actualWidth = (int) maxWidth;
+            }
+        }
+
+        options.inSampleSize = calculateInSampleSize(options, actualWidth, actualHeight);
+        options.inJustDecodeBounds = false;
+        options.inTempStorage = new byte[16 * 1024];
+        Bitmap bmp = BitmapFactory.decodeFile(filePath, options);
+        Bitmap scaledBitmap = Bitmap.createBitmap(actualWidth, actualHeight, Bitmap.Config.ARGB_8888);
+
+        float ratioX = actualWidth / (float) options.outWidth;
+        float ratioY = actualHeight / (float) options.outHeight;
+        float middleX = actualWidth / 2.0f;
+        float middleY = actualHeight / 2.0f;
+        Matrix scaleMatrix = new Matrix();
+        scaleMatrix.setScale(ratioX, ratioY, middleX, middleY);
+        Canvas canvas = new Canvas(scaledBitmap);
+        canvas.setMatrix(scaleMatrix);
+        canvas.drawBitmap(bmp, middleX - bmp.getWidth() / 2, middleY - bmp.getHeight() / 2,
+                new Paint(Paint.FILTER_BITMAP_FLAG));
+
+        int orientation = new ExifInterface(filePath).getAttributeInt(ExifInterface.TAG_ORIENTATION, 0);
+        Matrix matrix = new Matrix();
+        if (orientation == 6) {
+            matrix.postRotate(90);
+        } else if (orientation == 3) {
+            matrix.postRotate(180);
+        } else if (orientation == 8) {
+            matrix.postRotate(270);
+        }
+        scaledBitmap = Bitmap.createBitmap(scaledBitmap, 0, 0, scaledBitmap.getWidth(), scaledBitmap.getHeight(),
+                matrix, true);
+
+        FileOutputStream out = new FileOutputStream(output);
+        try {
+            scaledBitmap.compress(Bitmap.CompressFormat.JPEG, config.getQuality(), out);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static int calculateInSampleSize(BitmapFactory.Options options, int reqWidth, int reqHeight) {
+        final int height = options.outHeight;
+        final int width = options.outWidth;
+        int inSampleSize = 1;
+
+        if (height > reqHeight || width > reqWidth) {
+            final int heightRatio = Math.round((float) height / (float) reqHeight);
+            final int widthRatio = Math.round((float) width / (float) reqWidth);
+            inSampleSize = heightRatio < widthRatio ? heightRatio : widthRatio;
+        }
+
+        final float totalPixels = width * height;
+        final float totalReqPixelsCap = reqWidth * reqHeight * 2;
+        while (totalPixels / (inSampleSize * inSampleSize) > totalReqPixelsCap) {
+            inSampleSize++;
+        }
+
+        return inSampleSize;
+    }
+
+    private interface Compression {
+        void run() throws Exception;
+    }
+
+    /**
+     * Bitmap pixels live on the Java heap before Oreo and on the native heap since, so both are sampled.
+     */
+    private static class HeapSampler extends Thread {
+        private final long idleBytes = usedBytes();
+        private volatile boolean running = true;
+        private long peakBytes;
+
+        @Override
+        public void run() {
+            while (running) {
+                peakBytes = Math.max(peakBytes, usedBytes() - idleBytes);
+                try {
+                    Thread.sleep(SAMPLE_INTERVAL_MILLIS);
+                } catch (InterruptedException ignored) {
+                    //Do nothing
+                }
+            }
+        }
+
+        private long finish() throws InterruptedException {
+            running = false;
+            join();
+            return Math.max(peakBytes, usedBytes() - idleBytes);
+        }
+
+        private static long usedBytes() {
+            Runtime runtime = Runtime.getRuntime();
+            return runtime.totalMemory() - runtime.freeMemory() + Debug.getNativeHeapAllocatedSize();
+        }
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * migration db v17 to v18
+ */
+
+CREATE INDEX IF NOT EXISTS comments_room_id_hard_deleted_time_index ON comments (room_id, hard_deleted, time, unique_id);
+CREATE INDEX IF NOT EXISTS comments_id_index ON comments (id);
+CREATE INDEX IF NOT EXISTS comments_state_index ON comments (state);
+CREATE INDEX IF NOT EXISTS room_members_user_email_index ON room_members (user_email);
\ No newline at end of file
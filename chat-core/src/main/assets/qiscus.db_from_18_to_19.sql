@@ -0,0 +1,7 @@
+/**
+ * migration db v18 to v19
+ */
+
+CREATE VIRTUAL TABLE IF NOT EXISTS comments_fts USING fts4(body);
+CREATE TABLE IF NOT EXISTS comments_fts_backfill (last_row_id INTEGER NOT NULL);
+INSERT INTO comments_fts_backfill (last_row_id) VALUES (0);
\ No newline at end of file
@@ -0,0 +1,12 @@
+/**
+ * migration db v19 to v20
+ */
+
+ALTER TABLE rooms ADD COLUMN last_comment_unique_id TEXT;
+ALTER TABLE rooms ADD COLUMN last_comment_time LONG DEFAULT 0;
+ALTER TABLE rooms ADD COLUMN last_comment_preview TEXT;
+UPDATE rooms SET
+last_comment_unique_id = (SELECT unique_id FROM comments WHERE room_id = rooms.id AND hard_deleted = 0 ORDER BY time DESC, unique_id DESC LIMIT 1),
+last_comment_time = COALESCE((SELECT time FROM comments WHERE room_id = rooms.id AND hard_deleted = 0 ORDER BY time DESC, unique_id DESC LIMIT 1), 0),
+last_comment_preview = (SELECT message FROM comments WHERE room_id = rooms.id AND hard_deleted = 0 ORDER BY time DESC, unique_id DESC LIMIT 1);
+CREATE INDEX IF NOT EXISTS rooms_last_comment_time_index ON rooms (last_comment_time, id);
\ No newline at end of file
@@ -0,0 +1,5 @@
+/**
+ * migration db v20 to v21
+ */
+
+CREATE TABLE IF NOT EXISTS upload_sessions (file_path TEXT PRIMARY KEY, file_size LONG NOT NULL, file_modified LONG NOT NULL, url TEXT, updated_at LONG DEFAULT 0);
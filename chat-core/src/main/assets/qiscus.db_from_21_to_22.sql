@@ -0,0 +1,7 @@
+/**
+ * migration db v21 to v22
+ */
+
+CREATE TABLE IF NOT EXISTS attachment_cache (hash TEXT PRIMARY KEY, local_path TEXT NOT NULL, size LONG NOT NULL, last_access LONG DEFAULT 0);
+CREATE INDEX IF NOT EXISTS attachment_cache_last_access_index ON attachment_cache (last_access);
+CREATE INDEX IF NOT EXISTS files_local_path_index ON files (local_path);
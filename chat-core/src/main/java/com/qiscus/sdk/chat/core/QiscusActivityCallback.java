@@ -21,6 +21,7 @@ import android.app.Application;
 import android.os.Bundle;
 
 import com.qiscus.sdk.chat.core.data.remote.QiscusPusherApi;
+import com.qiscus.sdk.chat.core.data.remote.QiscusReceiptAggregator;
 import com.qiscus.sdk.chat.core.util.QiscusAndroidUtil;
 
 import java.util.concurrent.ScheduledFuture;
@@ -86,8 +87,10 @@ enum QiscusActivityCallback implements Application.ActivityLifecycleCallbacks {
     }
 
     private void startActivityTransitionTimer() {
-        activityTransition = QiscusAndroidUtil.runOnBackgroundThread(() -> foreground = false,
-                MAX_ACTIVITY_TRANSITION_TIME);
+        activityTransition = QiscusAndroidUtil.runOnBackgroundThread(() -> {
+            foreground = false;
+            QiscusReceiptAggregator.getInstance().flush();
+        }, MAX_ACTIVITY_TRANSITION_TIME);
     }
 
     private void stopActivityTransitionTimer() {
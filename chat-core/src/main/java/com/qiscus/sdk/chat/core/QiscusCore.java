@@ -32,12 +32,15 @@ import com.qiscus.sdk.chat.core.data.local.QiscusDataStore;
 import com.qiscus.sdk.chat.core.data.model.QiscusAccount;
 import com.qiscus.sdk.chat.core.data.model.QiscusCoreChatConfig;
 import com.qiscus.sdk.chat.core.data.remote.QiscusApi;
+import com.qiscus.sdk.chat.core.data.remote.QiscusReceiptAggregator;
+import com.qiscus.sdk.chat.core.data.remote.QiscusTelemetryBuffer;
 import com.qiscus.sdk.chat.core.event.QiscusUserEvent;
 import com.qiscus.sdk.chat.core.service.QiscusNetworkCheckerJobService;
 import com.qiscus.sdk.chat.core.service.QiscusSyncJobService;
 import com.qiscus.sdk.chat.core.service.QiscusSyncService;
 import com.qiscus.sdk.chat.core.util.BuildVersionUtil;
 import com.qiscus.sdk.chat.core.util.QiscusErrorLogger;
+import com.qiscus.sdk.chat.core.util.QiscusExecutors;
 
 import org.greenrobot.eventbus.EventBus;
 import org.json.JSONObject;
@@ -47,7 +50,6 @@ import java.util.concurrent.ScheduledThreadPoolExecutor;
 
 import rx.Observable;
 import rx.android.schedulers.AndroidSchedulers;
-import rx.schedulers.Schedulers;
 
 /**
  * @author Yuana andhikayuana@gmail.com
@@ -436,7 +438,7 @@ public class QiscusCore {
      */
     public static void setUser(String token, SetUserListener listener) {
         setUserAsObservable(token)
-                .subscribeOn(Schedulers.io())
+                .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(listener::onSuccess, listener::onError);
     }
@@ -476,7 +478,7 @@ public class QiscusCore {
     public static void updateUser(String name, String avatarUrl, JSONObject extras, SetUserListener listener) {
         checkUserSetup();
         updateUserAsObservable(name, avatarUrl, extras)
-                .subscribeOn(Schedulers.io())
+                .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(listener::onSuccess, listener::onError);
     }
@@ -527,7 +529,7 @@ public class QiscusCore {
     public static void setFcmToken(String fcmToken) {
         if (hasSetupUser() && getChatConfig().isEnableFcmPushNotification()) {
             QiscusApi.getInstance().registerFcmToken(fcmToken)
-                    .subscribeOn(Schedulers.io())
+                    .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
                     .observeOn(AndroidSchedulers.mainThread())
                     .subscribe(aVoid -> {
                     }, throwable -> QiscusErrorLogger.print("SetFCMToken", throwable));
@@ -550,7 +552,7 @@ public class QiscusCore {
                                 //Do nothing
                             }
                         })
-                        .subscribeOn(Schedulers.io())
+                        .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
                         .observeOn(AndroidSchedulers.mainThread())
                         .subscribe(aVoid -> {
                         }, throwable -> {
@@ -591,6 +593,8 @@ public class QiscusCore {
         localDataManager.clearData();
         dataStore.clear();
         QiscusCacheManager.getInstance().clearData();
+        QiscusReceiptAggregator.getInstance().clear();
+        QiscusTelemetryBuffer.getInstance().clear();
         EventBus.getDefault().post(QiscusUserEvent.LOGOUT);
     }
 
@@ -758,7 +762,7 @@ public class QiscusCore {
          * @param listener Listener of saving user process
          */
         public void save(SetUserListener listener) {
-            save().subscribeOn(Schedulers.io())
+            save().subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
                     .observeOn(AndroidSchedulers.mainThread())
                     .subscribe(listener::onSuccess, listener::onError);
         }
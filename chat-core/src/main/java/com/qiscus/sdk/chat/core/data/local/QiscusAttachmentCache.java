@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.local;
+
+import com.qiscus.sdk.chat.core.QiscusCore;
+import com.qiscus.sdk.chat.core.data.model.QiscusAttachmentCacheEntry;
+import com.qiscus.sdk.chat.core.data.model.QiscusAttachmentCacheStats;
+import com.qiscus.sdk.chat.core.data.model.QiscusComment;
+import com.qiscus.sdk.chat.core.data.remote.QiscusApi;
+import com.qiscus.sdk.chat.core.data.remote.QiscusDownloadManager;
+import com.qiscus.sdk.chat.core.util.QiscusAndroidUtil;
+import com.qiscus.sdk.chat.core.util.QiscusErrorLogger;
+import com.qiscus.sdk.chat.core.util.QiscusExecutors;
+import com.qiscus.sdk.chat.core.util.QiscusFileUtil;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.internal.Util;
+import okio.BufferedSink;
+import okio.ByteString;
+import okio.Okio;
+import okio.Source;
+import rx.Observable;
+
+/**
+ * Local files of attachments, keyed by the SHA-1 of their content so the same file sent or received many times is
+ * stored once. Comments refer to a cached file through their local path in files table, which also tells how many
+ * comments still use it. When the total size goes above
+ * {@link com.qiscus.sdk.chat.core.data.model.QiscusCoreChatConfig#getAttachmentCacheSize()} a background compaction
+ * deletes files nobody refers to anymore and then the least recently accessed ones, those are downloaded again the
+ * next time they are opened.
+ */
+public enum QiscusAttachmentCache {
+    INSTANCE;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long COMPACTION_DELAY = 30 * 1000L;
+    private static final long MIN_EVICTION_AGE = 60 * 60 * 1000L;
+
+    private final Map<String, Long> pendingAccesses = new HashMap<>();
+    private final Object fileLock = new Object();
+    private boolean compactionScheduled;
+    private int entryCount;
+    private long totalSize;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long savedSize;
+    private long lastCompaction;
+
+    QiscusAttachmentCache() {
+        scheduleCompaction();
+    }
+
+    public static QiscusAttachmentCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Copy the file into app folder, unless a file with the same content is already there.
+     *
+     * @return the cached file, or the given file itself if it can not be read
+     */
+    public File store(File file) {
+        try {
+            String hash = hash(file);
+            synchronized (fileLock) {
+                File cachedFile = getCachedFile(hash);
+                if (cachedFile != null) {
+                    recordHit(cachedFile);
+                    return cachedFile;
+                }
+
+                File newFile = new File(QiscusFileUtil.generateFilePath(file.getName()));
+                copy(file, newFile);
+                add(hash, newFile);
+                return newFile;
+            }
+        } catch (IOException e) {
+            QiscusErrorLogger.print("AttachmentCache", e);
+            return file;
+        }
+    }
+
+    /**
+     * Add a file which is already in app folder, e.g. a download or a compressed image. If a file with the same
+     * content is cached already the given file is deleted and the cached one is returned instead.
+     */
+    public File put(File file) {
+        try {
+            String hash = hash(file);
+            synchronized (fileLock) {
+                File cachedFile = getCachedFile(hash);
+                if (cachedFile == null) {
+                    add(hash, file);
+                    return file;
+                }
+                if (cachedFile.equals(file)) {
+                    onAccess(cachedFile);
+                } else {
+                    file.delete();
+                    recordHit(cachedFile);
+                }
+                return cachedFile;
+            }
+        } catch (IOException e) {
+            QiscusErrorLogger.print("AttachmentCache", e);
+            return file;
+        }
+    }
+
+    /**
+     * Local file of the comment attachment, it is downloaded first if it is not on disk, e.g. it has been evicted.
+     */
+    public Observable<File> get(QiscusComment qiscusComment, QiscusApi.ProgressListener progressListener) {
+        return Observable.defer(() -> {
+            File file = QiscusCore.getDataStore().getLocalPath(qiscusComment.getId());
+            if (file != null) {
+                return Observable.just(file);
+            }
+            return QiscusDownloadManager.getInstance().download(qiscusComment, progressListener);
+        });
+    }
+
+    /**
+     * Called when a cached file is opened, access times are saved on the next compaction so reads do not write to
+     * database every time.
+     */
+    public void onAccess(File file) {
+        synchronized (this) {
+            pendingAccesses.put(file.getAbsolutePath(), System.currentTimeMillis());
+        }
+        scheduleCompaction();
+    }
+
+    /**
+     * Delete the file if no comment refers to it anymore. A file which has just been stored or hit is kept, the
+     * comment which is going to refer to it may not be saved yet. This does disk and database work, do not call it
+     * from main thread.
+     */
+    public void release(File file) {
+        String localPath = file.getAbsolutePath();
+        synchronized (fileLock) {
+            if (isRecentlyAccessed(localPath)) {
+                return;
+            }
+            QiscusDataStore dataStore = QiscusCore.getDataStore();
+            if (dataStore.getLocalPathReferenceCount(localPath) == 0) {
+                long size = file.length();
+                if (file.delete()) {
+                    dataStore.deleteAttachmentCacheEntryOfPath(localPath);
+                    synchronized (this) {
+                        entryCount = Math.max(entryCount - 1, 0);
+                        totalSize = Math.max(totalSize - size, 0);
+                    }
+                }
+            }
+        }
+    }
+
+    public synchronized QiscusAttachmentCacheStats getStats() {
+        return new QiscusAttachmentCacheStats(entryCount, totalSize, QiscusCore.getChatConfig().getAttachmentCacheSize(),
+                hitCount, missCount, evictionCount, savedSize, lastCompaction);
+    }
+
+    /**
+     * Save pending access times, forget entries whose file has been removed and evict files until the cache fits
+     * in its budget. Files of unsent comments are never evicted, and files accessed within the last
+     * {@link #MIN_EVICTION_AGE} ms are kept because the comment referring to them may not be saved yet.
+     * This does disk and database work, do not call it from main thread.
+     */
+    public void compact() {
+        Map<String, Long> accesses;
+        synchronized (this) {
+            compactionScheduled = false;
+            accesses = new HashMap<>(pendingAccesses);
+            pendingAccesses.clear();
+        }
+        QiscusDataStore dataStore = QiscusCore.getDataStore();
+        dataStore.updateAttachmentCacheAccess(accesses);
+
+        List<QiscusAttachmentCacheEntry> entries = new ArrayList<>();
+        long total = 0;
+        for (QiscusAttachmentCacheEntry entry : dataStore.getAttachmentCacheEntries()) {
+            if (new File(entry.getLocalPath()).exists()) {
+                entries.add(entry);
+                total += entry.getSize();
+            } else {
+                dataStore.deleteAttachmentCacheEntry(entry.getHash());
+            }
+        }
+
+        int evicted = 0;
+        long maxSize = QiscusCore.getChatConfig().getAttachmentCacheSize();
+        if (maxSize > 0 && total > maxSize) {
+            long minAccess = System.currentTimeMillis() - MIN_EVICTION_AGE;
+            List<QiscusAttachmentCacheEntry> candidates = new ArrayList<>();
+            List<QiscusAttachmentCacheEntry> referencedCandidates = new ArrayList<>();
+            for (QiscusAttachmentCacheEntry entry : entries) {
+                if (entry.getLastAccess() > minAccess) {
+                    continue;
+                }
+                if (dataStore.getLocalPathReferenceCount(entry.getLocalPath()) == 0) {
+                    candidates.add(entry);
+                } else {
+                    referencedCandidates.add(entry);
+                }
+            }
+            candidates.addAll(referencedCandidates);
+
+            for (QiscusAttachmentCacheEntry entry : candidates) {
+                if (total <= maxSize) {
+                    break;
+                }
+                synchronized (fileLock) {
+                    if (isRecentlyAccessed(entry.getLocalPath()) || dataStore.isLocalPathPinned(entry.getLocalPath())) {
+                        continue;
+                    }
+                    new File(entry.getLocalPath()).delete();
+                    dataStore.deleteAttachmentCacheEntry(entry.getHash());
+                }
+                total -= entry.getSize();
+                evicted++;
+            }
+        }
+
+        synchronized (this) {
+            entryCount = entries.size() - evicted;
+            totalSize = total;
+            evictionCount += evicted;
+            lastCompaction = System.currentTimeMillis();
+        }
+    }
+
+    private void scheduleCompaction() {
+        synchronized (this) {
+            if (compactionScheduled) {
+                return;
+            }
+            compactionScheduled = true;
+        }
+        QiscusAndroidUtil.runOnBackgroundThread(() ->
+                QiscusExecutors.getInstance().getDiskLane().execute(this::compact), COMPACTION_DELAY);
+    }
+
+    private synchronized boolean isRecentlyAccessed(String localPath) {
+        Long lastAccess = pendingAccesses.get(localPath);
+        return lastAccess != null && lastAccess > System.currentTimeMillis() - MIN_EVICTION_AGE;
+    }
+
+    private File getCachedFile(String hash) {
+        QiscusAttachmentCacheEntry entry = QiscusCore.getDataStore().getAttachmentCacheEntry(hash);
+        if (entry == null) {
+            return null;
+        }
+        File file = new File(entry.getLocalPath());
+        if (file.exists() && file.length() == entry.getSize()) {
+            return file;
+        }
+        QiscusCore.getDataStore().deleteAttachmentCacheEntry(hash);
+        return null;
+    }
+
+    private void add(String hash, File file) {
+        long size = file.length();
+        QiscusCore.getDataStore().saveAttachmentCacheEntry(new QiscusAttachmentCacheEntry(hash,
+                file.getAbsolutePath(), size, System.currentTimeMillis()));
+
+        long maxSize = QiscusCore.getChatConfig().getAttachmentCacheSize();
+        boolean overBudget;
+        synchronized (this) {
+            missCount++;
+            entryCount++;
+            totalSize += size;
+            overBudget = maxSize > 0 && totalSize > maxSize;
+        }
+        if (overBudget) {
+            scheduleCompaction();
+        }
+    }
+
+    private void recordHit(File cachedFile) {
+        synchronized (this) {
+            hitCount++;
+            savedSize += cachedFile.length();
+        }
+        onAccess(cachedFile);
+    }
+
+    private static String hash(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, count);
+            }
+        } finally {
+            Util.closeQuietly(inputStream);
+        }
+        return ByteString.of(digest.digest()).hex();
+    }
+
+    private static void copy(File source, File target) throws IOException {
+        Source fileSource = Okio.source(source);
+        BufferedSink sink = null;
+        try {
+            sink = Okio.buffer(Okio.sink(target));
+            sink.writeAll(fileSource);
+        } finally {
+            Util.closeQuietly(fileSource);
+            Util.closeQuietly(sink);
+        }
+    }
+}
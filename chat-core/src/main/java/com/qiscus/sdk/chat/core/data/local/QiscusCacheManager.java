@@ -19,7 +19,6 @@ package com.qiscus.sdk.chat.core.data.local;
 import android.content.Context;
 import android.content.SharedPreferences;
 import androidx.core.util.Pair;
-import android.text.TextUtils;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
@@ -27,6 +26,9 @@ import com.qiscus.sdk.chat.core.QiscusCore;
 import com.qiscus.sdk.chat.core.data.model.QiscusCommentDraft;
 import com.qiscus.sdk.chat.core.data.model.QiscusPushNotificationMessage;
 import com.qiscus.sdk.chat.core.data.model.QiscusReplyCommentDraft;
+import com.qiscus.sdk.chat.core.data.model.QiscusRoomReceipt;
+import com.qiscus.sdk.chat.core.data.model.QiscusTelemetryEvent;
+import com.qiscus.sdk.chat.core.util.QiscusErrorLogger;
 
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -42,12 +44,17 @@ import java.util.List;
  */
 public enum QiscusCacheManager {
     INSTANCE;
+    private static final String PUSH_NOTIF_MESSAGE_PREFIX = "push_notif_message_";
+
     private final SharedPreferences sharedPreferences;
     private final Gson gson;
+    private final QiscusPushNotificationDbHelper pushNotificationDb;
 
     QiscusCacheManager() {
         sharedPreferences = QiscusCore.getApps().getSharedPreferences("qiscus.cache", Context.MODE_PRIVATE);
         gson = new Gson();
+        pushNotificationDb = new QiscusPushNotificationDbHelper(QiscusCore.getApps());
+        migrateMessageNotifItems();
     }
 
     public static QiscusCacheManager getInstance() {
@@ -61,67 +68,27 @@ public enum QiscusCacheManager {
     }
 
     public boolean addMessageNotifItem(QiscusPushNotificationMessage message, long roomId) {
-        List<QiscusPushNotificationMessage> notifItems = getMessageNotifItems(roomId);
-        if (notifItems == null) {
-            notifItems = new ArrayList<>();
-        }
-
-        if (!notifItems.contains(message)) {
-            notifItems.add(message);
-            sharedPreferences.edit()
-                    .putString("push_notif_message_" + roomId, gson.toJson(notifItems))
-                    .apply();
-            return true;
-        }
-        return false;
+        return pushNotificationDb.add(roomId, message);
     }
 
+    /**
+     * @return messages of the room from the oldest, or null if the room has none
+     */
     public List<QiscusPushNotificationMessage> getMessageNotifItems(long roomId) {
-        String json = sharedPreferences.getString("push_notif_message_" + roomId, "");
-        return gson.fromJson(json, new TypeToken<List<QiscusPushNotificationMessage>>() {
-        }.getType());
+        List<QiscusPushNotificationMessage> notifItems = pushNotificationDb.getAll(roomId);
+        return notifItems.isEmpty() ? null : notifItems;
     }
 
     public boolean updateMessageNotifItem(QiscusPushNotificationMessage message, long roomId) {
-        List<QiscusPushNotificationMessage> notifItems = getMessageNotifItems(roomId);
-        if (notifItems != null) {
-            int index = notifItems.indexOf(message);
-            if (index >= 0) {
-                if (message.getMessage().equals(notifItems.get(index).getMessage())) {
-                    return false;
-                }
-
-                if (TextUtils.isEmpty(message.getRoomName()) && !TextUtils.isEmpty(notifItems.get(index).getRoomName())) {
-                    message.setRoomName(notifItems.get(index).getRoomName());
-                    message.setRoomAvatar(notifItems.get(index).getRoomAvatar());
-                }
-
-                notifItems.set(index, message);
-                sharedPreferences.edit()
-                        .putString("push_notif_message_" + roomId, gson.toJson(notifItems))
-                        .apply();
-                return true;
-            }
-        }
-        return false;
+        return pushNotificationDb.update(roomId, message);
     }
 
     public boolean removeMessageNotifItem(QiscusPushNotificationMessage message, long roomId) {
-        List<QiscusPushNotificationMessage> notifItems = getMessageNotifItems(roomId);
-        if (notifItems != null) {
-            boolean deleted = notifItems.remove(message);
-            sharedPreferences.edit()
-                    .putString("push_notif_message_" + roomId, gson.toJson(notifItems))
-                    .apply();
-            return deleted;
-        }
-        return false;
+        return pushNotificationDb.remove(roomId, message);
     }
 
     public void clearMessageNotifItems(long roomId) {
-        sharedPreferences.edit()
-                .remove("push_notif_message_" + roomId)
-                .apply();
+        pushNotificationDb.clear(roomId);
     }
 
     public String getLastImagePath() {
@@ -169,7 +136,68 @@ public enum QiscusCacheManager {
                 .apply();
     }
 
+    public void cachePendingReceipts(List<QiscusRoomReceipt> receipts) {
+        sharedPreferences.edit()
+                .putString("pending_receipts", gson.toJson(receipts))
+                .apply();
+    }
+
+    public List<QiscusRoomReceipt> getPendingReceipts() {
+        String json = sharedPreferences.getString("pending_receipts", "");
+        List<QiscusRoomReceipt> receipts = gson.fromJson(json, new TypeToken<List<QiscusRoomReceipt>>() {
+        }.getType());
+        return receipts == null ? new ArrayList<>() : receipts;
+    }
+
+    public void cachePendingTelemetry(List<QiscusTelemetryEvent> events) {
+        sharedPreferences.edit()
+                .putString("pending_telemetry", gson.toJson(events))
+                .apply();
+    }
+
+    public List<QiscusTelemetryEvent> getPendingTelemetry() {
+        String json = sharedPreferences.getString("pending_telemetry", "");
+        List<QiscusTelemetryEvent> events = gson.fromJson(json, new TypeToken<List<QiscusTelemetryEvent>>() {
+        }.getType());
+        return events == null ? new ArrayList<>() : events;
+    }
+
     public void clearData() {
         sharedPreferences.edit().clear().apply();
+        pushNotificationDb.clear();
+    }
+
+    /**
+     * Older version saved push notification history as json list in shared preferences,
+     * move it to the notification database once.
+     */
+    private void migrateMessageNotifItems() {
+        SharedPreferences.Editor editor = null;
+        for (String key : sharedPreferences.getAll().keySet()) {
+            if (!key.startsWith(PUSH_NOTIF_MESSAGE_PREFIX)) {
+                continue;
+            }
+
+            try {
+                long roomId = Long.parseLong(key.substring(PUSH_NOTIF_MESSAGE_PREFIX.length()));
+                List<QiscusPushNotificationMessage> notifItems = gson.fromJson(sharedPreferences.getString(key, ""),
+                        new TypeToken<List<QiscusPushNotificationMessage>>() {
+                        }.getType());
+                if (notifItems != null) {
+                    pushNotificationDb.addAll(roomId, notifItems);
+                }
+            } catch (Exception e) {
+                QiscusErrorLogger.print(e);
+            }
+
+            if (editor == null) {
+                editor = sharedPreferences.edit();
+            }
+            editor.remove(key);
+        }
+
+        if (editor != null) {
+            editor.apply();
+        }
     }
 }
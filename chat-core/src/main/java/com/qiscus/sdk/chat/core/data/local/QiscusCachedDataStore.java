@@ -0,0 +1,762 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.qiscus.sdk.chat.core.data.local;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.util.LruCache;
+
+import com.qiscus.sdk.chat.core.QiscusCore;
+import com.qiscus.sdk.chat.core.data.model.QiscusAttachmentCacheEntry;
+import com.qiscus.sdk.chat.core.data.model.QiscusChatRoom;
+import com.qiscus.sdk.chat.core.data.model.QiscusComment;
+import com.qiscus.sdk.chat.core.data.model.QiscusCommentSearchResult;
+import com.qiscus.sdk.chat.core.data.model.QiscusDataStoreCacheConfig;
+import com.qiscus.sdk.chat.core.data.model.QiscusRoomMember;
+import com.qiscus.sdk.chat.core.data.model.QiscusUploadSession;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import rx.Observable;
+
+/**
+ * {@link QiscusDataStore} decorator which keeps recently used rooms, members and comments in memory.
+ * Every write method delegates first, then bumps a generation counter and invalidates the affected entries.
+ * A read which missed the cache only stores what it loaded when no write finished since the read started, so
+ * a read which ran during a write can not put the old data back. Reads never see stale data once the write
+ * returns as long as all writes go through this instance. Cached objects are copied in and out, callers are free
+ * to modify what they get.
+ * <p>
+ * Usage : QiscusCore.setDataStore(new QiscusCachedDataStore(QiscusCore.getDataStore()));
+ */
+public class QiscusCachedDataStore implements QiscusDataStore {
+
+    private final QiscusDataStore dataStore;
+    private final LruCache<Long, QiscusChatRoom> roomCache;
+    private final LruCache<String, QiscusRoomMember> memberCache;
+    private final LruCache<String, QiscusComment> commentCache;
+    private final KeyIndex<String, Long> roomsByMember;
+    private final KeyIndex<String, String> commentsBySender;
+    private final KeyIndex<Long, String> commentsByRoom;
+    private final Object lock = new Object();
+    private long generation;
+
+    public QiscusCachedDataStore(QiscusDataStore dataStore) {
+        this(dataStore, QiscusCore.getChatConfig().getDataStoreCacheConfig());
+    }
+
+    public QiscusCachedDataStore(QiscusDataStore dataStore, QiscusDataStoreCacheConfig cacheConfig) {
+        this.dataStore = dataStore;
+        roomsByMember = new KeyIndex<>();
+        commentsBySender = new KeyIndex<>();
+        commentsByRoom = new KeyIndex<>();
+        roomCache = new LruCache<Long, QiscusChatRoom>(cacheConfig.getRoomCacheSize()) {
+            @Override
+            protected void entryRemoved(boolean evicted, Long key, QiscusChatRoom oldValue, QiscusChatRoom newValue) {
+                unindexRoom(key, oldValue);
+            }
+        };
+        memberCache = new LruCache<>(cacheConfig.getMemberCacheSize());
+        commentCache = new LruCache<String, QiscusComment>(cacheConfig.getCommentCacheSize()) {
+            @Override
+            protected void entryRemoved(boolean evicted, String key, QiscusComment oldValue, QiscusComment newValue) {
+                unindexComment(key, oldValue);
+            }
+        };
+    }
+
+    public QiscusDataStore getDataStore() {
+        return dataStore;
+    }
+
+    public int getRoomHitCount() {
+        return roomCache.hitCount();
+    }
+
+    public int getRoomMissCount() {
+        return roomCache.missCount();
+    }
+
+    public int getMemberHitCount() {
+        return memberCache.hitCount();
+    }
+
+    public int getMemberMissCount() {
+        return memberCache.missCount();
+    }
+
+    public int getCommentHitCount() {
+        return commentCache.hitCount();
+    }
+
+    public int getCommentMissCount() {
+        return commentCache.missCount();
+    }
+
+    @Override
+    public void add(QiscusChatRoom qiscusChatRoom) {
+        dataStore.add(qiscusChatRoom);
+        invalidateRoom(qiscusChatRoom);
+    }
+
+    @Override
+    public boolean isContains(QiscusChatRoom qiscusChatRoom) {
+        return roomCache.get(qiscusChatRoom.getId()) != null || dataStore.isContains(qiscusChatRoom);
+    }
+
+    @Override
+    public void update(QiscusChatRoom qiscusChatRoom) {
+        dataStore.update(qiscusChatRoom);
+        invalidateRoom(qiscusChatRoom);
+    }
+
+    @Override
+    public void addOrUpdate(QiscusChatRoom qiscusChatRoom) {
+        dataStore.addOrUpdate(qiscusChatRoom);
+        invalidateRoom(qiscusChatRoom);
+    }
+
+    @Override
+    public void addOrUpdateRooms(List<QiscusChatRoom> qiscusChatRooms) {
+        dataStore.addOrUpdateRooms(qiscusChatRooms);
+        if (qiscusChatRooms != null) {
+            for (QiscusChatRoom qiscusChatRoom : qiscusChatRooms) {
+                invalidateRoom(qiscusChatRoom);
+            }
+        }
+    }
+
+    @Override
+    public QiscusChatRoom getChatRoom(long roomId) {
+        QiscusChatRoom qiscusChatRoom = roomCache.get(roomId);
+        if (qiscusChatRoom == null) {
+            long readGeneration = getGeneration();
+            qiscusChatRoom = dataStore.getChatRoom(roomId);
+            if (qiscusChatRoom != null) {
+                cacheRoom(roomId, copy(qiscusChatRoom, QiscusChatRoom.CREATOR), readGeneration);
+            }
+            return qiscusChatRoom;
+        }
+        return copy(qiscusChatRoom, QiscusChatRoom.CREATOR);
+    }
+
+    @Override
+    public QiscusChatRoom getChatRoom(String email) {
+        return dataStore.getChatRoom(email);
+    }
+
+    @Override
+    public QiscusChatRoom getChatRoom(String email, String distinctId) {
+        return dataStore.getChatRoom(email, distinctId);
+    }
+
+    @Override
+    public QiscusChatRoom getChatRoomWithUniqueId(String uniqueId) {
+        return dataStore.getChatRoomWithUniqueId(uniqueId);
+    }
+
+    @Override
+    public List<QiscusChatRoom> getChatRooms(int limit) {
+        return dataStore.getChatRooms(limit);
+    }
+
+    @Override
+    public List<QiscusChatRoom> getChatRooms(int limit, int offset) {
+        return dataStore.getChatRooms(limit, offset);
+    }
+
+    @Override
+    public Observable<List<QiscusChatRoom>> getObservableChatRooms(int limit) {
+        return dataStore.getObservableChatRooms(limit);
+    }
+
+    @Override
+    public Observable<List<QiscusChatRoom>> getObservableChatRooms(int limit, int offset) {
+        return dataStore.getObservableChatRooms(limit, offset);
+    }
+
+    @Override
+    public List<QiscusChatRoom> getChatRooms(QiscusChatRoom lastRoom, int limit) {
+        return dataStore.getChatRooms(lastRoom, limit);
+    }
+
+    @Override
+    public Observable<List<QiscusChatRoom>> getObservableChatRooms(QiscusChatRoom lastRoom, int limit) {
+        return dataStore.getObservableChatRooms(lastRoom, limit);
+    }
+
+    @Override
+    public List<QiscusChatRoom> getChatRooms(List<Long> roomIds, List<String> uniqueIds) {
+        return dataStore.getChatRooms(roomIds, uniqueIds);
+    }
+
+    @Override
+    public void deleteChatRoom(long roomId) {
+        dataStore.deleteChatRoom(roomId);
+        invalidateRoom(roomId);
+    }
+
+    @Override
+    public void addRoomMember(long roomId, QiscusRoomMember qiscusRoomMember, String distinctId) {
+        dataStore.addRoomMember(roomId, qiscusRoomMember, distinctId);
+        invalidateRoomMember(roomId, qiscusRoomMember);
+    }
+
+    @Override
+    public boolean isContainsRoomMember(long roomId, String email) {
+        return dataStore.isContainsRoomMember(roomId, email);
+    }
+
+    @Override
+    public void updateRoomMember(long roomId, QiscusRoomMember qiscusRoomMember, String distinctId) {
+        dataStore.updateRoomMember(roomId, qiscusRoomMember, distinctId);
+        invalidateRoomMember(roomId, qiscusRoomMember);
+    }
+
+    @Override
+    public void addOrUpdateRoomMember(long roomId, QiscusRoomMember qiscusRoomMember, String distinctId) {
+        dataStore.addOrUpdateRoomMember(roomId, qiscusRoomMember, distinctId);
+        invalidateRoomMember(roomId, qiscusRoomMember);
+    }
+
+    @Override
+    public void addOrUpdateRoomMembers(long roomId, List<QiscusRoomMember> qiscusRoomMembers, String distinctId) {
+        dataStore.addOrUpdateRoomMembers(roomId, qiscusRoomMembers, distinctId);
+        if (qiscusRoomMembers != null) {
+            for (QiscusRoomMember qiscusRoomMember : qiscusRoomMembers) {
+                invalidateRoomMember(roomId, qiscusRoomMember);
+            }
+        }
+    }
+
+    @Override
+    public List<QiscusRoomMember> getRoomMembers(long roomId) {
+        return dataStore.getRoomMembers(roomId);
+    }
+
+    @Override
+    public void deleteRoomMember(long roomId, String email) {
+        dataStore.deleteRoomMember(roomId, email);
+        invalidateRoom(roomId);
+    }
+
+    @Override
+    public void deleteRoomMembers(long roomId) {
+        dataStore.deleteRoomMembers(roomId);
+        invalidateRoom(roomId);
+    }
+
+    @Override
+    public void add(QiscusRoomMember qiscusRoomMember) {
+        dataStore.add(qiscusRoomMember);
+        invalidateMember(qiscusRoomMember);
+    }
+
+    @Override
+    public boolean isContains(QiscusRoomMember qiscusRoomMember) {
+        return memberCache.get(qiscusRoomMember.getEmail()) != null || dataStore.isContains(qiscusRoomMember);
+    }
+
+    @Override
+    public void update(QiscusRoomMember qiscusRoomMember) {
+        dataStore.update(qiscusRoomMember);
+        invalidateMember(qiscusRoomMember);
+    }
+
+    @Override
+    public void addOrUpdate(QiscusRoomMember qiscusRoomMember) {
+        dataStore.addOrUpdate(qiscusRoomMember);
+        invalidateMember(qiscusRoomMember);
+    }
+
+    @Override
+    public QiscusRoomMember getMember(String email) {
+        QiscusRoomMember qiscusRoomMember = memberCache.get(email);
+        if (qiscusRoomMember == null) {
+            long readGeneration = getGeneration();
+            qiscusRoomMember = dataStore.getMember(email);
+            if (qiscusRoomMember != null) {
+                cacheMember(email, copy(qiscusRoomMember, QiscusRoomMember.CREATOR), readGeneration);
+            }
+            return qiscusRoomMember;
+        }
+        return copy(qiscusRoomMember, QiscusRoomMember.CREATOR);
+    }
+
+    @Override
+    public void add(QiscusComment qiscusComment) {
+        dataStore.add(qiscusComment);
+        invalidateComment(qiscusComment);
+    }
+
+    @Override
+    public boolean isContains(QiscusComment qiscusComment) {
+        return commentCache.get(qiscusComment.getUniqueId()) != null || dataStore.isContains(qiscusComment);
+    }
+
+    @Override
+    public void update(QiscusComment qiscusComment) {
+        dataStore.update(qiscusComment);
+        invalidateComment(qiscusComment);
+    }
+
+    @Override
+    public void addOrUpdate(QiscusComment qiscusComment) {
+        dataStore.addOrUpdate(qiscusComment);
+        invalidateComment(qiscusComment);
+    }
+
+    @Override
+    public void addOrUpdateComments(List<QiscusComment> qiscusComments) {
+        dataStore.addOrUpdateComments(qiscusComments);
+        if (qiscusComments != null) {
+            for (QiscusComment qiscusComment : qiscusComments) {
+                invalidateComment(qiscusComment);
+            }
+        }
+    }
+
+    @Override
+    public void delete(QiscusComment qiscusComment) {
+        dataStore.delete(qiscusComment);
+        invalidateComment(qiscusComment);
+    }
+
+    @Override
+    public boolean deleteCommentsByRoomId(long roomId) {
+        boolean deleted = dataStore.deleteCommentsByRoomId(roomId);
+        invalidateComments(roomId);
+        return deleted;
+    }
+
+    @Override
+    public boolean deleteCommentsByRoomId(long roomId, long timestampOffset) {
+        boolean deleted = dataStore.deleteCommentsByRoomId(roomId, timestampOffset);
+        invalidateComments(roomId);
+        return deleted;
+    }
+
+    @Override
+    public void updateLastDeliveredComment(long roomId, long commentId) {
+        dataStore.updateLastDeliveredComment(roomId, commentId);
+        invalidateComments(roomId);
+    }
+
+    @Override
+    public void updateLastReadComment(long roomId, long commentId) {
+        dataStore.updateLastReadComment(roomId, commentId);
+        invalidateComments(roomId);
+    }
+
+    @Override
+    public QiscusComment getComment(String uniqueId) {
+        QiscusComment qiscusComment = commentCache.get(uniqueId);
+        if (qiscusComment == null) {
+            long readGeneration = getGeneration();
+            qiscusComment = dataStore.getComment(uniqueId);
+            if (qiscusComment != null) {
+                cacheComment(uniqueId, copy(qiscusComment, QiscusComment.CREATOR), readGeneration);
+            }
+            return qiscusComment;
+        }
+        return copy(qiscusComment, QiscusComment.CREATOR);
+    }
+
+    @Override
+    public QiscusComment getCommentByBeforeId(long beforeId) {
+        return dataStore.getCommentByBeforeId(beforeId);
+    }
+
+    @Override
+    public List<QiscusComment> getComments(long roomId) {
+        return dataStore.getComments(roomId);
+    }
+
+    @Override
+    public List<QiscusComment> getComments(long roomId, int limit) {
+        return dataStore.getComments(roomId, limit);
+    }
+
+    @Override
+    public List<QiscusComment> getComments(long roomId, long timestampOffset) {
+        return dataStore.getComments(roomId, timestampOffset);
+    }
+
+    @Override
+    public Observable<List<QiscusComment>> getObservableComments(long roomId) {
+        return dataStore.getObservableComments(roomId);
+    }
+
+    @Override
+    public Observable<List<QiscusComment>> getObservableComments(long roomId, int limit) {
+        return dataStore.getObservableComments(roomId, limit);
+    }
+
+    @Override
+    public List<QiscusComment> getOlderCommentsThan(QiscusComment qiscusComment, long roomId, int limit) {
+        return dataStore.getOlderCommentsThan(qiscusComment, roomId, limit);
+    }
+
+    @Override
+    public Observable<List<QiscusComment>> getObservableOlderCommentsThan(QiscusComment qiscusComment, long roomId, int limit) {
+        return dataStore.getObservableOlderCommentsThan(qiscusComment, roomId, limit);
+    }
+
+    @Override
+    public List<QiscusComment> getCommentsAfter(QiscusComment qiscusComment, long roomId) {
+        return dataStore.getCommentsAfter(qiscusComment, roomId);
+    }
+
+    @Override
+    public Observable<List<QiscusComment>> getObservableCommentsAfter(QiscusComment qiscusComment, long roomId) {
+        return dataStore.getObservableCommentsAfter(qiscusComment, roomId);
+    }
+
+    @Override
+    public QiscusComment getLatestComment() {
+        return dataStore.getLatestComment();
+    }
+
+    @Override
+    public QiscusComment getLatestComment(long roomId) {
+        return dataStore.getLatestComment(roomId);
+    }
+
+    @Override
+    public QiscusComment getLatestSentComment(long roomId) {
+        return dataStore.getLatestSentComment(roomId);
+    }
+
+    @Override
+    public QiscusComment getLatestDeliveredComment(long roomId) {
+        return dataStore.getLatestDeliveredComment(roomId);
+    }
+
+    @Override
+    public QiscusComment getLatestReadComment(long roomId) {
+        return dataStore.getLatestReadComment(roomId);
+    }
+
+    @Override
+    public List<QiscusComment> getPendingComments() {
+        return dataStore.getPendingComments();
+    }
+
+    @Override
+    public Observable<List<QiscusComment>> getObservablePendingComments() {
+        return dataStore.getObservablePendingComments();
+    }
+
+    @Override
+    public List<QiscusComment> searchComments(String query, long roomId, int limit, int offset) {
+        return dataStore.searchComments(query, roomId, limit, offset);
+    }
+
+    @Override
+    public List<QiscusComment> searchComments(String query, int limit, int offset) {
+        return dataStore.searchComments(query, limit, offset);
+    }
+
+    @Override
+    public List<QiscusCommentSearchResult> searchComments(String query, long roomId, QiscusComment lastResult, int limit) {
+        return dataStore.searchComments(query, roomId, lastResult, limit);
+    }
+
+    @Override
+    public List<QiscusCommentSearchResult> searchComments(String query, QiscusComment lastResult, int limit) {
+        return dataStore.searchComments(query, lastResult, limit);
+    }
+
+    @Override
+    public void saveLocalPath(long roomId, long commentId, String localPath) {
+        dataStore.saveLocalPath(roomId, commentId, localPath);
+    }
+
+    @Override
+    public boolean isContainsFileOfComment(long commentId) {
+        return dataStore.isContainsFileOfComment(commentId);
+    }
+
+    @Override
+    public void updateLocalPath(long roomId, long commentId, String localPath) {
+        dataStore.updateLocalPath(roomId, commentId, localPath);
+    }
+
+    @Override
+    public void addOrUpdateLocalPath(long roomId, long commentId, String localPath) {
+        dataStore.addOrUpdateLocalPath(roomId, commentId, localPath);
+    }
+
+    @Override
+    public File getLocalPath(long commentId) {
+        return dataStore.getLocalPath(commentId);
+    }
+
+    @Override
+    public void deleteLocalPath(long commentId) {
+        dataStore.deleteLocalPath(commentId);
+    }
+
+    @Override
+    public int getLocalPathReferenceCount(String localPath) {
+        return dataStore.getLocalPathReferenceCount(localPath);
+    }
+
+    @Override
+    public boolean isLocalPathPinned(String localPath) {
+        return dataStore.isLocalPathPinned(localPath);
+    }
+
+    @Override
+    public void saveUploadSession(QiscusUploadSession session) {
+        dataStore.saveUploadSession(session);
+    }
+
+    @Override
+    public QiscusUploadSession getUploadSession(String filePath) {
+        return dataStore.getUploadSession(filePath);
+    }
+
+    @Override
+    public void deleteUploadSession(String filePath) {
+        dataStore.deleteUploadSession(filePath);
+    }
+
+    @Override
+    public void deleteUploadSessionsBefore(long time) {
+        dataStore.deleteUploadSessionsBefore(time);
+    }
+
+    @Override
+    public void saveAttachmentCacheEntry(QiscusAttachmentCacheEntry entry) {
+        dataStore.saveAttachmentCacheEntry(entry);
+    }
+
+    @Override
+    public QiscusAttachmentCacheEntry getAttachmentCacheEntry(String hash) {
+        return dataStore.getAttachmentCacheEntry(hash);
+    }
+
+    @Override
+    public List<QiscusAttachmentCacheEntry> getAttachmentCacheEntries() {
+        return dataStore.getAttachmentCacheEntries();
+    }
+
+    @Override
+    public void updateAttachmentCacheAccess(Map<String, Long> lastAccesses) {
+        dataStore.updateAttachmentCacheAccess(lastAccesses);
+    }
+
+    @Override
+    public void deleteAttachmentCacheEntry(String hash) {
+        dataStore.deleteAttachmentCacheEntry(hash);
+    }
+
+    @Override
+    public void deleteAttachmentCacheEntryOfPath(String localPath) {
+        dataStore.deleteAttachmentCacheEntryOfPath(localPath);
+    }
+
+    @Override
+    public void clear() {
+        dataStore.clear();
+        synchronized (lock) {
+            generation++;
+            roomCache.evictAll();
+            memberCache.evictAll();
+            commentCache.evictAll();
+        }
+    }
+
+    private long getGeneration() {
+        synchronized (lock) {
+            return generation;
+        }
+    }
+
+    /**
+     * Any cached entry with the same key is removed first, so the index never loses keys of the new value to the
+     * removal of the old one.
+     */
+    private void cacheRoom(long roomId, QiscusChatRoom qiscusChatRoom, long readGeneration) {
+        synchronized (lock) {
+            if (generation != readGeneration) {
+                return;
+            }
+            roomCache.remove(roomId);
+            if (qiscusChatRoom.getMember() != null) {
+                for (QiscusRoomMember qiscusRoomMember : qiscusChatRoom.getMember()) {
+                    roomsByMember.add(qiscusRoomMember.getEmail(), roomId);
+                }
+            }
+            roomCache.put(roomId, qiscusChatRoom);
+        }
+    }
+
+    private void cacheMember(String email, QiscusRoomMember qiscusRoomMember, long readGeneration) {
+        synchronized (lock) {
+            if (generation == readGeneration) {
+                memberCache.put(email, qiscusRoomMember);
+            }
+        }
+    }
+
+    private void cacheComment(String uniqueId, QiscusComment qiscusComment, long readGeneration) {
+        synchronized (lock) {
+            if (generation != readGeneration) {
+                return;
+            }
+            commentCache.remove(uniqueId);
+            commentsBySender.add(qiscusComment.getSenderEmail(), uniqueId);
+            commentsByRoom.add(qiscusComment.getRoomId(), uniqueId);
+            commentCache.put(uniqueId, qiscusComment);
+        }
+    }
+
+    /**
+     * Called by the caches for every removed entry, always while holding {@link #lock}.
+     */
+    private void unindexRoom(long roomId, QiscusChatRoom qiscusChatRoom) {
+        if (qiscusChatRoom.getMember() != null) {
+            for (QiscusRoomMember qiscusRoomMember : qiscusChatRoom.getMember()) {
+                roomsByMember.remove(qiscusRoomMember.getEmail(), roomId);
+            }
+        }
+    }
+
+    private void unindexComment(String uniqueId, QiscusComment qiscusComment) {
+        commentsBySender.remove(qiscusComment.getSenderEmail(), uniqueId);
+        commentsByRoom.remove(qiscusComment.getRoomId(), uniqueId);
+    }
+
+    private void invalidateRoom(long roomId) {
+        synchronized (lock) {
+            generation++;
+            roomCache.remove(roomId);
+        }
+    }
+
+    private void invalidateRoom(QiscusChatRoom qiscusChatRoom) {
+        synchronized (lock) {
+            generation++;
+            roomCache.remove(qiscusChatRoom.getId());
+            if (qiscusChatRoom.getMember() != null) {
+                for (QiscusRoomMember qiscusRoomMember : qiscusChatRoom.getMember()) {
+                    invalidateMember(qiscusRoomMember);
+                }
+            }
+            if (qiscusChatRoom.getLastComment() != null) {
+                commentCache.remove(qiscusChatRoom.getLastComment().getUniqueId());
+            }
+        }
+    }
+
+    private void invalidateRoomMember(long roomId, QiscusRoomMember qiscusRoomMember) {
+        synchronized (lock) {
+            generation++;
+            roomCache.remove(roomId);
+            invalidateMember(qiscusRoomMember);
+        }
+    }
+
+    /**
+     * Member data is also part of every cached room which has it as member, and of every cached comment it sent
+     * as the sender name and avatar. Both are found through the indexes, so this only touches the affected entries.
+     */
+    private void invalidateMember(QiscusRoomMember qiscusRoomMember) {
+        synchronized (lock) {
+            generation++;
+            memberCache.remove(qiscusRoomMember.getEmail());
+            for (Long roomId : roomsByMember.get(qiscusRoomMember.getEmail())) {
+                roomCache.remove(roomId);
+            }
+            for (String uniqueId : commentsBySender.get(qiscusRoomMember.getEmail())) {
+                commentCache.remove(uniqueId);
+            }
+        }
+    }
+
+    /**
+     * The room cache holds the last comment of the room, so it is invalidated as well.
+     */
+    private void invalidateComment(QiscusComment qiscusComment) {
+        synchronized (lock) {
+            generation++;
+            commentCache.remove(qiscusComment.getUniqueId());
+            roomCache.remove(qiscusComment.getRoomId());
+        }
+    }
+
+    private void invalidateComments(long roomId) {
+        synchronized (lock) {
+            generation++;
+            for (String uniqueId : commentsByRoom.get(roomId)) {
+                commentCache.remove(uniqueId);
+            }
+            roomCache.remove(roomId);
+        }
+    }
+
+    private static <T extends Parcelable> T copy(T source, Parcelable.Creator<T> creator) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            source.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            return creator.createFromParcel(parcel);
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * Keys of cached entries grouped by a value they contain. Not thread safe, only used while holding
+     * {@link #lock}.
+     */
+    private static class KeyIndex<I, K> {
+        private final Map<I, Set<K>> keys = new HashMap<>();
+
+        private void add(I indexKey, K key) {
+            Set<K> indexedKeys = keys.get(indexKey);
+            if (indexedKeys == null) {
+                indexedKeys = new HashSet<>();
+                keys.put(indexKey, indexedKeys);
+            }
+            indexedKeys.add(key);
+        }
+
+        private void remove(I indexKey, K key) {
+            Set<K> indexedKeys = keys.get(indexKey);
+            if (indexedKeys != null && indexedKeys.remove(key) && indexedKeys.isEmpty()) {
+                keys.remove(indexKey);
+            }
+        }
+
+        /**
+         * @return a copy, so the caller can remove entries from the cache while iterating it
+         */
+        private Set<K> get(I indexKey) {
+            Set<K> indexedKeys = keys.get(indexKey);
+            return indexedKeys == null ? Collections.emptySet() : new HashSet<>(indexedKeys);
+        }
+    }
+}
@@ -38,6 +38,8 @@ public interface QiscusChatRoomStore {
 
     void addOrUpdate(QiscusChatRoom qiscusChatRoom);
 
+    void addOrUpdateRooms(List<QiscusChatRoom> qiscusChatRooms);
+
     QiscusChatRoom getChatRoom(long roomId);
 
     QiscusChatRoom getChatRoom(String email);
@@ -54,6 +56,10 @@ public interface QiscusChatRoomStore {
 
     Observable<List<QiscusChatRoom>> getObservableChatRooms(int limit, int offset);
 
+    List<QiscusChatRoom> getChatRooms(QiscusChatRoom lastRoom, int limit);
+
+    Observable<List<QiscusChatRoom>> getObservableChatRooms(QiscusChatRoom lastRoom, int limit);
+
     List<QiscusChatRoom> getChatRooms(List<Long> roomIds, List<String> uniqueIds);
 
     void deleteChatRoom(long roomId);
@@ -66,6 +72,8 @@ public interface QiscusChatRoomStore {
 
     void addOrUpdateRoomMember(long roomId, QiscusRoomMember qiscusRoomMember, String distinctId);
 
+    void addOrUpdateRoomMembers(long roomId, List<QiscusRoomMember> qiscusRoomMembers, String distinctId);
+
     List<QiscusRoomMember> getRoomMembers(long roomId);
 
     void deleteRoomMember(long roomId, String email);
@@ -17,6 +17,7 @@
 package com.qiscus.sdk.chat.core.data.local;
 
 import com.qiscus.sdk.chat.core.data.model.QiscusComment;
+import com.qiscus.sdk.chat.core.data.model.QiscusCommentSearchResult;
 
 import java.util.List;
 
@@ -37,6 +38,8 @@ public interface QiscusCommentStore {
 
     void addOrUpdate(QiscusComment qiscusComment);
 
+    void addOrUpdateComments(List<QiscusComment> qiscusComments);
+
     void delete(QiscusComment qiscusComment);
 
     boolean deleteCommentsByRoomId(long roomId);
@@ -73,6 +76,11 @@ public interface QiscusCommentStore {
 
     QiscusComment getLatestComment(long roomId);
 
+    /**
+     * @return the latest comment of the room which has been saved in server, pending comments are skipped
+     */
+    QiscusComment getLatestSentComment(long roomId);
+
     QiscusComment getLatestDeliveredComment(long roomId);
 
     QiscusComment getLatestReadComment(long roomId);
@@ -84,4 +92,8 @@ public interface QiscusCommentStore {
     List<QiscusComment> searchComments(String query, long roomId, int limit, int offset);
 
     List<QiscusComment> searchComments(String query, int limit, int offset);
+
+    List<QiscusCommentSearchResult> searchComments(String query, long roomId, QiscusComment lastResult, int limit);
+
+    List<QiscusCommentSearchResult> searchComments(String query, QiscusComment lastResult, int limit);
 }
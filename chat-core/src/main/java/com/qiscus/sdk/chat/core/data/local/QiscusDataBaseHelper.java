@@ -16,34 +16,52 @@
 
 package com.qiscus.sdk.chat.core.data.local;
 
+import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.core.util.Pair;
 
 import com.qiscus.sdk.chat.core.QiscusCore;
 import com.qiscus.sdk.chat.core.data.model.QiscusAccount;
+import com.qiscus.sdk.chat.core.data.model.QiscusAttachmentCacheEntry;
 import com.qiscus.sdk.chat.core.data.model.QiscusChatRoom;
 import com.qiscus.sdk.chat.core.data.model.QiscusComment;
+import com.qiscus.sdk.chat.core.data.model.QiscusCommentSearchResult;
 import com.qiscus.sdk.chat.core.data.model.QiscusRoomMember;
+import com.qiscus.sdk.chat.core.data.model.QiscusUploadSession;
 import com.qiscus.sdk.chat.core.util.QiscusErrorLogger;
+import com.qiscus.sdk.chat.core.util.QiscusExecutors;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import rx.Emitter;
 import rx.Observable;
 
 public class QiscusDataBaseHelper implements QiscusDataStore {
 
+    private static final int SEARCH_BACKFILL_BATCH_SIZE = 200;
+
     protected final SQLiteDatabase sqLiteReadDatabase;
     protected final SQLiteDatabase sqLiteWriteDatabase;
+    private final ConcurrentHashMap<String, SQLiteStatement> compiledStatements;
 
     public QiscusDataBaseHelper() {
         QiscusDbOpenHelper qiscusDbOpenHelper = new QiscusDbOpenHelper(QiscusCore.getApps());
         sqLiteReadDatabase = qiscusDbOpenHelper.getReadableDatabase();
         sqLiteWriteDatabase = qiscusDbOpenHelper.getWritableDatabase();
+        compiledStatements = new ConcurrentHashMap<>();
+        QiscusExecutors.getInstance().getDiskLane().execute(this::backfillSearchIndex);
     }
 
     @Override
@@ -52,62 +70,48 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
         try {
             sqLiteWriteDatabase.insertWithOnConflict(QiscusDb.RoomTable.TABLE_NAME, null,
                     QiscusDb.RoomTable.toContentValues(qiscusChatRoom), SQLiteDatabase.CONFLICT_ABORT);
+            updateRoomLastComment(qiscusChatRoom.getId());
+            if (qiscusChatRoom.getMember() != null && !qiscusChatRoom.getMember().isEmpty()) {
+                upsertRoomMembers(qiscusChatRoom.getId(), qiscusChatRoom.getMember(), qiscusChatRoom.getDistinctId());
+            }
+            upsertRoomLastComment(qiscusChatRoom);
             sqLiteWriteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
             QiscusErrorLogger.print(e);
         } finally {
             sqLiteWriteDatabase.endTransaction();
         }
-
-        if (qiscusChatRoom.getMember() != null) {
-            for (QiscusRoomMember member : qiscusChatRoom.getMember()) {
-                addRoomMember(qiscusChatRoom.getId(), member, qiscusChatRoom.getDistinctId());
-            }
-        }
-
-        QiscusComment comment = qiscusChatRoom.getLastComment();
-        if (comment != null && comment.getId() > 0) {
-            addOrUpdate(comment);
-        }
     }
 
     @Override
     public boolean isContains(QiscusChatRoom qiscusChatRoom) {
-        String query = "SELECT * FROM "
+        String query = "SELECT COUNT(*) FROM "
                 + QiscusDb.RoomTable.TABLE_NAME + " WHERE "
-                + QiscusDb.RoomTable.COLUMN_ID + " = " + qiscusChatRoom.getId();
+                + QiscusDb.RoomTable.COLUMN_ID + " = ?";
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(query, null);
-        boolean contains = cursor.getCount() > 0;
-        cursor.close();
-        return contains;
+        return isExists(query, String.valueOf(qiscusChatRoom.getId()));
     }
 
     @Override
     public void update(QiscusChatRoom qiscusChatRoom) {
-        String where = QiscusDb.RoomTable.COLUMN_ID + " = " + qiscusChatRoom.getId();
+        String where = QiscusDb.RoomTable.COLUMN_ID + " = ?";
 
         sqLiteWriteDatabase.beginTransactionNonExclusive();
         try {
-            sqLiteWriteDatabase.update(QiscusDb.RoomTable.TABLE_NAME, QiscusDb.RoomTable.toContentValues(qiscusChatRoom), where, null);
+            sqLiteWriteDatabase.update(QiscusDb.RoomTable.TABLE_NAME, QiscusDb.RoomTable.toContentValues(qiscusChatRoom),
+                    where, new String[]{String.valueOf(qiscusChatRoom.getId())});
+            //Replace the members in the same transaction, so readers never see the room without members
+            if (qiscusChatRoom.getMember() != null && !qiscusChatRoom.getMember().isEmpty()) {
+                deleteRoomMembers(qiscusChatRoom.getId());
+                upsertRoomMembers(qiscusChatRoom.getId(), qiscusChatRoom.getMember(), qiscusChatRoom.getDistinctId());
+            }
+            upsertRoomLastComment(qiscusChatRoom);
             sqLiteWriteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
             QiscusErrorLogger.print(e);
         } finally {
             sqLiteWriteDatabase.endTransaction();
         }
-
-        if (qiscusChatRoom.getMember() != null && !qiscusChatRoom.getMember().isEmpty()) {
-            deleteRoomMembers(qiscusChatRoom.getId());
-            for (QiscusRoomMember member : qiscusChatRoom.getMember()) {
-                addRoomMember(qiscusChatRoom.getId(), member, qiscusChatRoom.getDistinctId());
-            }
-        }
-
-        QiscusComment comment = qiscusChatRoom.getLastComment();
-        if (comment != null && comment.getId() > 0) {
-            addOrUpdate(comment);
-        }
     }
 
     @Override
@@ -119,16 +123,40 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
         }
     }
 
+    @Override
+    public void addOrUpdateRooms(List<QiscusChatRoom> qiscusChatRooms) {
+        if (qiscusChatRooms == null || qiscusChatRooms.isEmpty()) {
+            return;
+        }
+
+        sqLiteWriteDatabase.beginTransactionNonExclusive();
+        try {
+            for (QiscusChatRoom qiscusChatRoom : qiscusChatRooms) {
+                upsertRoom(qiscusChatRoom);
+                if (qiscusChatRoom.getMember() != null && !qiscusChatRoom.getMember().isEmpty()) {
+                    deleteRoomMembers(qiscusChatRoom.getId());
+                    upsertRoomMembers(qiscusChatRoom.getId(), qiscusChatRoom.getMember(), qiscusChatRoom.getDistinctId());
+                }
+                upsertRoomLastComment(qiscusChatRoom);
+            }
+            sqLiteWriteDatabase.setTransactionSuccessful();
+        } catch (Exception e) {
+            QiscusErrorLogger.print(e);
+        } finally {
+            sqLiteWriteDatabase.endTransaction();
+        }
+    }
+
     @Override
     public QiscusChatRoom getChatRoom(long id) {
         String query = "SELECT * FROM "
                 + QiscusDb.RoomTable.TABLE_NAME + " WHERE "
-                + QiscusDb.RoomTable.COLUMN_ID + " = " + id;
+                + QiscusDb.RoomTable.COLUMN_ID + " = ?";
 
 
         Cursor cursor = null;
         try {
-            cursor = sqLiteReadDatabase.rawQuery(query, null);
+            cursor = sqLiteReadDatabase.rawQuery(query, new String[]{String.valueOf(id)});
             if (cursor.moveToNext()) {
                 QiscusChatRoom qiscusChatRoom = QiscusDb.RoomTable.parseCursor(cursor);
                 qiscusChatRoom.setMember(getRoomMembers(id));
@@ -166,11 +194,10 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
     public QiscusChatRoom getChatRoom(String email, String distinctId) {
         String query = "SELECT * FROM "
                 + QiscusDb.RoomMemberTable.TABLE_NAME + " WHERE "
-                + QiscusDb.RoomMemberTable.COLUMN_DISTINCT_ID + " = " + DatabaseUtils.sqlEscapeString(distinctId)
-                + " AND " + QiscusDb.RoomMemberTable.COLUMN_USER_EMAIL
-                + " = " + DatabaseUtils.sqlEscapeString(email);
+                + QiscusDb.RoomMemberTable.COLUMN_DISTINCT_ID + " = ?"
+                + " AND " + QiscusDb.RoomMemberTable.COLUMN_USER_EMAIL + " = ?";
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(query, null);
+        Cursor cursor = sqLiteReadDatabase.rawQuery(query, new String[]{distinctId, email});
 
         while (cursor.moveToNext()) {
             QiscusChatRoom qiscusChatRoom = getChatRoom(QiscusDb.RoomMemberTable.getRoomId(cursor));
@@ -192,9 +219,9 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
     public QiscusChatRoom getChatRoomWithUniqueId(String uniqueId) {
         String query = "SELECT * FROM "
                 + QiscusDb.RoomTable.TABLE_NAME + " WHERE "
-                + QiscusDb.RoomTable.COLUMN_UNIQUE_ID + " = " + DatabaseUtils.sqlEscapeString(uniqueId);
+                + QiscusDb.RoomTable.COLUMN_UNIQUE_ID + " = ?";
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(query, null);
+        Cursor cursor = sqLiteReadDatabase.rawQuery(query, new String[]{uniqueId});
 
         if (cursor.moveToNext()) {
             QiscusChatRoom qiscusChatRoom = QiscusDb.RoomTable.parseCursor(cursor);
@@ -218,34 +245,43 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
 
     @Override
     public List<QiscusChatRoom> getChatRooms(int limit, int offset) {
-        String roomTableName = QiscusDb.RoomTable.TABLE_NAME;
-        String commentTableName = QiscusDb.CommentTable.TABLE_NAME;
-        String query = "SELECT " + roomTableName + ".*" + " FROM "
-                + QiscusDb.RoomTable.TABLE_NAME
-                + " LEFT JOIN " + commentTableName
-                + " ON " + roomTableName + "." + QiscusDb.RoomTable.COLUMN_ID
-                + " = " + commentTableName + "." + QiscusDb.CommentTable.COLUMN_ROOM_ID
-                + " AND " + commentTableName + "." + QiscusDb.CommentTable.COLUMN_DELETED + " != 1"
-                + " AND " + commentTableName + "." + QiscusDb.CommentTable.COLUMN_HARD_DELETED + " != 1"
-                + " GROUP BY " + roomTableName + "." + QiscusDb.RoomTable.COLUMN_ID
-                + " ORDER BY " + commentTableName + "." + QiscusDb.CommentTable.COLUMN_TIME
-                + " DESC "
-                + " LIMIT " + limit
-                + " OFFSET " + offset;
+        String query = "SELECT * FROM " + QiscusDb.RoomTable.TABLE_NAME
+                + QiscusDb.RoomTable.ORDER_BY_LAST_COMMENT
+                + " LIMIT ?"
+                + " OFFSET ?";
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(query, null);
-        List<QiscusChatRoom> qiscusChatRooms = new ArrayList<>();
-        while (cursor.moveToNext()) {
-            QiscusChatRoom qiscusChatRoom = QiscusDb.RoomTable.parseCursor(cursor);
-            qiscusChatRoom.setMember(getRoomMembers(qiscusChatRoom.getId()));
-            QiscusComment latestComment = getLatestComment(qiscusChatRoom.getId());
-            if (latestComment != null) {
-                qiscusChatRoom.setLastComment(latestComment);
-            }
-            qiscusChatRooms.add(qiscusChatRoom);
+        return getChatRoomsFromQuery(query, String.valueOf(limit), String.valueOf(offset));
+    }
+
+    @Override
+    public List<QiscusChatRoom> getChatRooms(QiscusChatRoom lastRoom, int limit) {
+        if (lastRoom == null) {
+            String query = "SELECT * FROM " + QiscusDb.RoomTable.TABLE_NAME
+                    + QiscusDb.RoomTable.ORDER_BY_LAST_COMMENT
+                    + " LIMIT ?";
+
+            return getChatRoomsFromQuery(query, String.valueOf(limit));
         }
-        cursor.close();
-        return qiscusChatRooms;
+
+        String lastCommentTime = String.valueOf(lastRoom.getLastComment() == null ? 0
+                : lastRoom.getLastComment().getTime().getTime());
+        String query = "SELECT * FROM " + QiscusDb.RoomTable.TABLE_NAME
+                + " WHERE " + QiscusDb.RoomTable.COLUMN_LAST_COMMENT_TIME + " <= ?"
+                + " AND (" + QiscusDb.RoomTable.COLUMN_LAST_COMMENT_TIME + " < ?"
+                + " OR " + QiscusDb.RoomTable.COLUMN_ID + " < ?)"
+                + QiscusDb.RoomTable.ORDER_BY_LAST_COMMENT
+                + " LIMIT ?";
+
+        return getChatRoomsFromQuery(query, lastCommentTime, lastCommentTime,
+                String.valueOf(lastRoom.getId()), String.valueOf(limit));
+    }
+
+    @Override
+    public Observable<List<QiscusChatRoom>> getObservableChatRooms(QiscusChatRoom lastRoom, int limit) {
+        return Observable.create(subscriber -> {
+            subscriber.onNext(getChatRooms(lastRoom, limit));
+            subscriber.onCompleted();
+        }, Emitter.BackpressureMode.BUFFER);
     }
 
     @Override
@@ -268,47 +304,41 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
             return qiscusChatRooms;
         }
 
+        String[] args = new String[roomIds.size() + uniqueIds.size()];
         StringBuilder query = new StringBuilder("SELECT * FROM ").append(QiscusDb.RoomTable.TABLE_NAME).append(" WHERE ");
-        for (int i = 0; i < roomIds.size(); i++) {
-            query.append(QiscusDb.RoomTable.COLUMN_ID).append(" = ").append(roomIds.get(i));
-            if (i < roomIds.size() - 1) {
-                query.append(" OR ");
+        if (!roomIds.isEmpty()) {
+            query.append(QiscusDb.RoomTable.COLUMN_ID).append(" IN (");
+            for (int i = 0; i < roomIds.size(); i++) {
+                query.append(i == 0 ? "?" : ", ?");
+                args[i] = String.valueOf(roomIds.get(i));
             }
+            query.append(")");
         }
 
         if (!roomIds.isEmpty() && !uniqueIds.isEmpty()) {
             query.append(" OR ");
         }
 
-        for (int i = 0; i < uniqueIds.size(); i++) {
-            query.append(QiscusDb.RoomTable.COLUMN_UNIQUE_ID).append(" = ").append(DatabaseUtils.sqlEscapeString(uniqueIds.get(i)));
-            if (i < uniqueIds.size() - 1) {
-                query.append(" OR ");
+        if (!uniqueIds.isEmpty()) {
+            query.append(QiscusDb.RoomTable.COLUMN_UNIQUE_ID).append(" IN (");
+            for (int i = 0; i < uniqueIds.size(); i++) {
+                query.append(i == 0 ? "?" : ", ?");
+                args[roomIds.size() + i] = uniqueIds.get(i);
             }
+            query.append(")");
         }
+        query.append(QiscusDb.RoomTable.ORDER_BY_LAST_COMMENT);
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(query.toString(), null);
-        while (cursor.moveToNext()) {
-            QiscusChatRoom qiscusChatRoom = QiscusDb.RoomTable.parseCursor(cursor);
-            qiscusChatRoom.setMember(getRoomMembers(qiscusChatRoom.getId()));
-            QiscusComment latestComment = getLatestComment(qiscusChatRoom.getId());
-            if (latestComment != null) {
-                qiscusChatRoom.setLastComment(latestComment);
-            }
-            qiscusChatRooms.add(qiscusChatRoom);
-        }
-        cursor.close();
-        sortRooms(qiscusChatRooms);
-        return qiscusChatRooms;
+        return getChatRoomsFromQuery(query.toString(), args);
     }
 
     @Override
     public void deleteChatRoom(long roomId) {
-        String where = QiscusDb.RoomTable.COLUMN_ID + " = " + roomId;
+        String where = QiscusDb.RoomTable.COLUMN_ID + " = ?";
 
         sqLiteWriteDatabase.beginTransactionNonExclusive();
         try {
-            sqLiteWriteDatabase.delete(QiscusDb.RoomTable.TABLE_NAME, where, null);
+            sqLiteWriteDatabase.delete(QiscusDb.RoomTable.TABLE_NAME, where, new String[]{String.valueOf(roomId)});
             sqLiteWriteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
             QiscusErrorLogger.print(e);
@@ -335,28 +365,25 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
 
     @Override
     public boolean isContainsRoomMember(long roomId, String email) {
-        String query = "SELECT * FROM "
+        String query = "SELECT COUNT(*) FROM "
                 + QiscusDb.RoomMemberTable.TABLE_NAME + " WHERE "
-                + QiscusDb.RoomMemberTable.COLUMN_ROOM_ID + " = " + roomId
-                + " AND " + QiscusDb.RoomMemberTable.COLUMN_USER_EMAIL
-                + " = " + DatabaseUtils.sqlEscapeString(email);
+                + QiscusDb.RoomMemberTable.COLUMN_ROOM_ID + " = ?"
+                + " AND " + QiscusDb.RoomMemberTable.COLUMN_USER_EMAIL + " = ?";
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(query, null);
-        boolean contains = cursor.getCount() > 0;
-        cursor.close();
-        return contains;
+        return isExists(query, String.valueOf(roomId), email);
     }
 
     @Override
     public void updateRoomMember(long roomId, QiscusRoomMember qiscusRoomMember, String distinctId) {
         distinctId = distinctId == null ? "default" : distinctId;
-        String where = QiscusDb.RoomMemberTable.COLUMN_ROOM_ID + " = " + roomId + " AND "
-                + QiscusDb.RoomMemberTable.COLUMN_USER_EMAIL + " = " + DatabaseUtils.sqlEscapeString(qiscusRoomMember.getEmail());
+        String where = QiscusDb.RoomMemberTable.COLUMN_ROOM_ID + " = ? AND "
+                + QiscusDb.RoomMemberTable.COLUMN_USER_EMAIL + " = ?";
 
         sqLiteWriteDatabase.beginTransactionNonExclusive();
         try {
             sqLiteWriteDatabase.update(QiscusDb.RoomMemberTable.TABLE_NAME,
-                    QiscusDb.RoomMemberTable.toContentValues(roomId, distinctId, qiscusRoomMember), where, null);
+                    QiscusDb.RoomMemberTable.toContentValues(roomId, distinctId, qiscusRoomMember), where,
+                    new String[]{String.valueOf(roomId), qiscusRoomMember.getEmail()});
             sqLiteWriteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
             QiscusErrorLogger.print(e);
@@ -371,8 +398,11 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
     public void addOrUpdateRoomMember(long roomId, QiscusRoomMember qiscusRoomMember, String distinctId) {
         sqLiteWriteDatabase.beginTransactionNonExclusive();
         try {
-            sqLiteWriteDatabase.insertWithOnConflict(QiscusDb.RoomMemberTable.TABLE_NAME, null,
-                    QiscusDb.RoomMemberTable.toContentValues(roomId, distinctId, qiscusRoomMember), SQLiteDatabase.CONFLICT_REPLACE);
+            SQLiteStatement statement = getCompiledStatement(QiscusDb.RoomMemberTable.INSERT_OR_REPLACE);
+            synchronized (statement) {
+                QiscusDb.RoomMemberTable.bind(statement, roomId, distinctId, qiscusRoomMember);
+                statement.executeInsert();
+            }
             sqLiteWriteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
             QiscusErrorLogger.print(e);
@@ -384,20 +414,42 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
     }
 
     @Override
-    public List<QiscusRoomMember> getRoomMembers(long roomId) {
-        String query = "SELECT * FROM "
-                + QiscusDb.RoomMemberTable.TABLE_NAME + " WHERE "
-                + QiscusDb.RoomMemberTable.COLUMN_ROOM_ID + " = " + roomId;
+    public void addOrUpdateRoomMembers(long roomId, List<QiscusRoomMember> qiscusRoomMembers, String distinctId) {
+        if (qiscusRoomMembers == null || qiscusRoomMembers.isEmpty()) {
+            return;
+        }
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(query, null);
+        sqLiteWriteDatabase.beginTransactionNonExclusive();
+        try {
+            upsertRoomMembers(roomId, qiscusRoomMembers, distinctId);
+            sqLiteWriteDatabase.setTransactionSuccessful();
+        } catch (Exception e) {
+            QiscusErrorLogger.print(e);
+        } finally {
+            sqLiteWriteDatabase.endTransaction();
+        }
+    }
+
+    @Override
+    public List<QiscusRoomMember> getRoomMembers(long roomId) {
+        String roomMemberTableName = QiscusDb.RoomMemberTable.TABLE_NAME;
+        String memberTableName = QiscusDb.MemberTable.TABLE_NAME;
+        String query = "SELECT " + memberTableName + ".*, "
+                + roomMemberTableName + "." + QiscusDb.RoomMemberTable.COLUMN_LAST_DELIVERED + ", "
+                + roomMemberTableName + "." + QiscusDb.RoomMemberTable.COLUMN_LAST_READ
+                + " FROM " + roomMemberTableName
+                + " INNER JOIN " + memberTableName
+                + " ON " + roomMemberTableName + "." + QiscusDb.RoomMemberTable.COLUMN_USER_EMAIL
+                + " = " + memberTableName + "." + QiscusDb.MemberTable.COLUMN_USER_EMAIL
+                + " WHERE " + roomMemberTableName + "." + QiscusDb.RoomMemberTable.COLUMN_ROOM_ID + " = ?";
+
+        Cursor cursor = sqLiteReadDatabase.rawQuery(query, new String[]{String.valueOf(roomId)});
         List<QiscusRoomMember> members = new ArrayList<>();
         while (cursor.moveToNext()) {
-            QiscusRoomMember member = getMember(QiscusDb.RoomMemberTable.getUserEmail(cursor));
-            if (member != null) {
-                member.setLastDeliveredCommentId(QiscusDb.RoomMemberTable.getLastDeliveredCommentId(cursor));
-                member.setLastReadCommentId(QiscusDb.RoomMemberTable.getLastReadCommentId(cursor));
-                members.add(member);
-            }
+            QiscusRoomMember member = QiscusDb.MemberTable.getMember(cursor);
+            member.setLastDeliveredCommentId(QiscusDb.RoomMemberTable.getLastDeliveredCommentId(cursor));
+            member.setLastReadCommentId(QiscusDb.RoomMemberTable.getLastReadCommentId(cursor));
+            members.add(member);
         }
         cursor.close();
         return members;
@@ -405,12 +457,13 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
 
     @Override
     public void deleteRoomMember(long roomId, String email) {
-        String where = QiscusDb.RoomMemberTable.COLUMN_ROOM_ID + " = " + roomId
-                + " AND " + QiscusDb.RoomMemberTable.COLUMN_USER_EMAIL + " = " + DatabaseUtils.sqlEscapeString(email);
+        String where = QiscusDb.RoomMemberTable.COLUMN_ROOM_ID + " = ?"
+                + " AND " + QiscusDb.RoomMemberTable.COLUMN_USER_EMAIL + " = ?";
 
         sqLiteWriteDatabase.beginTransactionNonExclusive();
         try {
-            sqLiteWriteDatabase.delete(QiscusDb.RoomMemberTable.TABLE_NAME, where, null);
+            sqLiteWriteDatabase.delete(QiscusDb.RoomMemberTable.TABLE_NAME, where,
+                    new String[]{String.valueOf(roomId), email});
             sqLiteWriteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
             QiscusErrorLogger.print(e);
@@ -421,11 +474,11 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
 
     @Override
     public void deleteRoomMembers(long roomId) {
-        String where = QiscusDb.RoomMemberTable.COLUMN_ROOM_ID + " = " + roomId;
+        String where = QiscusDb.RoomMemberTable.COLUMN_ROOM_ID + " = ?";
 
         sqLiteWriteDatabase.beginTransactionNonExclusive();
         try {
-            sqLiteWriteDatabase.delete(QiscusDb.RoomMemberTable.TABLE_NAME, where, null);
+            sqLiteWriteDatabase.delete(QiscusDb.RoomMemberTable.TABLE_NAME, where, new String[]{String.valueOf(roomId)});
             sqLiteWriteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
             QiscusErrorLogger.print(e);
@@ -450,24 +503,22 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
 
     @Override
     public boolean isContains(QiscusRoomMember qiscusRoomMember) {
-        String query = "SELECT * FROM "
+        String query = "SELECT COUNT(*) FROM "
                 + QiscusDb.MemberTable.TABLE_NAME + " WHERE "
-                + QiscusDb.MemberTable.COLUMN_USER_EMAIL + " = " + DatabaseUtils.sqlEscapeString(qiscusRoomMember.getEmail());
+                + QiscusDb.MemberTable.COLUMN_USER_EMAIL + " = ?";
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(query, null);
-        boolean contains = cursor.getCount() > 0;
-        cursor.close();
-        return contains;
+        return isExists(query, qiscusRoomMember.getEmail());
     }
 
     @Override
     public void update(QiscusRoomMember qiscusRoomMember) {
-        String where = QiscusDb.MemberTable.COLUMN_USER_EMAIL + " = " + DatabaseUtils.sqlEscapeString(qiscusRoomMember.getEmail());
+        String where = QiscusDb.MemberTable.COLUMN_USER_EMAIL + " = ?";
 
         sqLiteWriteDatabase.beginTransactionNonExclusive();
         try {
             sqLiteWriteDatabase.update(QiscusDb.MemberTable.TABLE_NAME,
-                    QiscusDb.MemberTable.toContentValues(qiscusRoomMember), where, null);
+                    QiscusDb.MemberTable.toContentValues(qiscusRoomMember), where,
+                    new String[]{qiscusRoomMember.getEmail()});
             sqLiteWriteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
             QiscusErrorLogger.print(e);
@@ -480,8 +531,11 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
     public void addOrUpdate(QiscusRoomMember qiscusRoomMember) {
         sqLiteWriteDatabase.beginTransactionNonExclusive();
         try {
-            sqLiteWriteDatabase.insertWithOnConflict(QiscusDb.MemberTable.TABLE_NAME, null,
-                    QiscusDb.MemberTable.toContentValues(qiscusRoomMember), SQLiteDatabase.CONFLICT_REPLACE);
+            SQLiteStatement statement = getCompiledStatement(QiscusDb.MemberTable.INSERT_OR_REPLACE);
+            synchronized (statement) {
+                QiscusDb.MemberTable.bind(statement, qiscusRoomMember);
+                statement.executeInsert();
+            }
             sqLiteWriteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
             QiscusErrorLogger.print(e);
@@ -494,9 +548,9 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
     public QiscusRoomMember getMember(String email) {
         String query = "SELECT * FROM "
                 + QiscusDb.MemberTable.TABLE_NAME + " WHERE "
-                + QiscusDb.MemberTable.COLUMN_USER_EMAIL + " = " + DatabaseUtils.sqlEscapeString(email);
+                + QiscusDb.MemberTable.COLUMN_USER_EMAIL + " = ?";
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(query, null);
+        Cursor cursor = sqLiteReadDatabase.rawQuery(query, new String[]{email});
 
         try {
             if (cursor != null && cursor.moveToNext()) {
@@ -520,6 +574,9 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
         try {
             sqLiteWriteDatabase.insertWithOnConflict(QiscusDb.CommentTable.TABLE_NAME, null,
                     QiscusDb.CommentTable.toContentValues(qiscusComment), SQLiteDatabase.CONFLICT_ABORT);
+            updateRoomUnreadCount(Collections.singletonList(qiscusComment));
+            indexComment(qiscusComment);
+            updateRoomLastComment(qiscusComment.getRoomId());
             sqLiteWriteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
             QiscusErrorLogger.print(e);
@@ -544,35 +601,33 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
 
     @Override
     public boolean isContains(QiscusComment qiscusComment) {
-        String query = "SELECT * FROM "
+        String query = "SELECT COUNT(*) FROM "
                 + QiscusDb.CommentTable.TABLE_NAME + " WHERE "
-                + QiscusDb.CommentTable.COLUMN_UNIQUE_ID + " = " + DatabaseUtils.sqlEscapeString(qiscusComment.getUniqueId());
+                + QiscusDb.CommentTable.COLUMN_UNIQUE_ID + " = ?";
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(query, null);
-        boolean contains = cursor.getCount() > 0;
-        cursor.close();
-        return contains;
+        return isExists(query, qiscusComment.getUniqueId());
     }
 
     @Override
     public boolean isContainsFileOfComment(long commentId) {
-        String query = "SELECT * FROM "
+        String query = "SELECT COUNT(*) FROM "
                 + QiscusDb.FilesTable.TABLE_NAME + " WHERE "
-                + QiscusDb.FilesTable.COLUMN_COMMENT_ID + " = " + commentId;
+                + QiscusDb.FilesTable.COLUMN_COMMENT_ID + " = ?";
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(query, null);
-        boolean contains = cursor.getCount() > 0;
-        cursor.close();
-        return contains;
+        return isExists(query, String.valueOf(commentId));
     }
 
     @Override
     public void update(QiscusComment qiscusComment) {
-        String where = QiscusDb.CommentTable.COLUMN_UNIQUE_ID + " = " + DatabaseUtils.sqlEscapeString(qiscusComment.getUniqueId());
+        String where = QiscusDb.CommentTable.COLUMN_UNIQUE_ID + " = ?";
 
         sqLiteWriteDatabase.beginTransactionNonExclusive();
         try {
-            sqLiteWriteDatabase.update(QiscusDb.CommentTable.TABLE_NAME, QiscusDb.CommentTable.toContentValues(qiscusComment), where, null);
+            unindexComment(qiscusComment.getUniqueId());
+            sqLiteWriteDatabase.update(QiscusDb.CommentTable.TABLE_NAME, QiscusDb.CommentTable.toContentValues(qiscusComment),
+                    where, new String[]{qiscusComment.getUniqueId()});
+            indexComment(qiscusComment);
+            updateRoomLastComment(qiscusComment.getRoomId());
             sqLiteWriteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
             QiscusErrorLogger.print(e);
@@ -583,12 +638,13 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
 
     @Override
     public void updateLocalPath(long roomId, long commentId, String localPath) {
-        String where = QiscusDb.FilesTable.COLUMN_COMMENT_ID + " = " + commentId;
+        String where = QiscusDb.FilesTable.COLUMN_COMMENT_ID + " = ?";
 
         sqLiteWriteDatabase.beginTransactionNonExclusive();
         try {
             sqLiteWriteDatabase.update(QiscusDb.FilesTable.TABLE_NAME,
-                    QiscusDb.FilesTable.toContentValues(roomId, commentId, localPath), where, null);
+                    QiscusDb.FilesTable.toContentValues(roomId, commentId, localPath), where,
+                    new String[]{String.valueOf(commentId)});
             sqLiteWriteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
             QiscusErrorLogger.print(e);
@@ -601,8 +657,24 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
     public void addOrUpdate(QiscusComment qiscusComment) {
         sqLiteWriteDatabase.beginTransactionNonExclusive();
         try {
-            sqLiteWriteDatabase.insertWithOnConflict(QiscusDb.CommentTable.TABLE_NAME, null,
-                    QiscusDb.CommentTable.toContentValues(qiscusComment), SQLiteDatabase.CONFLICT_REPLACE);
+            upsertComments(Collections.singletonList(qiscusComment), true);
+            sqLiteWriteDatabase.setTransactionSuccessful();
+        } catch (Exception e) {
+            QiscusErrorLogger.print(e);
+        } finally {
+            sqLiteWriteDatabase.endTransaction();
+        }
+    }
+
+    @Override
+    public void addOrUpdateComments(List<QiscusComment> qiscusComments) {
+        if (qiscusComments == null || qiscusComments.isEmpty()) {
+            return;
+        }
+
+        sqLiteWriteDatabase.beginTransactionNonExclusive();
+        try {
+            upsertComments(qiscusComments, true);
             sqLiteWriteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
             QiscusErrorLogger.print(e);
@@ -627,11 +699,13 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
 
     @Override
     public void delete(QiscusComment qiscusComment) {
-        String where = QiscusDb.CommentTable.COLUMN_UNIQUE_ID + " = " + DatabaseUtils.sqlEscapeString(qiscusComment.getUniqueId());
+        String where = QiscusDb.CommentTable.COLUMN_UNIQUE_ID + " = ?";
 
         sqLiteWriteDatabase.beginTransactionNonExclusive();
         try {
-            sqLiteWriteDatabase.delete(QiscusDb.CommentTable.TABLE_NAME, where, null);
+            unindexComment(qiscusComment.getUniqueId());
+            sqLiteWriteDatabase.delete(QiscusDb.CommentTable.TABLE_NAME, where, new String[]{qiscusComment.getUniqueId()});
+            updateRoomLastComment(qiscusComment.getRoomId());
             sqLiteWriteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
             QiscusErrorLogger.print(e);
@@ -653,10 +727,13 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
             deleteLocalPath(comment.getId());
         }
 
-        String where = QiscusDb.CommentTable.COLUMN_ROOM_ID + " = " + roomId;
+        String where = QiscusDb.CommentTable.COLUMN_ROOM_ID + " = ?";
         sqLiteWriteDatabase.beginTransactionNonExclusive();
         try {
-            sqLiteWriteDatabase.delete(QiscusDb.CommentTable.TABLE_NAME, where, null);
+            sqLiteWriteDatabase.delete(QiscusDb.CommentSearchTable.TABLE_NAME, "docid IN (SELECT rowid FROM "
+                    + QiscusDb.CommentTable.TABLE_NAME + " WHERE " + where + ")", new String[]{String.valueOf(roomId)});
+            sqLiteWriteDatabase.delete(QiscusDb.CommentTable.TABLE_NAME, where, new String[]{String.valueOf(roomId)});
+            updateRoomLastComment(roomId);
             sqLiteWriteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
             QiscusErrorLogger.print(e);
@@ -679,12 +756,17 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
             deleteLocalPath(comment.getId());
         }
 
-        String where = QiscusDb.CommentTable.COLUMN_ROOM_ID + " = " + roomId + " AND "
-                + QiscusDb.CommentTable.COLUMN_TIME + " <= " + timestampOffset;
+        String where = QiscusDb.CommentTable.COLUMN_ROOM_ID + " = ? AND "
+                + QiscusDb.CommentTable.COLUMN_TIME + " <= ?";
 
         sqLiteWriteDatabase.beginTransactionNonExclusive();
         try {
-            sqLiteWriteDatabase.delete(QiscusDb.CommentTable.TABLE_NAME, where, null);
+            sqLiteWriteDatabase.delete(QiscusDb.CommentSearchTable.TABLE_NAME, "docid IN (SELECT rowid FROM "
+                            + QiscusDb.CommentTable.TABLE_NAME + " WHERE " + where + ")",
+                    new String[]{String.valueOf(roomId), String.valueOf(timestampOffset)});
+            sqLiteWriteDatabase.delete(QiscusDb.CommentTable.TABLE_NAME, where,
+                    new String[]{String.valueOf(roomId), String.valueOf(timestampOffset)});
+            updateRoomLastComment(roomId);
             sqLiteWriteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
             QiscusErrorLogger.print(e);
@@ -699,53 +781,38 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
     public void updateLastDeliveredComment(long roomId, long commentId) {
         String sql = "UPDATE " + QiscusDb.CommentTable.TABLE_NAME
                 + " SET " + QiscusDb.CommentTable.COLUMN_STATE + " = " + QiscusComment.STATE_DELIVERED
-                + " WHERE " + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = " + roomId
-                + " AND " + QiscusDb.CommentTable.COLUMN_ID + " <= " + commentId
+                + " WHERE " + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = ?"
+                + " AND " + QiscusDb.CommentTable.COLUMN_ID + " <= ?"
                 + " AND " + QiscusDb.CommentTable.COLUMN_ID + " != -1"
                 + " AND " + QiscusDb.CommentTable.COLUMN_STATE + " < " + QiscusComment.STATE_DELIVERED;
 
-        sqLiteWriteDatabase.beginTransactionNonExclusive();
-        try {
-            sqLiteWriteDatabase.execSQL(sql);
-            sqLiteWriteDatabase.setTransactionSuccessful();
-        } catch (Exception e) {
-            QiscusErrorLogger.print(e);
-        } finally {
-            sqLiteWriteDatabase.endTransaction();
-        }
+        executeUpdateDelete(sql, roomId, commentId);
     }
 
     @Override
     public void updateLastReadComment(long roomId, long commentId) {
         String sql = "UPDATE " + QiscusDb.CommentTable.TABLE_NAME
                 + " SET " + QiscusDb.CommentTable.COLUMN_STATE + " = " + QiscusComment.STATE_READ
-                + " WHERE " + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = " + roomId
-                + " AND " + QiscusDb.CommentTable.COLUMN_ID + " <= " + commentId
+                + " WHERE " + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = ?"
+                + " AND " + QiscusDb.CommentTable.COLUMN_ID + " <= ?"
                 + " AND " + QiscusDb.CommentTable.COLUMN_ID + " != -1"
                 + " AND " + QiscusDb.CommentTable.COLUMN_STATE + " < " + QiscusComment.STATE_READ;
 
-        sqLiteWriteDatabase.beginTransactionNonExclusive();
-        try {
-            sqLiteWriteDatabase.execSQL(sql);
-            sqLiteWriteDatabase.setTransactionSuccessful();
-        } catch (Exception e) {
-            QiscusErrorLogger.print(e);
-        } finally {
-            sqLiteWriteDatabase.endTransaction();
-        }
+        executeUpdateDelete(sql, roomId, commentId);
     }
 
     @Override
     public File getLocalPath(long commentId) {
         String query = "SELECT * FROM "
                 + QiscusDb.FilesTable.TABLE_NAME + " WHERE "
-                + QiscusDb.FilesTable.COLUMN_COMMENT_ID + " = " + commentId;
+                + QiscusDb.FilesTable.COLUMN_COMMENT_ID + " = ?";
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(query, null);
+        Cursor cursor = sqLiteReadDatabase.rawQuery(query, new String[]{String.valueOf(commentId)});
         if (cursor.moveToNext()) {
             File file = new File(QiscusDb.FilesTable.parseCursor(cursor));
             cursor.close();
             if (file.exists()) {
+                QiscusAttachmentCache.getInstance().onAccess(file);
                 return file;
             }
             return null;
@@ -755,159 +822,179 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
         }
     }
 
+    /**
+     * The file itself is deleted only when no other comment refers to it anymore.
+     */
     @Override
     public void deleteLocalPath(long commentId) {
-        File file = getLocalPath(commentId);
-        if (file != null) {
-            file.delete();
+        String query = "SELECT * FROM "
+                + QiscusDb.FilesTable.TABLE_NAME + " WHERE "
+                + QiscusDb.FilesTable.COLUMN_COMMENT_ID + " = ?";
+
+        Cursor cursor = sqLiteReadDatabase.rawQuery(query, new String[]{String.valueOf(commentId)});
+        String localPath = cursor.moveToNext() ? QiscusDb.FilesTable.parseCursor(cursor) : null;
+        cursor.close();
+        if (localPath == null) {
+            return;
         }
 
         sqLiteWriteDatabase.beginTransactionNonExclusive();
         try {
-            String where = QiscusDb.FilesTable.COLUMN_COMMENT_ID + " = " + commentId;
-            sqLiteWriteDatabase.delete(QiscusDb.FilesTable.TABLE_NAME, where, null);
+            String where = QiscusDb.FilesTable.COLUMN_COMMENT_ID + " = ?";
+            sqLiteWriteDatabase.delete(QiscusDb.FilesTable.TABLE_NAME, where, new String[]{String.valueOf(commentId)});
             sqLiteWriteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
             QiscusErrorLogger.print(e);
         } finally {
             sqLiteWriteDatabase.endTransaction();
         }
+
+        QiscusAttachmentCache.getInstance().release(new File(localPath));
     }
 
     @Override
-    public QiscusComment getComment(String uniqueId) {
-        String query = "SELECT * FROM "
+    public void deleteAttachmentCacheEntryOfPath(String localPath) {
+        sqLiteWriteDatabase.beginTransactionNonExclusive();
+        try {
+            String where = QiscusDb.AttachmentCacheTable.COLUMN_LOCAL_PATH + " = ?";
+            sqLiteWriteDatabase.delete(QiscusDb.AttachmentCacheTable.TABLE_NAME, where, new String[]{localPath});
+            sqLiteWriteDatabase.setTransactionSuccessful();
+        } catch (Exception e) {
+            QiscusErrorLogger.print(e);
+        } finally {
+            sqLiteWriteDatabase.endTransaction();
+        }
+    }
+
+    @Override
+    public int getLocalPathReferenceCount(String localPath) {
+        String query = "SELECT COUNT(*) FROM "
+                + QiscusDb.FilesTable.TABLE_NAME + " WHERE "
+                + QiscusDb.FilesTable.COLUMN_LOCAL_PATH + " = ?";
+
+        return (int) queryForLong(query, localPath) + (isLocalPathPinned(localPath) ? 1 : 0);
+    }
+
+    @Override
+    public boolean isLocalPathPinned(String localPath) {
+        String query = "SELECT COUNT(*) FROM "
                 + QiscusDb.CommentTable.TABLE_NAME + " WHERE "
-                + QiscusDb.CommentTable.COLUMN_UNIQUE_ID + " = " + DatabaseUtils.sqlEscapeString(uniqueId);
+                + QiscusDb.CommentTable.COLUMN_STATE + " <= " + QiscusComment.STATE_SENDING + " AND "
+                + QiscusDb.CommentTable.COLUMN_MESSAGE + " LIKE ?";
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(query, null);
-        if (cursor.moveToNext()) {
-            QiscusComment qiscusComment = QiscusDb.CommentTable.parseCursor(cursor);
-            QiscusRoomMember qiscusRoomMember = getMember(qiscusComment.getSenderEmail());
-            if (qiscusRoomMember != null) {
-                qiscusComment.setSender(qiscusRoomMember.getUsername());
-                qiscusComment.setSenderAvatar(qiscusRoomMember.getAvatar());
-            }
-            cursor.close();
-            return qiscusComment;
-        } else {
-            cursor.close();
-            return null;
+        return queryForLong(query, "%" + localPath + "%") > 0;
+    }
+
+    @Override
+    public void saveUploadSession(QiscusUploadSession session) {
+        sqLiteWriteDatabase.beginTransactionNonExclusive();
+        try {
+            sqLiteWriteDatabase.insertWithOnConflict(QiscusDb.UploadSessionTable.TABLE_NAME, null,
+                    QiscusDb.UploadSessionTable.toContentValues(session), SQLiteDatabase.CONFLICT_REPLACE);
+            sqLiteWriteDatabase.setTransactionSuccessful();
+        } catch (Exception e) {
+            QiscusErrorLogger.print(e);
+        } finally {
+            sqLiteWriteDatabase.endTransaction();
         }
     }
 
-    private QiscusComment getComment(long id) {
+    @Override
+    public QiscusUploadSession getUploadSession(String filePath) {
         String query = "SELECT * FROM "
-                + QiscusDb.CommentTable.TABLE_NAME + " WHERE "
-                + QiscusDb.CommentTable.COLUMN_ID + " = " + id;
+                + QiscusDb.UploadSessionTable.TABLE_NAME + " WHERE "
+                + QiscusDb.UploadSessionTable.COLUMN_FILE_PATH + " = ?";
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(query, null);
+        Cursor cursor = sqLiteReadDatabase.rawQuery(query, new String[]{filePath});
+        QiscusUploadSession session = null;
         if (cursor.moveToNext()) {
-            QiscusComment qiscusComment = QiscusDb.CommentTable.parseCursor(cursor);
-            QiscusRoomMember qiscusRoomMember = getMember(qiscusComment.getSenderEmail());
-            if (qiscusRoomMember != null) {
-                qiscusComment.setSender(qiscusRoomMember.getUsername());
-                qiscusComment.setSenderAvatar(qiscusRoomMember.getAvatar());
-            }
-            cursor.close();
-            return qiscusComment;
-        } else {
-            cursor.close();
-            return null;
+            session = QiscusDb.UploadSessionTable.parseCursor(cursor);
         }
+        cursor.close();
+        return session;
     }
 
     @Override
-    public QiscusComment getCommentByBeforeId(long beforeId) {
-        String query = "SELECT * FROM "
-                + QiscusDb.CommentTable.TABLE_NAME + " WHERE "
-                + QiscusDb.CommentTable.COLUMN_COMMENT_BEFORE_ID + " = " + beforeId;
+    public void deleteUploadSession(String filePath) {
+        sqLiteWriteDatabase.beginTransactionNonExclusive();
+        try {
+            String where = QiscusDb.UploadSessionTable.COLUMN_FILE_PATH + " = ?";
+            sqLiteWriteDatabase.delete(QiscusDb.UploadSessionTable.TABLE_NAME, where, new String[]{filePath});
+            sqLiteWriteDatabase.setTransactionSuccessful();
+        } catch (Exception e) {
+            QiscusErrorLogger.print(e);
+        } finally {
+            sqLiteWriteDatabase.endTransaction();
+        }
+    }
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(query, null);
-        if (cursor.moveToNext()) {
-            QiscusComment qiscusComment = QiscusDb.CommentTable.parseCursor(cursor);
-            QiscusRoomMember qiscusRoomMember = getMember(qiscusComment.getSenderEmail());
-            if (qiscusRoomMember != null) {
-                qiscusComment.setSender(qiscusRoomMember.getUsername());
-                qiscusComment.setSenderAvatar(qiscusRoomMember.getAvatar());
-            }
-            cursor.close();
-            return qiscusComment;
-        } else {
-            cursor.close();
-            return null;
+    @Override
+    public void deleteUploadSessionsBefore(long time) {
+        sqLiteWriteDatabase.beginTransactionNonExclusive();
+        try {
+            String where = QiscusDb.UploadSessionTable.COLUMN_UPDATED_AT + " < ?";
+            sqLiteWriteDatabase.delete(QiscusDb.UploadSessionTable.TABLE_NAME, where, new String[]{String.valueOf(time)});
+            sqLiteWriteDatabase.setTransactionSuccessful();
+        } catch (Exception e) {
+            QiscusErrorLogger.print(e);
+        } finally {
+            sqLiteWriteDatabase.endTransaction();
         }
     }
 
+    @Override
+    public QiscusComment getComment(String uniqueId) {
+        String query = QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
+                + QiscusDb.CommentTable.COLUMN_UNIQUE_ID + " = ?";
+
+        return getCommentFromQuery(query, uniqueId);
+    }
+
+    private QiscusComment getComment(long id) {
+        String query = QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
+                + QiscusDb.CommentTable.COLUMN_ID + " = ?";
+
+        return getCommentFromQuery(query, String.valueOf(id));
+    }
+
+    @Override
+    public QiscusComment getCommentByBeforeId(long beforeId) {
+        String query = QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
+                + QiscusDb.CommentTable.COLUMN_COMMENT_BEFORE_ID + " = ?";
+
+        return getCommentFromQuery(query, String.valueOf(beforeId));
+    }
+
     @Override
     public List<QiscusComment> getComments(long roomId) {
-        String query = "SELECT * FROM "
-                + QiscusDb.CommentTable.TABLE_NAME + " WHERE "
-                + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = " + roomId + " AND "
+        String query = QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
+                + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = ? AND "
                 + QiscusDb.CommentTable.COLUMN_HARD_DELETED + " = " + 0
                 + " ORDER BY " + QiscusDb.CommentTable.COLUMN_TIME + " DESC";
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(query, null);
-        List<QiscusComment> qiscusComments = new ArrayList<>();
-        while (cursor.moveToNext()) {
-            QiscusComment qiscusComment = QiscusDb.CommentTable.parseCursor(cursor);
-            QiscusRoomMember qiscusRoomMember = getMember(qiscusComment.getSenderEmail());
-            if (qiscusRoomMember != null) {
-                qiscusComment.setSender(qiscusRoomMember.getUsername());
-                qiscusComment.setSenderAvatar(qiscusRoomMember.getAvatar());
-            }
-            qiscusComments.add(qiscusComment);
-        }
-        cursor.close();
-        return qiscusComments;
+        return getCommentsFromQuery(query, String.valueOf(roomId));
     }
 
     @Override
     public List<QiscusComment> getComments(long roomId, int limit) {
-        String query = "SELECT * FROM "
-                + QiscusDb.CommentTable.TABLE_NAME + " WHERE "
-                + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = " + roomId + " AND "
+        String query = QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
+                + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = ? AND "
                 + QiscusDb.CommentTable.COLUMN_HARD_DELETED + " = " + 0
                 + " ORDER BY " + QiscusDb.CommentTable.COLUMN_TIME + " DESC"
-                + " LIMIT " + limit;
+                + " LIMIT ?";
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(query, null);
-        List<QiscusComment> qiscusComments = new ArrayList<>();
-        while (cursor.moveToNext()) {
-            QiscusComment qiscusComment = QiscusDb.CommentTable.parseCursor(cursor);
-            QiscusRoomMember qiscusRoomMember = getMember(qiscusComment.getSenderEmail());
-            if (qiscusRoomMember != null) {
-                qiscusComment.setSender(qiscusRoomMember.getUsername());
-                qiscusComment.setSenderAvatar(qiscusRoomMember.getAvatar());
-            }
-            qiscusComments.add(qiscusComment);
-        }
-        cursor.close();
-        return qiscusComments;
+        return getCommentsFromQuery(query, String.valueOf(roomId), String.valueOf(limit));
     }
 
     @Override
     public List<QiscusComment> getComments(long roomId, long timestampOffset) {
-        String query = "SELECT * FROM "
-                + QiscusDb.CommentTable.TABLE_NAME + " WHERE "
-                + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = " + roomId + " AND "
-                + QiscusDb.CommentTable.COLUMN_TIME + " <= " + timestampOffset + " AND "
+        String query = QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
+                + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = ? AND "
+                + QiscusDb.CommentTable.COLUMN_TIME + " <= ? AND "
                 + QiscusDb.CommentTable.COLUMN_HARD_DELETED + " = " + 0
                 + " ORDER BY " + QiscusDb.CommentTable.COLUMN_TIME + " DESC";
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(query, null);
-        List<QiscusComment> qiscusComments = new ArrayList<>();
-        while (cursor.moveToNext()) {
-            QiscusComment qiscusComment = QiscusDb.CommentTable.parseCursor(cursor);
-            QiscusRoomMember qiscusRoomMember = getMember(qiscusComment.getSenderEmail());
-            if (qiscusRoomMember != null) {
-                qiscusComment.setSender(qiscusRoomMember.getUsername());
-                qiscusComment.setSenderAvatar(qiscusRoomMember.getAvatar());
-            }
-            qiscusComments.add(qiscusComment);
-        }
-        cursor.close();
-        return qiscusComments;
+        return getCommentsFromQuery(query, String.valueOf(roomId), String.valueOf(timestampOffset));
     }
 
     @Override
@@ -928,27 +1015,19 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
 
     @Override
     public List<QiscusComment> getOlderCommentsThan(QiscusComment qiscusComment, long roomId, int limit) {
-        String query = "SELECT * FROM "
-                + QiscusDb.CommentTable.TABLE_NAME + " WHERE "
-                + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = " + roomId + " AND "
-                + QiscusDb.CommentTable.COLUMN_TIME + " <= " + qiscusComment.getTime().getTime() + " AND "
-                + QiscusDb.CommentTable.COLUMN_HARD_DELETED + " = " + 0
-                + " ORDER BY " + QiscusDb.CommentTable.COLUMN_TIME + " DESC"
-                + " LIMIT " + limit;
+        String query = QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
+                + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = ? AND "
+                + QiscusDb.CommentTable.COLUMN_HARD_DELETED + " = " + 0 + " AND "
+                + QiscusDb.CommentTable.COLUMN_TIME + " <= ? AND ("
+                + QiscusDb.CommentTable.COLUMN_TIME + " < ? OR "
+                + QiscusDb.CommentTable.COLUMN_UNIQUE_ID + " < ?)"
+                + " ORDER BY " + QiscusDb.CommentTable.COLUMN_TIME + " DESC, "
+                + QiscusDb.CommentTable.COLUMN_UNIQUE_ID + " DESC"
+                + " LIMIT ?";
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(query, null);
-        List<QiscusComment> qiscusComments = new ArrayList<>();
-        while (cursor.moveToNext()) {
-            QiscusComment comment = QiscusDb.CommentTable.parseCursor(cursor);
-            QiscusRoomMember qiscusRoomMember = getMember(comment.getSenderEmail());
-            if (qiscusRoomMember != null) {
-                comment.setSender(qiscusRoomMember.getUsername());
-                comment.setSenderAvatar(qiscusRoomMember.getAvatar());
-            }
-            qiscusComments.add(comment);
-        }
-        cursor.close();
-        return qiscusComments;
+        String time = String.valueOf(qiscusComment.getTime().getTime());
+        return getCommentsFromQuery(query, String.valueOf(roomId), time, time,
+                qiscusComment.getUniqueId(), String.valueOf(limit));
     }
 
     @Override
@@ -966,27 +1045,14 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
             return new ArrayList<>();
         }
 
-        String query = "SELECT * FROM "
-                + QiscusDb.CommentTable.TABLE_NAME + " WHERE "
-                + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = " + roomId + " AND ("
-                + QiscusDb.CommentTable.COLUMN_TIME + " >= " + savedComment.getTime().getTime() + " OR "
+        String query = QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
+                + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = ? AND ("
+                + QiscusDb.CommentTable.COLUMN_TIME + " >= ? OR "
                 + QiscusDb.CommentTable.COLUMN_ID + " = -1) " + " AND "
                 + QiscusDb.CommentTable.COLUMN_HARD_DELETED + " = " + 0
                 + " ORDER BY " + QiscusDb.CommentTable.COLUMN_TIME + " DESC";
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(query, null);
-        List<QiscusComment> qiscusComments = new ArrayList<>();
-        while (cursor.moveToNext()) {
-            QiscusComment comment = QiscusDb.CommentTable.parseCursor(cursor);
-            QiscusRoomMember qiscusRoomMember = getMember(comment.getSenderEmail());
-            if (qiscusRoomMember != null) {
-                comment.setSender(qiscusRoomMember.getUsername());
-                comment.setSenderAvatar(qiscusRoomMember.getAvatar());
-            }
-            qiscusComments.add(comment);
-        }
-        cursor.close();
-        return qiscusComments;
+        return getCommentsFromQuery(query, String.valueOf(roomId), String.valueOf(savedComment.getTime().getTime()));
     }
 
     @Override
@@ -999,118 +1065,69 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
 
     @Override
     public QiscusComment getLatestComment() {
-        String query = "SELECT * FROM "
-                + QiscusDb.CommentTable.TABLE_NAME + " WHERE "
+        String query = QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
                 + QiscusDb.CommentTable.COLUMN_ID + " != -1 " + " AND "
                 + QiscusDb.CommentTable.COLUMN_HARD_DELETED + " = " + 0
                 + " ORDER BY " + QiscusDb.CommentTable.COLUMN_TIME + " DESC "
                 + " LIMIT " + 1;
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(query, null);
-        QiscusComment qiscusComment = null;
-        while (cursor.moveToNext()) {
-            qiscusComment = QiscusDb.CommentTable.parseCursor(cursor);
-            QiscusRoomMember qiscusRoomMember = getMember(qiscusComment.getSenderEmail());
-            if (qiscusRoomMember != null) {
-                qiscusComment.setSender(qiscusRoomMember.getUsername());
-                qiscusComment.setSenderAvatar(qiscusRoomMember.getAvatar());
-            }
-        }
-        cursor.close();
-        return qiscusComment;
+        return getCommentFromQuery(query);
     }
 
     @Override
     public QiscusComment getLatestComment(long roomId) {
-        String query = "SELECT * FROM "
-                + QiscusDb.CommentTable.TABLE_NAME
-                + " WHERE " + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = " + roomId + " AND "
+        String query = QiscusDb.CommentTable.SELECT_WITH_MEMBER
+                + " WHERE " + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = ? AND "
                 + QiscusDb.CommentTable.COLUMN_HARD_DELETED + " = " + 0
-                + " ORDER BY " + QiscusDb.CommentTable.COLUMN_TIME + " DESC"
+                + " ORDER BY " + QiscusDb.CommentTable.COLUMN_TIME + " DESC, "
+                + QiscusDb.CommentTable.COLUMN_UNIQUE_ID + " DESC"
                 + " LIMIT " + 1;
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(query, null);
-        QiscusComment qiscusComment = null;
-        while (cursor.moveToNext()) {
-            qiscusComment = QiscusDb.CommentTable.parseCursor(cursor);
-            QiscusRoomMember qiscusRoomMember = getMember(qiscusComment.getSenderEmail());
-            if (qiscusRoomMember != null) {
-                qiscusComment.setSender(qiscusRoomMember.getUsername());
-                qiscusComment.setSenderAvatar(qiscusRoomMember.getAvatar());
-            }
-        }
-        cursor.close();
-        return qiscusComment;
+        return getCommentFromQuery(query, String.valueOf(roomId));
+    }
+
+    @Override
+    public QiscusComment getLatestSentComment(long roomId) {
+        String query = QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
+                + QiscusDb.CommentTable.COLUMN_ID + " > 0"
+                + " AND " + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = ?"
+                + " ORDER BY " + QiscusDb.CommentTable.COLUMN_ID + " DESC"
+                + " LIMIT " + 1;
+
+        return getCommentFromQuery(query, String.valueOf(roomId));
     }
 
     @Override
     public QiscusComment getLatestDeliveredComment(long roomId) {
-        String query = "SELECT * FROM "
-                + QiscusDb.CommentTable.TABLE_NAME + " WHERE "
+        String query = QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
                 + QiscusDb.CommentTable.COLUMN_ID + " != -1 "
-                + " AND " + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = " + roomId
+                + " AND " + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = ?"
                 + " AND " + QiscusDb.CommentTable.COLUMN_STATE + " = " + QiscusComment.STATE_DELIVERED
                 + " ORDER BY " + QiscusDb.CommentTable.COLUMN_TIME + " DESC"
                 + " LIMIT " + 1;
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(query, null);
-        QiscusComment qiscusComment = null;
-        while (cursor.moveToNext()) {
-            qiscusComment = QiscusDb.CommentTable.parseCursor(cursor);
-            QiscusRoomMember qiscusRoomMember = getMember(qiscusComment.getSenderEmail());
-            if (qiscusRoomMember != null) {
-                qiscusComment.setSender(qiscusRoomMember.getUsername());
-                qiscusComment.setSenderAvatar(qiscusRoomMember.getAvatar());
-            }
-        }
-        cursor.close();
-        return qiscusComment;
+        return getCommentFromQuery(query, String.valueOf(roomId));
     }
 
     @Override
     public QiscusComment getLatestReadComment(long roomId) {
-        String query = "SELECT * FROM "
-                + QiscusDb.CommentTable.TABLE_NAME + " WHERE "
+        String query = QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
                 + QiscusDb.CommentTable.COLUMN_ID + " != -1 "
-                + " AND " + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = " + roomId
+                + " AND " + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = ?"
                 + " AND " + QiscusDb.CommentTable.COLUMN_STATE + " = " + QiscusComment.STATE_READ
                 + " ORDER BY " + QiscusDb.CommentTable.COLUMN_TIME + " DESC"
                 + " LIMIT " + 1;
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(query, null);
-        QiscusComment qiscusComment = null;
-        while (cursor.moveToNext()) {
-            qiscusComment = QiscusDb.CommentTable.parseCursor(cursor);
-            QiscusRoomMember qiscusRoomMember = getMember(qiscusComment.getSenderEmail());
-            if (qiscusRoomMember != null) {
-                qiscusComment.setSender(qiscusRoomMember.getUsername());
-                qiscusComment.setSenderAvatar(qiscusRoomMember.getAvatar());
-            }
-        }
-        cursor.close();
-        return qiscusComment;
+        return getCommentFromQuery(query, String.valueOf(roomId));
     }
 
     @Override
     public List<QiscusComment> getPendingComments() {
-        String query = "SELECT * FROM "
-                + QiscusDb.CommentTable.TABLE_NAME + " WHERE "
+        String query = QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
                 + QiscusDb.CommentTable.COLUMN_STATE + " = " + QiscusComment.STATE_PENDING
                 + " ORDER BY " + QiscusDb.CommentTable.COLUMN_TIME + " ASC";
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(query, null);
-        List<QiscusComment> qiscusComments = new ArrayList<>();
-        while (cursor.moveToNext()) {
-            QiscusComment qiscusComment = QiscusDb.CommentTable.parseCursor(cursor);
-            QiscusRoomMember qiscusRoomMember = getMember(qiscusComment.getSenderEmail());
-            if (qiscusRoomMember != null) {
-                qiscusComment.setSender(qiscusRoomMember.getUsername());
-                qiscusComment.setSenderAvatar(qiscusRoomMember.getAvatar());
-            }
-            qiscusComments.add(qiscusComment);
-        }
-        cursor.close();
-        return qiscusComments;
+        return getCommentsFromQuery(query);
     }
 
     @Override
@@ -1123,51 +1140,122 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
 
     @Override
     public List<QiscusComment> searchComments(String query, long roomId, int limit, int offset) {
-        String sql = "SELECT * FROM "
-                + QiscusDb.CommentTable.TABLE_NAME + " WHERE "
-                + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = " + roomId + " AND "
-                + QiscusDb.CommentTable.COLUMN_MESSAGE + " LIKE '%" + query + "%' " + " AND "
+        String sql = QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
+                + QiscusDb.CommentTable.COLUMN_ROOM_ID + " = ? AND "
+                + QiscusDb.CommentTable.COLUMN_MESSAGE + " LIKE ? AND "
                 + QiscusDb.CommentTable.COLUMN_HARD_DELETED + " = " + 0
                 + " ORDER BY " + QiscusDb.CommentTable.COLUMN_TIME + " DESC "
-                + " LIMIT " + limit + " OFFSET " + offset;
+                + " LIMIT ? OFFSET ?";
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(sql, null);
-        List<QiscusComment> qiscusComments = new ArrayList<>();
-        while (cursor.moveToNext()) {
-            QiscusComment qiscusComment = QiscusDb.CommentTable.parseCursor(cursor);
-            QiscusRoomMember qiscusRoomMember = getMember(qiscusComment.getSenderEmail());
-            if (qiscusRoomMember != null) {
-                qiscusComment.setSender(qiscusRoomMember.getUsername());
-                qiscusComment.setSenderAvatar(qiscusRoomMember.getAvatar());
-            }
-            qiscusComments.add(qiscusComment);
-        }
-        cursor.close();
-        return qiscusComments;
+        return getCommentsFromQuery(sql, String.valueOf(roomId), "%" + query + "%",
+                String.valueOf(limit), String.valueOf(offset));
     }
 
     @Override
     public List<QiscusComment> searchComments(String query, int limit, int offset) {
-        String sql = "SELECT * FROM "
-                + QiscusDb.CommentTable.TABLE_NAME + " WHERE "
-                + QiscusDb.CommentTable.COLUMN_MESSAGE + " LIKE '%" + query + "%' " + " AND "
+        String sql = QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
+                + QiscusDb.CommentTable.COLUMN_MESSAGE + " LIKE ? AND "
                 + QiscusDb.CommentTable.COLUMN_HARD_DELETED + " = " + 0
                 + " ORDER BY " + QiscusDb.CommentTable.COLUMN_TIME + " DESC "
-                + " LIMIT " + limit + " OFFSET " + offset;
+                + " LIMIT ? OFFSET ?";
+
+        return getCommentsFromQuery(sql, "%" + query + "%", String.valueOf(limit), String.valueOf(offset));
+    }
+
+    @Override
+    public void saveAttachmentCacheEntry(QiscusAttachmentCacheEntry entry) {
+        sqLiteWriteDatabase.beginTransactionNonExclusive();
+        try {
+            sqLiteWriteDatabase.insertWithOnConflict(QiscusDb.AttachmentCacheTable.TABLE_NAME, null,
+                    QiscusDb.AttachmentCacheTable.toContentValues(entry), SQLiteDatabase.CONFLICT_REPLACE);
+            sqLiteWriteDatabase.setTransactionSuccessful();
+        } catch (Exception e) {
+            QiscusErrorLogger.print(e);
+        } finally {
+            sqLiteWriteDatabase.endTransaction();
+        }
+    }
+
+    @Override
+    public QiscusAttachmentCacheEntry getAttachmentCacheEntry(String hash) {
+        String query = "SELECT * FROM "
+                + QiscusDb.AttachmentCacheTable.TABLE_NAME + " WHERE "
+                + QiscusDb.AttachmentCacheTable.COLUMN_HASH + " = ?";
+
+        Cursor cursor = sqLiteReadDatabase.rawQuery(query, new String[]{hash});
+        QiscusAttachmentCacheEntry entry = null;
+        if (cursor.moveToNext()) {
+            entry = QiscusDb.AttachmentCacheTable.parseCursor(cursor);
+        }
+        cursor.close();
+        return entry;
+    }
+
+    @Override
+    public List<QiscusAttachmentCacheEntry> getAttachmentCacheEntries() {
+        String query = "SELECT * FROM "
+                + QiscusDb.AttachmentCacheTable.TABLE_NAME
+                + " ORDER BY " + QiscusDb.AttachmentCacheTable.COLUMN_LAST_ACCESS + " ASC";
 
-        Cursor cursor = sqLiteReadDatabase.rawQuery(sql, null);
-        List<QiscusComment> qiscusComments = new ArrayList<>();
+        Cursor cursor = sqLiteReadDatabase.rawQuery(query, null);
+        List<QiscusAttachmentCacheEntry> entries = new ArrayList<>(cursor.getCount());
         while (cursor.moveToNext()) {
-            QiscusComment qiscusComment = QiscusDb.CommentTable.parseCursor(cursor);
-            QiscusRoomMember qiscusRoomMember = getMember(qiscusComment.getSenderEmail());
-            if (qiscusRoomMember != null) {
-                qiscusComment.setSender(qiscusRoomMember.getUsername());
-                qiscusComment.setSenderAvatar(qiscusRoomMember.getAvatar());
-            }
-            qiscusComments.add(qiscusComment);
+            entries.add(QiscusDb.AttachmentCacheTable.parseCursor(cursor));
         }
         cursor.close();
-        return qiscusComments;
+        return entries;
+    }
+
+    @Override
+    public void updateAttachmentCacheAccess(Map<String, Long> lastAccesses) {
+        if (lastAccesses.isEmpty()) {
+            return;
+        }
+
+        String sql = "UPDATE " + QiscusDb.AttachmentCacheTable.TABLE_NAME
+                + " SET " + QiscusDb.AttachmentCacheTable.COLUMN_LAST_ACCESS + " = ?"
+                + " WHERE " + QiscusDb.AttachmentCacheTable.COLUMN_LOCAL_PATH + " = ?";
+        sqLiteWriteDatabase.beginTransactionNonExclusive();
+        try {
+            SQLiteStatement statement = getCompiledStatement(sql);
+            synchronized (statement) {
+                for (Map.Entry<String, Long> lastAccess : lastAccesses.entrySet()) {
+                    statement.clearBindings();
+                    statement.bindLong(1, lastAccess.getValue());
+                    statement.bindString(2, lastAccess.getKey());
+                    statement.executeUpdateDelete();
+                }
+            }
+            sqLiteWriteDatabase.setTransactionSuccessful();
+        } catch (Exception e) {
+            QiscusErrorLogger.print(e);
+        } finally {
+            sqLiteWriteDatabase.endTransaction();
+        }
+    }
+
+    @Override
+    public void deleteAttachmentCacheEntry(String hash) {
+        sqLiteWriteDatabase.beginTransactionNonExclusive();
+        try {
+            String where = QiscusDb.AttachmentCacheTable.COLUMN_HASH + " = ?";
+            sqLiteWriteDatabase.delete(QiscusDb.AttachmentCacheTable.TABLE_NAME, where, new String[]{hash});
+            sqLiteWriteDatabase.setTransactionSuccessful();
+        } catch (Exception e) {
+            QiscusErrorLogger.print(e);
+        } finally {
+            sqLiteWriteDatabase.endTransaction();
+        }
+    }
+
+    @Override
+    public List<QiscusCommentSearchResult> searchComments(String query, long roomId, QiscusComment lastResult, int limit) {
+        return searchCommentsFromIndex(query, String.valueOf(roomId), lastResult, limit);
+    }
+
+    @Override
+    public List<QiscusCommentSearchResult> searchComments(String query, QiscusComment lastResult, int limit) {
+        return searchCommentsFromIndex(query, null, lastResult, limit);
     }
 
     @Override
@@ -1179,6 +1267,10 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
             sqLiteReadDatabase.delete(QiscusDb.RoomMemberTable.TABLE_NAME, null, null);
             sqLiteReadDatabase.delete(QiscusDb.FilesTable.TABLE_NAME, null, null);
             sqLiteReadDatabase.delete(QiscusDb.CommentTable.TABLE_NAME, null, null);
+            sqLiteReadDatabase.delete(QiscusDb.CommentSearchTable.TABLE_NAME, null, null);
+            sqLiteReadDatabase.delete(QiscusDb.CommentSearchTable.BACKFILL_TABLE_NAME, null, null);
+            sqLiteReadDatabase.delete(QiscusDb.UploadSessionTable.TABLE_NAME, null, null);
+            sqLiteReadDatabase.delete(QiscusDb.AttachmentCacheTable.TABLE_NAME, null, null);
             sqLiteReadDatabase.setTransactionSuccessful();
         } catch (Exception e) {
             QiscusErrorLogger.print(e);
@@ -1187,16 +1279,480 @@ public class QiscusDataBaseHelper implements QiscusDataStore {
         }
     }
 
-    private void sortRooms(List<QiscusChatRoom> qiscusChatRooms) {
-        Collections.sort(qiscusChatRooms, (room1, room2) -> {
-            if (room1.getLastComment() != null && room2.getLastComment() != null) {
-                return room2.getLastComment().getTime().compareTo(room1.getLastComment().getTime());
-            } else if (room1.getLastComment() == null && room2.getLastComment() != null) {
-                return 1;
-            } else if (room1.getLastComment() != null && room2.getLastComment() == null) {
-                return -1;
+    /**
+     * Get compiled statement of sql, every distinct sql is compiled once and reused afterward.
+     * Must be called, and the statement executed, inside a transaction of the write database, so the statement
+     * is only used while holding the database connection. Caller must synchronize on the returned statement
+     * while binding and executing it.
+     *
+     * @param sql the sql with ? placeholders
+     * @return compiled statement
+     */
+    protected SQLiteStatement getCompiledStatement(String sql) {
+        SQLiteStatement statement = compiledStatements.get(sql);
+        if (statement != null) {
+            return statement;
+        }
+        statement = sqLiteWriteDatabase.compileStatement(sql);
+        SQLiteStatement compiled = compiledStatements.putIfAbsent(sql, statement);
+        if (compiled != null) {
+            statement.close();
+            return compiled;
+        }
+        return statement;
+    }
+
+    /**
+     * Write the room row, must be called inside a transaction.
+     */
+    private void upsertRoom(QiscusChatRoom qiscusChatRoom) {
+        String where = QiscusDb.RoomTable.COLUMN_ID + " = ?";
+        ContentValues values = QiscusDb.RoomTable.toContentValues(qiscusChatRoom);
+        int updated = sqLiteWriteDatabase.update(QiscusDb.RoomTable.TABLE_NAME, values,
+                where, new String[]{String.valueOf(qiscusChatRoom.getId())});
+        if (updated == 0) {
+            sqLiteWriteDatabase.insertOrThrow(QiscusDb.RoomTable.TABLE_NAME, null, values);
+            updateRoomLastComment(qiscusChatRoom.getId());
+        }
+    }
+
+    /**
+     * Write the room members and their member rows, must be called inside a transaction.
+     */
+    private void upsertRoomMembers(long roomId, List<QiscusRoomMember> qiscusRoomMembers, String distinctId) {
+        distinctId = distinctId == null ? "default" : distinctId;
+        SQLiteStatement roomMemberStatement = getCompiledStatement(QiscusDb.RoomMemberTable.INSERT_OR_REPLACE);
+        SQLiteStatement memberStatement = getCompiledStatement(QiscusDb.MemberTable.INSERT_OR_REPLACE);
+        synchronized (roomMemberStatement) {
+            synchronized (memberStatement) {
+                for (QiscusRoomMember qiscusRoomMember : qiscusRoomMembers) {
+                    QiscusDb.RoomMemberTable.bind(roomMemberStatement, roomId, distinctId, qiscusRoomMember);
+                    roomMemberStatement.executeInsert();
+                    QiscusDb.MemberTable.bind(memberStatement, qiscusRoomMember);
+                    memberStatement.executeInsert();
+                }
+            }
+        }
+    }
+
+    /**
+     * Save the last comment which came with a room from server, the unread count of the room already includes it.
+     * Must be called inside a transaction.
+     */
+    private void upsertRoomLastComment(QiscusChatRoom qiscusChatRoom) {
+        QiscusComment comment = qiscusChatRoom.getLastComment();
+        if (comment != null && comment.getId() > 0) {
+            upsertComments(Collections.singletonList(comment), false);
+        }
+    }
+
+    /**
+     * Write the comments and the last comment projection of their rooms, must be called inside a transaction.
+     *
+     * @param countUnread whether new comments change the unread count of their rooms, false when the count
+     *                    comes from server together with the comments
+     */
+    private void upsertComments(List<QiscusComment> qiscusComments, boolean countUnread) {
+        Set<Long> roomIds = new LinkedHashSet<>();
+        List<QiscusComment> newComments = new ArrayList<>();
+        SQLiteStatement statement = getCompiledStatement(QiscusDb.CommentTable.INSERT_OR_REPLACE);
+        synchronized (statement) {
+            for (QiscusComment qiscusComment : qiscusComments) {
+                if (countUnread && !isContains(qiscusComment)) {
+                    newComments.add(qiscusComment);
+                }
+            }
+            if (!newComments.isEmpty()) {
+                updateRoomUnreadCount(newComments);
+            }
+
+            for (QiscusComment qiscusComment : qiscusComments) {
+                unindexComment(qiscusComment.getUniqueId());
+                QiscusDb.CommentTable.bind(statement, qiscusComment);
+                statement.executeInsert();
+                indexComment(qiscusComment);
+                roomIds.add(qiscusComment.getRoomId());
+            }
+        }
+
+        for (long roomId : roomIds) {
+            updateRoomLastComment(roomId);
+        }
+    }
+
+    /**
+     * Recompute the last comment columns of the room, must be called inside a transaction
+     * after the comments of the room are written or deleted.
+     */
+    private void updateRoomLastComment(long roomId) {
+        SQLiteStatement statement = getCompiledStatement(QiscusDb.RoomTable.UPDATE_LAST_COMMENT);
+        synchronized (statement) {
+            statement.clearBindings();
+            statement.bindLong(1, roomId);
+            statement.executeUpdateDelete();
+        }
+    }
+
+    /**
+     * Count newly saved comments to the unread count of their rooms, must be called inside a transaction
+     * before the comments are written. Only comments newer than the room last comment are counted, older ones
+     * are history, and a comment of current user means the room has been read up to it. The room which is open
+     * in chat screen is not counted.
+     */
+    private void updateRoomUnreadCount(List<QiscusComment> newComments) {
+        Map<Long, List<QiscusComment>> roomComments = new HashMap<>();
+        for (QiscusComment qiscusComment : newComments) {
+            List<QiscusComment> comments = roomComments.get(qiscusComment.getRoomId());
+            if (comments == null) {
+                comments = new ArrayList<>();
+                roomComments.put(qiscusComment.getRoomId(), comments);
+            }
+            comments.add(qiscusComment);
+        }
+
+        Pair<Boolean, Long> lastChatActivity = QiscusCacheManager.getInstance().getLastChatActivity();
+        for (Map.Entry<Long, List<QiscusComment>> entry : roomComments.entrySet()) {
+            long roomId = entry.getKey();
+            if (lastChatActivity.first && lastChatActivity.second == roomId) {
+                continue;
+            }
+
+            long lastCommentTime = queryForLong(QiscusDb.RoomTable.SELECT_LAST_COMMENT_TIME, String.valueOf(roomId));
+            List<QiscusComment> comments = entry.getValue();
+            Collections.sort(comments, (lhs, rhs) -> lhs.getTime().compareTo(rhs.getTime()));
+            boolean read = false;
+            int unreadCount = 0;
+            for (QiscusComment qiscusComment : comments) {
+                if (qiscusComment.getTime().getTime() <= lastCommentTime) {
+                    continue;
+                }
+                if (qiscusComment.isMyComment()) {
+                    read = true;
+                    unreadCount = 0;
+                } else {
+                    unreadCount++;
+                }
+            }
+
+            if (!read && unreadCount == 0) {
+                continue;
+            }
+            SQLiteStatement statement = getCompiledStatement(read
+                    ? QiscusDb.RoomTable.SET_UNREAD_COUNT : QiscusDb.RoomTable.ADD_UNREAD_COUNT);
+            synchronized (statement) {
+                statement.clearBindings();
+                statement.bindLong(1, unreadCount);
+                statement.bindLong(2, roomId);
+                statement.executeUpdateDelete();
+            }
+        }
+    }
+
+    /**
+     * Remove the search index entry of the comment, must be called inside a transaction
+     * before the comment row is replaced or deleted.
+     */
+    private void unindexComment(String uniqueId) {
+        if (uniqueId == null) {
+            return;
+        }
+        SQLiteStatement statement = getCompiledStatement(QiscusDb.CommentSearchTable.DELETE_BY_UNIQUE_ID);
+        synchronized (statement) {
+            statement.clearBindings();
+            statement.bindString(1, uniqueId);
+            statement.executeUpdateDelete();
+        }
+    }
+
+    /**
+     * Add the search index entry of the comment, must be called inside a transaction
+     * after the comment row is written.
+     */
+    private void indexComment(QiscusComment qiscusComment) {
+        String body = QiscusDb.CommentSearchTable.getBody(qiscusComment);
+        if (qiscusComment.getUniqueId() == null || body == null || body.trim().isEmpty()) {
+            return;
+        }
+        SQLiteStatement statement = getCompiledStatement(QiscusDb.CommentSearchTable.INSERT_BY_UNIQUE_ID);
+        synchronized (statement) {
+            statement.clearBindings();
+            statement.bindString(1, body);
+            statement.bindString(2, qiscusComment.getUniqueId());
+            statement.executeInsert();
+        }
+    }
+
+    private List<QiscusCommentSearchResult> searchCommentsFromIndex(String query, String roomId,
+                                                                    QiscusComment lastResult, int limit) {
+        List<QiscusCommentSearchResult> results = new ArrayList<>();
+        String matchQuery = QiscusDb.CommentSearchTable.toMatchQuery(query);
+        if (matchQuery == null) {
+            return results;
+        }
+
+        String commentTableName = QiscusDb.CommentTable.TABLE_NAME;
+        List<String> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(QiscusDb.CommentSearchTable.SELECT_WITH_RESULT)
+                .append(" WHERE ").append(QiscusDb.CommentSearchTable.TABLE_NAME).append(" MATCH ?")
+                .append(" AND ").append(commentTableName).append(".")
+                .append(QiscusDb.CommentTable.COLUMN_HARD_DELETED).append(" = ").append(0);
+        args.add(matchQuery);
+
+        if (roomId != null) {
+            sql.append(" AND ").append(commentTableName).append(".")
+                    .append(QiscusDb.CommentTable.COLUMN_ROOM_ID).append(" = ?");
+            args.add(roomId);
+        }
+
+        if (lastResult != null) {
+            String lastTime = String.valueOf(lastResult.getTime().getTime());
+            sql.append(" AND (").append(commentTableName).append(".").append(QiscusDb.CommentTable.COLUMN_TIME).append(" < ?")
+                    .append(" OR (").append(commentTableName).append(".").append(QiscusDb.CommentTable.COLUMN_TIME).append(" = ?")
+                    .append(" AND ").append(commentTableName).append(".").append(QiscusDb.CommentTable.COLUMN_UNIQUE_ID)
+                    .append(" < ?))");
+            args.add(lastTime);
+            args.add(lastTime);
+            args.add(lastResult.getUniqueId());
+        }
+
+        sql.append(" ORDER BY ").append(commentTableName).append(".").append(QiscusDb.CommentTable.COLUMN_TIME).append(" DESC, ")
+                .append(commentTableName).append(".").append(QiscusDb.CommentTable.COLUMN_UNIQUE_ID).append(" DESC")
+                .append(" LIMIT ?");
+        args.add(String.valueOf(limit));
+
+        Cursor cursor = null;
+        try {
+            cursor = sqLiteReadDatabase.rawQuery(sql.toString(), args.toArray(new String[args.size()]));
+            while (cursor.moveToNext()) {
+                results.add(QiscusDb.CommentSearchTable.parseCursor(cursor));
+            }
+        } catch (Exception e) {
+            QiscusErrorLogger.print(e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Index comments saved before the search index existed, one batch at a time so the database
+     * is never locked for long. The progress is kept in the backfill table and the row is removed when done.
+     */
+    private void backfillSearchIndex() {
+        long lastRowId = getSearchBackfillRowId();
+        if (lastRowId < 0) {
+            return;
+        }
+
+        String query = "SELECT rowid AS " + QiscusDb.CommentSearchTable.COLUMN_ROW_ID + ", * FROM "
+                + QiscusDb.CommentTable.TABLE_NAME
+                + " WHERE rowid > ?"
+                + " ORDER BY rowid"
+                + " LIMIT ?";
+
+        int count = 0;
+        sqLiteWriteDatabase.beginTransactionNonExclusive();
+        try {
+            SQLiteStatement deleteStatement = getCompiledStatement(QiscusDb.CommentSearchTable.DELETE_BY_DOC_ID);
+            SQLiteStatement insertStatement = getCompiledStatement(QiscusDb.CommentSearchTable.INSERT);
+            Cursor cursor = sqLiteWriteDatabase.rawQuery(query,
+                    new String[]{String.valueOf(lastRowId), String.valueOf(SEARCH_BACKFILL_BATCH_SIZE)});
+            try {
+                synchronized (deleteStatement) {
+                    synchronized (insertStatement) {
+                        while (cursor.moveToNext()) {
+                            count++;
+                            lastRowId = cursor.getLong(cursor.getColumnIndexOrThrow(QiscusDb.CommentSearchTable.COLUMN_ROW_ID));
+                            deleteStatement.clearBindings();
+                            deleteStatement.bindLong(1, lastRowId);
+                            deleteStatement.executeUpdateDelete();
+
+                            String body = QiscusDb.CommentSearchTable.getBody(QiscusDb.CommentTable.parseCursor(cursor));
+                            if (body != null && !body.trim().isEmpty()) {
+                                insertStatement.clearBindings();
+                                insertStatement.bindLong(1, lastRowId);
+                                insertStatement.bindString(2, body);
+                                insertStatement.executeInsert();
+                            }
+                        }
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+
+            if (count < SEARCH_BACKFILL_BATCH_SIZE) {
+                sqLiteWriteDatabase.delete(QiscusDb.CommentSearchTable.BACKFILL_TABLE_NAME, null, null);
+            } else {
+                ContentValues values = new ContentValues();
+                values.put(QiscusDb.CommentSearchTable.COLUMN_LAST_ROW_ID, lastRowId);
+                sqLiteWriteDatabase.update(QiscusDb.CommentSearchTable.BACKFILL_TABLE_NAME, values, null, null);
+            }
+            sqLiteWriteDatabase.setTransactionSuccessful();
+        } catch (Exception e) {
+            QiscusErrorLogger.print(e);
+            return;
+        } finally {
+            sqLiteWriteDatabase.endTransaction();
+        }
+
+        if (count >= SEARCH_BACKFILL_BATCH_SIZE) {
+            QiscusExecutors.getInstance().getDiskLane().execute(this::backfillSearchIndex);
+        }
+    }
+
+    /**
+     * @return last indexed comment rowid of the backfill, or -1 if there is nothing to backfill
+     */
+    private long getSearchBackfillRowId() {
+        String query = "SELECT " + QiscusDb.CommentSearchTable.COLUMN_LAST_ROW_ID + " FROM "
+                + QiscusDb.CommentSearchTable.BACKFILL_TABLE_NAME
+                + " LIMIT " + 1;
+
+        Cursor cursor = null;
+        try {
+            cursor = sqLiteReadDatabase.rawQuery(query, null);
+            return cursor.moveToNext() ? cursor.getLong(0) : -1;
+        } catch (Exception e) {
+            QiscusErrorLogger.print(e);
+            return -1;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
+    private boolean isExists(String query, String... args) {
+        return queryForLong(query, args) > 0;
+    }
+
+    /**
+     * Inside a transaction of this thread the cached statement is used, otherwise the query goes to the read
+     * database so it never waits for the write connection while holding a statement lock.
+     */
+    private long queryForLong(String query, String... args) {
+        try {
+            if (!sqLiteWriteDatabase.inTransaction()) {
+                return DatabaseUtils.longForQuery(sqLiteReadDatabase, query, args);
+            }
+            SQLiteStatement statement = getCompiledStatement(query);
+            synchronized (statement) {
+                statement.clearBindings();
+                statement.bindAllArgsAsStrings(args);
+                return statement.simpleQueryForLong();
             }
+        } catch (Exception e) {
+            QiscusErrorLogger.print(e);
             return 0;
-        });
+        }
+    }
+
+    private void executeUpdateDelete(String sql, long... args) {
+        sqLiteWriteDatabase.beginTransactionNonExclusive();
+        try {
+            SQLiteStatement statement = getCompiledStatement(sql);
+            synchronized (statement) {
+                statement.clearBindings();
+                for (int i = 0; i < args.length; i++) {
+                    statement.bindLong(i + 1, args[i]);
+                }
+                statement.executeUpdateDelete();
+            }
+            sqLiteWriteDatabase.setTransactionSuccessful();
+        } catch (Exception e) {
+            QiscusErrorLogger.print(e);
+        } finally {
+            sqLiteWriteDatabase.endTransaction();
+        }
+    }
+
+    private QiscusComment getCommentFromQuery(String query, String... args) {
+        Cursor cursor = sqLiteReadDatabase.rawQuery(query, args);
+        QiscusComment qiscusComment = null;
+        if (cursor.moveToNext()) {
+            qiscusComment = QiscusDb.CommentTable.parseCursorWithMember(cursor);
+        }
+        cursor.close();
+        return qiscusComment;
+    }
+
+    private List<QiscusComment> getCommentsFromQuery(String query, String... args) {
+        Cursor cursor = sqLiteReadDatabase.rawQuery(query, args);
+        List<QiscusComment> qiscusComments = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+            qiscusComments.add(QiscusDb.CommentTable.parseCursorWithMember(cursor));
+        }
+        cursor.close();
+        return qiscusComments;
+    }
+
+    /**
+     * Load rooms of the query with their members and last comment. Members and last comments of every room
+     * are loaded with one query each, using the room query as sub query.
+     */
+    private List<QiscusChatRoom> getChatRoomsFromQuery(String query, String... args) {
+        Cursor cursor = sqLiteReadDatabase.rawQuery(query, args);
+        List<QiscusChatRoom> qiscusChatRooms = new ArrayList<>(cursor.getCount());
+        Map<String, QiscusChatRoom> lastCommentRooms = new HashMap<>();
+        while (cursor.moveToNext()) {
+            QiscusChatRoom qiscusChatRoom = QiscusDb.RoomTable.parseCursor(cursor);
+            qiscusChatRoom.setMember(new ArrayList<>());
+            String lastCommentUniqueId = QiscusDb.RoomTable.getLastCommentUniqueId(cursor);
+            if (lastCommentUniqueId != null) {
+                lastCommentRooms.put(lastCommentUniqueId, qiscusChatRoom);
+            }
+            qiscusChatRooms.add(qiscusChatRoom);
+        }
+        cursor.close();
+
+        if (qiscusChatRooms.isEmpty()) {
+            return qiscusChatRooms;
+        }
+
+        if (!lastCommentRooms.isEmpty()) {
+            String lastCommentQuery = QiscusDb.CommentTable.SELECT_WITH_MEMBER + " WHERE "
+                    + QiscusDb.CommentTable.TABLE_NAME + "." + QiscusDb.CommentTable.COLUMN_UNIQUE_ID + " IN (SELECT "
+                    + QiscusDb.RoomTable.COLUMN_LAST_COMMENT_UNIQUE_ID + " FROM (" + query + "))";
+            for (QiscusComment qiscusComment : getCommentsFromQuery(lastCommentQuery, args)) {
+                QiscusChatRoom qiscusChatRoom = lastCommentRooms.get(qiscusComment.getUniqueId());
+                if (qiscusChatRoom != null) {
+                    qiscusChatRoom.setLastComment(qiscusComment);
+                }
+            }
+        }
+
+        Map<Long, QiscusChatRoom> rooms = new HashMap<>();
+        for (QiscusChatRoom qiscusChatRoom : qiscusChatRooms) {
+            rooms.put(qiscusChatRoom.getId(), qiscusChatRoom);
+        }
+
+        String roomMemberTableName = QiscusDb.RoomMemberTable.TABLE_NAME;
+        String memberTableName = QiscusDb.MemberTable.TABLE_NAME;
+        String memberQuery = "SELECT " + memberTableName + ".*, "
+                + roomMemberTableName + "." + QiscusDb.RoomMemberTable.COLUMN_ROOM_ID + ", "
+                + roomMemberTableName + "." + QiscusDb.RoomMemberTable.COLUMN_LAST_DELIVERED + ", "
+                + roomMemberTableName + "." + QiscusDb.RoomMemberTable.COLUMN_LAST_READ
+                + " FROM " + roomMemberTableName
+                + " INNER JOIN " + memberTableName
+                + " ON " + roomMemberTableName + "." + QiscusDb.RoomMemberTable.COLUMN_USER_EMAIL
+                + " = " + memberTableName + "." + QiscusDb.MemberTable.COLUMN_USER_EMAIL
+                + " WHERE " + roomMemberTableName + "." + QiscusDb.RoomMemberTable.COLUMN_ROOM_ID
+                + " IN (SELECT " + QiscusDb.RoomTable.COLUMN_ID + " FROM (" + query + "))";
+
+        cursor = sqLiteReadDatabase.rawQuery(memberQuery, args);
+        while (cursor.moveToNext()) {
+            QiscusChatRoom qiscusChatRoom = rooms.get(QiscusDb.RoomMemberTable.getRoomId(cursor));
+            if (qiscusChatRoom != null) {
+                QiscusRoomMember member = QiscusDb.MemberTable.getMember(cursor);
+                member.setLastDeliveredCommentId(QiscusDb.RoomMemberTable.getLastDeliveredCommentId(cursor));
+                member.setLastReadCommentId(QiscusDb.RoomMemberTable.getLastReadCommentId(cursor));
+                qiscusChatRoom.getMember().add(member);
+            }
+        }
+        cursor.close();
+        return qiscusChatRooms;
     }
 }
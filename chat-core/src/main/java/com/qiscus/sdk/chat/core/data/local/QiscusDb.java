@@ -18,19 +18,28 @@ package com.qiscus.sdk.chat.core.data.local;
 
 import android.content.ContentValues;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
 
+import com.qiscus.sdk.chat.core.data.model.QiscusAttachmentCacheEntry;
 import com.qiscus.sdk.chat.core.data.model.QiscusChatRoom;
 import com.qiscus.sdk.chat.core.data.model.QiscusComment;
+import com.qiscus.sdk.chat.core.data.model.QiscusCommentSearchResult;
 import com.qiscus.sdk.chat.core.data.model.QiscusRoomMember;
+import com.qiscus.sdk.chat.core.data.model.QiscusUploadSession;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 final class QiscusDb {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
     static final String DATABASE_NAME = "qiscus.db";
-    static final int DATABASE_VERSION = 17;
+    static final int DATABASE_VERSION = 22;
 
     abstract static class RoomTable {
         static final String TABLE_NAME = "rooms";
@@ -44,6 +53,9 @@ final class QiscusDb {
         static final String COLUMN_UNREAD_COUNT = "unread_count";
         static final String COLUMN_IS_CHANNEL = "is_channel";
         static final String COLUMN_MEMBER_COUNT = "member_count";
+        static final String COLUMN_LAST_COMMENT_UNIQUE_ID = "last_comment_unique_id";
+        static final String COLUMN_LAST_COMMENT_TIME = "last_comment_time";
+        static final String COLUMN_LAST_COMMENT_PREVIEW = "last_comment_preview";
 
         static final String CREATE =
                 "CREATE TABLE " + TABLE_NAME + " (" +
@@ -56,9 +68,48 @@ final class QiscusDb {
                         COLUMN_AVATAR_URL + " TEXT," +
                         COLUMN_UNREAD_COUNT + " INTEGER DEFAULT 0," +
                         COLUMN_IS_CHANNEL + " INTEGER DEFAULT 0," +
-                        COLUMN_MEMBER_COUNT + " INTEGER DEFAULT 0" +
+                        COLUMN_MEMBER_COUNT + " INTEGER DEFAULT 0," +
+                        COLUMN_LAST_COMMENT_UNIQUE_ID + " TEXT," +
+                        COLUMN_LAST_COMMENT_TIME + " LONG DEFAULT 0," +
+                        COLUMN_LAST_COMMENT_PREVIEW + " TEXT" +
                         " ); ";
 
+        static final String CREATE_INDEX_LAST_COMMENT_TIME =
+                "CREATE INDEX IF NOT EXISTS rooms_last_comment_time_index ON " + TABLE_NAME +
+                        " (" + COLUMN_LAST_COMMENT_TIME + ", " + COLUMN_ID + "); ";
+
+        private static final String SELECT_LAST_COMMENT =
+                " FROM " + CommentTable.TABLE_NAME +
+                        " WHERE " + CommentTable.COLUMN_ROOM_ID + " = " + TABLE_NAME + "." + COLUMN_ID +
+                        " AND " + CommentTable.COLUMN_HARD_DELETED + " = 0" +
+                        " ORDER BY " + CommentTable.COLUMN_TIME + " DESC, " + CommentTable.COLUMN_UNIQUE_ID + " DESC" +
+                        " LIMIT 1)";
+
+        /**
+         * Recompute the last comment projection of a room from the comments table,
+         * run it in the same transaction as the comment write.
+         */
+        static final String UPDATE_LAST_COMMENT =
+                "UPDATE " + TABLE_NAME + " SET " +
+                        COLUMN_LAST_COMMENT_UNIQUE_ID + " = (SELECT " + CommentTable.COLUMN_UNIQUE_ID + SELECT_LAST_COMMENT + ", " +
+                        COLUMN_LAST_COMMENT_TIME + " = COALESCE((SELECT " + CommentTable.COLUMN_TIME + SELECT_LAST_COMMENT + ", 0), " +
+                        COLUMN_LAST_COMMENT_PREVIEW + " = (SELECT " + CommentTable.COLUMN_MESSAGE + SELECT_LAST_COMMENT +
+                        " WHERE " + COLUMN_ID + " = ?";
+
+        static final String SELECT_LAST_COMMENT_TIME =
+                "SELECT " + COLUMN_LAST_COMMENT_TIME + " FROM " + TABLE_NAME + " WHERE " + COLUMN_ID + " = ?";
+
+        static final String ADD_UNREAD_COUNT =
+                "UPDATE " + TABLE_NAME + " SET " + COLUMN_UNREAD_COUNT + " = " + COLUMN_UNREAD_COUNT + " + ?" +
+                        " WHERE " + COLUMN_ID + " = ?";
+
+        static final String SET_UNREAD_COUNT =
+                "UPDATE " + TABLE_NAME + " SET " + COLUMN_UNREAD_COUNT + " = ?" +
+                        " WHERE " + COLUMN_ID + " = ?";
+
+        static final String ORDER_BY_LAST_COMMENT =
+                " ORDER BY " + COLUMN_LAST_COMMENT_TIME + " DESC, " + COLUMN_ID + " DESC";
+
         static ContentValues toContentValues(QiscusChatRoom qiscusChatRoom) {
             ContentValues values = new ContentValues();
             values.put(COLUMN_ID, qiscusChatRoom.getId());
@@ -93,6 +144,10 @@ final class QiscusDb {
             qiscusChatRoom.setMemberCount(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_MEMBER_COUNT)));
             return qiscusChatRoom;
         }
+
+        static String getLastCommentUniqueId(Cursor cursor) {
+            return cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_LAST_COMMENT_UNIQUE_ID));
+        }
     }
 
     abstract static class MemberTable {
@@ -120,6 +175,23 @@ final class QiscusDb {
             return values;
         }
 
+        static final String INSERT_OR_REPLACE =
+                "INSERT OR REPLACE INTO " + TABLE_NAME + " (" +
+                        COLUMN_USER_EMAIL + ", " +
+                        COLUMN_USER_NAME + ", " +
+                        COLUMN_USER_AVATAR + ", " +
+                        COLUMN_USER_EXTRAS +
+                        ") VALUES (?, ?, ?, ?)";
+
+        static void bind(SQLiteStatement statement, QiscusRoomMember qiscusRoomMember) {
+            statement.clearBindings();
+            bindString(statement, 1, qiscusRoomMember.getEmail());
+            bindString(statement, 2, qiscusRoomMember.getUsername());
+            bindString(statement, 3, qiscusRoomMember.getAvatar());
+            bindString(statement, 4, qiscusRoomMember.getExtras() == null ? null :
+                    qiscusRoomMember.getExtras().toString());
+        }
+
         static QiscusRoomMember getMember(Cursor cursor) {
             QiscusRoomMember qiscusRoomMember = new QiscusRoomMember();
             qiscusRoomMember.setEmail(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_USER_EMAIL)));
@@ -153,6 +225,10 @@ final class QiscusDb {
                         "PRIMARY KEY (" + COLUMN_ROOM_ID + ", " + COLUMN_USER_EMAIL + ")" +
                         " ); ";
 
+        static final String CREATE_INDEX_USER_EMAIL =
+                "CREATE INDEX IF NOT EXISTS room_members_user_email_index ON " + TABLE_NAME +
+                        " (" + COLUMN_USER_EMAIL + "); ";
+
         static ContentValues toContentValues(long roomId, QiscusRoomMember roomMember) {
             return toContentValues(roomId, "default", roomMember);
         }
@@ -167,6 +243,24 @@ final class QiscusDb {
             return values;
         }
 
+        static final String INSERT_OR_REPLACE =
+                "INSERT OR REPLACE INTO " + TABLE_NAME + " (" +
+                        COLUMN_ROOM_ID + ", " +
+                        COLUMN_USER_EMAIL + ", " +
+                        COLUMN_DISTINCT_ID + ", " +
+                        COLUMN_LAST_DELIVERED + ", " +
+                        COLUMN_LAST_READ +
+                        ") VALUES (?, ?, ?, ?, ?)";
+
+        static void bind(SQLiteStatement statement, long roomId, String distinctId, QiscusRoomMember roomMember) {
+            statement.clearBindings();
+            statement.bindLong(1, roomId);
+            bindString(statement, 2, roomMember.getEmail());
+            bindString(statement, 3, distinctId);
+            statement.bindLong(4, roomMember.getLastDeliveredCommentId());
+            statement.bindLong(5, roomMember.getLastReadCommentId());
+        }
+
         static long getRoomId(Cursor cursor) {
             return cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_ROOM_ID));
         }
@@ -221,6 +315,36 @@ final class QiscusDb {
                         COLUMN_EXTRAS + " TEXT " +
                         " ); ";
 
+        static final String COLUMN_MEMBER_EMAIL = "member_email";
+        static final String COLUMN_MEMBER_NAME = "member_name";
+        static final String COLUMN_MEMBER_AVATAR = "member_avatar";
+
+        static final String COLUMNS_WITH_MEMBER =
+                TABLE_NAME + ".*, " +
+                        MemberTable.TABLE_NAME + "." + MemberTable.COLUMN_USER_EMAIL + " AS " + COLUMN_MEMBER_EMAIL + ", " +
+                        MemberTable.TABLE_NAME + "." + MemberTable.COLUMN_USER_NAME + " AS " + COLUMN_MEMBER_NAME + ", " +
+                        MemberTable.TABLE_NAME + "." + MemberTable.COLUMN_USER_AVATAR + " AS " + COLUMN_MEMBER_AVATAR;
+
+        static final String JOIN_MEMBER =
+                " LEFT JOIN " + MemberTable.TABLE_NAME +
+                        " ON " + TABLE_NAME + "." + COLUMN_SENDER_EMAIL +
+                        " = " + MemberTable.TABLE_NAME + "." + MemberTable.COLUMN_USER_EMAIL + " ";
+
+        static final String SELECT_WITH_MEMBER =
+                "SELECT " + COLUMNS_WITH_MEMBER + " FROM " + TABLE_NAME + JOIN_MEMBER;
+
+        static final String CREATE_INDEX_ROOM_ID_HARD_DELETED_TIME =
+                "CREATE INDEX IF NOT EXISTS comments_room_id_hard_deleted_time_index ON " + TABLE_NAME +
+                        " (" + COLUMN_ROOM_ID + ", " + COLUMN_HARD_DELETED + ", " + COLUMN_TIME + ", " + COLUMN_UNIQUE_ID + "); ";
+
+        static final String CREATE_INDEX_ID =
+                "CREATE INDEX IF NOT EXISTS comments_id_index ON " + TABLE_NAME +
+                        " (" + COLUMN_ID + "); ";
+
+        static final String CREATE_INDEX_STATE =
+                "CREATE INDEX IF NOT EXISTS comments_state_index ON " + TABLE_NAME +
+                        " (" + COLUMN_STATE + "); ";
+
         static ContentValues toContentValues(QiscusComment qiscusComment) {
             ContentValues values = new ContentValues();
             values.put(COLUMN_ID, qiscusComment.getId());
@@ -237,11 +361,48 @@ final class QiscusDb {
             values.put(COLUMN_HARD_DELETED, qiscusComment.isHardDeleted() ? 1 : 0);
             values.put(COLUMN_TYPE, qiscusComment.getRawType());
             values.put(COLUMN_PAYLOAD, qiscusComment.getExtraPayload());
-            values.put(COLUMN_EXTRAS, qiscusComment.getExtras() == null ? null :
-                    qiscusComment.getExtras().toString());
+            values.put(COLUMN_EXTRAS, qiscusComment.getRawExtras());
             return values;
         }
 
+        static final String INSERT_OR_REPLACE =
+                "INSERT OR REPLACE INTO " + TABLE_NAME + " (" +
+                        COLUMN_ID + ", " +
+                        COLUMN_ROOM_ID + ", " +
+                        COLUMN_UNIQUE_ID + ", " +
+                        COLUMN_COMMENT_BEFORE_ID + ", " +
+                        COLUMN_MESSAGE + ", " +
+                        COLUMN_SENDER + ", " +
+                        COLUMN_SENDER_EMAIL + ", " +
+                        COLUMN_SENDER_AVATAR + ", " +
+                        COLUMN_TIME + ", " +
+                        COLUMN_STATE + ", " +
+                        COLUMN_DELETED + ", " +
+                        COLUMN_HARD_DELETED + ", " +
+                        COLUMN_TYPE + ", " +
+                        COLUMN_PAYLOAD + ", " +
+                        COLUMN_EXTRAS +
+                        ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        static void bind(SQLiteStatement statement, QiscusComment qiscusComment) {
+            statement.clearBindings();
+            statement.bindLong(1, qiscusComment.getId());
+            statement.bindLong(2, qiscusComment.getRoomId());
+            bindString(statement, 3, qiscusComment.getUniqueId());
+            statement.bindLong(4, qiscusComment.getCommentBeforeId());
+            bindString(statement, 5, qiscusComment.getMessage());
+            bindString(statement, 6, qiscusComment.getSender());
+            bindString(statement, 7, qiscusComment.getSenderEmail());
+            bindString(statement, 8, qiscusComment.getSenderAvatar());
+            statement.bindLong(9, qiscusComment.getTime().getTime());
+            statement.bindLong(10, qiscusComment.getState());
+            statement.bindLong(11, qiscusComment.isDeleted() ? 1 : 0);
+            statement.bindLong(12, qiscusComment.isHardDeleted() ? 1 : 0);
+            bindString(statement, 13, qiscusComment.getRawType());
+            bindString(statement, 14, qiscusComment.getExtraPayload());
+            bindString(statement, 15, qiscusComment.getRawExtras());
+        }
+
         static QiscusComment parseCursor(Cursor cursor) {
             QiscusComment qiscusComment = new QiscusComment();
             qiscusComment.setId(cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_ID)));
@@ -258,16 +419,142 @@ final class QiscusDb {
             qiscusComment.setHardDeleted(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_HARD_DELETED)) == 1);
             qiscusComment.setRawType(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_TYPE)));
             qiscusComment.setExtraPayload(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PAYLOAD)));
-            try {
-                String extras = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EXTRAS));
-                qiscusComment.setExtras(extras == null ? null : new JSONObject(extras));
-            } catch (JSONException e) {
-                e.printStackTrace();
+            qiscusComment.setRawExtras(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EXTRAS)));
+            return qiscusComment;
+        }
+
+        /**
+         * Parse a row selected with {@link #SELECT_WITH_MEMBER}, sender name and avatar are taken from
+         * the joined member row when it exists.
+         */
+        static QiscusComment parseCursorWithMember(Cursor cursor) {
+            QiscusComment qiscusComment = parseCursor(cursor);
+            if (!cursor.isNull(cursor.getColumnIndexOrThrow(COLUMN_MEMBER_EMAIL))) {
+                qiscusComment.setSender(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_MEMBER_NAME)));
+                qiscusComment.setSenderAvatar(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_MEMBER_AVATAR)));
             }
             return qiscusComment;
         }
     }
 
+    abstract static class CommentSearchTable {
+        static final String TABLE_NAME = "comments_fts";
+        static final String COLUMN_BODY = "body";
+        static final String COLUMN_SNIPPET = "search_snippet";
+        static final String COLUMN_OFFSETS = "search_offsets";
+
+        static final String BACKFILL_TABLE_NAME = "comments_fts_backfill";
+        static final String COLUMN_LAST_ROW_ID = "last_row_id";
+
+        static final String CREATE =
+                "CREATE VIRTUAL TABLE " + TABLE_NAME + " USING fts4(" +
+                        COLUMN_BODY +
+                        "); ";
+
+        static final String CREATE_BACKFILL =
+                "CREATE TABLE " + BACKFILL_TABLE_NAME + " (" +
+                        COLUMN_LAST_ROW_ID + " INTEGER NOT NULL" +
+                        " ); ";
+
+        static final String COLUMN_ROW_ID = "search_row_id";
+
+        static final String DELETE_BY_UNIQUE_ID =
+                "DELETE FROM " + TABLE_NAME + " WHERE docid IN (SELECT rowid FROM " + CommentTable.TABLE_NAME +
+                        " WHERE " + CommentTable.COLUMN_UNIQUE_ID + " = ?)";
+
+        static final String INSERT_BY_UNIQUE_ID =
+                "INSERT INTO " + TABLE_NAME + " (docid, " + COLUMN_BODY + ") SELECT rowid, ? FROM " +
+                        CommentTable.TABLE_NAME + " WHERE " + CommentTable.COLUMN_UNIQUE_ID + " = ?";
+
+        static final String DELETE_BY_DOC_ID =
+                "DELETE FROM " + TABLE_NAME + " WHERE docid = ?";
+
+        static final String INSERT =
+                "INSERT INTO " + TABLE_NAME + " (docid, " + COLUMN_BODY + ") VALUES (?, ?)";
+
+        static final String COLUMNS_WITH_RESULT =
+                CommentTable.COLUMNS_WITH_MEMBER + ", " +
+                        TABLE_NAME + "." + COLUMN_BODY + " AS " + COLUMN_BODY + ", " +
+                        "snippet(" + TABLE_NAME + ", '<b>', '</b>', '...', -1, 15) AS " + COLUMN_SNIPPET + ", " +
+                        "offsets(" + TABLE_NAME + ") AS " + COLUMN_OFFSETS;
+
+        static final String SELECT_WITH_RESULT =
+                "SELECT " + COLUMNS_WITH_RESULT + " FROM " + TABLE_NAME +
+                        " INNER JOIN " + CommentTable.TABLE_NAME +
+                        " ON " + CommentTable.TABLE_NAME + ".rowid = " + TABLE_NAME + ".docid" +
+                        CommentTable.JOIN_MEMBER;
+
+        /**
+         * Text to be indexed, the caption for attachment and the message for the others.
+         */
+        static String getBody(QiscusComment qiscusComment) {
+            if (qiscusComment.getMessage() == null) {
+                return null;
+            }
+            try {
+                return qiscusComment.getCaption();
+            } catch (Exception e) {
+                return qiscusComment.getMessage();
+            }
+        }
+
+        /**
+         * Convert user query to FTS match expression, every word is matched by prefix.
+         *
+         * @return match expression, or null if the query does not contain any word
+         */
+        static String toMatchQuery(String query) {
+            if (query == null) {
+                return null;
+            }
+
+            StringBuilder matchQuery = new StringBuilder();
+            for (String term : query.split("[^\\p{L}\\p{N}]+")) {
+                if (!term.isEmpty()) {
+                    if (matchQuery.length() > 0) {
+                        matchQuery.append(' ');
+                    }
+                    matchQuery.append(term).append('*');
+                }
+            }
+            return matchQuery.length() == 0 ? null : matchQuery.toString();
+        }
+
+        static QiscusCommentSearchResult parseCursor(Cursor cursor) {
+            QiscusComment qiscusComment = CommentTable.parseCursorWithMember(cursor);
+            String body = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_BODY));
+            String snippet = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_SNIPPET));
+            String offsets = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_OFFSETS));
+            return new QiscusCommentSearchResult(qiscusComment, body, snippet, parseHighlights(body, offsets));
+        }
+
+        /**
+         * FTS offsets() returns groups of 4 integers (column, term, byte offset, byte size),
+         * the byte offsets are converted to character positions of the body.
+         */
+        private static List<QiscusCommentSearchResult.Highlight> parseHighlights(String body, String offsets) {
+            List<QiscusCommentSearchResult.Highlight> highlights = new ArrayList<>();
+            if (body == null || offsets == null) {
+                return highlights;
+            }
+
+            byte[] bytes = body.getBytes(UTF_8);
+            String[] values = offsets.split(" ");
+            for (int i = 0; i + 3 < values.length; i += 4) {
+                try {
+                    int byteOffset = Integer.parseInt(values[i + 2]);
+                    int byteSize = Integer.parseInt(values[i + 3]);
+                    int start = new String(bytes, 0, byteOffset, UTF_8).length();
+                    int end = start + new String(bytes, byteOffset, byteSize, UTF_8).length();
+                    highlights.add(new QiscusCommentSearchResult.Highlight(start, end));
+                } catch (RuntimeException ignored) {
+                    //Do nothing
+                }
+            }
+            return highlights;
+        }
+    }
+
     abstract static class FilesTable {
         static final String TABLE_NAME = "files";
         static final String COLUMN_COMMENT_ID = "comment_id";
@@ -281,6 +568,10 @@ final class QiscusDb {
                         COLUMN_LOCAL_PATH + " TEXT NOT NULL" +
                         " ); ";
 
+        static final String CREATE_INDEX_LOCAL_PATH =
+                "CREATE INDEX IF NOT EXISTS files_local_path_index ON " + TABLE_NAME +
+                        " (" + COLUMN_LOCAL_PATH + "); ";
+
         static ContentValues toContentValues(long roomId, long commentId, String localPath) {
             ContentValues values = new ContentValues();
             values.put(COLUMN_ROOM_ID, roomId);
@@ -293,4 +584,87 @@ final class QiscusDb {
             return cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_LOCAL_PATH));
         }
     }
+
+    abstract static class UploadSessionTable {
+        static final String TABLE_NAME = "upload_sessions";
+        static final String COLUMN_FILE_PATH = "file_path";
+        static final String COLUMN_FILE_SIZE = "file_size";
+        static final String COLUMN_FILE_MODIFIED = "file_modified";
+        static final String COLUMN_URL = "url";
+        static final String COLUMN_UPDATED_AT = "updated_at";
+
+        static final String CREATE =
+                "CREATE TABLE " + TABLE_NAME + " (" +
+                        COLUMN_FILE_PATH + " TEXT PRIMARY KEY," +
+                        COLUMN_FILE_SIZE + " LONG NOT NULL," +
+                        COLUMN_FILE_MODIFIED + " LONG NOT NULL," +
+                        COLUMN_URL + " TEXT," +
+                        COLUMN_UPDATED_AT + " LONG DEFAULT 0" +
+                        " ); ";
+
+        static ContentValues toContentValues(QiscusUploadSession session) {
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_FILE_PATH, session.getFilePath());
+            values.put(COLUMN_FILE_SIZE, session.getFileSize());
+            values.put(COLUMN_FILE_MODIFIED, session.getFileModified());
+            values.put(COLUMN_URL, session.getUrl());
+            values.put(COLUMN_UPDATED_AT, session.getUpdatedAt());
+            return values;
+        }
+
+        static QiscusUploadSession parseCursor(Cursor cursor) {
+            QiscusUploadSession session = new QiscusUploadSession(
+                    cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_FILE_PATH)),
+                    cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_FILE_SIZE)),
+                    cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_FILE_MODIFIED)));
+            session.setUrl(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_URL)));
+            session.setUpdatedAt(cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_UPDATED_AT)));
+            return session;
+        }
+    }
+
+    abstract static class AttachmentCacheTable {
+        static final String TABLE_NAME = "attachment_cache";
+        static final String COLUMN_HASH = "hash";
+        static final String COLUMN_LOCAL_PATH = "local_path";
+        static final String COLUMN_SIZE = "size";
+        static final String COLUMN_LAST_ACCESS = "last_access";
+
+        static final String CREATE =
+                "CREATE TABLE " + TABLE_NAME + " (" +
+                        COLUMN_HASH + " TEXT PRIMARY KEY," +
+                        COLUMN_LOCAL_PATH + " TEXT NOT NULL," +
+                        COLUMN_SIZE + " LONG NOT NULL," +
+                        COLUMN_LAST_ACCESS + " LONG DEFAULT 0" +
+                        " ); ";
+
+        static final String CREATE_INDEX_LAST_ACCESS =
+                "CREATE INDEX IF NOT EXISTS attachment_cache_last_access_index ON " + TABLE_NAME +
+                        " (" + COLUMN_LAST_ACCESS + "); ";
+
+        static ContentValues toContentValues(QiscusAttachmentCacheEntry entry) {
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_HASH, entry.getHash());
+            values.put(COLUMN_LOCAL_PATH, entry.getLocalPath());
+            values.put(COLUMN_SIZE, entry.getSize());
+            values.put(COLUMN_LAST_ACCESS, entry.getLastAccess());
+            return values;
+        }
+
+        static QiscusAttachmentCacheEntry parseCursor(Cursor cursor) {
+            return new QiscusAttachmentCacheEntry(
+                    cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_HASH)),
+                    cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_LOCAL_PATH)),
+                    cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_SIZE)),
+                    cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_LAST_ACCESS)));
+        }
+    }
+
+    static void bindString(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
 }
@@ -44,10 +44,21 @@ class QiscusDbOpenHelper extends SQLiteOpenHelper {
         db.beginTransaction();
         try {
             db.execSQL(QiscusDb.RoomTable.CREATE);
+            db.execSQL(QiscusDb.RoomTable.CREATE_INDEX_LAST_COMMENT_TIME);
             db.execSQL(QiscusDb.MemberTable.CREATE);
             db.execSQL(QiscusDb.RoomMemberTable.CREATE);
+            db.execSQL(QiscusDb.RoomMemberTable.CREATE_INDEX_USER_EMAIL);
             db.execSQL(QiscusDb.CommentTable.CREATE);
+            db.execSQL(QiscusDb.CommentTable.CREATE_INDEX_ROOM_ID_HARD_DELETED_TIME);
+            db.execSQL(QiscusDb.CommentTable.CREATE_INDEX_ID);
+            db.execSQL(QiscusDb.CommentTable.CREATE_INDEX_STATE);
             db.execSQL(QiscusDb.FilesTable.CREATE);
+            db.execSQL(QiscusDb.FilesTable.CREATE_INDEX_LOCAL_PATH);
+            db.execSQL(QiscusDb.CommentSearchTable.CREATE);
+            db.execSQL(QiscusDb.CommentSearchTable.CREATE_BACKFILL);
+            db.execSQL(QiscusDb.UploadSessionTable.CREATE);
+            db.execSQL(QiscusDb.AttachmentCacheTable.CREATE);
+            db.execSQL(QiscusDb.AttachmentCacheTable.CREATE_INDEX_LAST_ACCESS);
             db.setTransactionSuccessful();
         } finally {
             db.endTransaction();
@@ -59,6 +70,7 @@ class QiscusDbOpenHelper extends SQLiteOpenHelper {
         super.onOpen(db);
         QiscusLogger.print("Opening database.. ");
         db.enableWriteAheadLogging();
+        db.setMaxSqlCacheSize(SQLiteDatabase.MAX_SQL_CACHE_SIZE);
     }
 
     @Override
@@ -143,6 +155,8 @@ class QiscusDbOpenHelper extends SQLiteOpenHelper {
             db.execSQL("DROP TABLE IF EXISTS " + QiscusDb.RoomMemberTable.TABLE_NAME);
             db.execSQL("DROP TABLE IF EXISTS " + QiscusDb.CommentTable.TABLE_NAME);
             db.execSQL("DROP TABLE IF EXISTS " + QiscusDb.FilesTable.TABLE_NAME);
+            db.execSQL("DROP TABLE IF EXISTS " + QiscusDb.CommentSearchTable.TABLE_NAME);
+            db.execSQL("DROP TABLE IF EXISTS " + QiscusDb.CommentSearchTable.BACKFILL_TABLE_NAME);
             db.setTransactionSuccessful();
         } finally {
             db.endTransaction();
@@ -16,7 +16,12 @@
 
 package com.qiscus.sdk.chat.core.data.local;
 
+import com.qiscus.sdk.chat.core.data.model.QiscusAttachmentCacheEntry;
+import com.qiscus.sdk.chat.core.data.model.QiscusUploadSession;
+
 import java.io.File;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Created on : November 07, 2016
@@ -36,4 +41,44 @@ public interface QiscusFileStore {
     File getLocalPath(long commentId);
 
     void deleteLocalPath(long commentId);
+
+    /**
+     * @return number of comments whose local file is the given path, unsent comments which are going to upload
+     * the file are counted too
+     */
+    int getLocalPathReferenceCount(String localPath);
+
+    /**
+     * @return true if a pending or failed comment is going to upload the file, it can not be downloaded again
+     */
+    boolean isLocalPathPinned(String localPath);
+
+    void saveUploadSession(QiscusUploadSession session);
+
+    QiscusUploadSession getUploadSession(String filePath);
+
+    void deleteUploadSession(String filePath);
+
+    /**
+     * Remove sessions, finished or not, which were not touched since the given time.
+     */
+    void deleteUploadSessionsBefore(long time);
+
+    void saveAttachmentCacheEntry(QiscusAttachmentCacheEntry entry);
+
+    QiscusAttachmentCacheEntry getAttachmentCacheEntry(String hash);
+
+    /**
+     * @return all entries, the least recently accessed first
+     */
+    List<QiscusAttachmentCacheEntry> getAttachmentCacheEntries();
+
+    /**
+     * @param lastAccesses last access time of cached files, keyed by their local path
+     */
+    void updateAttachmentCacheAccess(Map<String, Long> lastAccesses);
+
+    void deleteAttachmentCacheEntry(String hash);
+
+    void deleteAttachmentCacheEntryOfPath(String localPath);
 }
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.qiscus.sdk.chat.core.data.local;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.text.TextUtils;
+
+import com.qiscus.sdk.chat.core.data.model.QiscusPushNotificationMessage;
+import com.qiscus.sdk.chat.core.util.QiscusErrorLogger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Push notification history of every room, kept in its own database so it does not depend on the chat data store.
+ * Only the latest {@link #MAX_MESSAGES_PER_ROOM} messages of a room are kept.
+ */
+class QiscusPushNotificationDbHelper extends SQLiteOpenHelper {
+    private static final String DATABASE_NAME = "qiscus_notification.db";
+    private static final int DATABASE_VERSION = 1;
+
+    static final int MAX_MESSAGES_PER_ROOM = 100;
+
+    private static final String TABLE_NAME = "push_notification_messages";
+    private static final String COLUMN_ID = "id";
+    private static final String COLUMN_ROOM_ID = "room_id";
+    private static final String COLUMN_COMMENT_ID = "comment_id";
+    private static final String COLUMN_MESSAGE = "message";
+    private static final String COLUMN_ROOM_NAME = "room_name";
+    private static final String COLUMN_ROOM_AVATAR = "room_avatar";
+
+    private static final String CREATE =
+            "CREATE TABLE " + TABLE_NAME + " (" +
+                    COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
+                    COLUMN_ROOM_ID + " LONG NOT NULL," +
+                    COLUMN_COMMENT_ID + " LONG NOT NULL," +
+                    COLUMN_MESSAGE + " TEXT," +
+                    COLUMN_ROOM_NAME + " TEXT," +
+                    COLUMN_ROOM_AVATAR + " TEXT," +
+                    " UNIQUE (" + COLUMN_ROOM_ID + ", " + COLUMN_COMMENT_ID + ")" +
+                    " ); ";
+
+    private static final String CREATE_INDEX_ROOM_ID =
+            "CREATE INDEX IF NOT EXISTS push_notification_messages_room_id_index ON " + TABLE_NAME +
+                    " (" + COLUMN_ROOM_ID + "); ";
+
+    private static final String WHERE_MESSAGE = COLUMN_ROOM_ID + " = ? AND " + COLUMN_COMMENT_ID + " = ?";
+
+    QiscusPushNotificationDbHelper(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.beginTransaction();
+        try {
+            db.execSQL(CREATE);
+            db.execSQL(CREATE_INDEX_ROOM_ID);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Nothing to upgrade yet
+    }
+
+    /**
+     * @return false if the room already has message with the same comment id
+     */
+    boolean add(long roomId, QiscusPushNotificationMessage message) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransactionNonExclusive();
+        try {
+            long id = db.insertWithOnConflict(TABLE_NAME, null, toContentValues(roomId, message),
+                    SQLiteDatabase.CONFLICT_IGNORE);
+            if (id == -1) {
+                return false;
+            }
+
+            db.delete(TABLE_NAME, COLUMN_ROOM_ID + " = ? AND " + COLUMN_ID + " <= (SELECT " + COLUMN_ID
+                            + " FROM " + TABLE_NAME + " WHERE " + COLUMN_ROOM_ID + " = ?"
+                            + " ORDER BY " + COLUMN_ID + " DESC LIMIT 1 OFFSET ?)",
+                    new String[]{String.valueOf(roomId), String.valueOf(roomId), String.valueOf(MAX_MESSAGES_PER_ROOM)});
+            db.setTransactionSuccessful();
+            return true;
+        } catch (Exception e) {
+            QiscusErrorLogger.print(e);
+            return false;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Replace saved message with the same comment id, room name and avatar are kept if the new message has none.
+     *
+     * @return false if there is no such message or the message text is not changed
+     */
+    boolean update(long roomId, QiscusPushNotificationMessage message) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransactionNonExclusive();
+        try {
+            QiscusPushNotificationMessage savedMessage = get(db, roomId, message.getCommentId());
+            if (savedMessage == null || TextUtils.equals(message.getMessage(), savedMessage.getMessage())) {
+                return false;
+            }
+
+            if (TextUtils.isEmpty(message.getRoomName()) && !TextUtils.isEmpty(savedMessage.getRoomName())) {
+                message.setRoomName(savedMessage.getRoomName());
+                message.setRoomAvatar(savedMessage.getRoomAvatar());
+            }
+
+            db.update(TABLE_NAME, toContentValues(roomId, message), WHERE_MESSAGE,
+                    new String[]{String.valueOf(roomId), String.valueOf(message.getCommentId())});
+            db.setTransactionSuccessful();
+            return true;
+        } catch (Exception e) {
+            QiscusErrorLogger.print(e);
+            return false;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    boolean remove(long roomId, QiscusPushNotificationMessage message) {
+        try {
+            return getWritableDatabase().delete(TABLE_NAME, WHERE_MESSAGE,
+                    new String[]{String.valueOf(roomId), String.valueOf(message.getCommentId())}) > 0;
+        } catch (Exception e) {
+            QiscusErrorLogger.print(e);
+            return false;
+        }
+    }
+
+    /**
+     * @return messages of the room, oldest first
+     */
+    List<QiscusPushNotificationMessage> getAll(long roomId) {
+        List<QiscusPushNotificationMessage> messages = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            cursor = getReadableDatabase().query(TABLE_NAME, null, COLUMN_ROOM_ID + " = ?",
+                    new String[]{String.valueOf(roomId)}, null, null, COLUMN_ID + " ASC");
+            while (cursor.moveToNext()) {
+                messages.add(parseCursor(cursor));
+            }
+        } catch (Exception e) {
+            QiscusErrorLogger.print(e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Add messages in order, used to import history saved by older version.
+     */
+    void addAll(long roomId, List<QiscusPushNotificationMessage> messages) {
+        for (QiscusPushNotificationMessage message : messages) {
+            add(roomId, message);
+        }
+    }
+
+    void clear(long roomId) {
+        try {
+            getWritableDatabase().delete(TABLE_NAME, COLUMN_ROOM_ID + " = ?", new String[]{String.valueOf(roomId)});
+        } catch (Exception e) {
+            QiscusErrorLogger.print(e);
+        }
+    }
+
+    void clear() {
+        try {
+            getWritableDatabase().delete(TABLE_NAME, null, null);
+        } catch (Exception e) {
+            QiscusErrorLogger.print(e);
+        }
+    }
+
+    private QiscusPushNotificationMessage get(SQLiteDatabase db, long roomId, long commentId) {
+        Cursor cursor = db.query(TABLE_NAME, null, WHERE_MESSAGE,
+                new String[]{String.valueOf(roomId), String.valueOf(commentId)}, null, null, null);
+        try {
+            return cursor.moveToNext() ? parseCursor(cursor) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static ContentValues toContentValues(long roomId, QiscusPushNotificationMessage message) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_ROOM_ID, roomId);
+        values.put(COLUMN_COMMENT_ID, message.getCommentId());
+        values.put(COLUMN_MESSAGE, message.getMessage());
+        values.put(COLUMN_ROOM_NAME, message.getRoomName());
+        values.put(COLUMN_ROOM_AVATAR, message.getRoomAvatar());
+        return values;
+    }
+
+    private static QiscusPushNotificationMessage parseCursor(Cursor cursor) {
+        QiscusPushNotificationMessage message = new QiscusPushNotificationMessage(
+                cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_COMMENT_ID)),
+                cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_MESSAGE)));
+        message.setRoomName(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_ROOM_NAME)));
+        message.setRoomAvatar(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_ROOM_AVATAR)));
+        return message;
+    }
+}
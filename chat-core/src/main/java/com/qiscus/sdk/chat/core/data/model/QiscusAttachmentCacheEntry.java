@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.model;
+
+/**
+ * One file of the local attachment cache, keyed by the hash of its content. Comments which have the same content
+ * share the file, their local paths in files table all point to {@link #getLocalPath()}.
+ */
+public class QiscusAttachmentCacheEntry {
+    private String hash;
+    private String localPath;
+    private long size;
+    private long lastAccess;
+
+    public QiscusAttachmentCacheEntry(String hash, String localPath, long size, long lastAccess) {
+        this.hash = hash;
+        this.localPath = localPath;
+        this.size = size;
+        this.lastAccess = lastAccess;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public String getLocalPath() {
+        return localPath;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastAccess() {
+        return lastAccess;
+    }
+
+    public void setLastAccess(long lastAccess) {
+        this.lastAccess = lastAccess;
+    }
+
+    @Override
+    public String toString() {
+        return "QiscusAttachmentCacheEntry{" +
+                "hash='" + hash + '\'' +
+                ", localPath='" + localPath + '\'' +
+                ", size=" + size +
+                ", lastAccess=" + lastAccess +
+                '}';
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.model;
+
+/**
+ * Snapshot of the local attachment cache, sizes are in bytes.
+ */
+public class QiscusAttachmentCacheStats {
+    private final int entryCount;
+    private final long totalSize;
+    private final long maxSize;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long savedSize;
+    private final long lastCompaction;
+
+    public QiscusAttachmentCacheStats(int entryCount, long totalSize, long maxSize, long hitCount, long missCount,
+                                      long evictionCount, long savedSize, long lastCompaction) {
+        this.entryCount = entryCount;
+        this.totalSize = totalSize;
+        this.maxSize = maxSize;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.savedSize = savedSize;
+        this.lastCompaction = lastCompaction;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return number of stored files whose content was already in cache, so no new copy was made
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return bytes not written to disk thanks to files with the same content being shared
+     */
+    public long getSavedSize() {
+        return savedSize;
+    }
+
+    /**
+     * @return time of the last compaction in millis, 0 if it has not run yet
+     */
+    public long getLastCompaction() {
+        return lastCompaction;
+    }
+
+    @Override
+    public String toString() {
+        return "QiscusAttachmentCacheStats{" +
+                "entryCount=" + entryCount +
+                ", totalSize=" + totalSize +
+                ", maxSize=" + maxSize +
+                ", hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", evictionCount=" + evictionCount +
+                ", savedSize=" + savedSize +
+                ", lastCompaction=" + lastCompaction +
+                '}';
+    }
+}
@@ -27,6 +27,7 @@ import android.webkit.MimeTypeMap;
 import com.qiscus.sdk.chat.core.QiscusCore;
 import com.qiscus.sdk.chat.core.data.remote.QiscusUrlScraper;
 import com.qiscus.sdk.chat.core.util.QiscusAndroidUtil;
+import com.qiscus.sdk.chat.core.util.QiscusExecutors;
 import com.qiscus.sdk.chat.core.util.QiscusFileUtil;
 import com.qiscus.sdk.chat.core.util.QiscusRawDataExtractor;
 import com.qiscus.sdk.chat.core.util.QiscusTextUtil;
@@ -44,7 +45,6 @@ import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import rx.android.schedulers.AndroidSchedulers;
-import rx.schedulers.Schedulers;
 
 /**
  * Created on : August 18, 2016
@@ -100,11 +100,17 @@ public class QiscusComment implements Parcelable {
     private String rawType;
     private String extraPayload;
     private JSONObject extras;
+    private String rawExtras;
     private MediaObserver observer;
     private MediaPlayer player;
     private QiscusComment replyTo;
     private String caption;
     private String attachmentName;
+    private Type type;
+    private Boolean attachment;
+    private String attachmentMimeType;
+    private boolean attachmentMimeTypeResolved;
+    private JSONObject payload;
 
     public QiscusComment() {
 
@@ -127,11 +133,7 @@ public class QiscusComment implements Parcelable {
         rawType = in.readString();
         extraPayload = in.readString();
         replyTo = in.readParcelable(QiscusComment.class.getClassLoader());
-        try {
-            extras = new JSONObject(in.readString());
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        rawExtras = in.readString();
     }
 
     public static QiscusComment generateMessage(long roomId, String content) {
@@ -290,6 +292,8 @@ public class QiscusComment implements Parcelable {
 
     public void setMessage(String message) {
         this.message = message;
+        urls = null;
+        invalidateDerivedData();
     }
 
     public String getSender() {
@@ -394,6 +398,7 @@ public class QiscusComment implements Parcelable {
 
     public void setRawType(String rawType) {
         this.rawType = rawType;
+        invalidateDerivedData();
     }
 
     public String getExtraPayload() {
@@ -402,14 +407,60 @@ public class QiscusComment implements Parcelable {
 
     public void setExtraPayload(String extraPayload) {
         this.extraPayload = extraPayload;
+        invalidateDerivedData();
+    }
+
+    /**
+     * Type, attachment info and parsed payload are computed once because adapters ask for them on every bind,
+     * they must be recomputed when message, raw type or payload changes.
+     */
+    private void invalidateDerivedData() {
+        type = null;
+        attachment = null;
+        attachmentMimeType = null;
+        attachmentMimeTypeResolved = false;
+        payload = null;
+        caption = null;
+        attachmentName = null;
+    }
+
+    private JSONObject getParsedPayload() throws JSONException {
+        if (payload == null) {
+            payload = QiscusRawDataExtractor.getPayload(this);
+        }
+        return payload;
     }
 
     public JSONObject getExtras() {
+        if (extras == null && rawExtras != null) {
+            try {
+                extras = new JSONObject(rawExtras);
+            } catch (JSONException e) {
+                e.printStackTrace();
+            }
+            rawExtras = null;
+        }
         return extras;
     }
 
     public void setExtras(JSONObject extras) {
         this.extras = extras;
+        rawExtras = null;
+    }
+
+    /**
+     * @return extras as json string without parsing it, or null if this comment has no extras
+     */
+    public String getRawExtras() {
+        return extras != null ? extras.toString() : rawExtras;
+    }
+
+    /**
+     * Set extras as json string, it will only be parsed at the first {@link #getExtras()} call.
+     */
+    public void setRawExtras(String rawExtras) {
+        this.rawExtras = rawExtras;
+        extras = null;
     }
 
     public boolean isMyComment() {
@@ -419,7 +470,7 @@ public class QiscusComment implements Parcelable {
     public QiscusComment getReplyTo() {
         if (replyTo == null && getType() == Type.REPLY) {
             try {
-                JSONObject payload = QiscusRawDataExtractor.getPayload(this);
+                JSONObject payload = getParsedPayload();
                 replyTo = new QiscusComment();
                 replyTo.id = payload.getInt("replied_comment_id");
                 replyTo.uniqueId = replyTo.id + "";
@@ -451,9 +502,12 @@ public class QiscusComment implements Parcelable {
     }
 
     public boolean isAttachment() {
-        String trimmedMessage = message.trim();
-        return (trimmedMessage.startsWith("[file]") && trimmedMessage.endsWith("[/file]"))
-                || (!TextUtils.isEmpty(rawType) && rawType.equals("file_attachment"));
+        if (attachment == null) {
+            String trimmedMessage = message.trim();
+            attachment = (trimmedMessage.startsWith("[file]") && trimmedMessage.endsWith("[/file]"))
+                    || (!TextUtils.isEmpty(rawType) && rawType.equals("file_attachment"));
+        }
+        return attachment;
     }
 
     public Uri getAttachmentUri() {
@@ -471,7 +525,7 @@ public class QiscusComment implements Parcelable {
         }
         if (caption == null) {
             try {
-                JSONObject payload = QiscusRawDataExtractor.getPayload(this);
+                JSONObject payload = getParsedPayload();
                 caption = payload.optString("caption", "");
             } catch (Exception ignored) {
                 //Do nothing
@@ -487,7 +541,7 @@ public class QiscusComment implements Parcelable {
 
         if (attachmentName == null) {
             try {
-                JSONObject payload = QiscusRawDataExtractor.getPayload(this);
+                JSONObject payload = getParsedPayload();
                 attachmentName = payload.optString("file_name", "");
             } catch (Exception ignored) {
                 //Do nothing
@@ -525,39 +579,29 @@ public class QiscusComment implements Parcelable {
     }
 
     public boolean isImage() {
-        if (isAttachment()) {
-            String type = MimeTypeMap.getSingleton().getMimeTypeFromExtension(getExtension());
-            if (type == null) {
-                return false;
-            } else if (type.contains("image")) {
-                return true;
-            }
-        }
-        return false;
+        String type = getAttachmentMimeType();
+        return type != null && type.contains("image");
     }
 
     public boolean isVideo() {
-        if (isAttachment()) {
-            String type = MimeTypeMap.getSingleton().getMimeTypeFromExtension(getExtension());
-            if (type == null) {
-                return false;
-            } else if (type.contains("video")) {
-                return true;
-            }
-        }
-        return false;
+        String type = getAttachmentMimeType();
+        return type != null && type.contains("video");
     }
 
     public boolean isAudio() {
-        if (isAttachment()) {
-            String type = MimeTypeMap.getSingleton().getMimeTypeFromExtension(getExtension());
-            if (type == null) {
-                return false;
-            } else if (type.contains("audio")) {
-                return true;
-            }
+        String type = getAttachmentMimeType();
+        return type != null && type.contains("audio");
+    }
+
+    private String getAttachmentMimeType() {
+        if (!isAttachment()) {
+            return null;
         }
-        return false;
+        if (!attachmentMimeTypeResolved) {
+            attachmentMimeType = MimeTypeMap.getSingleton().getMimeTypeFromExtension(getExtension());
+            attachmentMimeTypeResolved = true;
+        }
+        return attachmentMimeType;
     }
 
     private boolean containsUrl() {
@@ -582,7 +626,7 @@ public class QiscusComment implements Parcelable {
                 QiscusUrlScraper.getInstance()
                         .generatePreviewData(urls.get(0))
                         .doOnNext(previewData -> previewData.setUrl(urls.get(0)))
-                        .subscribeOn(Schedulers.io())
+                        .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
                         .observeOn(AndroidSchedulers.mainThread())
                         .subscribe(previewData -> {
                             this.previewData = previewData;
@@ -597,7 +641,7 @@ public class QiscusComment implements Parcelable {
     public QiscusContact getContact() {
         if (contact == null && getType() == Type.CONTACT) {
             try {
-                JSONObject payload = QiscusRawDataExtractor.getPayload(this);
+                JSONObject payload = getParsedPayload();
                 contact = new QiscusContact(payload.optString("name"), payload.optString("value"),
                         payload.optString("type", "phone"));
             } catch (JSONException e) {
@@ -614,7 +658,7 @@ public class QiscusComment implements Parcelable {
     public QiscusLocation getLocation() {
         if (location == null && getType() == Type.LOCATION) {
             try {
-                JSONObject payload = QiscusRawDataExtractor.getPayload(this);
+                JSONObject payload = getParsedPayload();
                 location = new QiscusLocation();
                 location.setName(payload.optString("name"));
                 location.setAddress(payload.optString("address"));
@@ -632,25 +676,37 @@ public class QiscusComment implements Parcelable {
     }
 
     public Type getType() {
-        if (!TextUtils.isEmpty(rawType) && rawType.equals("account_linking")) {
-            return Type.ACCOUNT_LINKING;
-        } else if (!TextUtils.isEmpty(rawType) && rawType.equals("buttons")) {
-            return Type.BUTTONS;
-        } else if (!TextUtils.isEmpty(rawType) && rawType.equals("reply")) {
-            return Type.REPLY;
-        } else if (!TextUtils.isEmpty(rawType) && rawType.equals("card")) {
-            return Type.CARD;
-        } else if (!TextUtils.isEmpty(rawType) && rawType.equals("system_event")) {
-            return Type.SYSTEM_EVENT;
-        } else if (!TextUtils.isEmpty(rawType) && rawType.equals("contact_person")) {
-            return Type.CONTACT;
-        } else if (!TextUtils.isEmpty(rawType) && rawType.equals("location")) {
-            return Type.LOCATION;
-        } else if (!TextUtils.isEmpty(rawType) && rawType.equals("carousel")) {
-            return Type.CAROUSEL;
-        } else if (!TextUtils.isEmpty(rawType) && rawType.equals("custom")) {
-            return Type.CUSTOM;
-        } else if (!isAttachment()) {
+        if (type == null) {
+            type = determineType();
+        }
+        return type;
+    }
+
+    private Type determineType() {
+        if (!TextUtils.isEmpty(rawType)) {
+            switch (rawType) {
+                case "account_linking":
+                    return Type.ACCOUNT_LINKING;
+                case "buttons":
+                    return Type.BUTTONS;
+                case "reply":
+                    return Type.REPLY;
+                case "card":
+                    return Type.CARD;
+                case "system_event":
+                    return Type.SYSTEM_EVENT;
+                case "contact_person":
+                    return Type.CONTACT;
+                case "location":
+                    return Type.LOCATION;
+                case "carousel":
+                    return Type.CAROUSEL;
+                case "custom":
+                    return Type.CUSTOM;
+            }
+        }
+
+        if (!isAttachment()) {
             if (containsUrl()) {
                 return Type.LINK;
             }
@@ -872,14 +928,8 @@ public class QiscusComment implements Parcelable {
         dest.writeString(rawType);
         dest.writeString(extraPayload);
         dest.writeParcelable(replyTo, flags);
-        if (extras == null) {
-            try {
-                extras = new JSONObject("{}");
-            } catch (JSONException e) {
-                e.printStackTrace();
-            }
-        }
-        dest.writeString(extras.toString());
+        String rawExtras = getRawExtras();
+        dest.writeString(rawExtras == null ? "{}" : rawExtras);
     }
 
     public boolean areContentsTheSame(QiscusComment qiscusComment) {
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.qiscus.sdk.chat.core.data.model;
+
+import java.util.List;
+
+/**
+ * Result of local full text search, the matched comment and where the query matched it.
+ * To load the next page pass {@link #getComment()} of the last result as the cursor.
+ */
+public class QiscusCommentSearchResult {
+    private QiscusComment comment;
+    private String content;
+    private String snippet;
+    private List<Highlight> highlights;
+
+    public QiscusCommentSearchResult(QiscusComment comment, String content, String snippet, List<Highlight> highlights) {
+        this.comment = comment;
+        this.content = content;
+        this.snippet = snippet;
+        this.highlights = highlights;
+    }
+
+    public QiscusComment getComment() {
+        return comment;
+    }
+
+    /**
+     * @return The indexed text of the comment, the message or the caption for attachment
+     */
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * @return Short fragment of the content around the matches, matched terms are wrapped with &lt;b&gt; tag
+     */
+    public String getSnippet() {
+        return snippet;
+    }
+
+    /**
+     * @return Character ranges of every matched term inside {@link #getContent()}
+     */
+    public List<Highlight> getHighlights() {
+        return highlights;
+    }
+
+    @Override
+    public String toString() {
+        return "QiscusCommentSearchResult{" +
+                "comment=" + comment +
+                ", snippet='" + snippet + '\'' +
+                ", highlights=" + highlights +
+                '}';
+    }
+
+    public static class Highlight {
+        private int start;
+        private int end;
+
+        public Highlight(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        @Override
+        public String toString() {
+            return "Highlight{" +
+                    "start=" + start +
+                    ", end=" + end +
+                    '}';
+        }
+    }
+}
@@ -10,6 +10,21 @@ public class QiscusCoreChatConfig {
     private boolean enableFcmPushNotification = false;
     private QiscusCommentSendingInterceptor qiscusCommentSendingInterceptor = qiscusComment -> qiscusComment;
     private QiscusImageCompressionConfig qiscusImageCompressionConfig = new QiscusImageCompressionConfig();
+    private QiscusDataStoreCacheConfig dataStoreCacheConfig = new QiscusDataStoreCacheConfig();
+    private QiscusExecutorConfig executorConfig = new QiscusExecutorConfig();
+    private QiscusMqttQosConfig mqttQosConfig = new QiscusMqttQosConfig();
+    private QiscusTelemetryConfig telemetryConfig = new QiscusTelemetryConfig();
+    private long receiptFlushWindow = 1000;
+    private long reconnectBaseDelay = 1000;
+    private long reconnectMaxDelay = 60000;
+    private long typingRefreshInterval = 4000;
+    private long typingIdleTimeout = 3000;
+    private long typingExpiry = 10000;
+    private int maxConcurrentUploads = 2;
+    private int uploadMaxRetries = 3;
+    private int maxConcurrentDownloads = 4;
+    private int maxDownloadsPerHost = 2;
+    private long attachmentCacheSize = 512 * 1024 * 1024;
     private NotificationListener notificationListener;
     private DeleteCommentListener deleteCommentListener;
 
@@ -41,6 +56,178 @@ public class QiscusCoreChatConfig {
         return this;
     }
 
+    public QiscusDataStoreCacheConfig getDataStoreCacheConfig() {
+        return dataStoreCacheConfig;
+    }
+
+    public QiscusCoreChatConfig setDataStoreCacheConfig(QiscusDataStoreCacheConfig dataStoreCacheConfig) {
+        this.dataStoreCacheConfig = dataStoreCacheConfig;
+        return this;
+    }
+
+    public QiscusExecutorConfig getExecutorConfig() {
+        return executorConfig;
+    }
+
+    public QiscusCoreChatConfig setExecutorConfig(QiscusExecutorConfig executorConfig) {
+        this.executorConfig = executorConfig;
+        return this;
+    }
+
+    public QiscusMqttQosConfig getMqttQosConfig() {
+        return mqttQosConfig;
+    }
+
+    public QiscusCoreChatConfig setMqttQosConfig(QiscusMqttQosConfig mqttQosConfig) {
+        this.mqttQosConfig = mqttQosConfig;
+        return this;
+    }
+
+    public QiscusTelemetryConfig getTelemetryConfig() {
+        return telemetryConfig;
+    }
+
+    public QiscusCoreChatConfig setTelemetryConfig(QiscusTelemetryConfig telemetryConfig) {
+        this.telemetryConfig = telemetryConfig;
+        return this;
+    }
+
+    public long getReceiptFlushWindow() {
+        return receiptFlushWindow;
+    }
+
+    /**
+     * Read and delivered receipts are collected for this many milliseconds, then only the highest comment id
+     * of each room is sent to server.
+     */
+    public QiscusCoreChatConfig setReceiptFlushWindow(long receiptFlushWindow) {
+        this.receiptFlushWindow = receiptFlushWindow;
+        return this;
+    }
+
+    public long getReconnectBaseDelay() {
+        return reconnectBaseDelay;
+    }
+
+    /**
+     * First upper bound of the random MQTT reconnect delay, it is doubled on every failed attempt.
+     */
+    public QiscusCoreChatConfig setReconnectBaseDelay(long reconnectBaseDelay) {
+        this.reconnectBaseDelay = reconnectBaseDelay;
+        return this;
+    }
+
+    public long getReconnectMaxDelay() {
+        return reconnectMaxDelay;
+    }
+
+    /**
+     * Highest upper bound of the random MQTT reconnect delay.
+     */
+    public QiscusCoreChatConfig setReconnectMaxDelay(long reconnectMaxDelay) {
+        this.reconnectMaxDelay = reconnectMaxDelay;
+        return this;
+    }
+
+    public long getTypingRefreshInterval() {
+        return typingRefreshInterval;
+    }
+
+    /**
+     * While the user keeps typing, "typing" is published again after this many milliseconds.
+     */
+    public QiscusCoreChatConfig setTypingRefreshInterval(long typingRefreshInterval) {
+        this.typingRefreshInterval = typingRefreshInterval;
+        return this;
+    }
+
+    public long getTypingIdleTimeout() {
+        return typingIdleTimeout;
+    }
+
+    /**
+     * "Stopped typing" is published once nothing was typed for this many milliseconds.
+     */
+    public QiscusCoreChatConfig setTypingIdleTimeout(long typingIdleTimeout) {
+        this.typingIdleTimeout = typingIdleTimeout;
+        return this;
+    }
+
+    public long getTypingExpiry() {
+        return typingExpiry;
+    }
+
+    /**
+     * Another user is considered stopped typing when no "typing" arrived from them for this many milliseconds,
+     * keep it longer than the typing refresh interval.
+     */
+    public QiscusCoreChatConfig setTypingExpiry(long typingExpiry) {
+        this.typingExpiry = typingExpiry;
+        return this;
+    }
+
+    public int getMaxConcurrentUploads() {
+        return maxConcurrentUploads;
+    }
+
+    /**
+     * Uploads above this number wait in queue, the ones with higher priority go first.
+     */
+    public QiscusCoreChatConfig setMaxConcurrentUploads(int maxConcurrentUploads) {
+        this.maxConcurrentUploads = maxConcurrentUploads;
+        return this;
+    }
+
+    public int getUploadMaxRetries() {
+        return uploadMaxRetries;
+    }
+
+    /**
+     * How many times an upload is tried again after a network failure before it is reported as failed.
+     */
+    public QiscusCoreChatConfig setUploadMaxRetries(int uploadMaxRetries) {
+        this.uploadMaxRetries = uploadMaxRetries;
+        return this;
+    }
+
+    public int getMaxConcurrentDownloads() {
+        return maxConcurrentDownloads;
+    }
+
+    /**
+     * Downloads above this number wait in queue in the order they were requested.
+     */
+    public QiscusCoreChatConfig setMaxConcurrentDownloads(int maxConcurrentDownloads) {
+        this.maxConcurrentDownloads = maxConcurrentDownloads;
+        return this;
+    }
+
+    public int getMaxDownloadsPerHost() {
+        return maxDownloadsPerHost;
+    }
+
+    /**
+     * Limit of downloads running at the same time from one host, so one slow server can not take all the slots of
+     * {@link #setMaxConcurrentDownloads(int)}.
+     */
+    public QiscusCoreChatConfig setMaxDownloadsPerHost(int maxDownloadsPerHost) {
+        this.maxDownloadsPerHost = maxDownloadsPerHost;
+        return this;
+    }
+
+    public long getAttachmentCacheSize() {
+        return attachmentCacheSize;
+    }
+
+    /**
+     * Disk budget in bytes of downloaded and sent attachments, the least recently opened files are deleted when it is
+     * exceeded and downloaded again when needed. Set 0 or less to never delete them.
+     */
+    public QiscusCoreChatConfig setAttachmentCacheSize(long attachmentCacheSize) {
+        this.attachmentCacheSize = attachmentCacheSize;
+        return this;
+    }
+
     public NotificationListener getNotificationListener() {
         return notificationListener;
     }
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.qiscus.sdk.chat.core.data.model;
+
+/**
+ * Max entries of each cache used by {@link com.qiscus.sdk.chat.core.data.local.QiscusCachedDataStore}
+ */
+public class QiscusDataStoreCacheConfig {
+    private int roomCacheSize = 100;
+    private int memberCacheSize = 500;
+    private int commentCacheSize = 500;
+
+    public QiscusDataStoreCacheConfig() {
+
+    }
+
+    public QiscusDataStoreCacheConfig(int roomCacheSize, int memberCacheSize, int commentCacheSize) {
+        this.roomCacheSize = roomCacheSize;
+        this.memberCacheSize = memberCacheSize;
+        this.commentCacheSize = commentCacheSize;
+    }
+
+    public int getRoomCacheSize() {
+        return roomCacheSize;
+    }
+
+    public QiscusDataStoreCacheConfig setRoomCacheSize(int roomCacheSize) {
+        this.roomCacheSize = roomCacheSize;
+        return this;
+    }
+
+    public int getMemberCacheSize() {
+        return memberCacheSize;
+    }
+
+    public QiscusDataStoreCacheConfig setMemberCacheSize(int memberCacheSize) {
+        this.memberCacheSize = memberCacheSize;
+        return this;
+    }
+
+    public int getCommentCacheSize() {
+        return commentCacheSize;
+    }
+
+    public QiscusDataStoreCacheConfig setCommentCacheSize(int commentCacheSize) {
+        this.commentCacheSize = commentCacheSize;
+        return this;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.model;
+
+import com.qiscus.sdk.chat.core.util.QiscusExecutorLane;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Size of each background lane used by {@link com.qiscus.sdk.chat.core.util.QiscusExecutors},
+ * or your own executor to use instead of the default pool of a lane.
+ */
+public class QiscusExecutorConfig {
+    private int networkThreads = 4;
+    private int networkQueueCapacity = 256;
+    private int diskQueueCapacity = 512;
+    private int realtimeThreads = 4;
+    private int realtimeQueueCapacity = 1024;
+    private int realtimeMaxPendingPerRoom = 500;
+    private int cpuThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private int cpuQueueCapacity = 256;
+    private QiscusExecutorLane.SaturationPolicy networkSaturationPolicy = QiscusExecutorLane.SaturationPolicy.BLOCK;
+    private QiscusExecutorLane.SaturationPolicy cpuSaturationPolicy = QiscusExecutorLane.SaturationPolicy.BLOCK;
+    private Executor networkExecutor;
+    private Executor diskExecutor;
+    private Executor realtimeExecutor;
+    private Executor cpuExecutor;
+
+    public int getNetworkThreads() {
+        return networkThreads;
+    }
+
+    public QiscusExecutorConfig setNetworkThreads(int networkThreads) {
+        this.networkThreads = networkThreads;
+        return this;
+    }
+
+    public int getNetworkQueueCapacity() {
+        return networkQueueCapacity;
+    }
+
+    public QiscusExecutorConfig setNetworkQueueCapacity(int networkQueueCapacity) {
+        this.networkQueueCapacity = networkQueueCapacity;
+        return this;
+    }
+
+    public int getDiskQueueCapacity() {
+        return diskQueueCapacity;
+    }
+
+    public QiscusExecutorConfig setDiskQueueCapacity(int diskQueueCapacity) {
+        this.diskQueueCapacity = diskQueueCapacity;
+        return this;
+    }
+
+    public int getRealtimeThreads() {
+        return realtimeThreads;
+    }
+
+    public QiscusExecutorConfig setRealtimeThreads(int realtimeThreads) {
+        this.realtimeThreads = realtimeThreads;
+        return this;
+    }
+
+    public int getRealtimeMaxPendingPerRoom() {
+        return realtimeMaxPendingPerRoom;
+    }
+
+    /**
+     * When a room already has this many incoming comments or events waiting, new ones are dropped and the missed
+     * comments are loaded from server once the room catches up.
+     */
+    public QiscusExecutorConfig setRealtimeMaxPendingPerRoom(int realtimeMaxPendingPerRoom) {
+        this.realtimeMaxPendingPerRoom = realtimeMaxPendingPerRoom;
+        return this;
+    }
+
+    public int getRealtimeQueueCapacity() {
+        return realtimeQueueCapacity;
+    }
+
+    public QiscusExecutorConfig setRealtimeQueueCapacity(int realtimeQueueCapacity) {
+        this.realtimeQueueCapacity = realtimeQueueCapacity;
+        return this;
+    }
+
+    public int getCpuThreads() {
+        return cpuThreads;
+    }
+
+    public QiscusExecutorConfig setCpuThreads(int cpuThreads) {
+        this.cpuThreads = cpuThreads;
+        return this;
+    }
+
+    public int getCpuQueueCapacity() {
+        return cpuQueueCapacity;
+    }
+
+    public QiscusExecutorConfig setCpuQueueCapacity(int cpuQueueCapacity) {
+        this.cpuQueueCapacity = cpuQueueCapacity;
+        return this;
+    }
+
+    public QiscusExecutorLane.SaturationPolicy getNetworkSaturationPolicy() {
+        return networkSaturationPolicy;
+    }
+
+    /**
+     * What the network lane does when its queue is full, blocking the caller by default.
+     */
+    public QiscusExecutorConfig setNetworkSaturationPolicy(QiscusExecutorLane.SaturationPolicy networkSaturationPolicy) {
+        this.networkSaturationPolicy = networkSaturationPolicy;
+        return this;
+    }
+
+    public QiscusExecutorLane.SaturationPolicy getCpuSaturationPolicy() {
+        return cpuSaturationPolicy;
+    }
+
+    /**
+     * What the cpu lane does when its queue is full, blocking the caller by default.
+     */
+    public QiscusExecutorConfig setCpuSaturationPolicy(QiscusExecutorLane.SaturationPolicy cpuSaturationPolicy) {
+        this.cpuSaturationPolicy = cpuSaturationPolicy;
+        return this;
+    }
+
+    public Executor getNetworkExecutor() {
+        return networkExecutor;
+    }
+
+    public QiscusExecutorConfig setNetworkExecutor(Executor networkExecutor) {
+        this.networkExecutor = networkExecutor;
+        return this;
+    }
+
+    public Executor getDiskExecutor() {
+        return diskExecutor;
+    }
+
+    /**
+     * Local database writes expect this executor to run one task at a time.
+     */
+    public QiscusExecutorConfig setDiskExecutor(Executor diskExecutor) {
+        this.diskExecutor = diskExecutor;
+        return this;
+    }
+
+    public Executor getRealtimeExecutor() {
+        return realtimeExecutor;
+    }
+
+    /**
+     * Incoming comments and room events are kept in order per room on top of this executor.
+     */
+    public QiscusExecutorConfig setRealtimeExecutor(Executor realtimeExecutor) {
+        this.realtimeExecutor = realtimeExecutor;
+        return this;
+    }
+
+    public Executor getCpuExecutor() {
+        return cpuExecutor;
+    }
+
+    public QiscusExecutorConfig setCpuExecutor(Executor cpuExecutor) {
+        this.cpuExecutor = cpuExecutor;
+        return this;
+    }
+}
@@ -16,6 +16,8 @@
 
 package com.qiscus.sdk.chat.core.data.model;
 
+import android.graphics.Bitmap;
+
 /**
  * Created on : March 01, 2017
  * Author     : zetbaitsu
@@ -26,6 +28,8 @@ public class QiscusImageCompressionConfig {
     private float maxHeight = 900.0f;
     private float maxWidth = 1440.0f;
     private int quality = 80;
+    private Bitmap.CompressFormat format = Bitmap.CompressFormat.JPEG;
+    private int maxConcurrentCompressions = 0;
 
     public QiscusImageCompressionConfig() {
 
@@ -63,4 +67,28 @@ public class QiscusImageCompressionConfig {
         this.quality = quality;
         return this;
     }
+
+    public Bitmap.CompressFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * JPEG keeps the EXIF orientation of the original instead of rotating the pixels, the other formats are rotated.
+     */
+    public QiscusImageCompressionConfig setFormat(Bitmap.CompressFormat format) {
+        this.format = format;
+        return this;
+    }
+
+    public int getMaxConcurrentCompressions() {
+        return maxConcurrentCompressions;
+    }
+
+    /**
+     * @param maxConcurrentCompressions how many images are compressed at once, 0 to derive it from available heap
+     */
+    public QiscusImageCompressionConfig setMaxConcurrentCompressions(int maxConcurrentCompressions) {
+        this.maxConcurrentCompressions = maxConcurrentCompressions;
+        return this;
+    }
 }
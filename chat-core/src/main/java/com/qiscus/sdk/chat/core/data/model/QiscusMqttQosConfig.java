@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.model;
+
+/**
+ * MQTT QoS used for each class of realtime topic, applied both when subscribing and publishing.
+ * Ephemeral signals like typing and presence default to 0, messages that must not be lost default to 1.
+ */
+public class QiscusMqttQosConfig {
+    private int commentQos = 1;
+    private int notificationQos = 1;
+    private int receiptQos = 1;
+    private int eventQos = 1;
+    private int typingQos = 0;
+    private int presenceQos = 0;
+    private int customTopicQos = 1;
+
+    public int getCommentQos() {
+        return commentQos;
+    }
+
+    /**
+     * Used for the personal comment topic and channel comment topics.
+     */
+    public QiscusMqttQosConfig setCommentQos(int commentQos) {
+        this.commentQos = checkQos(commentQos);
+        return this;
+    }
+
+    public int getNotificationQos() {
+        return notificationQos;
+    }
+
+    public QiscusMqttQosConfig setNotificationQos(int notificationQos) {
+        this.notificationQos = checkQos(notificationQos);
+        return this;
+    }
+
+    public int getReceiptQos() {
+        return receiptQos;
+    }
+
+    /**
+     * Used for delivered and read topics of a room.
+     */
+    public QiscusMqttQosConfig setReceiptQos(int receiptQos) {
+        this.receiptQos = checkQos(receiptQos);
+        return this;
+    }
+
+    public int getEventQos() {
+        return eventQos;
+    }
+
+    public QiscusMqttQosConfig setEventQos(int eventQos) {
+        this.eventQos = checkQos(eventQos);
+        return this;
+    }
+
+    public int getTypingQos() {
+        return typingQos;
+    }
+
+    public QiscusMqttQosConfig setTypingQos(int typingQos) {
+        this.typingQos = checkQos(typingQos);
+        return this;
+    }
+
+    public int getPresenceQos() {
+        return presenceQos;
+    }
+
+    /**
+     * Used for user status topics, our own status is still published as a retained message.
+     */
+    public QiscusMqttQosConfig setPresenceQos(int presenceQos) {
+        this.presenceQos = checkQos(presenceQos);
+        return this;
+    }
+
+    public int getCustomTopicQos() {
+        return customTopicQos;
+    }
+
+    /**
+     * Used for topics registered with {@link com.qiscus.sdk.chat.core.data.remote.QiscusPusherApi#listenTopic(String)}.
+     */
+    public QiscusMqttQosConfig setCustomTopicQos(int customTopicQos) {
+        this.customTopicQos = checkQos(customTopicQos);
+        return this;
+    }
+
+    /**
+     * QoS to subscribe with, it follows the class of the topic which is the last segment of the topic,
+     * e.g. "t" for "r/123/123/user@mail.com/t". Kinds the SDK does not know use the custom topic QoS.
+     */
+    public int getTopicQos(String topicKind) {
+        switch (topicKind) {
+            case "c":
+                return commentQos;
+            case "n":
+                return notificationQos;
+            case "t":
+                return typingQos;
+            case "d":
+            case "r":
+                return receiptQos;
+            case "s":
+                return presenceQos;
+            case "e":
+                return eventQos;
+            default:
+                return customTopicQos;
+        }
+    }
+
+    private static int checkQos(int qos) {
+        if (qos < 0 || qos > 2) {
+            throw new IllegalArgumentException("QoS must be 0, 1 or 2, but was " + qos);
+        }
+        return qos;
+    }
+}
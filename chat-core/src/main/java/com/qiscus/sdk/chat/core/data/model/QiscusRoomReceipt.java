@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.qiscus.sdk.chat.core.data.model;
+
+/**
+ * Highest read and delivered comment id of a room which has not been sent to server yet, 0 means nothing to send.
+ */
+public class QiscusRoomReceipt {
+    private long roomId;
+    private long lastReadCommentId;
+    private long lastDeliveredCommentId;
+
+    public QiscusRoomReceipt(long roomId) {
+        this.roomId = roomId;
+    }
+
+    public long getRoomId() {
+        return roomId;
+    }
+
+    public long getLastReadCommentId() {
+        return lastReadCommentId;
+    }
+
+    public long getLastDeliveredCommentId() {
+        return lastDeliveredCommentId;
+    }
+
+    public void updateLastReadCommentId(long commentId) {
+        lastReadCommentId = Math.max(lastReadCommentId, commentId);
+    }
+
+    public void updateLastDeliveredCommentId(long commentId) {
+        lastDeliveredCommentId = Math.max(lastDeliveredCommentId, commentId);
+    }
+
+    public void merge(QiscusRoomReceipt receipt) {
+        updateLastReadCommentId(receipt.lastReadCommentId);
+        updateLastDeliveredCommentId(receipt.lastDeliveredCommentId);
+    }
+
+    @Override
+    public String toString() {
+        return "QiscusRoomReceipt{" +
+                "roomId=" + roomId +
+                ", lastReadCommentId=" + lastReadCommentId +
+                ", lastDeliveredCommentId=" + lastDeliveredCommentId +
+                '}';
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * How SDK telemetry events are buffered before they are reported to server.
+ */
+public class QiscusTelemetryConfig {
+    private boolean enable = true;
+    private int flushSize = 20;
+    private long flushInterval = 60000;
+    private int maxStoredEvents = 200;
+    private int maxEventsPerMinute = 10;
+    private float defaultSampleRate = 1f;
+    private final Map<String, Float> sampleRates = new HashMap<>();
+
+    public boolean isEnable() {
+        return enable;
+    }
+
+    public QiscusTelemetryConfig setEnable(boolean enable) {
+        this.enable = enable;
+        return this;
+    }
+
+    public int getFlushSize() {
+        return flushSize;
+    }
+
+    /**
+     * Buffered events are reported as soon as this many are waiting.
+     */
+    public QiscusTelemetryConfig setFlushSize(int flushSize) {
+        this.flushSize = flushSize;
+        return this;
+    }
+
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * Longest time in milliseconds an event waits before it is reported, when network is available.
+     */
+    public QiscusTelemetryConfig setFlushInterval(long flushInterval) {
+        this.flushInterval = flushInterval;
+        return this;
+    }
+
+    public int getMaxStoredEvents() {
+        return maxStoredEvents;
+    }
+
+    /**
+     * Size of the buffer kept on disk while offline, the oldest events are dropped first.
+     */
+    public QiscusTelemetryConfig setMaxStoredEvents(int maxStoredEvents) {
+        this.maxStoredEvents = maxStoredEvents;
+        return this;
+    }
+
+    public int getMaxEventsPerMinute() {
+        return maxEventsPerMinute;
+    }
+
+    /**
+     * Events of one type above this rate are only counted, not buffered.
+     */
+    public QiscusTelemetryConfig setMaxEventsPerMinute(int maxEventsPerMinute) {
+        this.maxEventsPerMinute = maxEventsPerMinute;
+        return this;
+    }
+
+    public float getSampleRate(String event) {
+        Float sampleRate = sampleRates.get(event);
+        return sampleRate == null ? defaultSampleRate : sampleRate;
+    }
+
+    /**
+     * @param sampleRate fraction of events to keep, between 0 and 1
+     */
+    public QiscusTelemetryConfig setDefaultSampleRate(float sampleRate) {
+        this.defaultSampleRate = sampleRate;
+        return this;
+    }
+
+    /**
+     * @param event      event type, e.g. "CONNECTING" or "LISTEN_ROOM"
+     * @param sampleRate fraction of events to keep, between 0 and 1
+     */
+    public QiscusTelemetryConfig setSampleRate(String event, float sampleRate) {
+        sampleRates.put(event, sampleRate);
+        return this;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.model;
+
+/**
+ * One telemetry event waiting to be reported, count includes events of the same type which were rate limited
+ * right before it.
+ */
+public class QiscusTelemetryEvent {
+    private String moduleName;
+    private String event;
+    private String message;
+    private long time;
+    private int count;
+
+    public QiscusTelemetryEvent(String moduleName, String event, String message, long time) {
+        this.moduleName = moduleName;
+        this.event = event;
+        this.message = message;
+        this.time = time;
+        count = 1;
+    }
+
+    public String getModuleName() {
+        return moduleName;
+    }
+
+    public String getEvent() {
+        return event;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    @Override
+    public String toString() {
+        return "QiscusTelemetryEvent{" +
+                "moduleName='" + moduleName + '\'' +
+                ", event='" + event + '\'' +
+                ", message='" + message + '\'' +
+                ", time=" + time +
+                ", count=" + count +
+                '}';
+    }
+}
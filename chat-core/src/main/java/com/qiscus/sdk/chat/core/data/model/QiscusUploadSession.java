@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.model;
+
+import java.io.File;
+
+/**
+ * A finished file upload, keyed by the file path. Its url can be reused as long as the file has not been modified
+ * since, so a file is not uploaded twice.
+ */
+public class QiscusUploadSession {
+    private String filePath;
+    private long fileSize;
+    private long fileModified;
+    private String url;
+    private long updatedAt;
+
+    public QiscusUploadSession(String filePath, long fileSize, long fileModified) {
+        this.filePath = filePath;
+        this.fileSize = fileSize;
+        this.fileModified = fileModified;
+    }
+
+    public static QiscusUploadSession from(File file) {
+        return new QiscusUploadSession(file.getAbsolutePath(), file.length(), file.lastModified());
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public long getFileModified() {
+        return fileModified;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public boolean isFinished() {
+        return url != null;
+    }
+
+    /**
+     * @return true if this session was made for the same content of the given file
+     */
+    public boolean isSameFile(File file) {
+        return filePath.equals(file.getAbsolutePath()) && fileSize == file.length()
+                && fileModified == file.lastModified();
+    }
+
+    @Override
+    public String toString() {
+        return "QiscusUploadSession{" +
+                "filePath='" + filePath + '\'' +
+                ", fileSize=" + fileSize +
+                ", fileModified=" + fileModified +
+                ", url='" + url + '\'' +
+                ", updatedAt=" + updatedAt +
+                '}';
+    }
+}
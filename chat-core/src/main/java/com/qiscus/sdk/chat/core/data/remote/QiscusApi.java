@@ -19,7 +19,6 @@ package com.qiscus.sdk.chat.core.data.remote;
 import android.net.Uri;
 import android.os.Build;
 
-import androidx.annotation.NonNull;
 import androidx.core.util.Pair;
 
 import com.google.gson.JsonElement;
@@ -37,7 +36,6 @@ import com.qiscus.sdk.chat.core.event.QiscusCommentSentEvent;
 import com.qiscus.sdk.chat.core.util.BuildVersionUtil;
 import com.qiscus.sdk.chat.core.util.QiscusDateUtil;
 import com.qiscus.sdk.chat.core.util.QiscusErrorLogger;
-import com.qiscus.sdk.chat.core.util.QiscusFileUtil;
 import com.qiscus.sdk.chat.core.util.QiscusLogger;
 import com.qiscus.sdk.chat.core.util.QiscusTextUtil;
 
@@ -46,9 +44,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -56,19 +52,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import okhttp3.Call;
 import okhttp3.Interceptor;
-import okhttp3.MediaType;
-import okhttp3.MultipartBody;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
-import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
-import okhttp3.internal.Util;
 import okhttp3.logging.HttpLoggingInterceptor;
-import okio.BufferedSink;
-import okio.Okio;
-import okio.Source;
 import retrofit2.Retrofit;
 import retrofit2.adapter.rxjava.RxJavaCallAdapterFactory;
 import retrofit2.converter.gson.GsonConverterFactory;
@@ -204,24 +194,19 @@ public enum QiscusApi {
 
     public Observable<QiscusComment> getComments(long roomId, long lastCommentId) {
         return api.getComments(QiscusCore.getToken(), roomId, lastCommentId, false)
-                .flatMap(jsonElement -> Observable.from(jsonElement.getAsJsonObject().get("results")
-                        .getAsJsonObject().get("comments").getAsJsonArray()))
-                .map(jsonElement -> QiscusApiParser.parseQiscusComment(jsonElement, roomId));
+                .flatMap(responseBody -> Observable.from(readComments(responseBody, roomId)));
     }
 
     public Observable<QiscusComment> getCommentsAfter(long roomId, long lastCommentId) {
         return api.getComments(QiscusCore.getToken(), roomId, lastCommentId, true)
-                .flatMap(jsonElement -> Observable.from(jsonElement.getAsJsonObject().get("results")
-                        .getAsJsonObject().get("comments").getAsJsonArray()))
-                .map(jsonElement -> QiscusApiParser.parseQiscusComment(jsonElement, roomId));
+                .flatMap(responseBody -> Observable.from(readComments(responseBody, roomId)));
     }
 
     public Observable<QiscusComment> postComment(QiscusComment qiscusComment) {
         QiscusCore.getChatConfig().getCommentSendingInterceptor().sendComment(qiscusComment);
         return api.postComment(QiscusCore.getToken(), qiscusComment.getMessage(),
                 qiscusComment.getRoomId(), qiscusComment.getUniqueId(), qiscusComment.getRawType(),
-                qiscusComment.getExtraPayload(), qiscusComment.getExtras() == null ? null :
-                        qiscusComment.getExtras().toString())
+                qiscusComment.getExtraPayload(), qiscusComment.getRawExtras())
                 .map(jsonElement -> {
                     JsonObject jsonComment = jsonElement.getAsJsonObject()
                             .get("results").getAsJsonObject().get("comment").getAsJsonObject();
@@ -243,13 +228,18 @@ public enum QiscusApi {
                     QiscusErrorLogger.print("Sync", throwable);
                     return null;
                 })
-                .filter(jsonElement -> jsonElement != null)
-                .flatMap(jsonElement -> Observable.from(jsonElement.getAsJsonObject().get("results")
-                        .getAsJsonObject().get("comments").getAsJsonArray()))
-                .map(jsonElement -> {
-                    JsonObject jsonComment = jsonElement.getAsJsonObject();
-                    return QiscusApiParser.parseQiscusComment(jsonElement, jsonComment.get("room_id").getAsLong());
-                });
+                .filter(responseBody -> responseBody != null)
+                .flatMap(responseBody -> Observable.from(readComments(responseBody, 0)));
+    }
+
+    private List<QiscusComment> readComments(ResponseBody responseBody, long roomId) {
+        try {
+            return QiscusCommentJsonReader.readComments(responseBody.charStream(), roomId);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw OnErrorThrowable.from(e);
+        } finally {
+            responseBody.close();
+        }
     }
 
     public Observable<QiscusComment> sync() {
@@ -262,86 +252,30 @@ public enum QiscusApi {
     }
 
     public Observable<Uri> uploadFile(File file, ProgressListener progressListener) {
-        return Observable.create(subscriber -> {
-            long fileLength = file.length();
-
-            RequestBody requestBody = new MultipartBody.Builder()
-                    .setType(MultipartBody.FORM)
-                    .addFormDataPart("token", QiscusCore.getToken())
-                    .addFormDataPart("file", file.getName(),
-                            new CountingFileRequestBody(file, totalBytes -> {
-                                int progress = (int) (totalBytes * 100 / fileLength);
-                                progressListener.onProgress(progress);
-                            }))
-                    .build();
-
-            Request request = new Request.Builder()
-                    .url(baseUrl + "api/v2/mobile/upload")
-                    .post(requestBody).build();
-
-            try {
-                Response response = httpClient.newCall(request).execute();
-                JSONObject responseJ = new JSONObject(response.body().string());
-                String result = responseJ.getJSONObject("results").getJSONObject("file").getString("url");
+        return QiscusUploadManager.getInstance().upload(file, QiscusUploadManager.PRIORITY_NORMAL, progressListener);
+    }
 
-                subscriber.onNext(Uri.parse(result));
-                subscriber.onCompleted();
-            } catch (IOException | JSONException e) {
-                QiscusErrorLogger.print("UploadFile", e);
-                subscriber.onError(e);
-            }
-        }, Emitter.BackpressureMode.BUFFER);
+    /**
+     * Build the multipart upload call of a file, see {@link QiscusUploadRequest#create}.
+     */
+    Call newUploadCall(File file, int writeSize, ProgressListener progressListener) {
+        return httpClient.newCall(QiscusUploadRequest.create(baseUrl, QiscusCore.getToken(), file, writeSize,
+                progressListener));
     }
 
     public Observable<File> downloadFile(String url, String fileName, ProgressListener progressListener) {
-        return Observable.create(subscriber -> {
-            InputStream inputStream = null;
-            FileOutputStream fos = null;
-            try {
-                Request request = new Request.Builder().url(url).build();
-
-                Response response = httpClient.newCall(request).execute();
+        return QiscusDownloadManager.getInstance().download(url, fileName, progressListener);
+    }
 
-                File output = new File(QiscusFileUtil.generateFilePath(fileName));
-                fos = new FileOutputStream(output.getPath());
-                if (!response.isSuccessful()) {
-                    throw new IOException();
-                } else {
-                    ResponseBody responseBody = response.body();
-                    long fileLength = responseBody.contentLength();
-
-                    inputStream = responseBody.byteStream();
-                    byte[] buffer = new byte[4096];
-                    long total = 0;
-                    int count;
-                    while ((count = inputStream.read(buffer)) != -1) {
-                        total += count;
-                        long totalCurrent = total;
-                        if (fileLength > 0) {
-                            progressListener.onProgress((totalCurrent * 100 / fileLength));
-                        }
-                        fos.write(buffer, 0, count);
-                    }
-                    fos.flush();
-
-                    subscriber.onNext(output);
-                    subscriber.onCompleted();
-                }
-            } catch (Exception e) {
-                throw OnErrorThrowable.from(OnErrorThrowable.addValueAsLastCause(e, url));
-            } finally {
-                try {
-                    if (fos != null) {
-                        fos.close();
-                    }
-                    if (inputStream != null) {
-                        inputStream.close();
-                    }
-                } catch (IOException ignored) {
-                    //Do nothing
-                }
-            }
-        }, Emitter.BackpressureMode.BUFFER);
+    /**
+     * @param offset bytes of the file we already have, the server is asked to send only the rest of it
+     */
+    Call newDownloadCall(String url, long offset) {
+        Request.Builder builder = new Request.Builder().url(url);
+        if (offset > 0) {
+            builder.header("Range", "bytes=" + offset + "-");
+        }
+        return httpClient.newCall(builder.build());
     }
 
     public Observable<QiscusChatRoom> updateChatRoom(long roomId, String name, String avatarUrl, JSONObject options) {
@@ -653,7 +587,7 @@ public enum QiscusApi {
         );
 
         @GET("api/v2/mobile/load_comments")
-        Observable<JsonElement> getComments(
+        Observable<ResponseBody> getComments(
                 @Query("token") String token,
                 @Query("topic_id") long roomId,
                 @Query("last_comment_id") long lastCommentId,
@@ -673,7 +607,7 @@ public enum QiscusApi {
         );
 
         @GET("api/v2/mobile/sync")
-        Observable<JsonElement> sync(
+        Observable<ResponseBody> sync(
                 @Query("token") String token,
                 @Query("last_received_comment_id") long lastCommentId
         );
@@ -827,57 +761,4 @@ public enum QiscusApi {
     public interface ProgressListener {
         void onProgress(long total);
     }
-
-    private static class CountingFileRequestBody extends RequestBody {
-        private static final int SEGMENT_SIZE = 2048;
-        private static final int IGNORE_FIRST_NUMBER_OF_WRITE_TO_CALL = 0;
-        private final File file;
-        private final ProgressListener progressListener;
-        private int numWriteToCall = -1;
-
-        private CountingFileRequestBody(File file, ProgressListener progressListener) {
-            this.file = file;
-            this.progressListener = progressListener;
-        }
-
-        @Override
-        public MediaType contentType() {
-            return MediaType.parse("application/octet-stream");
-        }
-
-        @Override
-        public long contentLength() throws IOException {
-            return file.length();
-        }
-
-        @Override
-        public void writeTo(@NonNull BufferedSink sink) throws IOException {
-            numWriteToCall++;
-
-            Source source = null;
-            try {
-                source = Okio.source(file);
-                long total = 0;
-                long read;
-
-                while ((read = source.read(sink.buffer(), SEGMENT_SIZE)) != -1) {
-                    total += read;
-                    sink.flush();
-
-                    /**
-                     * When we use HttpLoggingInterceptor,
-                     * we have issue with progress update not valid.
-                     * So we must check, first call is to HttpLoggingInterceptor
-                     * second call is to request
-                     */
-                    if (numWriteToCall > IGNORE_FIRST_NUMBER_OF_WRITE_TO_CALL) {
-                        progressListener.onProgress(total);
-                    }
-
-                }
-            } finally {
-                Util.closeQuietly(source);
-            }
-        }
-    }
 }
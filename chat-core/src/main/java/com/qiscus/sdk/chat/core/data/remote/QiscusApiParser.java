@@ -271,9 +271,7 @@ final class QiscusApiParser {
         if (jsonComment.has("type")) {
             qiscusComment.setRawType(jsonComment.get("type").getAsString());
             qiscusComment.setExtraPayload(jsonComment.get("payload").toString());
-            if (qiscusComment.getType() == QiscusComment.Type.BUTTONS
-                    || qiscusComment.getType() == QiscusComment.Type.REPLY
-                    || qiscusComment.getType() == QiscusComment.Type.CARD) {
+            if (hasPayloadText(qiscusComment.getRawType())) {
                 JsonObject payload = jsonComment.get("payload").getAsJsonObject();
                 if (payload.has("text")) {
                     String text = payload.get("text").getAsString();
@@ -285,16 +283,74 @@ final class QiscusApiParser {
         }
 
         if (jsonComment.has("extras") && !jsonComment.get("extras").isJsonNull()) {
-            try {
-                qiscusComment.setExtras(new JSONObject(jsonComment.get("extras").getAsJsonObject().toString()));
-            } catch (JSONException e) {
-                e.printStackTrace();
+            qiscusComment.setRawExtras(jsonComment.get("extras").toString());
+        }
+
+        return qiscusComment;
+    }
+
+    /**
+     * Parse a comment published through MQTT or FCM, it throws when a required field is missing.
+     */
+    static QiscusComment parseRealtimeComment(JsonObject jsonObject) {
+        QiscusComment qiscusComment = new QiscusComment();
+        qiscusComment.setId(jsonObject.get("id").getAsLong());
+        qiscusComment.setRoomId(jsonObject.get("room_id").getAsLong());
+        qiscusComment.setUniqueId(jsonObject.get("unique_temp_id").getAsString());
+        qiscusComment.setCommentBeforeId(jsonObject.get("comment_before_id").getAsLong());
+        qiscusComment.setMessage(jsonObject.get("message").getAsString());
+        qiscusComment.setSender(jsonObject.get("username").isJsonNull() ? null : jsonObject.get("username").getAsString());
+        qiscusComment.setSenderEmail(jsonObject.get("email").getAsString());
+        qiscusComment.setSenderAvatar(jsonObject.get("user_avatar").getAsString());
+
+        //timestamp is in nano seconds format, convert it to milliseconds by divide it
+        long timestamp = jsonObject.get("unix_nano_timestamp").getAsLong() / 1000000L;
+        qiscusComment.setTime(new Date(timestamp));
+        qiscusComment.setState(QiscusComment.STATE_ON_QISCUS);
+
+        if (jsonObject.has("is_deleted")) {
+            qiscusComment.setDeleted(jsonObject.get("is_deleted").getAsBoolean());
+        }
+
+        qiscusComment.setRoomName(jsonObject.get("room_name").isJsonNull() ?
+                qiscusComment.getSender() : jsonObject.get("room_name").getAsString());
+        if (jsonObject.has("room_avatar")) {
+            qiscusComment.setRoomAvatar(jsonObject.get("room_avatar").getAsString());
+        }
+
+        qiscusComment.setGroupMessage(!"single".equals(jsonObject.get("chat_type").getAsString()));
+        if (!qiscusComment.isGroupMessage()) {
+            qiscusComment.setRoomName(qiscusComment.getSender());
+        }
+        if (jsonObject.has("type")) {
+            qiscusComment.setRawType(jsonObject.get("type").getAsString());
+            qiscusComment.setExtraPayload(jsonObject.get("payload").toString());
+            if (hasPayloadText(qiscusComment.getRawType())) {
+                JsonObject payload = jsonObject.get("payload").getAsJsonObject();
+                if (payload.has("text")) {
+                    String text = payload.get("text").getAsString();
+                    if (QiscusTextUtil.isNotBlank(text)) {
+                        qiscusComment.setMessage(text.trim());
+                    }
+                }
             }
         }
 
+        if (jsonObject.has("extras") && !jsonObject.get("extras").isJsonNull()) {
+            qiscusComment.setRawExtras(jsonObject.get("extras").toString());
+        }
+
         return qiscusComment;
     }
 
+    /**
+     * Buttons, reply and card comments carry their display text in the payload. It is checked on the raw type so
+     * parsing does not resolve the full comment type, which looks at attachment mime types.
+     */
+    static boolean hasPayloadText(String rawType) {
+        return "buttons".equals(rawType) || "reply".equals(rawType) || "card".equals(rawType);
+    }
+
     private static void determineCommentState(QiscusComment qiscusComment, String status) {
         qiscusComment.setState(QiscusComment.STATE_ON_QISCUS);
         if (status != null && !status.isEmpty()) {
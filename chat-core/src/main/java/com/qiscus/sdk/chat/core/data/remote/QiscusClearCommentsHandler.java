@@ -22,6 +22,7 @@ import com.qiscus.sdk.chat.core.QiscusCore;
 import com.qiscus.sdk.chat.core.data.model.QiscusRoomMember;
 import com.qiscus.sdk.chat.core.event.QiscusClearCommentsEvent;
 import com.qiscus.sdk.chat.core.util.QiscusErrorLogger;
+import com.qiscus.sdk.chat.core.util.QiscusExecutors;
 import com.qiscus.sdk.chat.core.util.QiscusPushNotificationUtil;
 
 import org.greenrobot.eventbus.EventBus;
@@ -30,7 +31,6 @@ import java.util.List;
 
 import rx.Observable;
 import rx.android.schedulers.AndroidSchedulers;
-import rx.schedulers.Schedulers;
 
 /**
  * Created on : February 14, 2018
@@ -53,7 +53,7 @@ public final class QiscusClearCommentsHandler {
                             QiscusPushNotificationUtil.clearPushNotification(QiscusCore.getApps(), roomId);
                         }
                     })
-                    .subscribeOn(Schedulers.io())
+                    .subscribeOn(QiscusExecutors.getInstance().getDiskScheduler())
                     .observeOn(AndroidSchedulers.mainThread())
                     .subscribe(roomId -> {
                     }, QiscusErrorLogger::print);
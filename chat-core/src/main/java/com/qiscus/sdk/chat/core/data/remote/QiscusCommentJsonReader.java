@@ -0,0 +1,426 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.remote;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+import com.qiscus.sdk.chat.core.data.model.QiscusComment;
+import com.qiscus.sdk.chat.core.util.QiscusTextUtil;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Build {@link QiscusComment} straight from a json stream without creating a Gson tree first.
+ * Payload and extras are copied as raw json strings, extras is only parsed when it is read.
+ * A comment without the fields {@link QiscusApiParser} requires is rejected with {@link MalformedJsonException}.
+ */
+final class QiscusCommentJsonReader {
+
+    //Bit i of a field set is the field FIELD_NAMES[i]
+    private static final String[] FIELD_NAMES = {"id", "room_id", "unique_temp_id", "comment_before_id", "message",
+            "username", "email", "user_avatar", "user_avatar_url", "status", "unix_nano_timestamp", "room_name",
+            "chat_type", "payload"};
+
+    private static final int ID = 1;
+    private static final int ROOM_ID = 1 << 1;
+    private static final int UNIQUE_TEMP_ID = 1 << 2;
+    private static final int COMMENT_BEFORE_ID = 1 << 3;
+    private static final int MESSAGE = 1 << 4;
+    private static final int USERNAME = 1 << 5;
+    private static final int EMAIL = 1 << 6;
+    private static final int USER_AVATAR = 1 << 7;
+    private static final int USER_AVATAR_URL = 1 << 8;
+    private static final int STATUS = 1 << 9;
+    private static final int UNIX_NANO_TIMESTAMP = 1 << 10;
+    private static final int ROOM_NAME = 1 << 11;
+    private static final int CHAT_TYPE = 1 << 12;
+    private static final int PAYLOAD = 1 << 13;
+
+    private static final int REQUIRED = ID | COMMENT_BEFORE_ID | MESSAGE | USERNAME | EMAIL | USER_AVATAR_URL
+            | STATUS | UNIX_NANO_TIMESTAMP;
+    private static final int REALTIME_REQUIRED = ID | ROOM_ID | UNIQUE_TEMP_ID | COMMENT_BEFORE_ID | MESSAGE | EMAIL
+            | USER_AVATAR | UNIX_NANO_TIMESTAMP | CHAT_TYPE;
+    //These must be sent, but may be null
+    private static final int REALTIME_REQUIRED_NULLABLE = USERNAME | ROOM_NAME;
+
+    private QiscusCommentJsonReader() {
+
+    }
+
+    /**
+     * Read every comment of a {"results": {"comments": [...]}} response.
+     *
+     * @param roomId room id of the comments, or 0 to take the room_id field of each comment
+     */
+    static List<QiscusComment> readComments(Reader in, long roomId) throws IOException {
+        List<QiscusComment> comments = new ArrayList<>();
+        JsonReader reader = new JsonReader(in);
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!"results".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (!"comments".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                        reader.skipValue();
+                        continue;
+                    }
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        comments.add(readComment(reader, roomId));
+                    }
+                    reader.endArray();
+                }
+                reader.endObject();
+            }
+            reader.endObject();
+        } finally {
+            reader.close();
+        }
+        return comments;
+    }
+
+    static QiscusComment readComment(JsonReader reader, long roomId) throws IOException {
+        Fields fields = Fields.read(reader);
+        fields.require(roomId > 0 ? REQUIRED : REQUIRED | ROOM_ID, 0);
+        QiscusComment qiscusComment = new QiscusComment();
+        qiscusComment.setRoomId(roomId > 0 ? roomId : fields.roomId);
+        qiscusComment.setId(fields.id);
+        qiscusComment.setCommentBeforeId(fields.commentBeforeId);
+        qiscusComment.setMessage(fields.message);
+        qiscusComment.setSender(fields.username);
+        qiscusComment.setSenderEmail(fields.email);
+        qiscusComment.setSenderAvatar(fields.userAvatarUrl);
+        qiscusComment.setState(parseState(fields.status));
+        qiscusComment.setTime(new Date(fields.unixNanoTimestamp / 1000000L));
+        qiscusComment.setDeleted(fields.deleted);
+
+        if (fields.roomName != null) {
+            qiscusComment.setRoomName(fields.roomName);
+        }
+
+        if (fields.chatType != null) {
+            qiscusComment.setGroupMessage(!"single".equals(fields.chatType));
+        }
+
+        if (fields.uniqueId != null) {
+            qiscusComment.setUniqueId(fields.uniqueId);
+        } else if (fields.uniqueTempId != null) {
+            qiscusComment.setUniqueId(fields.uniqueTempId);
+        } else {
+            qiscusComment.setUniqueId(String.valueOf(fields.id));
+        }
+
+        applyTypeAndExtras(qiscusComment, fields);
+        return qiscusComment;
+    }
+
+    /**
+     * Read a comment published through MQTT or FCM, it has slightly different fields from the REST one.
+     */
+    static QiscusComment readRealtimeComment(String json) throws IOException {
+        JsonReader reader = new JsonReader(new StringReader(json));
+        Fields fields;
+        try {
+            fields = Fields.read(reader);
+        } finally {
+            reader.close();
+        }
+        fields.require(REALTIME_REQUIRED, REALTIME_REQUIRED_NULLABLE);
+
+        QiscusComment qiscusComment = new QiscusComment();
+        qiscusComment.setId(fields.id);
+        qiscusComment.setRoomId(fields.roomId);
+        qiscusComment.setUniqueId(fields.uniqueTempId);
+        qiscusComment.setCommentBeforeId(fields.commentBeforeId);
+        qiscusComment.setMessage(fields.message);
+        qiscusComment.setSender(fields.username);
+        qiscusComment.setSenderEmail(fields.email);
+        qiscusComment.setSenderAvatar(fields.userAvatar);
+        qiscusComment.setTime(new Date(fields.unixNanoTimestamp / 1000000L));
+        qiscusComment.setState(QiscusComment.STATE_ON_QISCUS);
+        qiscusComment.setDeleted(fields.deleted);
+        qiscusComment.setRoomName(fields.roomName == null ? qiscusComment.getSender() : fields.roomName);
+        if (fields.roomAvatar != null) {
+            qiscusComment.setRoomAvatar(fields.roomAvatar);
+        }
+        qiscusComment.setGroupMessage(!"single".equals(fields.chatType));
+        if (!qiscusComment.isGroupMessage()) {
+            qiscusComment.setRoomName(qiscusComment.getSender());
+        }
+
+        applyTypeAndExtras(qiscusComment, fields);
+        return qiscusComment;
+    }
+
+    private static void applyTypeAndExtras(QiscusComment qiscusComment, Fields fields) {
+        if (fields.type != null) {
+            qiscusComment.setRawType(fields.type);
+            qiscusComment.setExtraPayload(fields.payload);
+            if (QiscusApiParser.hasPayloadText(fields.type)) {
+                try {
+                    String text = new JSONObject(fields.payload).optString("text", null);
+                    if (QiscusTextUtil.isNotBlank(text)) {
+                        qiscusComment.setMessage(text.trim());
+                    }
+                } catch (JSONException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        if (fields.extras != null) {
+            qiscusComment.setRawExtras(fields.extras);
+        }
+    }
+
+    private static int parseState(String status) {
+        if ("delivered".equals(status)) {
+            return QiscusComment.STATE_DELIVERED;
+        } else if ("read".equals(status)) {
+            return QiscusComment.STATE_READ;
+        }
+        return QiscusComment.STATE_ON_QISCUS;
+    }
+
+    private static String nextStringOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    private static long nextLongOrZero(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return 0;
+        }
+        return reader.nextLong();
+    }
+
+    private static String nextRawValue(JsonReader reader) throws IOException {
+        StringWriter out = new StringWriter();
+        JsonWriter writer = new JsonWriter(out);
+        writer.setLenient(true);
+        copyValue(reader, writer);
+        writer.flush();
+        return out.toString();
+    }
+
+    private static void copyValue(JsonReader reader, JsonWriter writer) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                reader.beginObject();
+                writer.beginObject();
+                while (reader.hasNext()) {
+                    writer.name(reader.nextName());
+                    copyValue(reader, writer);
+                }
+                reader.endObject();
+                writer.endObject();
+                break;
+            case BEGIN_ARRAY:
+                reader.beginArray();
+                writer.beginArray();
+                while (reader.hasNext()) {
+                    copyValue(reader, writer);
+                }
+                reader.endArray();
+                writer.endArray();
+                break;
+            case STRING:
+                writer.value(reader.nextString());
+                break;
+            case NUMBER:
+                writer.jsonValue(reader.nextString());
+                break;
+            case BOOLEAN:
+                writer.value(reader.nextBoolean());
+                break;
+            case NULL:
+                reader.nextNull();
+                writer.nullValue();
+                break;
+            default:
+                throw new IllegalStateException("Unexpected json token " + reader.peek());
+        }
+    }
+
+    private static class Fields {
+        private long id;
+        private long roomId;
+        private String uniqueId;
+        private String uniqueTempId;
+        private long commentBeforeId;
+        private String message;
+        private String username;
+        private String email;
+        private String userAvatar;
+        private String userAvatarUrl;
+        private String status;
+        private long unixNanoTimestamp;
+        private boolean deleted;
+        private String roomName;
+        private String roomAvatar;
+        private String chatType;
+        private String type;
+        private String payload;
+        private String extras;
+        private int present;
+        private int nonNull;
+
+        private static Fields read(JsonReader reader) throws IOException {
+            Fields fields = new Fields();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id":
+                        fields.mark(ID, reader);
+                        fields.id = nextLongOrZero(reader);
+                        break;
+                    case "room_id":
+                        fields.mark(ROOM_ID, reader);
+                        fields.roomId = nextLongOrZero(reader);
+                        break;
+                    case "unique_id":
+                        fields.uniqueId = nextStringOrNull(reader);
+                        break;
+                    case "unique_temp_id":
+                        fields.mark(UNIQUE_TEMP_ID, reader);
+                        fields.uniqueTempId = nextStringOrNull(reader);
+                        break;
+                    case "comment_before_id":
+                        fields.mark(COMMENT_BEFORE_ID, reader);
+                        fields.commentBeforeId = nextLongOrZero(reader);
+                        break;
+                    case "message":
+                        fields.mark(MESSAGE, reader);
+                        fields.message = nextStringOrNull(reader);
+                        break;
+                    case "username":
+                        fields.mark(USERNAME, reader);
+                        fields.username = nextStringOrNull(reader);
+                        break;
+                    case "email":
+                        fields.mark(EMAIL, reader);
+                        fields.email = nextStringOrNull(reader);
+                        break;
+                    case "user_avatar":
+                        if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                            //REST comments send an avatar object here, their url is in user_avatar_url
+                            reader.skipValue();
+                            break;
+                        }
+                        fields.mark(USER_AVATAR, reader);
+                        fields.userAvatar = nextStringOrNull(reader);
+                        break;
+                    case "user_avatar_url":
+                        fields.mark(USER_AVATAR_URL, reader);
+                        fields.userAvatarUrl = nextStringOrNull(reader);
+                        break;
+                    case "status":
+                        fields.mark(STATUS, reader);
+                        fields.status = nextStringOrNull(reader);
+                        break;
+                    case "unix_nano_timestamp":
+                        fields.mark(UNIX_NANO_TIMESTAMP, reader);
+                        fields.unixNanoTimestamp = nextLongOrZero(reader);
+                        break;
+                    case "is_deleted":
+                        if (reader.peek() == JsonToken.BOOLEAN) {
+                            fields.deleted = reader.nextBoolean();
+                        } else {
+                            reader.skipValue();
+                        }
+                        break;
+                    case "room_name":
+                        fields.mark(ROOM_NAME, reader);
+                        fields.roomName = nextStringOrNull(reader);
+                        break;
+                    case "room_avatar":
+                        fields.roomAvatar = nextStringOrNull(reader);
+                        break;
+                    case "chat_type":
+                        fields.mark(CHAT_TYPE, reader);
+                        fields.chatType = nextStringOrNull(reader);
+                        break;
+                    case "type":
+                        fields.type = nextStringOrNull(reader);
+                        break;
+                    case "payload":
+                        fields.mark(PAYLOAD, reader);
+                        fields.payload = nextRawValue(reader);
+                        break;
+                    case "extras":
+                        if (reader.peek() == JsonToken.NULL) {
+                            reader.nextNull();
+                        } else {
+                            fields.extras = nextRawValue(reader);
+                        }
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+            return fields;
+        }
+
+        private void mark(int field, JsonReader reader) throws IOException {
+            present |= field;
+            if (reader.peek() != JsonToken.NULL) {
+                nonNull |= field;
+            }
+        }
+
+        /**
+         * @param requiredNonNull fields which must be sent with a value
+         * @param required        fields which must be sent, null is fine
+         */
+        private void require(int requiredNonNull, int required) throws MalformedJsonException {
+            if (type != null) {
+                required |= PAYLOAD;
+            }
+            int missing = (requiredNonNull & ~nonNull) | (required & ~present);
+            if (missing == 0) {
+                return;
+            }
+            StringBuilder names = new StringBuilder();
+            for (int i = 0; i < FIELD_NAMES.length; i++) {
+                if ((missing & 1 << i) != 0) {
+                    names.append(names.length() == 0 ? "" : ", ").append(FIELD_NAMES[i]);
+                }
+            }
+            throw new MalformedJsonException("Comment " + id + " is missing required fields: " + names);
+        }
+    }
+}
@@ -24,6 +24,7 @@ import com.qiscus.sdk.chat.core.data.model.QiscusComment;
 import com.qiscus.sdk.chat.core.data.model.QiscusRoomMember;
 import com.qiscus.sdk.chat.core.event.QiscusCommentDeletedEvent;
 import com.qiscus.sdk.chat.core.util.QiscusErrorLogger;
+import com.qiscus.sdk.chat.core.util.QiscusExecutors;
 
 import org.greenrobot.eventbus.EventBus;
 
@@ -31,7 +32,6 @@ import java.util.List;
 
 import rx.Observable;
 import rx.android.schedulers.AndroidSchedulers;
-import rx.schedulers.Schedulers;
 
 /**
  * Created on : February 08, 2018
@@ -81,7 +81,7 @@ public final class QiscusDeleteCommentHandler {
                                         qiscusComments, false);
                     }
                 })
-                .subscribeOn(Schedulers.io())
+                .subscribeOn(QiscusExecutors.getInstance().getDiskScheduler())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(comments -> {
                 }, QiscusErrorLogger::print);
@@ -122,7 +122,7 @@ public final class QiscusDeleteCommentHandler {
                                         qiscusComments, true);
                     }
                 })
-                .subscribeOn(Schedulers.io())
+                .subscribeOn(QiscusExecutors.getInstance().getDiskScheduler())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(comments -> {
                 }, QiscusErrorLogger::print);
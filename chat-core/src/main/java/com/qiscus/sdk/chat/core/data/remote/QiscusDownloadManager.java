@@ -0,0 +1,370 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.remote;
+
+import android.net.Uri;
+
+import com.qiscus.sdk.chat.core.QiscusCore;
+import com.qiscus.sdk.chat.core.data.local.QiscusAttachmentCache;
+import com.qiscus.sdk.chat.core.data.model.QiscusComment;
+import com.qiscus.sdk.chat.core.util.QiscusErrorLogger;
+import com.qiscus.sdk.chat.core.util.QiscusExecutorLane;
+import com.qiscus.sdk.chat.core.util.QiscusFileUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.Call;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okhttp3.internal.Util;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+import rx.Emitter;
+import rx.Observable;
+import rx.exceptions.OnErrorThrowable;
+
+/**
+ * Downloads attachments with at most {@link com.qiscus.sdk.chat.core.data.model.QiscusCoreChatConfig#getMaxConcurrentDownloads()}
+ * of them at a time and {@link com.qiscus.sdk.chat.core.data.model.QiscusCoreChatConfig#getMaxDownloadsPerHost()} per host.
+ * Requests of an url which is already downloading join the running download instead of starting another one.
+ * Data goes to a .part file next to the target, so a cancelled or failed download continues from where it stopped
+ * the next time, and the file is moved to its final name once complete.
+ */
+public enum QiscusDownloadManager {
+    INSTANCE;
+
+    private static final long SEGMENT_SIZE = 64 * 1024;
+    private static final long PROGRESS_INTERVAL = 200;
+    private static final String PART_EXTENSION = ".part";
+
+    private static class DownloadTask {
+        private final String url;
+        private final String host;
+        private final String fileName;
+        private final List<Receiver> receivers = new ArrayList<>();
+        private final List<long[]> comments = new ArrayList<>();
+        private volatile boolean cancelled;
+        private volatile Call call;
+        private long lastProgress = -1;
+        private long lastProgressTime;
+
+        private DownloadTask(String url, String fileName) {
+            this.url = url;
+            this.fileName = fileName;
+            String host = Uri.parse(url).getHost();
+            this.host = host == null ? "" : host;
+        }
+    }
+
+    private static class Receiver {
+        private final Emitter<File> emitter;
+        private final QiscusApi.ProgressListener progressListener;
+
+        private Receiver(Emitter<File> emitter, QiscusApi.ProgressListener progressListener) {
+            this.emitter = emitter;
+            this.progressListener = progressListener;
+        }
+    }
+
+    private final Map<String, DownloadTask> tasks = new HashMap<>();
+    private final LinkedList<DownloadTask> queue = new LinkedList<>();
+    private final Map<String, Integer> hostRunningCounts = new HashMap<>();
+    private int runningCount;
+    private QiscusExecutorLane lane;
+
+    public static QiscusDownloadManager getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * The download is queued once subscribed, it is cancelled when every subscriber of the same url unsubscribed.
+     *
+     * @param progressListener gets the percentage of the file downloaded, at most once every
+     *                         {@link #PROGRESS_INTERVAL} ms
+     */
+    public Observable<File> download(String url, String fileName, QiscusApi.ProgressListener progressListener) {
+        return download(url, fileName, null, progressListener);
+    }
+
+    /**
+     * Same as {@link #download(String, String, QiscusApi.ProgressListener)}, and the downloaded file is saved as
+     * local path of the comment before it is emitted.
+     */
+    public Observable<File> download(QiscusComment qiscusComment, QiscusApi.ProgressListener progressListener) {
+        return download(qiscusComment.getAttachmentUri().toString(), qiscusComment.getAttachmentName(),
+                new long[]{qiscusComment.getRoomId(), qiscusComment.getId()}, progressListener);
+    }
+
+    private Observable<File> download(String url, String fileName, long[] comment,
+                                      QiscusApi.ProgressListener progressListener) {
+        return Observable.create(emitter -> {
+            Receiver receiver = new Receiver(emitter, progressListener);
+            DownloadTask task;
+            boolean newTask = false;
+            long lastProgress;
+            synchronized (this) {
+                task = tasks.get(url);
+                if (task == null) {
+                    task = new DownloadTask(url, fileName);
+                    tasks.put(url, task);
+                    queue.add(task);
+                    newTask = true;
+                }
+                task.receivers.add(receiver);
+                if (comment != null) {
+                    task.comments.add(comment);
+                }
+                lastProgress = task.lastProgress;
+            }
+            DownloadTask finalTask = task;
+            emitter.setCancellation(() -> removeReceiver(finalTask, receiver));
+            if (lastProgress >= 0 && progressListener != null) {
+                progressListener.onProgress(lastProgress);
+            }
+            if (newTask) {
+                dispatch();
+            }
+        }, Emitter.BackpressureMode.BUFFER);
+    }
+
+    public synchronized boolean isDownloading(String url) {
+        return tasks.containsKey(url);
+    }
+
+    public synchronized int getQueuedCount() {
+        return queue.size();
+    }
+
+    public synchronized int getRunningCount() {
+        return runningCount;
+    }
+
+    private void dispatch() {
+        int maxConcurrentDownloads = Math.max(1, QiscusCore.getChatConfig().getMaxConcurrentDownloads());
+        int maxDownloadsPerHost = Math.max(1, QiscusCore.getChatConfig().getMaxDownloadsPerHost());
+        while (true) {
+            DownloadTask task = null;
+            synchronized (this) {
+                if (runningCount >= maxConcurrentDownloads) {
+                    return;
+                }
+                Iterator<DownloadTask> iterator = queue.iterator();
+                while (iterator.hasNext()) {
+                    DownloadTask candidate = iterator.next();
+                    if (getHostRunningCount(candidate.host) < maxDownloadsPerHost) {
+                        iterator.remove();
+                        task = candidate;
+                        break;
+                    }
+                }
+                if (task == null) {
+                    return;
+                }
+                runningCount++;
+                hostRunningCounts.put(task.host, getHostRunningCount(task.host) + 1);
+            }
+            DownloadTask finalTask = task;
+            getLane().execute(() -> run(finalTask));
+        }
+    }
+
+    private int getHostRunningCount(String host) {
+        Integer count = hostRunningCounts.get(host);
+        return count == null ? 0 : count;
+    }
+
+    private void removeReceiver(DownloadTask task, Receiver receiver) {
+        synchronized (this) {
+            task.receivers.remove(receiver);
+            if (!task.receivers.isEmpty()) {
+                return;
+            }
+            task.cancelled = true;
+            if (tasks.get(task.url) == task) {
+                tasks.remove(task.url);
+            }
+            queue.remove(task);
+        }
+        Call call = task.call;
+        if (call != null) {
+            call.cancel();
+        }
+    }
+
+    private void run(DownloadTask task) {
+        try {
+            if (!task.cancelled) {
+                File file = download(task, true);
+                complete(task, file);
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(task, e);
+        } finally {
+            synchronized (this) {
+                runningCount--;
+                int hostRunningCount = getHostRunningCount(task.host) - 1;
+                if (hostRunningCount > 0) {
+                    hostRunningCounts.put(task.host, hostRunningCount);
+                } else {
+                    hostRunningCounts.remove(task.host);
+                }
+            }
+            dispatch();
+        }
+    }
+
+    private File download(DownloadTask task, boolean canRestart) throws IOException {
+        File partFile = getPartFile(task.url, task.fileName);
+        long offset = partFile.length();
+
+        Call call = QiscusApi.getInstance().newDownloadCall(task.url, offset);
+        task.call = call;
+        if (task.cancelled) {
+            call.cancel();
+        }
+
+        Response response = call.execute();
+        try {
+            if (response.code() == 416 && offset > 0 && canRestart) {
+                //The part we have is no longer valid for the file on server
+                partFile.delete();
+                response.close();
+                return download(task, false);
+            }
+            if (!response.isSuccessful()) {
+                throw new IOException("Download failed, server returned " + response.code());
+            }
+
+            boolean resumed = offset > 0 && response.code() == 206;
+            if (!resumed) {
+                offset = 0;
+            }
+            ResponseBody responseBody = response.body();
+            long contentLength = responseBody.contentLength();
+            long fileLength = contentLength < 0 ? -1 : offset + contentLength;
+
+            BufferedSource source = responseBody.source();
+            BufferedSink sink = Okio.buffer(resumed ? Okio.appendingSink(partFile) : Okio.sink(partFile));
+            try {
+                long total = offset;
+                long read;
+                while ((read = source.read(sink.buffer(), SEGMENT_SIZE)) != -1) {
+                    sink.emitCompleteSegments();
+                    total += read;
+                    publishProgress(task, total, fileLength);
+                }
+                sink.flush();
+            } finally {
+                Util.closeQuietly(sink);
+            }
+        } finally {
+            response.close();
+        }
+
+        File output = new File(QiscusFileUtil.generateFilePath(task.fileName));
+        if (!partFile.renameTo(output)) {
+            throw new IOException("Can not move " + partFile.getName() + " to " + output.getPath());
+        }
+        return output;
+    }
+
+    private void publishProgress(DownloadTask task, long total, long fileLength) {
+        if (fileLength <= 0) {
+            return;
+        }
+        long percentage = total * 100 / fileLength;
+        long now = System.currentTimeMillis();
+        List<Receiver> receivers;
+        synchronized (this) {
+            if (percentage == task.lastProgress
+                    || (percentage < 100 && now - task.lastProgressTime < PROGRESS_INTERVAL)) {
+                return;
+            }
+            task.lastProgress = percentage;
+            task.lastProgressTime = now;
+            receivers = new ArrayList<>(task.receivers);
+        }
+        for (Receiver receiver : receivers) {
+            if (receiver.progressListener != null) {
+                receiver.progressListener.onProgress(percentage);
+            }
+        }
+    }
+
+    private void complete(DownloadTask task, File downloadedFile) {
+        File file = QiscusAttachmentCache.getInstance().put(downloadedFile);
+        List<Receiver> receivers;
+        List<long[]> comments;
+        synchronized (this) {
+            if (tasks.get(task.url) == task) {
+                tasks.remove(task.url);
+            }
+            receivers = new ArrayList<>(task.receivers);
+            comments = new ArrayList<>(task.comments);
+        }
+        for (long[] comment : comments) {
+            QiscusCore.getDataStore().addOrUpdateLocalPath(comment[0], comment[1], file.getAbsolutePath());
+        }
+        for (Receiver receiver : receivers) {
+            receiver.emitter.onNext(file);
+            receiver.emitter.onCompleted();
+        }
+    }
+
+    private void fail(DownloadTask task, Exception e) {
+        List<Receiver> receivers;
+        synchronized (this) {
+            if (tasks.get(task.url) == task) {
+                tasks.remove(task.url);
+            }
+            if (task.cancelled) {
+                return;
+            }
+            receivers = new ArrayList<>(task.receivers);
+        }
+        QiscusErrorLogger.print("DownloadFile", e);
+        Throwable throwable = OnErrorThrowable.addValueAsLastCause(e, task.url);
+        for (Receiver receiver : receivers) {
+            receiver.emitter.onError(throwable);
+        }
+    }
+
+    /**
+     * The part file name only depends on the url, so a download continues in the same file after the app restarted.
+     */
+    private File getPartFile(String url, String fileName) {
+        File directory = new File(QiscusFileUtil.generateFilePath(fileName)).getParentFile();
+        String[] fileNameSplit = QiscusFileUtil.splitFileName(fileName);
+        return new File(directory, fileNameSplit[0] + "-" + Integer.toHexString(url.hashCode())
+                + fileNameSplit[1] + PART_EXTENSION);
+    }
+
+    private synchronized QiscusExecutorLane getLane() {
+        if (lane == null) {
+            lane = QiscusExecutorLane.create("qiscus-download",
+                    Math.max(1, QiscusCore.getChatConfig().getMaxConcurrentDownloads()), 64);
+        }
+        return lane;
+    }
+}
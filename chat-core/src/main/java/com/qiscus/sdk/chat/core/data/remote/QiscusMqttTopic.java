@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.remote;
+
+/**
+ * MQTT topic split by '/' in a single pass, segments are only materialized when asked.
+ * The kind is the last segment, e.g. "c", "n", "t", "d", "r", "s" or "e".
+ */
+public final class QiscusMqttTopic {
+
+    private static final int INITIAL_CAPACITY = 6;
+
+    private final String topic;
+    private int[] separators;
+    private int separatorCount;
+
+    public QiscusMqttTopic(String topic) {
+        this.topic = topic;
+        separators = new int[INITIAL_CAPACITY];
+        int length = topic.length();
+        for (int i = 0; i < length; i++) {
+            if (topic.charAt(i) == '/') {
+                if (separatorCount == separators.length) {
+                    int[] grown = new int[separators.length * 2];
+                    System.arraycopy(separators, 0, grown, 0, separatorCount);
+                    separators = grown;
+                }
+                separators[separatorCount++] = i;
+            }
+        }
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public int getSegmentCount() {
+        return separatorCount + 1;
+    }
+
+    public String getSegment(int index) {
+        return topic.substring(start(index), end(index));
+    }
+
+    public long getSegmentAsLong(int index) {
+        return Long.parseLong(topic.substring(start(index), end(index)));
+    }
+
+    public boolean segmentEquals(int index, String value) {
+        int start = start(index);
+        int length = end(index) - start;
+        return value != null && value.length() == length && topic.regionMatches(start, value, 0, length);
+    }
+
+    public String getKind() {
+        return getSegment(separatorCount);
+    }
+
+    private int start(int index) {
+        checkIndex(index);
+        return index == 0 ? 0 : separators[index - 1] + 1;
+    }
+
+    private int end(int index) {
+        checkIndex(index);
+        return index == separatorCount ? topic.length() : separators[index];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index > separatorCount) {
+            throw new IndexOutOfBoundsException("Topic " + topic + " has no segment " + index);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return topic;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.remote;
+
+import com.qiscus.sdk.chat.core.util.QiscusErrorLogger;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Dispatch incoming MQTT messages to handlers registered for the kind of their topic.
+ * Built in kinds are registered by {@link QiscusPusherApi}, apps can add their own handlers for
+ * custom topics they listen to with {@link QiscusPusherApi#listenTopic(String)}.
+ */
+public class QiscusMqttTopicRouter {
+
+    public interface Handler {
+        void handle(QiscusMqttTopic topic, String message);
+    }
+
+    private final ConcurrentHashMap<String, List<Handler>> handlers;
+
+    public QiscusMqttTopicRouter() {
+        handlers = new ConcurrentHashMap<>();
+    }
+
+    public QiscusMqttTopicRouter addHandler(String kind, Handler handler) {
+        List<Handler> kindHandlers = handlers.get(kind);
+        if (kindHandlers == null) {
+            kindHandlers = new CopyOnWriteArrayList<>();
+            List<Handler> existing = handlers.putIfAbsent(kind, kindHandlers);
+            if (existing != null) {
+                kindHandlers = existing;
+            }
+        }
+        kindHandlers.add(handler);
+        return this;
+    }
+
+    public QiscusMqttTopicRouter removeHandler(String kind, Handler handler) {
+        List<Handler> kindHandlers = handlers.get(kind);
+        if (kindHandlers != null) {
+            kindHandlers.remove(handler);
+        }
+        return this;
+    }
+
+    /**
+     * @return true if at least one handler was registered for the topic kind
+     */
+    public boolean dispatch(String topic, String message) {
+        QiscusMqttTopic mqttTopic = new QiscusMqttTopic(topic);
+        List<Handler> kindHandlers = handlers.get(mqttTopic.getKind());
+        if (kindHandlers == null || kindHandlers.isEmpty()) {
+            return false;
+        }
+
+        for (Handler handler : kindHandlers) {
+            try {
+                handler.handle(mqttTopic, message);
+            } catch (Exception e) {
+                QiscusErrorLogger.print(e);
+            }
+        }
+        return true;
+    }
+}
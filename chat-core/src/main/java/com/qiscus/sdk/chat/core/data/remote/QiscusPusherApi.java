@@ -18,14 +18,13 @@ package com.qiscus.sdk.chat.core.data.remote;
 
 import android.provider.Settings;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
 import com.qiscus.sdk.chat.core.QiscusCore;
 import com.qiscus.sdk.chat.core.data.local.QiscusEventCache;
 import com.qiscus.sdk.chat.core.data.model.QiscusAccount;
 import com.qiscus.sdk.chat.core.data.model.QiscusChatRoom;
 import com.qiscus.sdk.chat.core.data.model.QiscusComment;
+import com.qiscus.sdk.chat.core.data.model.QiscusMqttQosConfig;
 import com.qiscus.sdk.chat.core.data.model.QiscusRoomMember;
 import com.qiscus.sdk.chat.core.event.QiscusChatRoomEvent;
 import com.qiscus.sdk.chat.core.event.QiscusCommentReceivedEvent;
@@ -34,8 +33,8 @@ import com.qiscus.sdk.chat.core.event.QiscusUserEvent;
 import com.qiscus.sdk.chat.core.event.QiscusUserStatusEvent;
 import com.qiscus.sdk.chat.core.util.QiscusAndroidUtil;
 import com.qiscus.sdk.chat.core.util.QiscusErrorLogger;
+import com.qiscus.sdk.chat.core.util.QiscusExecutors;
 import com.qiscus.sdk.chat.core.util.QiscusLogger;
-import com.qiscus.sdk.chat.core.util.QiscusTextUtil;
 
 import org.eclipse.paho.android.service.MqttAndroidClient;
 import org.eclipse.paho.client.mqttv3.IMqttActionListener;
@@ -54,8 +53,11 @@ import org.json.JSONObject;
 
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Date;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -64,37 +66,23 @@ import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 import rx.Observable;
 import rx.android.schedulers.AndroidSchedulers;
-import rx.schedulers.Schedulers;
 
 public enum QiscusPusherApi implements MqttCallbackExtended, IMqttActionListener {
 
     INSTANCE;
     private static final String TAG = QiscusPusherApi.class.getSimpleName();
-    private static final long RETRY_PERIOD = 4000;
-
-    private static Gson gson;
-    private static long reconnectCounter;
-
-    static {
-        gson = new GsonBuilder().setDateFormat("yyyy-MM-dd'T'HH:mm:ss").create();
-    }
+    private static final int MAX_TOPICS_PER_PACKET = 100;
 
     private String clientId;
     private MqttAndroidClient mqttAndroidClient;
     private QiscusAccount qiscusAccount;
-    private Runnable fallBackListenRoom;
-    private Runnable fallBackListenUserStatus;
-    private Runnable fallbackListenEvent;
-    private ScheduledFuture<?> scheduledConnect;
-    private ScheduledFuture<?> scheduledListenComment;
-    private ScheduledFuture<?> scheduledListenNotification;
-    private ScheduledFuture<?> scheduledListenRoom;
-    private ScheduledFuture<?> scheduledListenUserStatus;
-    private ScheduledFuture<?> scheduledListenEvent;
-    private boolean connecting;
-    private Runnable fallbackConnect = this::connect;
-    private Runnable fallBackListenComment = this::listenComment;
-    private Runnable fallBackListenNotification = this::listenNotification;
+    private ConnectionState connectionState;
+    private QiscusReconnectPolicy reconnectPolicy;
+    private ScheduledFuture<?> scheduledReconnect;
+    private final Map<String, Integer> subscribedTopics = new LinkedHashMap<>();
+    private final QiscusMqttTopicRouter topicRouter = new QiscusMqttTopicRouter();
+    private final QiscusTypingPublisher typingPublisher;
+    private final QiscusTypingCoalescer typingCoalescer;
     private ScheduledFuture<?> scheduledUserStatus;
 
     private int setOfflineCounter;
@@ -109,17 +97,69 @@ public enum QiscusPusherApi implements MqttCallbackExtended, IMqttActionListener
         clientId += Settings.Secure.getString(QiscusCore.getApps().getContentResolver(), Settings.Secure.ANDROID_ID);
 
         buildClient();
-
-        connecting = false;
+        registerTopicHandlers();
+        QiscusExecutors.getInstance().getRealtimeExecutor().setOverflowListener(QiscusPusherApi::loadDroppedComments);
+
+        connectionState = ConnectionState.DISCONNECTED;
+        reconnectPolicy = new QiscusReconnectPolicy(QiscusCore.getChatConfig().getReconnectBaseDelay(),
+                QiscusCore.getChatConfig().getReconnectMaxDelay());
+        typingPublisher = new QiscusTypingPublisher(this::publishTyping,
+                QiscusCore.getChatConfig().getTypingRefreshInterval(), QiscusCore.getChatConfig().getTypingIdleTimeout());
+        typingCoalescer = new QiscusTypingCoalescer(QiscusPusherApi::postTyping,
+                QiscusCore.getChatConfig().getTypingExpiry());
     }
 
     public static QiscusPusherApi getInstance() {
         return INSTANCE;
     }
 
+    public ConnectionState getConnectionState() {
+        return connectionState;
+    }
+
+    public QiscusMqttTopicRouter getTopicRouter() {
+        return topicRouter;
+    }
+
+    @RestrictTo(RestrictTo.Scope.LIBRARY)
+    public void setReconnectPolicy(QiscusReconnectPolicy reconnectPolicy) {
+        this.reconnectPolicy = reconnectPolicy;
+    }
+
     @RestrictTo(RestrictTo.Scope.LIBRARY)
     public static void handleReceivedComment(QiscusComment qiscusComment) {
-        QiscusAndroidUtil.runOnBackgroundThread(() -> handleComment(qiscusComment));
+        QiscusExecutors.getInstance().getRealtimeExecutor()
+                .execute(qiscusComment.getRoomId(), () -> handleComment(qiscusComment));
+    }
+
+    private static void loadDroppedComments(long roomId, int droppedCount) {
+        QiscusErrorLogger.print(TAG, "Dropped " + droppedCount + " incoming comments of room " + roomId
+                + ", loading them from server");
+        QiscusComment latestComment = QiscusCore.getDataStore().getLatestSentComment(roomId);
+        if (latestComment == null) {
+            return;
+        }
+        loadCommentsAfter(roomId, latestComment.getId())
+                .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
+                .subscribe(QiscusPusherApi::handleReceivedComment, QiscusErrorLogger::print);
+    }
+
+    /**
+     * Load every comment after the given one, page by page until server returns an empty page.
+     */
+    private static Observable<QiscusComment> loadCommentsAfter(long roomId, long lastCommentId) {
+        return QiscusApi.getInstance().getCommentsAfter(roomId, lastCommentId)
+                .toList()
+                .concatMap(qiscusComments -> {
+                    long newestId = lastCommentId;
+                    for (QiscusComment qiscusComment : qiscusComments) {
+                        newestId = Math.max(newestId, qiscusComment.getId());
+                    }
+                    if (newestId == lastCommentId) {
+                        return Observable.from(qiscusComments);
+                    }
+                    return Observable.from(qiscusComments).concatWith(loadCommentsAfter(roomId, newestId));
+                });
     }
 
     private static void handleComment(QiscusComment qiscusComment) {
@@ -250,56 +290,7 @@ public enum QiscusPusherApi implements MqttCallbackExtended, IMqttActionListener
     @Nullable
     public static QiscusComment jsonToComment(JsonObject jsonObject) {
         try {
-            QiscusComment qiscusComment = new QiscusComment();
-            qiscusComment.setId(jsonObject.get("id").getAsLong());
-            qiscusComment.setRoomId(jsonObject.get("room_id").getAsLong());
-            qiscusComment.setUniqueId(jsonObject.get("unique_temp_id").getAsString());
-            qiscusComment.setCommentBeforeId(jsonObject.get("comment_before_id").getAsLong());
-            qiscusComment.setMessage(jsonObject.get("message").getAsString());
-            qiscusComment.setSender(jsonObject.get("username").isJsonNull() ? null : jsonObject.get("username").getAsString());
-            qiscusComment.setSenderEmail(jsonObject.get("email").getAsString());
-            qiscusComment.setSenderAvatar(jsonObject.get("user_avatar").getAsString());
-
-            //timestamp is in nano seconds format, convert it to milliseconds by divide it
-            long timestamp = jsonObject.get("unix_nano_timestamp").getAsLong() / 1000000L;
-            qiscusComment.setTime(new Date(timestamp));
-            qiscusComment.setState(QiscusComment.STATE_ON_QISCUS);
-
-            if (jsonObject.has("is_deleted")) {
-                qiscusComment.setDeleted(jsonObject.get("is_deleted").getAsBoolean());
-            }
-
-            qiscusComment.setRoomName(jsonObject.get("room_name").isJsonNull() ?
-                    qiscusComment.getSender() : jsonObject.get("room_name").getAsString());
-            if (jsonObject.has("room_avatar")) {
-                qiscusComment.setRoomAvatar(jsonObject.get("room_avatar").getAsString());
-            }
-
-            qiscusComment.setGroupMessage(!"single".equals(jsonObject.get("chat_type").getAsString()));
-            if (!qiscusComment.isGroupMessage()) {
-                qiscusComment.setRoomName(qiscusComment.getSender());
-            }
-            if (jsonObject.has("type")) {
-                qiscusComment.setRawType(jsonObject.get("type").getAsString());
-                qiscusComment.setExtraPayload(jsonObject.get("payload").toString());
-                if (qiscusComment.getType() == QiscusComment.Type.BUTTONS
-                        || qiscusComment.getType() == QiscusComment.Type.REPLY
-                        || qiscusComment.getType() == QiscusComment.Type.CARD) {
-                    JsonObject payload = jsonObject.get("payload").getAsJsonObject();
-                    if (payload.has("text")) {
-                        String text = payload.get("text").getAsString();
-                        if (QiscusTextUtil.isNotBlank(text)) {
-                            qiscusComment.setMessage(text.trim());
-                        }
-                    }
-                }
-            }
-
-            if (jsonObject.has("extras") && !jsonObject.get("extras").isJsonNull()) {
-                qiscusComment.setExtras(new JSONObject(jsonObject.get("extras").getAsJsonObject().toString()));
-            }
-
-            return qiscusComment;
+            return QiscusApiParser.parseRealtimeComment(jsonObject);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -308,7 +299,12 @@ public enum QiscusPusherApi implements MqttCallbackExtended, IMqttActionListener
 
     @Nullable
     public static QiscusComment jsonToComment(String json) {
-        return jsonToComment(gson.fromJson(json, JsonObject.class));
+        try {
+            return QiscusCommentJsonReader.readRealtimeComment(json);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return null;
     }
 
     private void buildClient() {
@@ -339,7 +335,7 @@ public enum QiscusPusherApi implements MqttCallbackExtended, IMqttActionListener
                     .map(s -> String.format("ssl://%s:1885", s))
                     .doOnNext(node -> QiscusCore.setCacheMqttBrokerUrl(node, false))
                     .map(node -> QiscusCore.getMqttBrokerUrl())
-                    .subscribeOn(Schedulers.io())
+                    .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
                     .observeOn(AndroidSchedulers.mainThread())
                     .subscribe(mqttBaseUrl -> {
                                 QiscusLogger.print("New MQTT Broker URL = " + mqttBaseUrl);
@@ -351,26 +347,24 @@ public enum QiscusPusherApi implements MqttCallbackExtended, IMqttActionListener
 
     private void eventReport(String moduleName, String event, String message) {
         if (QiscusCore.hasSetupUser()) {
-            QiscusApi.getInstance()
-                    .eventReport(moduleName, event, message)
-                    .subscribeOn(Schedulers.io())
-                    .observeOn(AndroidSchedulers.mainThread())
-                    .subscribe(aVoid -> {
-
-                    }, QiscusErrorLogger::print);
+            QiscusTelemetryBuffer.getInstance().record(moduleName, event, message);
         }
     }
 
-    public void connect() {
-        if (QiscusCore.hasSetupUser() && !connecting && QiscusAndroidUtil.isNetworkAvailable()) {
-            connecting = true;
+    public synchronized void connect() {
+        if (connectionState == ConnectionState.CONNECTING || connectionState == ConnectionState.CONNECTED) {
+            return;
+        }
+        if (QiscusCore.hasSetupUser() && QiscusAndroidUtil.isNetworkAvailable()) {
+            cancelReconnect();
+            connectionState = ConnectionState.CONNECTING;
             qiscusAccount = QiscusCore.getQiscusAccount();
             MqttConnectOptions mqttConnectOptions = new MqttConnectOptions();
             mqttConnectOptions.setAutomaticReconnect(false);
             mqttConnectOptions.setCleanSession(false);
             mqttConnectOptions.setWill("u/" + qiscusAccount.getEmail()
                     + "/s", ("0:" + Calendar.getInstance(TimeZone.getTimeZone("UTC")).getTimeInMillis())
-                    .getBytes(), 2, true);
+                    .getBytes(), getQosConfig().getPresenceQos(), true);
             try {
                 mqttAndroidClient.connect(mqttConnectOptions, null, this);
                 QiscusLogger.print(TAG, "Connecting...");
@@ -390,6 +384,7 @@ public enum QiscusPusherApi implements MqttCallbackExtended, IMqttActionListener
                     QiscusLogger.print(TAG, "Connecting... " + "Failure to connecting");
                     eventReport("MQTT", "CONNECTING", "Failure to connecting");
                 }
+                scheduleReconnect();
             } catch (NullPointerException | IllegalArgumentException e) {
                 if (e != null) {
                     try {
@@ -404,7 +399,8 @@ public enum QiscusPusherApi implements MqttCallbackExtended, IMqttActionListener
                     QiscusLogger.print(TAG, "Connecting... " + "Failure to connecting");
                     eventReport("MQTT", "CONNECTING", "Failure to connecting");
                 }
-                restartConnection();
+                buildClient();
+                scheduleReconnect();
             }
         }
     }
@@ -426,54 +422,81 @@ public enum QiscusPusherApi implements MqttCallbackExtended, IMqttActionListener
 
         getMqttBrokerUrlFromLB();
         QiscusLogger.print("QiscusPusherApi", "Restart connection...");
-        try {
-            connecting = false;
-            mqttAndroidClient.disconnect();
-            mqttAndroidClient.close();
-            QiscusAndroidUtil.runOnBackgroundThread(() -> eventReport("MQTT",
-                    "RESTART_CONNECTION", "Restart connection..."), 1000);
+        synchronized (this) {
+            try {
+                mqttAndroidClient.disconnect();
+                mqttAndroidClient.close();
+                eventReport("MQTT", "RESTART_CONNECTION", "Restart connection...");
 
-        } catch (MqttException | NullPointerException | IllegalArgumentException e) {
-            //Do nothing
-        }
+            } catch (MqttException | NullPointerException | IllegalArgumentException e) {
+                //Do nothing
+            }
 
-        clearTasks();
+            cancelReconnect();
+            connectionState = ConnectionState.DISCONNECTED;
 
-        buildClient();
-        connect();
+            buildClient();
+            connect();
+        }
     }
 
-    private void clearTasks() {
-        if (scheduledConnect != null) {
-            scheduledConnect.cancel(true);
-            scheduledConnect = null;
-        }
-        if (scheduledListenComment != null) {
-            scheduledListenComment.cancel(true);
-            scheduledListenComment = null;
-        }
-        if (scheduledListenNotification != null) {
-            scheduledListenNotification.cancel(true);
-            scheduledListenNotification = null;
+    /**
+     * Called by {@link com.qiscus.sdk.chat.core.service.QiscusNetworkStateReceiver}, a new network skips the
+     * remaining backoff and connects right away, losing the network stops any pending reconnect.
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY)
+    public synchronized void onNetworkStateChanged(boolean available) {
+        if (available) {
+            if (connectionState == ConnectionState.DISCONNECTED
+                    || connectionState == ConnectionState.WAITING_TO_RECONNECT) {
+                reconnectPolicy.reset();
+                connectionState = ConnectionState.DISCONNECTED;
+                connect();
+            }
+        } else if (connectionState == ConnectionState.WAITING_TO_RECONNECT) {
+            cancelReconnect();
+            connectionState = ConnectionState.DISCONNECTED;
         }
-        if (scheduledListenRoom != null) {
-            scheduledListenRoom.cancel(true);
-            scheduledListenRoom = null;
+    }
+
+    private synchronized void scheduleReconnect() {
+        cancelReconnect();
+        if (!QiscusCore.hasSetupUser() || !QiscusAndroidUtil.isNetworkAvailable()) {
+            QiscusLogger.print(TAG, "Waiting for network to reconnect...");
+            connectionState = ConnectionState.DISCONNECTED;
+            return;
         }
-        if (scheduledListenUserStatus != null) {
-            scheduledListenUserStatus.cancel(true);
+
+        long delay = reconnectPolicy.nextDelay();
+        QiscusErrorLogger.print(TAG, "Will try reconnect in " + delay + " ms, attempt "
+                + reconnectPolicy.getAttempt());
+        connectionState = ConnectionState.WAITING_TO_RECONNECT;
+        scheduledReconnect = QiscusAndroidUtil.runOnBackgroundThread(this::reconnect, delay);
+    }
+
+    private synchronized void reconnect() {
+        scheduledReconnect = null;
+        if (connectionState == ConnectionState.WAITING_TO_RECONNECT) {
+            connectionState = ConnectionState.DISCONNECTED;
+            connect();
         }
-        if (scheduledListenEvent != null) {
-            scheduledListenEvent.cancel(true);
-            scheduledListenEvent = null;
+    }
+
+    private synchronized void cancelReconnect() {
+        if (scheduledReconnect != null) {
+            scheduledReconnect.cancel(true);
+            scheduledReconnect = null;
         }
     }
 
     public void disconnect() {
         QiscusLogger.print(TAG, "Disconnecting...");
         setUserStatus(false);
+        synchronized (this) {
+            cancelReconnect();
+            connectionState = ConnectionState.DISCONNECTED;
+        }
         try {
-            connecting = false;
             mqttAndroidClient.disconnect();
             mqttAndroidClient.close();
             eventReport("MQTT", "DISCONNECT", "Disconnect");
@@ -482,146 +505,123 @@ public enum QiscusPusherApi implements MqttCallbackExtended, IMqttActionListener
         } catch (IllegalArgumentException e) {
             //Do nothing
         }
-        clearTasks();
         stopUserStatus();
     }
 
     private void listenComment() {
         QiscusLogger.print(TAG, "Listening comment...");
         try {
-            mqttAndroidClient.subscribe(qiscusAccount.getToken() + "/c", 2);
+            mqttAndroidClient.subscribe(qiscusAccount.getToken() + "/c", getQosConfig().getCommentQos());
             eventReport("MQTT", "LISTEN_COMMENT", qiscusAccount.getToken() + "/c");
         } catch (MqttException e) {
             //Do nothing
         } catch (NullPointerException | IllegalArgumentException e) {
             if (e != null) {
                 eventReport("MQTT", "LISTEN_COMMENT",
-                        "Failure listen comment, try again in "
-                                + RETRY_PERIOD + " ms" + ", withError = " + e.getMessage());
+                        "Failure listen comment, try again on reconnect, withError = " + e.getMessage());
             }
-            QiscusErrorLogger.print(TAG, "Failure listen comment, try again in " + RETRY_PERIOD + " ms");
+            QiscusErrorLogger.print(TAG, "Failure listen comment, try again on reconnect");
             connect();
-            scheduledListenComment = QiscusAndroidUtil.runOnBackgroundThread(fallBackListenComment, RETRY_PERIOD);
         }
     }
 
     private void listenNotification() {
         QiscusLogger.print(TAG, "Listening notification...");
         try {
-            mqttAndroidClient.subscribe(qiscusAccount.getToken() + "/n", 2);
-            QiscusAndroidUtil.runOnBackgroundThread(() -> eventReport("MQTT",
-                    "LISTEN_NOTIFICATION", qiscusAccount.getToken() + "/n"), 1000);
+            mqttAndroidClient.subscribe(qiscusAccount.getToken() + "/n", getQosConfig().getNotificationQos());
+            eventReport("MQTT", "LISTEN_NOTIFICATION", qiscusAccount.getToken() + "/n");
         } catch (MqttException e) {
             //Do nothing
         } catch (NullPointerException | IllegalArgumentException e) {
             if (e != null) {
-                QiscusAndroidUtil.runOnBackgroundThread(() -> {
-                    try {
-                        eventReport("MQTT", "LISTEN_NOTIFICATION",
-                                "Failure listen notification, try again in "
-                                        + RETRY_PERIOD + " ms" + ", withError = " + e.toString());
-                    } catch (NullPointerException d) {
-                        //ignored
-                    } catch (Exception d) {
-                        //ignored
-                    }
-                }, 1000);
+                eventReport("MQTT", "LISTEN_NOTIFICATION",
+                        "Failure listen notification, try again on reconnect, withError = " + e.toString());
             }
-            QiscusErrorLogger.print(TAG, "Failure listen notification, try again in " + RETRY_PERIOD + " ms");
+            QiscusErrorLogger.print(TAG, "Failure listen notification, try again on reconnect");
             connect();
-            scheduledListenNotification = QiscusAndroidUtil.runOnBackgroundThread(fallBackListenNotification, RETRY_PERIOD);
         }
     }
 
     public void listenRoom(QiscusChatRoom qiscusChatRoom) {
-        QiscusLogger.print(TAG, "Listening room...");
-        fallBackListenRoom = () -> listenRoom(qiscusChatRoom);
-        try {
-            long roomId = qiscusChatRoom.getId();
-            if (!qiscusChatRoom.isChannel()) {
-                mqttAndroidClient.subscribe("r/" + roomId + "/+/+/t", 2);
-                mqttAndroidClient.subscribe("r/" + roomId + "/+/+/d", 2);
-                mqttAndroidClient.subscribe("r/" + roomId + "/+/+/r", 2);
+        listenRooms(Collections.singletonList(qiscusChatRoom));
+    }
 
-                QiscusAndroidUtil.runOnBackgroundThread(() -> eventReport("MQTT", "LISTEN_ROOM",
-                        "r/" + roomId + "/+/+/t/d/r"), 1000);
-            } else {
-                mqttAndroidClient.subscribe(QiscusCore.getAppId() + "/" + qiscusChatRoom.getUniqueId() + "/c", 2);
-                QiscusAndroidUtil.runOnBackgroundThread(() -> eventReport("MQTT",
-                        "LISTEN_ROOM", QiscusCore.getAppId()
-                                + "/" + qiscusChatRoom.getUniqueId() + "/c"), 1000);
-            }
-        } catch (MqttException e) {
-            //Do nothing
-        } catch (NullPointerException | IllegalArgumentException e) {
-            if (e != null) {
-                QiscusAndroidUtil.runOnBackgroundThread(() -> {
-                    try {
-                        eventReport("MQTT", "LISTEN_ROOM", e.toString());
-                    } catch (NullPointerException d) {
-                        //ignored
-                    } catch (Exception d) {
-                        //ignored
-                    }
-                }, 1000);
-            }
-            QiscusErrorLogger.print(TAG, "Failure listen room, try again in " + RETRY_PERIOD + " ms");
-            connect();
-            scheduledListenRoom = QiscusAndroidUtil.runOnBackgroundThread(fallBackListenRoom, RETRY_PERIOD);
+    /**
+     * Listen to typing, delivered and read events (or the channel topic) of several rooms at once.
+     * Every topic that is not subscribed yet is sent in a single SUBSCRIBE packet.
+     */
+    public void listenRooms(Collection<QiscusChatRoom> qiscusChatRooms) {
+        QiscusLogger.print(TAG, "Listening rooms...");
+        List<String> topics = new ArrayList<>();
+        for (QiscusChatRoom qiscusChatRoom : qiscusChatRooms) {
+            addRoomTopics(qiscusChatRoom, topics);
         }
+        subscribeTopics(topics, "LISTEN_ROOM");
     }
 
     public void unListenRoom(QiscusChatRoom qiscusChatRoom) {
-        try {
-            long roomId = qiscusChatRoom.getId();
-            mqttAndroidClient.unsubscribe("r/" + roomId + "/+/+/t");
-            mqttAndroidClient.unsubscribe("r/" + roomId + "/+/+/d");
-            mqttAndroidClient.unsubscribe("r/" + roomId + "/+/+/r");
-            mqttAndroidClient.unsubscribe(QiscusCore.getAppId() + "/" + qiscusChatRoom.getUniqueId() + "/c");
-        } catch (MqttException | NullPointerException | IllegalArgumentException e) {
-            //Do nothing
+        unListenRooms(Collections.singletonList(qiscusChatRoom));
+    }
+
+    /**
+     * Stop listening to the given rooms. A topic is only unsubscribed once every caller that
+     * listened to it has released it.
+     */
+    public void unListenRooms(Collection<QiscusChatRoom> qiscusChatRooms) {
+        List<String> topics = new ArrayList<>();
+        for (QiscusChatRoom qiscusChatRoom : qiscusChatRooms) {
+            addRoomTopics(qiscusChatRoom, topics);
         }
-        if (scheduledListenRoom != null) {
-            scheduledListenRoom.cancel(true);
-            scheduledListenRoom = null;
+        unsubscribeTopics(topics);
+    }
+
+    private void addRoomTopics(QiscusChatRoom qiscusChatRoom, List<String> topics) {
+        if (!qiscusChatRoom.isChannel()) {
+            long roomId = qiscusChatRoom.getId();
+            topics.add("r/" + roomId + "/+/+/t");
+            topics.add("r/" + roomId + "/+/+/d");
+            topics.add("r/" + roomId + "/+/+/r");
+        } else {
+            topics.add(QiscusCore.getAppId() + "/" + qiscusChatRoom.getUniqueId() + "/c");
         }
-        fallBackListenRoom = null;
     }
 
     public void listenUserStatus(String user) {
-        fallBackListenUserStatus = () -> listenUserStatus(user);
-        try {
-            mqttAndroidClient.subscribe("u/" + user + "/s", 2);
-        } catch (MqttException e) {
-            //Do nothing
-        } catch (NullPointerException | IllegalArgumentException e) {
-            connect();
-            scheduledListenUserStatus = QiscusAndroidUtil.runOnBackgroundThread(fallBackListenUserStatus, RETRY_PERIOD);
+        listenUserStatuses(Collections.singletonList(user));
+    }
+
+    /**
+     * Listen to online status of several users at once, e.g. a whole contact list.
+     */
+    public void listenUserStatuses(Collection<String> users) {
+        List<String> topics = new ArrayList<>(users.size());
+        for (String user : users) {
+            topics.add("u/" + user + "/s");
         }
+        subscribeTopics(topics, "LISTEN_USER_STATUS");
     }
 
     public void unListenUserStatus(String user) {
-        try {
-            mqttAndroidClient.unsubscribe("u/" + user + "/s");
-        } catch (MqttException | NullPointerException | IllegalArgumentException e) {
-            //Do nothing
-        }
-        if (scheduledListenUserStatus != null) {
-            scheduledListenUserStatus.cancel(true);
-            scheduledListenUserStatus = null;
+        unListenUserStatuses(Collections.singletonList(user));
+    }
+
+    public void unListenUserStatuses(Collection<String> users) {
+        List<String> topics = new ArrayList<>(users.size());
+        for (String user : users) {
+            topics.add("u/" + user + "/s");
         }
-        fallBackListenUserStatus = null;
+        unsubscribeTopics(topics);
     }
 
     private void setUserStatus(boolean online) {
         try {
-            if (!isConnected() && connecting != true) {
+            if (!isConnected() && connectionState != ConnectionState.CONNECTING) {
                 connect();
             } else {
                 try {
                     MqttMessage message = new MqttMessage();
                     message.setPayload(online ? "1".getBytes() : "0".getBytes());
-                    message.setQos(1);
+                    message.setQos(getQosConfig().getPresenceQos());
                     message.setRetained(true);
                     mqttAndroidClient.publish("u/" + qiscusAccount.getEmail() + "/s", message);
                 } catch (MqttException | NullPointerException | IllegalArgumentException e) {
@@ -636,11 +636,23 @@ public enum QiscusPusherApi implements MqttCallbackExtended, IMqttActionListener
 
     }
 
+    /**
+     * Safe to call for every keystroke, only changes of typing state are published.
+     */
     public void setUserTyping(long roomId, boolean typing) {
+        if (typing) {
+            typingPublisher.onTyping(roomId);
+        } else {
+            typingPublisher.stopTyping(roomId);
+        }
+    }
+
+    private void publishTyping(long roomId, boolean typing) {
         checkAndConnect();
         try {
             MqttMessage message = new MqttMessage();
             message.setPayload((typing ? "1" : "0").getBytes());
+            message.setQos(getQosConfig().getTypingQos());
             mqttAndroidClient.publish("r/" + roomId + "/" + roomId + "/"
                     + qiscusAccount.getEmail() + "/t", message);
         } catch (MqttException | NullPointerException | IllegalArgumentException e) {
@@ -649,24 +661,11 @@ public enum QiscusPusherApi implements MqttCallbackExtended, IMqttActionListener
     }
 
     public void setUserRead(long roomId, long commentId) {
-        Observable.fromCallable(() -> QiscusCore.getDataStore().getChatRoom(roomId))
-                .filter(room -> room != null)
-                .flatMap(room -> QiscusApi.getInstance().updateCommentStatus(roomId, commentId, 0))
-                .subscribeOn(Schedulers.io())
-                .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(aVoid -> {
-                }, QiscusErrorLogger::print);
+        QiscusReceiptAggregator.getInstance().markRead(roomId, commentId);
     }
 
     public void setUserDelivery(long roomId, long commentId) {
-        Observable.fromCallable(() -> QiscusCore.getDataStore().getChatRoom(roomId))
-                .filter(room -> room != null)
-                .filter(room -> !room.isChannel())
-                .flatMap(room -> QiscusApi.getInstance().updateCommentStatus(roomId, 0, commentId))
-                .subscribeOn(Schedulers.io())
-                .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(aVoid -> {
-                }, QiscusErrorLogger::print);
+        QiscusReceiptAggregator.getInstance().markDelivered(roomId, commentId);
     }
 
     public void setEvent(long roomId, JSONObject data) {
@@ -678,6 +677,7 @@ public enum QiscusPusherApi implements MqttCallbackExtended, IMqttActionListener
 
             MqttMessage message = new MqttMessage();
             message.setPayload((payload.toString().getBytes()));
+            message.setQos(getQosConfig().getEventQos());
 
             mqttAndroidClient.publish("r/" + roomId + "/" + roomId + "/e", message);
         } catch (MqttException | NullPointerException | IllegalArgumentException | JSONException e) {
@@ -687,28 +687,122 @@ public enum QiscusPusherApi implements MqttCallbackExtended, IMqttActionListener
 
     public void listenEvent(long roomId) {
         QiscusLogger.print(TAG, "Listening event...");
-        fallbackListenEvent = () -> listenEvent(roomId);
+        subscribeTopics(Collections.singletonList("r/" + roomId + "/" + roomId + "/e"), "LISTEN_EVENT");
+    }
+
+    public void unlistenEvent(long roomId) {
+        unsubscribeTopics(Collections.singletonList("r/" + roomId + "/" + roomId + "/e"));
+    }
+
+    /**
+     * Listen to a custom topic, messages are delivered to handlers registered in {@link #getTopicRouter()}
+     * for the last segment of the topic. The subscription is restored after every reconnect.
+     */
+    public void listenTopic(String topic) {
+        subscribeTopics(Collections.singletonList(topic), "LISTEN_TOPIC");
+    }
+
+    public void unListenTopic(String topic) {
+        unsubscribeTopics(Collections.singletonList(topic));
+    }
+
+    /**
+     * Take a reference to each topic and subscribe the ones nobody was listening to yet.
+     * Topics are kept even when the client is not connected, they are subscribed on the next connect.
+     */
+    private void subscribeTopics(List<String> topics, String event) {
+        List<String> newTopics = new ArrayList<>();
+        synchronized (subscribedTopics) {
+            for (String topic : topics) {
+                Integer count = subscribedTopics.get(topic);
+                subscribedTopics.put(topic, count == null ? 1 : count + 1);
+                if (count == null) {
+                    newTopics.add(topic);
+                }
+            }
+        }
+        if (newTopics.isEmpty()) {
+            return;
+        }
+
         try {
-            mqttAndroidClient.subscribe("r/" + roomId + "/" + roomId + "/e", 2);
+            subscribeNow(newTopics);
         } catch (MqttException e) {
             //Do nothing
         } catch (NullPointerException | IllegalArgumentException e) {
+            eventReport("MQTT", event, e.toString());
+            QiscusErrorLogger.print(TAG, "Failure subscribe " + newTopics.size() + " topics, try again on reconnect");
             connect();
-            scheduledListenEvent = QiscusAndroidUtil.runOnBackgroundThread(fallbackListenEvent, RETRY_PERIOD);
         }
     }
 
-    public void unlistenEvent(long roomId) {
+    /**
+     * Release a reference to each topic and unsubscribe the ones nobody is listening to anymore.
+     */
+    private void unsubscribeTopics(List<String> topics) {
+        List<String> releasedTopics = new ArrayList<>();
+        synchronized (subscribedTopics) {
+            for (String topic : topics) {
+                Integer count = subscribedTopics.get(topic);
+                if (count == null) {
+                    continue;
+                }
+                if (count > 1) {
+                    subscribedTopics.put(topic, count - 1);
+                } else {
+                    subscribedTopics.remove(topic);
+                    releasedTopics.add(topic);
+                }
+            }
+        }
+        if (releasedTopics.isEmpty()) {
+            return;
+        }
+
         try {
-            mqttAndroidClient.unsubscribe("r/" + roomId + "/" + roomId + "/e");
+            for (int i = 0; i < releasedTopics.size(); i += MAX_TOPICS_PER_PACKET) {
+                List<String> batch = releasedTopics.subList(i, Math.min(i + MAX_TOPICS_PER_PACKET, releasedTopics.size()));
+                mqttAndroidClient.unsubscribe(batch.toArray(new String[batch.size()]));
+            }
         } catch (MqttException | NullPointerException | IllegalArgumentException e) {
             //Do nothing
         }
-        if (scheduledListenEvent != null) {
-            scheduledListenEvent.cancel(true);
-            scheduledListenEvent = null;
+    }
+
+    private void subscribeNow(List<String> topics) throws MqttException {
+        for (int i = 0; i < topics.size(); i += MAX_TOPICS_PER_PACKET) {
+            List<String> batch = topics.subList(i, Math.min(i + MAX_TOPICS_PER_PACKET, topics.size()));
+            int[] qos = new int[batch.size()];
+            for (int j = 0; j < qos.length; j++) {
+                qos[j] = getQosConfig().getTopicQos(new QiscusMqttTopic(batch.get(j)).getKind());
+            }
+            mqttAndroidClient.subscribe(batch.toArray(new String[batch.size()]), qos);
+        }
+    }
+
+    private static QiscusMqttQosConfig getQosConfig() {
+        return QiscusCore.getChatConfig().getMqttQosConfig();
+    }
+
+    /**
+     * Subscribe again to every topic we were listening to, called once for each successful connect.
+     */
+    private void restoreSubscriptions() {
+        listenComment();
+        listenNotification();
+
+        List<String> topics;
+        synchronized (subscribedTopics) {
+            topics = new ArrayList<>(subscribedTopics.keySet());
+        }
+        if (topics.isEmpty()) {
+            return;
+        }
+        try {
+            subscribeNow(topics);
+        } catch (MqttException | NullPointerException | IllegalArgumentException e) {
+            //Do nothing
         }
-        fallbackListenEvent = null;
     }
 
     private void checkAndConnect() {
@@ -725,12 +819,11 @@ public enum QiscusPusherApi implements MqttCallbackExtended, IMqttActionListener
 
     @Override
     public void connectionLost(Throwable cause) {
-        if (reconnectCounter == 0) {
+        if (reconnectPolicy.getAttempt() == 0) {
             getMqttBrokerUrlFromLB();
         }
 
         EventBus.getDefault().post(QiscusMqttStatusEvent.DISCONNECTED);
-        reconnectCounter++;
         if (cause != null) {
             try {
                 eventReport("MQTT", "CONNECTION_LOST", cause.toString());
@@ -740,99 +833,118 @@ public enum QiscusPusherApi implements MqttCallbackExtended, IMqttActionListener
                 //ignored
             }
         } else {
-            eventReport("MQTT", "CONNECTION_LOST",
-                    "Lost connection, will try reconnect in " + RETRY_PERIOD + " ms");
+            eventReport("MQTT", "CONNECTION_LOST", "Lost connection");
         }
 
-        QiscusErrorLogger.print(TAG, "Lost connection, will try reconnect in "
-                + RETRY_PERIOD + " ms");
-        connecting = false;
-        scheduledConnect = QiscusAndroidUtil.runOnBackgroundThread(fallbackConnect, RETRY_PERIOD);
+        QiscusErrorLogger.print(TAG, "Lost connection");
+        scheduleReconnect();
     }
 
     @Override
     public void messageArrived(String topic, MqttMessage message) throws Exception {
         try {
-            handleMessage(topic, new String(message.getPayload()));
+            topicRouter.dispatch(topic, new String(message.getPayload()));
         } catch (Exception ignored) {
             //Do nothing
         }
     }
 
-    private void handleMessage(String topic, String message) {
-        if (topic.equals(qiscusAccount.getToken() + "/n")) {
+    private void registerTopicHandlers() {
+        topicRouter.addHandler("n", this::handleNotificationTopic)
+                .addHandler("c", this::handleCommentTopic)
+                .addHandler("t", this::handleTypingTopic)
+                .addHandler("d", this::handleDeliveredTopic)
+                .addHandler("r", this::handleReadTopic)
+                .addHandler("s", this::handleUserStatusTopic)
+                .addHandler("e", this::handleEventTopic);
+    }
+
+    private void handleNotificationTopic(QiscusMqttTopic topic, String message) {
+        if (topic.getSegmentCount() == 2 && topic.segmentEquals(0, qiscusAccount.getToken())) {
             try {
                 handleNotification(new JSONObject(message));
             } catch (JSONException e) {
                 QiscusLogger.print(e.getMessage());
             }
-        } else if (topic.equals(qiscusAccount.getToken() + "/c")
-                || (topic.startsWith(QiscusCore.getAppId()) && topic.endsWith("/c"))) {
+        }
+    }
+
+    private void handleCommentTopic(QiscusMqttTopic topic, String message) {
+        if ((topic.getSegmentCount() == 2 && topic.segmentEquals(0, qiscusAccount.getToken()))
+                || topic.getTopic().startsWith(QiscusCore.getAppId())) {
             QiscusComment qiscusComment = jsonToComment(message);
             if (qiscusComment == null) {
                 return;
             }
             handleReceivedComment(qiscusComment);
-        } else if (topic.startsWith("r/") && topic.endsWith("/t")) {
-            String[] data = topic.split("/");
-            if (!data[3].equals(qiscusAccount.getEmail())) {
-                QiscusChatRoomEvent event = new QiscusChatRoomEvent()
-                        .setRoomId(Long.parseLong(data[1]))
-                        .setUser(data[3])
-                        .setEvent(QiscusChatRoomEvent.Event.TYPING)
-                        .setTyping("1".equals(message));
-                EventBus.getDefault().post(event);
-            }
-        } else if (topic.startsWith("r/") && topic.endsWith("/d")) {
-            String[] data = topic.split("/");
-            if (!data[3].equals(qiscusAccount.getEmail())) {
-                String[] payload = message.split(":");
-                QiscusChatRoomEvent event = new QiscusChatRoomEvent()
-                        .setRoomId(Long.parseLong(data[1]))
-                        .setUser(data[3])
-                        .setEvent(QiscusChatRoomEvent.Event.DELIVERED)
-                        .setCommentId(Long.parseLong(payload[0]))
-                        .setCommentUniqueId(payload[1]);
-                EventBus.getDefault().post(event);
-            }
-        } else if (topic.startsWith("r/") && topic.endsWith("/r")) {
-            String[] data = topic.split("/");
-            if (!data[3].equals(qiscusAccount.getEmail())) {
-                String[] payload = message.split(":");
+        }
+    }
+
+    private void handleTypingTopic(QiscusMqttTopic topic, String message) {
+        if (topic.segmentEquals(0, "r") && !topic.segmentEquals(3, qiscusAccount.getEmail())) {
+            typingCoalescer.onTyping(topic.getSegmentAsLong(1), topic.getSegment(3), "1".equals(message));
+        }
+    }
+
+    private static void postTyping(long roomId, String user, boolean typing) {
+        QiscusChatRoomEvent event = new QiscusChatRoomEvent()
+                .setRoomId(roomId)
+                .setUser(user)
+                .setEvent(QiscusChatRoomEvent.Event.TYPING)
+                .setTyping(typing);
+        EventBus.getDefault().post(event);
+    }
+
+    private void handleDeliveredTopic(QiscusMqttTopic topic, String message) {
+        handleReceiptTopic(topic, message, QiscusChatRoomEvent.Event.DELIVERED);
+    }
+
+    private void handleReadTopic(QiscusMqttTopic topic, String message) {
+        handleReceiptTopic(topic, message, QiscusChatRoomEvent.Event.READ);
+    }
+
+    private void handleReceiptTopic(QiscusMqttTopic topic, String message, QiscusChatRoomEvent.Event type) {
+        if (topic.segmentEquals(0, "r") && !topic.segmentEquals(3, qiscusAccount.getEmail())) {
+            int separator = message.indexOf(':');
+            int end = message.indexOf(':', separator + 1);
+            QiscusChatRoomEvent event = new QiscusChatRoomEvent()
+                    .setRoomId(topic.getSegmentAsLong(1))
+                    .setUser(topic.getSegment(3))
+                    .setEvent(type)
+                    .setCommentId(Long.parseLong(message.substring(0, separator)))
+                    .setCommentUniqueId(message.substring(separator + 1, end < 0 ? message.length() : end));
+            EventBus.getDefault().post(event);
+        }
+    }
+
+    private void handleUserStatusTopic(QiscusMqttTopic topic, String message) {
+        if (topic.segmentEquals(0, "u") && !topic.segmentEquals(1, qiscusAccount.getEmail())) {
+            int separator = message.indexOf(':');
+            Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+            calendar.setTimeInMillis(Long.parseLong(message.substring(separator + 1, separator + 14)));
+            QiscusUserStatusEvent event = new QiscusUserStatusEvent(topic.getSegment(1),
+                    message.startsWith("1:"), calendar.getTime());
+            EventBus.getDefault().post(event);
+        }
+    }
+
+    private void handleEventTopic(QiscusMqttTopic topic, String message) {
+        if (!topic.segmentEquals(0, "r")) {
+            return;
+        }
+        JSONObject eventPayload = parseEventData(message);
+        try {
+            if (eventPayload != null &&
+                    !eventPayload.getString("sender").equals(qiscusAccount.getEmail())) {
                 QiscusChatRoomEvent event = new QiscusChatRoomEvent()
-                        .setRoomId(Long.parseLong(data[1]))
-                        .setUser(data[3])
-                        .setEvent(QiscusChatRoomEvent.Event.READ)
-                        .setCommentId(Long.parseLong(payload[0]))
-                        .setCommentUniqueId(payload[1]);
+                        .setRoomId(topic.getSegmentAsLong(1))
+                        .setUser(eventPayload.getString("sender"))
+                        .setEvent(QiscusChatRoomEvent.Event.CUSTOM)
+                        .setEventData(eventPayload.getJSONObject("data"));
                 EventBus.getDefault().post(event);
             }
-        } else if (topic.startsWith("u/") && topic.endsWith("/s")) {
-            String[] data = topic.split("/");
-            if (!data[1].equals(qiscusAccount.getEmail())) {
-                String[] status = message.split(":");
-                Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
-                calendar.setTimeInMillis(Long.parseLong(status[1].substring(0, 13)));
-                QiscusUserStatusEvent event = new QiscusUserStatusEvent(data[1], "1".equals(status[0]),
-                        calendar.getTime());
-                EventBus.getDefault().post(event);
-            }
-        } else if (topic.startsWith("r/") && topic.endsWith("/e")) {
-            String[] data = topic.split("/");
-            JSONObject eventPayload = parseEventData(message);
-            try {
-                if (eventPayload != null &&
-                        !eventPayload.getString("sender").equals(qiscusAccount.getEmail())) {
-                    QiscusChatRoomEvent event = new QiscusChatRoomEvent()
-                            .setRoomId(Long.parseLong(data[1]))
-                            .setUser(eventPayload.getString("sender"))
-                            .setEvent(QiscusChatRoomEvent.Event.CUSTOM)
-                            .setEventData(eventPayload.getJSONObject("data"));
-                    EventBus.getDefault().post(event);
-                }
-            } catch (JSONException e) {
-                QiscusErrorLogger.print(e);
-            }
+        } catch (JSONException e) {
+            QiscusErrorLogger.print(e);
         }
     }
 
@@ -852,8 +964,9 @@ public enum QiscusPusherApi implements MqttCallbackExtended, IMqttActionListener
     @Override
     public void connectComplete(boolean reconnect, String serverUri) {
         if (!isConnected()) {
-            connecting = false;
-            reconnectCounter = 0;
+            synchronized (this) {
+                connectionState = ConnectionState.DISCONNECTED;
+            }
             connect();
         } else {
             // if connected, update flag to true
@@ -863,20 +976,13 @@ public enum QiscusPusherApi implements MqttCallbackExtended, IMqttActionListener
             eventReport("MQTT", "CONNECTED", "connectComplete... " + QiscusCore.getMqttBrokerUrl());
             EventBus.getDefault().post(QiscusMqttStatusEvent.CONNECTED);
             try {
-                connecting = false;
-                reconnectCounter = 0;
-                listenComment();
-                listenNotification();
-                if (fallBackListenRoom != null) {
-                    scheduledListenRoom = QiscusAndroidUtil.runOnBackgroundThread(fallBackListenRoom);
-                }
-                if (fallBackListenUserStatus != null) {
-                    scheduledListenUserStatus = QiscusAndroidUtil.runOnBackgroundThread(fallBackListenUserStatus);
-                }
-                if (scheduledConnect != null) {
-                    scheduledConnect.cancel(true);
-                    scheduledConnect = null;
+                synchronized (this) {
+                    cancelReconnect();
+                    connectionState = ConnectionState.CONNECTED;
+                    reconnectPolicy.onConnected();
                 }
+                restoreSubscriptions();
+                stopUserStatus();
                 scheduleUserStatus();
             } catch (NullPointerException e) {
                 //ignored
@@ -903,7 +1009,7 @@ public enum QiscusPusherApi implements MqttCallbackExtended, IMqttActionListener
 
     @Override
     public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
-        if (reconnectCounter == 0) {
+        if (reconnectPolicy.getAttempt() == 0) {
             getMqttBrokerUrlFromLB();
         }
 
@@ -917,20 +1023,23 @@ public enum QiscusPusherApi implements MqttCallbackExtended, IMqttActionListener
                 //ignored
             }
         } else {
-            eventReport("MQTT", "FAILURE_TO_CONNECT", "Failure to connect, try again in "
-                    + RETRY_PERIOD + " ms");
+            eventReport("MQTT", "FAILURE_TO_CONNECT", "Failure to connect");
         }
 
-        reconnectCounter++;
-        QiscusErrorLogger.print(TAG, "Failure to connect, try again in " + RETRY_PERIOD + " ms");
-        connecting = false;
-        scheduledConnect = QiscusAndroidUtil.runOnBackgroundThread(fallbackConnect, RETRY_PERIOD);
+        QiscusErrorLogger.print(TAG, "Failure to connect");
+        scheduleReconnect();
     }
 
     @Subscribe
     public void onUserEvent(QiscusUserEvent userEvent) {
         switch (userEvent) {
             case LOGOUT:
+                synchronized (subscribedTopics) {
+                    subscribedTopics.clear();
+                }
+                reconnectPolicy.reset();
+                typingCoalescer.clear();
+                QiscusTelemetryBuffer.getInstance().clear();
                 disconnect();
                 break;
         }
@@ -963,6 +1072,11 @@ public enum QiscusPusherApi implements MqttCallbackExtended, IMqttActionListener
     private void stopUserStatus() {
         if (scheduledUserStatus != null) {
             scheduledUserStatus.cancel(true);
+            scheduledUserStatus = null;
         }
     }
+
+    public enum ConnectionState {
+        DISCONNECTED, CONNECTING, CONNECTED, WAITING_TO_RECONNECT
+    }
 }
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.qiscus.sdk.chat.core.data.remote;
+
+import com.qiscus.sdk.chat.core.QiscusCore;
+import com.qiscus.sdk.chat.core.data.local.QiscusCacheManager;
+import com.qiscus.sdk.chat.core.data.model.QiscusChatRoom;
+import com.qiscus.sdk.chat.core.data.model.QiscusRoomReceipt;
+import com.qiscus.sdk.chat.core.util.QiscusAndroidUtil;
+import com.qiscus.sdk.chat.core.util.QiscusErrorLogger;
+import com.qiscus.sdk.chat.core.util.QiscusExecutors;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+
+import retrofit2.HttpException;
+
+/**
+ * Collect read and delivered receipts and send them in one request per room.
+ * Only the highest comment id of each room is kept, receipts are flushed after
+ * {@link com.qiscus.sdk.chat.core.data.model.QiscusCoreChatConfig#getReceiptFlushWindow()} or when the app goes
+ * to background. Failed receipts are sent again with exponential backoff, unless server rejected them.
+ * Pending receipts are persisted on disk lane so they are still sent after the process is killed.
+ */
+public enum QiscusReceiptAggregator {
+    INSTANCE;
+
+    private final Map<Long, QiscusRoomReceipt> pendingReceipts;
+    private final Map<Long, QiscusRoomReceipt> sendingReceipts;
+    private final QiscusReconnectPolicy retryPolicy;
+    private ScheduledFuture<?> flushTask;
+    private boolean persistScheduled;
+    private long receiptCount;
+    private long requestCount;
+
+    QiscusReceiptAggregator() {
+        pendingReceipts = new HashMap<>();
+        sendingReceipts = new HashMap<>();
+        retryPolicy = new QiscusReconnectPolicy(1000, 60000);
+        for (QiscusRoomReceipt receipt : QiscusCacheManager.getInstance().getPendingReceipts()) {
+            pendingReceipts.put(receipt.getRoomId(), receipt);
+        }
+        if (!pendingReceipts.isEmpty()) {
+            scheduleFlush();
+        }
+    }
+
+    public static QiscusReceiptAggregator getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized void markRead(long roomId, long commentId) {
+        getPendingReceipt(roomId).updateLastReadCommentId(commentId);
+        onReceiptAdded();
+    }
+
+    public synchronized void markDelivered(long roomId, long commentId) {
+        getPendingReceipt(roomId).updateLastDeliveredCommentId(commentId);
+        onReceiptAdded();
+    }
+
+    /**
+     * Send all pending receipts now.
+     */
+    public void flush() {
+        List<QiscusRoomReceipt> receipts;
+        synchronized (this) {
+            if (flushTask != null) {
+                flushTask.cancel(false);
+                flushTask = null;
+            }
+            receipts = new ArrayList<>(pendingReceipts.values());
+            pendingReceipts.clear();
+            for (QiscusRoomReceipt receipt : receipts) {
+                QiscusRoomReceipt sendingReceipt = sendingReceipts.get(receipt.getRoomId());
+                if (sendingReceipt != null) {
+                    receipt.merge(sendingReceipt);
+                }
+                sendingReceipts.put(receipt.getRoomId(), receipt);
+            }
+        }
+
+        for (QiscusRoomReceipt receipt : receipts) {
+            send(receipt);
+        }
+    }
+
+    public synchronized void clear() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+        pendingReceipts.clear();
+        sendingReceipts.clear();
+        retryPolicy.reset();
+        receiptCount = 0;
+        requestCount = 0;
+    }
+
+    public synchronized long getReceiptCount() {
+        return receiptCount;
+    }
+
+    public synchronized long getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * @return how many receipts are sent by one request in average
+     */
+    public synchronized float getCoalescingRatio() {
+        return requestCount == 0 ? 0 : (float) receiptCount / requestCount;
+    }
+
+    private void send(QiscusRoomReceipt receipt) {
+        QiscusChatRoom room = QiscusCore.getDataStore().getChatRoom(receipt.getRoomId());
+        long lastReadCommentId = room == null ? 0 : receipt.getLastReadCommentId();
+        long lastDeliveredCommentId = room == null || room.isChannel() ? 0 : receipt.getLastDeliveredCommentId();
+        if (lastReadCommentId <= 0 && lastDeliveredCommentId <= 0) {
+            onSent(receipt);
+            return;
+        }
+
+        synchronized (this) {
+            requestCount++;
+        }
+        QiscusApi.getInstance().updateCommentStatus(receipt.getRoomId(), lastReadCommentId, lastDeliveredCommentId)
+                .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
+                .subscribe(aVoid -> {
+                    retryPolicy.reset();
+                    onSent(receipt);
+                }, throwable -> {
+                    QiscusErrorLogger.print(throwable);
+                    if (isRejected(throwable)) {
+                        onSent(receipt);
+                    } else {
+                        onFailed(receipt);
+                    }
+                });
+    }
+
+    /**
+     * A client error will not succeed by sending the same receipt again, e.g. the room is gone.
+     */
+    private static boolean isRejected(Throwable throwable) {
+        if (!(throwable instanceof HttpException)) {
+            return false;
+        }
+        int code = ((HttpException) throwable).code();
+        return code >= 400 && code < 500 && code != 408 && code != 429;
+    }
+
+    private synchronized void onSent(QiscusRoomReceipt receipt) {
+        if (sendingReceipts.get(receipt.getRoomId()) == receipt) {
+            sendingReceipts.remove(receipt.getRoomId());
+        }
+        schedulePersist();
+    }
+
+    /**
+     * Keep the receipt for a later flush, unless a newer one has been sent in the meantime. The flush is delayed
+     * by the backoff of consecutive failures, so an unreachable server is not called every flush window.
+     */
+    private synchronized void onFailed(QiscusRoomReceipt receipt) {
+        if (sendingReceipts.get(receipt.getRoomId()) == receipt) {
+            sendingReceipts.remove(receipt.getRoomId());
+            getPendingReceipt(receipt.getRoomId()).merge(receipt);
+            if (flushTask != null) {
+                flushTask.cancel(false);
+            }
+            long delay = Math.max(QiscusCore.getChatConfig().getReceiptFlushWindow(), retryPolicy.nextDelay());
+            flushTask = QiscusAndroidUtil.runOnBackgroundThread(this::flush, delay);
+        }
+        schedulePersist();
+    }
+
+    private QiscusRoomReceipt getPendingReceipt(long roomId) {
+        QiscusRoomReceipt receipt = pendingReceipts.get(roomId);
+        if (receipt == null) {
+            receipt = new QiscusRoomReceipt(roomId);
+            pendingReceipts.put(roomId, receipt);
+        }
+        return receipt;
+    }
+
+    private void onReceiptAdded() {
+        receiptCount++;
+        schedulePersist();
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (flushTask == null) {
+            flushTask = QiscusAndroidUtil.runOnBackgroundThread(this::flush,
+                    QiscusCore.getChatConfig().getReceiptFlushWindow());
+        }
+    }
+
+    /**
+     * Receipts added while a persist is waiting on disk lane are written by that same persist.
+     */
+    private void schedulePersist() {
+        if (!persistScheduled) {
+            persistScheduled = true;
+            QiscusExecutors.getInstance().getDiskLane().execute(this::persist);
+        }
+    }
+
+    private void persist() {
+        Map<Long, QiscusRoomReceipt> receipts = new HashMap<>();
+        synchronized (this) {
+            persistScheduled = false;
+            for (QiscusRoomReceipt receipt : sendingReceipts.values()) {
+                QiscusRoomReceipt copy = new QiscusRoomReceipt(receipt.getRoomId());
+                copy.merge(receipt);
+                receipts.put(receipt.getRoomId(), copy);
+            }
+            for (QiscusRoomReceipt receipt : pendingReceipts.values()) {
+                QiscusRoomReceipt copy = receipts.get(receipt.getRoomId());
+                if (copy == null) {
+                    copy = new QiscusRoomReceipt(receipt.getRoomId());
+                    receipts.put(receipt.getRoomId(), copy);
+                }
+                copy.merge(receipt);
+            }
+        }
+        QiscusCacheManager.getInstance().cachePendingReceipts(new ArrayList<>(receipts.values()));
+    }
+}
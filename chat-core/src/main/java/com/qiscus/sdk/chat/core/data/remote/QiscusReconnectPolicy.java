@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.qiscus.sdk.chat.core.data.remote;
+
+import java.util.Random;
+
+/**
+ * Capped exponential backoff with full jitter, every attempt waits a random time between 0 and
+ * min(maxDelay, baseDelay * 2^attempt). The attempt counter is only reset after a connection
+ * stayed up for at least maxDelay, so a broker that accepts and then drops clients is not hammered.
+ */
+public class QiscusReconnectPolicy {
+
+    public interface Clock {
+        Clock SYSTEM = System::currentTimeMillis;
+
+        long now();
+    }
+
+    private static final int MAX_SHIFT = 30;
+
+    private final long baseDelay;
+    private final long maxDelay;
+    private final Clock clock;
+    private final Random random;
+    private int attempt;
+    private long connectedAt;
+
+    public QiscusReconnectPolicy(long baseDelay, long maxDelay) {
+        this(baseDelay, maxDelay, Clock.SYSTEM, new Random());
+    }
+
+    public QiscusReconnectPolicy(long baseDelay, long maxDelay, Clock clock, Random random) {
+        this.baseDelay = Math.max(1, baseDelay);
+        this.maxDelay = Math.max(this.baseDelay, maxDelay);
+        this.clock = clock;
+        this.random = random;
+        connectedAt = -1;
+    }
+
+    public synchronized long nextDelay() {
+        if (connectedAt >= 0 && clock.now() - connectedAt >= maxDelay) {
+            attempt = 0;
+        }
+        connectedAt = -1;
+
+        long ceiling = baseDelay << Math.min(attempt, MAX_SHIFT);
+        if (ceiling <= 0 || ceiling > maxDelay) {
+            ceiling = maxDelay;
+        }
+        attempt++;
+        return (long) (random.nextDouble() * (ceiling + 1));
+    }
+
+    public synchronized void onConnected() {
+        connectedAt = clock.now();
+    }
+
+    public synchronized void reset() {
+        attempt = 0;
+        connectedAt = -1;
+    }
+
+    public synchronized int getAttempt() {
+        return attempt;
+    }
+}
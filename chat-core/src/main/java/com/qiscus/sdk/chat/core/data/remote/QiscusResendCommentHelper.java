@@ -21,6 +21,7 @@ import com.qiscus.sdk.chat.core.data.model.QiscusComment;
 import com.qiscus.sdk.chat.core.event.QiscusCommentReceivedEvent;
 import com.qiscus.sdk.chat.core.event.QiscusCommentResendEvent;
 import com.qiscus.sdk.chat.core.util.QiscusErrorLogger;
+import com.qiscus.sdk.chat.core.util.QiscusExecutors;
 
 import org.greenrobot.eventbus.EventBus;
 import org.json.JSONException;
@@ -36,7 +37,6 @@ import retrofit2.HttpException;
 import rx.Observable;
 import rx.Subscription;
 import rx.android.schedulers.AndroidSchedulers;
-import rx.schedulers.Schedulers;
 
 /**
  * Created on : August 22, 2017
@@ -65,7 +65,7 @@ public final class QiscusResendCommentHelper {
                         resendComment(qiscusComment);
                     }
                 })
-                .subscribeOn(Schedulers.io())
+                .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(commentSend -> {
                 }, QiscusErrorLogger::print);
@@ -99,7 +99,7 @@ public final class QiscusResendCommentHelper {
         Subscription subscription = QiscusApi.getInstance().postComment(qiscusComment)
                 .doOnNext(QiscusResendCommentHelper::commentSuccess)
                 .doOnError(throwable -> commentFail(throwable, qiscusComment))
-                .subscribeOn(Schedulers.io())
+                .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(commentSend -> {
                     tryResendPendingComment(); //Process next pending comments
@@ -145,7 +145,7 @@ public final class QiscusResendCommentHelper {
                     commentSuccess(commentSend);
                 })
                 .doOnError(throwable -> commentFail(throwable, qiscusComment))
-                .subscribeOn(Schedulers.io())
+                .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(commentSend ->
                                 EventBus.getDefault().post(new QiscusCommentReceivedEvent(commentSend)),
@@ -165,7 +165,7 @@ public final class QiscusResendCommentHelper {
                     commentSuccess(commentSend);
                 })
                 .doOnError(throwable -> commentFail(throwable, qiscusComment))
-                .subscribeOn(Schedulers.io())
+                .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(commentSend ->
                                 EventBus.getDefault().post(new QiscusCommentReceivedEvent(commentSend)),
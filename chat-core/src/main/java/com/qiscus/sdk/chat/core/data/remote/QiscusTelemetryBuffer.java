@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.remote;
+
+import com.qiscus.sdk.chat.core.QiscusCore;
+import com.qiscus.sdk.chat.core.data.local.QiscusCacheManager;
+import com.qiscus.sdk.chat.core.data.model.QiscusTelemetryConfig;
+import com.qiscus.sdk.chat.core.data.model.QiscusTelemetryEvent;
+import com.qiscus.sdk.chat.core.util.QiscusAndroidUtil;
+import com.qiscus.sdk.chat.core.util.QiscusErrorLogger;
+import com.qiscus.sdk.chat.core.util.QiscusExecutors;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Collect SDK telemetry in memory and report it in one request, once
+ * {@link QiscusTelemetryConfig#getFlushSize()} events are waiting, after {@link QiscusTelemetryConfig#getFlushInterval()}
+ * or when network comes back. Events are sampled and rate limited per type, and the newest
+ * {@link QiscusTelemetryConfig#getMaxStoredEvents()} of them are persisted so they survive being offline.
+ * Recording an event never does IO on the calling thread.
+ */
+public enum QiscusTelemetryBuffer {
+    INSTANCE;
+
+    private static final long RATE_LIMIT_WINDOW = 60000;
+    private static final String BATCH_MODULE = "SDK";
+    private static final String BATCH_EVENT = "BATCH";
+
+    private static class RateWindow {
+        private long start;
+        private int count;
+        private int suppressed;
+    }
+
+    private final ArrayDeque<QiscusTelemetryEvent> events;
+    private final Map<String, RateWindow> rateWindows;
+    private final Random random;
+    private ScheduledFuture<?> flushTask;
+    private boolean flushing;
+    private boolean persistScheduled;
+    private long droppedCount;
+
+    QiscusTelemetryBuffer() {
+        events = new ArrayDeque<>();
+        rateWindows = new HashMap<>();
+        random = new Random();
+        QiscusExecutors.getInstance().getDiskLane().execute(this::restore);
+    }
+
+    public static QiscusTelemetryBuffer getInstance() {
+        return INSTANCE;
+    }
+
+    public void record(String moduleName, String event, String message) {
+        QiscusTelemetryConfig config = getConfig();
+        if (!config.isEnable()) {
+            return;
+        }
+
+        boolean flushNow;
+        synchronized (this) {
+            if (random.nextFloat() >= config.getSampleRate(event)) {
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+            RateWindow window = getRateWindow(moduleName + "/" + event, now);
+            if (window.count >= config.getMaxEventsPerMinute()) {
+                window.suppressed++;
+                droppedCount++;
+                return;
+            }
+            window.count++;
+
+            QiscusTelemetryEvent telemetryEvent = new QiscusTelemetryEvent(moduleName, event, message, now);
+            telemetryEvent.setCount(1 + window.suppressed);
+            window.suppressed = 0;
+            events.addLast(telemetryEvent);
+            trimToMaxStoredEvents(config);
+            schedulePersist();
+
+            flushNow = events.size() >= config.getFlushSize();
+            if (!flushNow) {
+                scheduleFlush();
+            }
+        }
+
+        if (flushNow) {
+            QiscusExecutors.getInstance().getNetworkLane().execute(this::flush);
+        }
+    }
+
+    /**
+     * Report all buffered events now, does nothing while offline or when a report is already on its way.
+     */
+    public void flush() {
+        List<QiscusTelemetryEvent> batch;
+        synchronized (this) {
+            if (flushTask != null) {
+                flushTask.cancel(false);
+                flushTask = null;
+            }
+            if (flushing || events.isEmpty() || !QiscusCore.hasSetupUser()
+                    || !QiscusAndroidUtil.isNetworkAvailable()) {
+                return;
+            }
+            flushing = true;
+            batch = new ArrayList<>(events);
+            events.clear();
+        }
+
+        QiscusTelemetryEvent first = batch.get(0);
+        String moduleName = first.getModuleName();
+        String event = first.getEvent();
+        String message = first.getMessage();
+        if (batch.size() > 1 || first.getCount() > 1) {
+            for (QiscusTelemetryEvent telemetryEvent : batch) {
+                if (!moduleName.equals(telemetryEvent.getModuleName())) {
+                    moduleName = BATCH_MODULE;
+                    break;
+                }
+            }
+            event = BATCH_EVENT;
+            message = toJson(batch);
+        }
+
+        QiscusApi.getInstance().eventReport(moduleName, event, message)
+                .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
+                .subscribe(aVoid -> onFlushed(), throwable -> {
+                    QiscusErrorLogger.print(throwable);
+                    onFlushFailed(batch);
+                });
+    }
+
+    public synchronized void clear() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+        events.clear();
+        rateWindows.clear();
+        droppedCount = 0;
+        schedulePersist();
+    }
+
+    public synchronized int getPendingCount() {
+        return events.size();
+    }
+
+    /**
+     * @return how many events were rate limited or pushed out of the buffer
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    private synchronized void onFlushed() {
+        flushing = false;
+        schedulePersist();
+        if (!events.isEmpty()) {
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Put the batch back in front of newer events, keeping only what fits in the buffer.
+     */
+    private synchronized void onFlushFailed(List<QiscusTelemetryEvent> batch) {
+        flushing = false;
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            events.addFirst(batch.get(i));
+        }
+        trimToMaxStoredEvents(getConfig());
+        schedulePersist();
+        scheduleFlush();
+    }
+
+    /**
+     * Runs on the disk lane before any persist, events recorded in the meantime are kept after the restored ones.
+     */
+    private void restore() {
+        List<QiscusTelemetryEvent> storedEvents = QiscusCacheManager.getInstance().getPendingTelemetry();
+        synchronized (this) {
+            for (int i = storedEvents.size() - 1; i >= 0; i--) {
+                events.addFirst(storedEvents.get(i));
+            }
+            trimToMaxStoredEvents(getConfig());
+            if (!events.isEmpty()) {
+                scheduleFlush();
+            }
+        }
+    }
+
+    private RateWindow getRateWindow(String key, long now) {
+        RateWindow window = rateWindows.get(key);
+        if (window == null) {
+            window = new RateWindow();
+            window.start = now;
+            rateWindows.put(key, window);
+        } else if (now - window.start >= RATE_LIMIT_WINDOW) {
+            window.start = now;
+            window.count = 0;
+        }
+        return window;
+    }
+
+    private void trimToMaxStoredEvents(QiscusTelemetryConfig config) {
+        while (events.size() > Math.max(1, config.getMaxStoredEvents())) {
+            events.removeFirst();
+            droppedCount++;
+        }
+    }
+
+    private void scheduleFlush() {
+        if (flushTask == null) {
+            flushTask = QiscusAndroidUtil.runOnBackgroundThread(this::flush, getConfig().getFlushInterval());
+        }
+    }
+
+    private void schedulePersist() {
+        if (!persistScheduled) {
+            persistScheduled = true;
+            QiscusExecutors.getInstance().getDiskLane().execute(this::persist);
+        }
+    }
+
+    private void persist() {
+        List<QiscusTelemetryEvent> pendingEvents;
+        synchronized (this) {
+            persistScheduled = false;
+            pendingEvents = new ArrayList<>(events);
+        }
+        QiscusCacheManager.getInstance().cachePendingTelemetry(pendingEvents);
+    }
+
+    private static String toJson(List<QiscusTelemetryEvent> batch) {
+        JSONArray jsonArray = new JSONArray();
+        for (QiscusTelemetryEvent telemetryEvent : batch) {
+            try {
+                jsonArray.put(new JSONObject()
+                        .put("module_name", telemetryEvent.getModuleName())
+                        .put("event", telemetryEvent.getEvent())
+                        .put("message", telemetryEvent.getMessage())
+                        .put("timestamp", telemetryEvent.getTime())
+                        .put("count", telemetryEvent.getCount()));
+            } catch (JSONException e) {
+                //Do nothing
+            }
+        }
+        return jsonArray.toString();
+    }
+
+    private static QiscusTelemetryConfig getConfig() {
+        return QiscusCore.getChatConfig().getTelemetryConfig();
+    }
+}
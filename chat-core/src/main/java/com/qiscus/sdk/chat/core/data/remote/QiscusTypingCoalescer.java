@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.remote;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * Collapses incoming typing signals per user of a room, only state changes reach the listener.
+ * A user whose "typing" is not refreshed within expiry is reported as stopped, so a lost "stopped"
+ * signal doesn't leave the indicator on forever.
+ */
+public class QiscusTypingCoalescer {
+
+    public interface Listener {
+        void onTypingChanged(long roomId, String user, boolean typing);
+    }
+
+    private static class TypingState {
+        private final long roomId;
+        private final String user;
+        private long lastSeen;
+        private Future<?> expiryTask;
+
+        private TypingState(long roomId, String user) {
+            this.roomId = roomId;
+            this.user = user;
+        }
+    }
+
+    private final Listener listener;
+    private final long expiry;
+    private final QiscusReconnectPolicy.Clock clock;
+    private final QiscusTypingPublisher.Timer timer;
+    private final Map<String, TypingState> typingUsers = new HashMap<>();
+
+    public QiscusTypingCoalescer(Listener listener, long expiry) {
+        this(listener, expiry, QiscusReconnectPolicy.Clock.SYSTEM, QiscusTypingPublisher.Timer.BACKGROUND);
+    }
+
+    public QiscusTypingCoalescer(Listener listener, long expiry,
+                                 QiscusReconnectPolicy.Clock clock, QiscusTypingPublisher.Timer timer) {
+        this.listener = listener;
+        this.expiry = Math.max(1, expiry);
+        this.clock = clock;
+        this.timer = timer;
+    }
+
+    /**
+     * The listener is called while holding the lock, so changes of a user are delivered in order.
+     */
+    public synchronized void onTyping(long roomId, String user, boolean typing) {
+        String key = roomId + "/" + user;
+        TypingState state = typingUsers.get(key);
+        if (typing) {
+            if (state != null) {
+                state.lastSeen = clock.now();
+                return;
+            }
+            state = new TypingState(roomId, user);
+            state.lastSeen = clock.now();
+            state.expiryTask = timer.schedule(() -> checkExpiry(key), expiry);
+            typingUsers.put(key, state);
+            listener.onTypingChanged(roomId, user, true);
+        } else if (state != null) {
+            typingUsers.remove(key);
+            if (state.expiryTask != null) {
+                state.expiryTask.cancel(false);
+            }
+            listener.onTypingChanged(roomId, user, false);
+        }
+    }
+
+    public synchronized void clear() {
+        for (TypingState state : typingUsers.values()) {
+            if (state.expiryTask != null) {
+                state.expiryTask.cancel(false);
+            }
+        }
+        typingUsers.clear();
+    }
+
+    private synchronized void checkExpiry(String key) {
+        TypingState state = typingUsers.get(key);
+        if (state == null) {
+            return;
+        }
+        long remaining = state.lastSeen + expiry - clock.now();
+        if (remaining > 0) {
+            state.expiryTask = timer.schedule(() -> checkExpiry(key), remaining);
+            return;
+        }
+        typingUsers.remove(key);
+        listener.onTypingChanged(state.roomId, state.user, false);
+    }
+}
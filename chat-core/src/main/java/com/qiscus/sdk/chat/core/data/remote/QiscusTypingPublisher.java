@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.remote;
+
+import com.qiscus.sdk.chat.core.util.QiscusAndroidUtil;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * Turns keystrokes into typing signals. "Typing" is only sent when a room starts typing, and again
+ * every refreshInterval while typing continues so that receivers don't expire it. "Stopped" is sent
+ * explicitly or once nothing was typed for idleTimeout.
+ */
+public class QiscusTypingPublisher {
+
+    public interface Sender {
+        void send(long roomId, boolean typing);
+    }
+
+    public interface Timer {
+        Timer BACKGROUND = QiscusAndroidUtil::runOnBackgroundThread;
+
+        Future<?> schedule(Runnable task, long delay);
+    }
+
+    private static class RoomState {
+        private long lastActivity;
+        private long lastPublished;
+        private Future<?> idleTask;
+    }
+
+    private final Sender sender;
+    private final long refreshInterval;
+    private final long idleTimeout;
+    private final QiscusReconnectPolicy.Clock clock;
+    private final Timer timer;
+    private final Map<Long, RoomState> rooms = new HashMap<>();
+
+    public QiscusTypingPublisher(Sender sender, long refreshInterval, long idleTimeout) {
+        this(sender, refreshInterval, idleTimeout, QiscusReconnectPolicy.Clock.SYSTEM, Timer.BACKGROUND);
+    }
+
+    public QiscusTypingPublisher(Sender sender, long refreshInterval, long idleTimeout,
+                                 QiscusReconnectPolicy.Clock clock, Timer timer) {
+        this.sender = sender;
+        this.refreshInterval = refreshInterval;
+        this.idleTimeout = Math.max(1, idleTimeout);
+        this.clock = clock;
+        this.timer = timer;
+    }
+
+    /**
+     * Call it for every keystroke, most calls return without publishing anything.
+     */
+    public synchronized void onTyping(long roomId) {
+        long now = clock.now();
+        RoomState state = rooms.get(roomId);
+        if (state == null) {
+            state = new RoomState();
+            rooms.put(roomId, state);
+            state.lastActivity = now;
+            state.lastPublished = now;
+            state.idleTask = timer.schedule(() -> checkIdle(roomId), idleTimeout);
+            sender.send(roomId, true);
+            return;
+        }
+
+        state.lastActivity = now;
+        if (now - state.lastPublished >= refreshInterval) {
+            state.lastPublished = now;
+            sender.send(roomId, true);
+        }
+    }
+
+    public synchronized void stopTyping(long roomId) {
+        RoomState state = rooms.remove(roomId);
+        if (state == null) {
+            return;
+        }
+        if (state.idleTask != null) {
+            state.idleTask.cancel(false);
+        }
+        sender.send(roomId, false);
+    }
+
+    public synchronized boolean isTyping(long roomId) {
+        return rooms.containsKey(roomId);
+    }
+
+    /**
+     * The idle check is armed once per typing session and pushed forward by the remaining time,
+     * rather than rescheduled on every keystroke.
+     */
+    private synchronized void checkIdle(long roomId) {
+        RoomState state = rooms.get(roomId);
+        if (state == null) {
+            return;
+        }
+        long remaining = state.lastActivity + idleTimeout - clock.now();
+        if (remaining > 0) {
+            state.idleTask = timer.schedule(() -> checkIdle(roomId), remaining);
+            return;
+        }
+        rooms.remove(roomId);
+        sender.send(roomId, false);
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.remote;
+
+import android.net.Uri;
+
+import com.qiscus.sdk.chat.core.QiscusCore;
+import com.qiscus.sdk.chat.core.data.model.QiscusUploadSession;
+import com.qiscus.sdk.chat.core.util.QiscusAndroidUtil;
+import com.qiscus.sdk.chat.core.util.QiscusErrorLogger;
+import com.qiscus.sdk.chat.core.util.QiscusExecutors;
+
+import org.json.JSONException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.PriorityQueue;
+
+import okhttp3.Call;
+import rx.Emitter;
+import rx.Observable;
+
+/**
+ * A deduplicating retry queue for file uploads. Uploads run through a priority queue with at most
+ * {@link com.qiscus.sdk.chat.core.data.model.QiscusCoreChatConfig#getMaxConcurrentUploads()} of them at a time.
+ * Every finished upload is saved as a {@link QiscusUploadSession} in local database, so a file which has been
+ * uploaded before, e.g. when the process died before the comment was posted, is not sent again. Network failures
+ * are retried with backoff from the first byte, the upload endpoint can not resume a partial upload. The size of
+ * each write follows the measured upload throughput.
+ */
+public enum QiscusUploadManager {
+    INSTANCE;
+
+    public static final int PRIORITY_LOW = -1;
+    public static final int PRIORITY_NORMAL = 0;
+    public static final int PRIORITY_HIGH = 1;
+
+    private static final int MIN_WRITE_SIZE = 8 * 1024;
+    private static final int MAX_WRITE_SIZE = 512 * 1024;
+    private static final int DEFAULT_WRITE_SIZE = 64 * 1024;
+    private static final long WRITE_DURATION = 250;
+    private static final long SESSION_MAX_AGE = 24 * 60 * 60 * 1000L;
+
+    private static class UploadTask implements Comparable<UploadTask> {
+        private final File file;
+        private final int priority;
+        private final long sequence;
+        private final QiscusApi.ProgressListener progressListener;
+        private final Emitter<Uri> emitter;
+        private final QiscusReconnectPolicy retryPolicy;
+        private volatile boolean cancelled;
+        private volatile Call call;
+        private int attempts;
+
+        private UploadTask(File file, int priority, long sequence, QiscusApi.ProgressListener progressListener,
+                           Emitter<Uri> emitter) {
+            this.file = file;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.progressListener = progressListener;
+            this.emitter = emitter;
+            retryPolicy = new QiscusReconnectPolicy(1000, 30000);
+        }
+
+        @Override
+        public int compareTo(UploadTask other) {
+            if (priority != other.priority) {
+                return priority > other.priority ? -1 : 1;
+            }
+            return QiscusAndroidUtil.compare(sequence, other.sequence);
+        }
+    }
+
+    private final PriorityQueue<UploadTask> queue;
+    private long sequence;
+    private int runningCount;
+    private long throughput;
+
+    QiscusUploadManager() {
+        queue = new PriorityQueue<>();
+        QiscusExecutors.getInstance().getDiskLane().execute(() -> QiscusCore.getDataStore()
+                .deleteUploadSessionsBefore(System.currentTimeMillis() - SESSION_MAX_AGE));
+    }
+
+    public static QiscusUploadManager getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * The upload is queued once subscribed and cancelled when unsubscribed.
+     *
+     * @param priority one of {@link #PRIORITY_LOW}, {@link #PRIORITY_NORMAL} or {@link #PRIORITY_HIGH}
+     */
+    public Observable<Uri> upload(File file, int priority, QiscusApi.ProgressListener progressListener) {
+        return Observable.create(emitter -> {
+            UploadTask task;
+            synchronized (this) {
+                task = new UploadTask(file, priority, sequence++, progressListener, emitter);
+            }
+            emitter.setCancellation(() -> cancel(task));
+            enqueue(task);
+        }, Emitter.BackpressureMode.BUFFER);
+    }
+
+    public synchronized int getQueuedCount() {
+        return queue.size();
+    }
+
+    public synchronized int getRunningCount() {
+        return runningCount;
+    }
+
+    /**
+     * @return measured upload throughput in bytes per second, 0 before the first upload finished
+     */
+    public synchronized long getThroughput() {
+        return throughput;
+    }
+
+    private void enqueue(UploadTask task) {
+        synchronized (this) {
+            if (task.cancelled) {
+                return;
+            }
+            queue.add(task);
+        }
+        dispatch();
+    }
+
+    private void dispatch() {
+        int maxConcurrentUploads = Math.max(1, QiscusCore.getChatConfig().getMaxConcurrentUploads());
+        while (true) {
+            UploadTask task;
+            synchronized (this) {
+                if (runningCount >= maxConcurrentUploads || queue.isEmpty()) {
+                    return;
+                }
+                task = queue.poll();
+                if (task.cancelled) {
+                    continue;
+                }
+                runningCount++;
+            }
+            QiscusExecutors.getInstance().getNetworkLane().execute(() -> run(task));
+        }
+    }
+
+    private void cancel(UploadTask task) {
+        task.cancelled = true;
+        synchronized (this) {
+            queue.remove(task);
+        }
+        Call call = task.call;
+        if (call != null) {
+            call.cancel();
+        }
+    }
+
+    private void run(UploadTask task) {
+        try {
+            Uri uri = upload(task);
+            if (!task.cancelled) {
+                task.emitter.onNext(uri);
+                task.emitter.onCompleted();
+            }
+        } catch (IOException e) {
+            retryOrFail(task, e);
+        } catch (JSONException | RuntimeException e) {
+            QiscusErrorLogger.print("UploadFile", e);
+            if (!task.cancelled) {
+                task.emitter.onError(e);
+            }
+        } finally {
+            synchronized (this) {
+                runningCount--;
+            }
+            dispatch();
+        }
+    }
+
+    private Uri upload(UploadTask task) throws IOException, JSONException {
+        File file = task.file;
+        QiscusUploadSession savedSession = QiscusCore.getDataStore().getUploadSession(file.getAbsolutePath());
+        if (savedSession != null && savedSession.isSameFile(file) && savedSession.isFinished()) {
+            task.progressListener.onProgress(100);
+            return Uri.parse(savedSession.getUrl());
+        }
+
+        QiscusUploadSession session = QiscusUploadSession.from(file);
+        long fileLength = Math.max(1, session.getFileSize());
+        Call call = QiscusApi.getInstance().newUploadCall(file, getWriteSize(),
+                totalBytes -> task.progressListener.onProgress(totalBytes * 100 / fileLength));
+        task.call = call;
+        if (task.cancelled) {
+            call.cancel();
+        }
+
+        long startTime = System.currentTimeMillis();
+        String url = QiscusUploadRequest.parseUrl(call.execute());
+        updateThroughput(session.getFileSize(), System.currentTimeMillis() - startTime);
+        session.setUrl(url);
+        session.setUpdatedAt(System.currentTimeMillis());
+        QiscusCore.getDataStore().saveUploadSession(session);
+        return Uri.parse(url);
+    }
+
+    private void retryOrFail(UploadTask task, IOException e) {
+        if (task.cancelled) {
+            return;
+        }
+        if (task.attempts < QiscusCore.getChatConfig().getUploadMaxRetries()) {
+            task.attempts++;
+            long delay = task.retryPolicy.nextDelay();
+            QiscusErrorLogger.print("UploadFile", "Upload of " + task.file.getName() + " failed, retrying in "
+                    + delay + "ms: " + e.getMessage());
+            QiscusAndroidUtil.runOnBackgroundThread(() -> enqueue(task), delay);
+        } else {
+            QiscusErrorLogger.print("UploadFile", e);
+            task.emitter.onError(e);
+        }
+    }
+
+    /**
+     * Write about {@link #WRITE_DURATION} ms worth of data at a time, so slow networks still get frequent progress
+     * and fast networks are not slowed down by tiny writes.
+     */
+    private synchronized int getWriteSize() {
+        if (throughput <= 0) {
+            return DEFAULT_WRITE_SIZE;
+        }
+        long size = Long.highestOneBit(Math.max(1, throughput * WRITE_DURATION / 1000));
+        return (int) Math.max(MIN_WRITE_SIZE, Math.min(MAX_WRITE_SIZE, size));
+    }
+
+    private synchronized void updateThroughput(long bytes, long duration) {
+        if (bytes < MIN_WRITE_SIZE) {
+            return;
+        }
+        long measured = bytes * 1000 / Math.max(1, duration);
+        throughput = throughput <= 0 ? measured : (throughput * 3 + measured) / 4;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.remote;
+
+import androidx.annotation.NonNull;
+
+import com.qiscus.sdk.chat.core.data.remote.QiscusApi.ProgressListener;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.internal.Util;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Request and response of the upload endpoint. It is a single multipart POST, the server has no chunk or resume
+ * protocol, so an interrupted upload is sent again from the first byte.
+ */
+final class QiscusUploadRequest {
+
+    private QiscusUploadRequest() {
+
+    }
+
+    /**
+     * Build the multipart upload request of a file, the file is written to the socket writeSize bytes at a time
+     * and progressListener gets the total bytes written so far.
+     */
+    static Request create(String baseUrl, String token, File file, int writeSize, ProgressListener progressListener) {
+        RequestBody requestBody = new MultipartBody.Builder()
+                .setType(MultipartBody.FORM)
+                .addFormDataPart("token", token)
+                .addFormDataPart("file", file.getName(),
+                        new CountingFileRequestBody(file, writeSize, progressListener))
+                .build();
+
+        return new Request.Builder()
+                .url(baseUrl + "api/v2/mobile/upload")
+                .post(requestBody).build();
+    }
+
+    /**
+     * @throws IOException when the request should be retried, server errors included
+     */
+    static String parseUrl(Response response) throws IOException, JSONException {
+        try {
+            if (response.code() >= 500) {
+                throw new IOException("Upload failed, server returned " + response.code());
+            }
+            JSONObject responseJ = new JSONObject(response.body().string());
+            return responseJ.getJSONObject("results").getJSONObject("file").getString("url");
+        } finally {
+            response.close();
+        }
+    }
+
+    private static class CountingFileRequestBody extends RequestBody {
+        private static final int IGNORE_FIRST_NUMBER_OF_WRITE_TO_CALL = 0;
+        private final File file;
+        private final int segmentSize;
+        private final ProgressListener progressListener;
+        private int numWriteToCall = -1;
+
+        private CountingFileRequestBody(File file, int segmentSize, ProgressListener progressListener) {
+            this.file = file;
+            this.segmentSize = segmentSize;
+            this.progressListener = progressListener;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return MediaType.parse("application/octet-stream");
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return file.length();
+        }
+
+        @Override
+        public void writeTo(@NonNull BufferedSink sink) throws IOException {
+            numWriteToCall++;
+
+            Source source = null;
+            try {
+                source = Okio.source(file);
+                long total = 0;
+                long read;
+
+                while ((read = source.read(sink.buffer(), segmentSize)) != -1) {
+                    total += read;
+                    sink.flush();
+
+                    /**
+                     * When we use HttpLoggingInterceptor,
+                     * we have issue with progress update not valid.
+                     * So we must check, first call is to HttpLoggingInterceptor
+                     * second call is to request
+                     */
+                    if (numWriteToCall > IGNORE_FIRST_NUMBER_OF_WRITE_TO_CALL) {
+                        progressListener.onProgress(total);
+                    }
+
+                }
+            } finally {
+                Util.closeQuietly(source);
+            }
+        }
+    }
+}
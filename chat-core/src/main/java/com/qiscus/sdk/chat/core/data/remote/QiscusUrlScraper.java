@@ -16,11 +16,12 @@
 
 package com.qiscus.sdk.chat.core.data.remote;
 
+import com.qiscus.sdk.chat.core.util.QiscusExecutors;
+
 import com.schinizer.rxunfurl.RxUnfurl;
 import com.schinizer.rxunfurl.model.PreviewData;
 
 import rx.Observable;
-import rx.schedulers.Schedulers;
 
 /**
  * Created on : December 09, 2016
@@ -35,7 +36,7 @@ public enum QiscusUrlScraper {
 
     QiscusUrlScraper() {
         rxUnfurl = new RxUnfurl.Builder()
-                .scheduler(Schedulers.io())
+                .scheduler(QiscusExecutors.getInstance().getNetworkScheduler())
                 .build();
     }
 
@@ -8,6 +8,7 @@ import com.qiscus.sdk.chat.core.data.model.QiscusRoomMember;
 import com.qiscus.sdk.chat.core.data.remote.QiscusPusherApi;
 import com.qiscus.sdk.chat.core.event.QiscusChatRoomEvent;
 import com.qiscus.sdk.chat.core.util.QiscusAndroidUtil;
+import com.qiscus.sdk.chat.core.util.QiscusExecutors;
 import com.qiscus.sdk.chat.core.util.QiscusRawDataExtractor;
 
 import org.greenrobot.eventbus.EventBus;
@@ -29,6 +30,7 @@ public class QiscusChatRoomEventHandler {
     private QiscusAccount qiscusAccount;
     private StateListener listener;
     private QiscusChatRoom qiscusChatRoom;
+    private QiscusChatRoom listenedChatRoom;
     private Runnable listenChatRoomTask;
     private HashMap<String, QiscusRoomMember> memberState;
 
@@ -68,18 +70,28 @@ public class QiscusChatRoomEventHandler {
     }
 
     private void listenChatRoomEvent() {
-        QiscusPusherApi.getInstance().listenRoom(qiscusChatRoom);
+        listenedChatRoom = qiscusChatRoom;
+        QiscusPusherApi.getInstance().listenRoom(listenedChatRoom);
     }
 
+    /**
+     * Room topics are reference counted, so only release the reference this handler took. The delayed listen may
+     * not have run yet when the screen closes quickly.
+     */
     public void detach() {
         QiscusAndroidUtil.cancelRunOnUIThread(listenChatRoomTask);
-        QiscusPusherApi.getInstance().unListenRoom(qiscusChatRoom);
+        if (listenedChatRoom != null) {
+            QiscusPusherApi.getInstance().unListenRoom(listenedChatRoom);
+            listenedChatRoom = null;
+        }
         EventBus.getDefault().unregister(this);
     }
 
     @Subscribe
     public void onChatRoomEvent(QiscusChatRoomEvent event) {
-        QiscusAndroidUtil.runOnBackgroundThread(() -> handleEvent(event));
+        //Only typing is fine to lose, read and delivered states are not loaded again after an overflow
+        QiscusExecutors.getInstance().getRealtimeExecutor().execute(event.getRoomId(), () -> handleEvent(event),
+                event.getEvent() == QiscusChatRoomEvent.Event.TYPING);
     }
 
     private void handleEvent(QiscusChatRoomEvent event) {
@@ -150,7 +162,7 @@ public class QiscusChatRoomEventHandler {
             memberState.put(member.getEmail(), member);
 
             listener.onChatRoomMemberAdded(member);
-            QiscusAndroidUtil.runOnBackgroundThread(() ->
+            QiscusExecutors.getInstance().getDiskLane().execute(() ->
                     QiscusCore.getDataStore().addOrUpdateRoomMember(qiscusChatRoom.getId(), member, qiscusChatRoom.getDistinctId()));
         }
     }
@@ -159,7 +171,7 @@ public class QiscusChatRoomEventHandler {
         if (memberState.remove(member.getEmail()) != null) {
 
             listener.onChatRoomMemberRemoved(member);
-            QiscusAndroidUtil.runOnBackgroundThread(() ->
+            QiscusExecutors.getInstance().getDiskLane().execute(() ->
                     QiscusCore.getDataStore().deleteRoomMember(qiscusChatRoom.getId(), member.getEmail()));
         }
     }
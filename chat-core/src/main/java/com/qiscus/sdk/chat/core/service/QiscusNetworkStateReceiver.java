@@ -21,7 +21,9 @@ import android.content.Context;
 import android.content.Intent;
 
 import com.qiscus.sdk.chat.core.QiscusCore;
+import com.qiscus.sdk.chat.core.data.remote.QiscusPusherApi;
 import com.qiscus.sdk.chat.core.data.remote.QiscusResendCommentHelper;
+import com.qiscus.sdk.chat.core.data.remote.QiscusTelemetryBuffer;
 import com.qiscus.sdk.chat.core.util.QiscusAndroidUtil;
 import com.qiscus.sdk.chat.core.util.QiscusLogger;
 
@@ -38,6 +40,12 @@ public class QiscusNetworkStateReceiver extends BroadcastReceiver {
         boolean isConnected = QiscusAndroidUtil.isNetworkAvailable();
         QiscusLogger.print(TAG, "isConnected : " + isConnected);
         QiscusAndroidUtil.runOnBackgroundThread(() -> {
+            if (QiscusCore.hasSetupUser()) {
+                QiscusPusherApi.getInstance().onNetworkStateChanged(isConnected);
+                if (isConnected) {
+                    QiscusTelemetryBuffer.getInstance().flush();
+                }
+            }
             if (needResend(isConnected)) {
                 QiscusResendCommentHelper.cancelAll();
                 QiscusResendCommentHelper.tryResendPendingComment();
@@ -36,13 +36,13 @@ import com.qiscus.sdk.chat.core.event.QiscusSyncEvent;
 import com.qiscus.sdk.chat.core.event.QiscusUserEvent;
 import com.qiscus.sdk.chat.core.util.QiscusAndroidUtil;
 import com.qiscus.sdk.chat.core.util.QiscusErrorLogger;
+import com.qiscus.sdk.chat.core.util.QiscusExecutors;
 import com.qiscus.sdk.chat.core.util.QiscusLogger;
 
 import org.greenrobot.eventbus.EventBus;
 import org.greenrobot.eventbus.Subscribe;
 
 import rx.android.schedulers.AndroidSchedulers;
-import rx.schedulers.Schedulers;
 
 /**
  * Created on : November 23, 2018
@@ -103,7 +103,7 @@ public class QiscusSyncJobService extends JobService {
 
     private void syncEvents() {
         QiscusApi.getInstance().getEvents(QiscusEventCache.getInstance().getLastEventId())
-                .subscribeOn(Schedulers.io())
+                .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(events -> {
                 }, QiscusErrorLogger::print);
@@ -119,7 +119,7 @@ public class QiscusSyncJobService extends JobService {
                     EventBus.getDefault().post((QiscusSyncEvent.COMPLETED));
                     QiscusLogger.print("Sync completed...");
                 })
-                .subscribeOn(Schedulers.io())
+                .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(QiscusPusherApi::handleReceivedComment, throwable -> {
                     QiscusErrorLogger.print(throwable);
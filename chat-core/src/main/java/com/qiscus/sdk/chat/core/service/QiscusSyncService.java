@@ -46,6 +46,7 @@ import com.qiscus.sdk.chat.core.event.QiscusSyncEvent;
 import com.qiscus.sdk.chat.core.event.QiscusUserEvent;
 import com.qiscus.sdk.chat.core.util.QiscusAndroidUtil;
 import com.qiscus.sdk.chat.core.util.QiscusErrorLogger;
+import com.qiscus.sdk.chat.core.util.QiscusExecutors;
 import com.qiscus.sdk.chat.core.util.QiscusLogger;
 
 import org.greenrobot.eventbus.EventBus;
@@ -55,7 +56,6 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import rx.android.schedulers.AndroidSchedulers;
-import rx.schedulers.Schedulers;
 
 /**
  * Created on : June 29, 2016
@@ -108,7 +108,7 @@ public class QiscusSyncService extends Service {
 
     private void syncEvents() {
         QiscusApi.getInstance().getEvents(QiscusEventCache.getInstance().getLastEventId())
-                .subscribeOn(Schedulers.io())
+                .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(events -> {
                 }, QiscusErrorLogger::print);
@@ -124,7 +124,7 @@ public class QiscusSyncService extends Service {
                     EventBus.getDefault().post((QiscusSyncEvent.COMPLETED));
                     QiscusLogger.print("Sync completed...");
                 })
-                .subscribeOn(Schedulers.io())
+                .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(QiscusPusherApi::handleReceivedComment, throwable -> {
                     QiscusErrorLogger.print(throwable);
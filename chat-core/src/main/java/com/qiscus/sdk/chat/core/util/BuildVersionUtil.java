@@ -21,6 +21,10 @@ public final class BuildVersionUtil {
 
     }
 
+    public static boolean isKitKatOrHigher() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT;
+    }
+
     public static boolean isOreoLower() {
         return Build.VERSION.SDK_INT < Build.VERSION_CODES.O;
     }
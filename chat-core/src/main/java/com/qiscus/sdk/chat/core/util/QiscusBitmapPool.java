@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.util;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * Keeps mutable ARGB_8888 bitmaps up to maxSize bytes so they can be reused as
+ * {@link android.graphics.BitmapFactory.Options#inBitmap}. Reusing bitmaps of a different size requires KitKat,
+ * so older devices always miss. The least recently added bitmaps are recycled first.
+ */
+public class QiscusBitmapPool {
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final long maxSize;
+    private final LinkedList<Bitmap> bitmaps;
+    private long size;
+    private long hitCount;
+    private long missCount;
+
+    public QiscusBitmapPool(long maxSize) {
+        this.maxSize = maxSize;
+        bitmaps = new LinkedList<>();
+    }
+
+    /**
+     * @return the smallest pooled bitmap which can hold width x height pixels, or null
+     */
+    public synchronized Bitmap get(int width, int height) {
+        if (!BuildVersionUtil.isKitKatOrHigher()) {
+            missCount++;
+            return null;
+        }
+
+        long neededSize = (long) width * height * BYTES_PER_PIXEL;
+        Bitmap found = null;
+        for (Bitmap bitmap : bitmaps) {
+            long bitmapSize = getSize(bitmap);
+            if (bitmapSize >= neededSize && (found == null || bitmapSize < getSize(found))) {
+                found = bitmap;
+            }
+        }
+        if (found == null) {
+            missCount++;
+            return null;
+        }
+        bitmaps.remove(found);
+        size -= getSize(found);
+        hitCount++;
+        return found;
+    }
+
+    /**
+     * Give a bitmap back, the caller must not use it anymore. Bitmaps which can not be reused are recycled.
+     */
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        if (!BuildVersionUtil.isKitKatOrHigher() || !bitmap.isMutable()
+                || bitmap.getConfig() != Bitmap.Config.ARGB_8888 || getSize(bitmap) > maxSize) {
+            bitmap.recycle();
+            return;
+        }
+
+        bitmaps.addLast(bitmap);
+        size += getSize(bitmap);
+        Iterator<Bitmap> iterator = bitmaps.iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            Bitmap oldest = iterator.next();
+            iterator.remove();
+            size -= getSize(oldest);
+            oldest.recycle();
+        }
+    }
+
+    public synchronized void clear() {
+        for (Bitmap bitmap : bitmaps) {
+            bitmap.recycle();
+        }
+        bitmaps.clear();
+        size = 0;
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private static long getSize(Bitmap bitmap) {
+        return bitmap.getAllocationByteCount();
+    }
+}
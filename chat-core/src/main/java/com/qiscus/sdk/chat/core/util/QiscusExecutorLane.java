@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.util;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+/**
+ * An executor for one kind of work, it records how many tasks are waiting and how long they waited
+ * before running. The default lane is a pool with named threads and a bounded queue. What happens when the queue
+ * is full is decided by the {@link SaturationPolicy} of the lane, dropped and blocked submissions are counted next
+ * to the queue metrics. A task never runs on the caller thread, so network work can not end up on main thread and a
+ * single thread lane stays the only writer.
+ */
+public class QiscusExecutorLane implements Executor {
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    public enum SaturationPolicy {
+        /**
+         * The caller waits until the queue has room. Tasks submitted from a thread of the lane itself never wait,
+         * they are kept in order behind the queue, so a lane can not deadlock on its own work.
+         */
+        BLOCK,
+        /**
+         * The oldest waiting task is dropped to make room, for work where only the latest tasks matter.
+         */
+        DROP_OLDEST,
+        /**
+         * {@link RejectedExecutionException} is thrown to the caller.
+         */
+        REJECT
+    }
+
+    private final String name;
+    private final Executor executor;
+    private final Scheduler scheduler;
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong executedCount = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong blockedCount = new AtomicLong();
+
+    public QiscusExecutorLane(String name, Executor executor) {
+        this.name = name;
+        this.executor = executor;
+        scheduler = Schedulers.from(this);
+    }
+
+    private QiscusExecutorLane(String name, int threads, int queueCapacity, SaturationPolicy policy) {
+        this.name = name;
+        SaturatingThreadPoolExecutor threadPoolExecutor = new SaturatingThreadPoolExecutor(threads, queueCapacity,
+                policy, new NamedThreadFactory(name));
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        executor = threadPoolExecutor;
+        scheduler = Schedulers.from(this);
+    }
+
+    public static QiscusExecutorLane create(String name, int threads, int queueCapacity) {
+        return create(name, threads, queueCapacity, SaturationPolicy.BLOCK);
+    }
+
+    public static QiscusExecutorLane create(String name, int threads, int queueCapacity, SaturationPolicy policy) {
+        return new QiscusExecutorLane(name, threads, queueCapacity, policy);
+    }
+
+    @Override
+    public void execute(@NonNull Runnable runnable) {
+        queueDepth.incrementAndGet();
+        try {
+            executor.execute(new LaneTask(runnable));
+        } catch (RejectedExecutionException e) {
+            queueDepth.decrementAndGet();
+            droppedCount.incrementAndGet();
+            throw e;
+        }
+    }
+
+    private void recordLatency(long latency) {
+        executedCount.incrementAndGet();
+        totalLatency.addAndGet(latency);
+        long max = maxLatency.get();
+        while (latency > max && !maxLatency.compareAndSet(max, latency)) {
+            max = maxLatency.get();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * @return number of tasks submitted but not started yet
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public long getExecutedCount() {
+        return executedCount.get();
+    }
+
+    /**
+     * @return number of tasks which never ran because the queue was full, dropped or rejected
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return number of submissions which had to wait for room in the queue
+     */
+    public long getBlockedCount() {
+        return blockedCount.get();
+    }
+
+    /**
+     * @return average milliseconds a task waited in the queue before it started
+     */
+    public long getAverageQueueLatency() {
+        long count = executedCount.get();
+        return count == 0 ? 0 : totalLatency.get() / count;
+    }
+
+    public long getMaxQueueLatency() {
+        return maxLatency.get();
+    }
+
+    public void resetMetrics() {
+        executedCount.set(0);
+        totalLatency.set(0);
+        maxLatency.set(0);
+        droppedCount.set(0);
+        blockedCount.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return name + "{queueDepth=" + getQueueDepth()
+                + ", executed=" + getExecutedCount()
+                + ", dropped=" + getDroppedCount()
+                + ", blocked=" + getBlockedCount()
+                + ", avgLatency=" + getAverageQueueLatency() + "ms"
+                + ", maxLatency=" + getMaxQueueLatency() + "ms}";
+    }
+
+    private class LaneTask implements Runnable {
+        private final Runnable runnable;
+        private final long enqueuedAt;
+
+        private LaneTask(Runnable runnable) {
+            this.runnable = runnable;
+            enqueuedAt = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            queueDepth.decrementAndGet();
+            recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - enqueuedAt));
+            runnable.run();
+        }
+
+        private void drop() {
+            queueDepth.decrementAndGet();
+            droppedCount.incrementAndGet();
+        }
+    }
+
+    private class SaturatingThreadPoolExecutor extends ThreadPoolExecutor {
+        private final SaturationPolicy policy;
+        private final Queue<Runnable> overflow = new ArrayDeque<>();
+        private final ThreadLocal<Boolean> laneThread = new ThreadLocal<>();
+
+        private SaturatingThreadPoolExecutor(int threads, int queueCapacity, SaturationPolicy policy,
+                                             ThreadFactory threadFactory) {
+            super(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(queueCapacity),
+                    threadFactory, new ThreadPoolExecutor.AbortPolicy());
+            this.policy = policy;
+        }
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            boolean blocked = false;
+            synchronized (overflow) {
+                while (true) {
+                    if (overflow.isEmpty()) {
+                        try {
+                            super.execute(command);
+                            return;
+                        } catch (RejectedExecutionException e) {
+                            if (isShutdown()) {
+                                throw e;
+                            }
+                        }
+                    }
+                    if (policy == SaturationPolicy.REJECT) {
+                        throw new RejectedExecutionException(name + " queue is full");
+                    }
+                    if (policy == SaturationPolicy.DROP_OLDEST) {
+                        Runnable oldest = getQueue().poll();
+                        if (oldest instanceof LaneTask) {
+                            ((LaneTask) oldest).drop();
+                        }
+                        continue;
+                    }
+                    if (laneThread.get() != null) {
+                        overflow.add(command);
+                        return;
+                    }
+                    if (!blocked) {
+                        blocked = true;
+                        blockedCount.incrementAndGet();
+                    }
+                    try {
+                        overflow.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException(name + " interrupted while waiting for room", e);
+                    }
+                }
+            }
+        }
+
+        @Override
+        protected void beforeExecute(Thread t, Runnable r) {
+            laneThread.set(Boolean.TRUE);
+            super.beforeExecute(t, r);
+        }
+
+        @Override
+        protected void afterExecute(Runnable r, Throwable t) {
+            super.afterExecute(r, t);
+            synchronized (overflow) {
+                while (!overflow.isEmpty() && getQueue().offer(overflow.peek())) {
+                    overflow.poll();
+                }
+                overflow.notifyAll();
+            }
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private NamedThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.util;
+
+import com.qiscus.sdk.chat.core.QiscusCore;
+import com.qiscus.sdk.chat.core.data.model.QiscusExecutorConfig;
+
+import java.util.concurrent.Executor;
+
+import rx.Scheduler;
+
+/**
+ * Background work is split in lanes so one kind of work can not starve the others:
+ * network for api calls and sync, disk for local database writes (single thread), realtime for
+ * incoming MQTT comments and room events (ordered per room, parallel across rooms), and cpu for parsing or sorting.
+ * Lanes are created on first use from {@link QiscusExecutorConfig}, so configure it right after init.
+ * Disk and realtime lanes always block when full, a dropped database write or room event can not be recovered.
+ */
+public enum QiscusExecutors {
+    INSTANCE;
+
+    private static final int REALTIME_BATCH_SIZE = 16;
+
+    private QiscusExecutorLane networkLane;
+    private QiscusExecutorLane diskLane;
+    private QiscusExecutorLane realtimeLane;
+    private QiscusExecutorLane cpuLane;
+    private QiscusKeyedSerialExecutor<Long> realtimeExecutor;
+
+    public static QiscusExecutors getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized QiscusExecutorLane getNetworkLane() {
+        if (networkLane == null) {
+            QiscusExecutorConfig config = getConfig();
+            networkLane = createLane("qiscus-network", config.getNetworkExecutor(),
+                    config.getNetworkThreads(), config.getNetworkQueueCapacity(), config.getNetworkSaturationPolicy());
+        }
+        return networkLane;
+    }
+
+    public synchronized QiscusExecutorLane getDiskLane() {
+        if (diskLane == null) {
+            QiscusExecutorConfig config = getConfig();
+            diskLane = createLane("qiscus-disk", config.getDiskExecutor(), 1, config.getDiskQueueCapacity(),
+                    QiscusExecutorLane.SaturationPolicy.BLOCK);
+        }
+        return diskLane;
+    }
+
+    public synchronized QiscusExecutorLane getRealtimeLane() {
+        if (realtimeLane == null) {
+            QiscusExecutorConfig config = getConfig();
+            realtimeLane = createLane("qiscus-realtime", config.getRealtimeExecutor(),
+                    config.getRealtimeThreads(), config.getRealtimeQueueCapacity(),
+                    QiscusExecutorLane.SaturationPolicy.BLOCK);
+        }
+        return realtimeLane;
+    }
+
+    /**
+     * @return executor keyed by room id on top of the realtime lane
+     */
+    public synchronized QiscusKeyedSerialExecutor<Long> getRealtimeExecutor() {
+        if (realtimeExecutor == null) {
+            realtimeExecutor = new QiscusKeyedSerialExecutor<>(getRealtimeLane(),
+                    getConfig().getRealtimeMaxPendingPerRoom(), REALTIME_BATCH_SIZE);
+        }
+        return realtimeExecutor;
+    }
+
+    public synchronized QiscusExecutorLane getCpuLane() {
+        if (cpuLane == null) {
+            QiscusExecutorConfig config = getConfig();
+            cpuLane = createLane("qiscus-cpu", config.getCpuExecutor(),
+                    config.getCpuThreads(), config.getCpuQueueCapacity(), config.getCpuSaturationPolicy());
+        }
+        return cpuLane;
+    }
+
+    public Scheduler getNetworkScheduler() {
+        return getNetworkLane().getScheduler();
+    }
+
+    public Scheduler getDiskScheduler() {
+        return getDiskLane().getScheduler();
+    }
+
+    public Scheduler getCpuScheduler() {
+        return getCpuLane().getScheduler();
+    }
+
+    private QiscusExecutorConfig getConfig() {
+        return QiscusCore.getChatConfig().getExecutorConfig();
+    }
+
+    private QiscusExecutorLane createLane(String name, Executor customExecutor, int threads, int queueCapacity,
+                                          QiscusExecutorLane.SaturationPolicy policy) {
+        if (customExecutor != null) {
+            return new QiscusExecutorLane(name, customExecutor);
+        }
+        return QiscusExecutorLane.create(name, threads, queueCapacity, policy);
+    }
+}
@@ -25,9 +25,9 @@ import android.provider.OpenableColumns;
 import android.webkit.MimeTypeMap;
 
 import com.qiscus.sdk.chat.core.QiscusCore;
+import com.qiscus.sdk.chat.core.data.local.QiscusAttachmentCache;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -145,17 +145,11 @@ public final class QiscusFileUtil {
         }
     }
 
+    /**
+     * Copy the file into app folder, a file whose content is already there is not copied again.
+     */
     public static File saveFile(File file) {
-        String path = generateFilePath(file.getName());
-        File newFile = new File(path);
-        try {
-            FileInputStream in = new FileInputStream(file);
-            FileOutputStream out = new FileOutputStream(newFile);
-            copy(in, out);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return newFile;
+        return QiscusAttachmentCache.getInstance().store(file);
     }
 
     public static String generateFilePath(String fileName) {
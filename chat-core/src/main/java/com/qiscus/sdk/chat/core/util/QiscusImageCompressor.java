@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.util;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+
+import com.qiscus.sdk.chat.core.QiscusCore;
+import com.qiscus.sdk.chat.core.data.model.QiscusImageCompressionConfig;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import rx.Observable;
+
+/**
+ * Compress images for sending off the calling thread, bounded by
+ * {@link QiscusImageCompressionConfig#getMaxWidth()} and {@link QiscusImageCompressionConfig#getMaxHeight()}.
+ * Pixels are decoded only once, straight at the target size: inSampleSize does the coarse power of two
+ * reduction and density scaling does the rest inside the decoder, into a pooled bitmap when possible.
+ * How many images are compressed at once is derived from the heap available to the app.
+ */
+public enum QiscusImageCompressor {
+    INSTANCE;
+
+    public interface ProgressListener {
+        void onProgress(int percent);
+    }
+
+    private static final int BYTES_PER_PIXEL = 4;
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    private static final int HEAP_BUDGET_DIVIDER = 4;
+
+    private QiscusExecutorLane lane;
+    private QiscusBitmapPool bitmapPool;
+
+    public static QiscusImageCompressor getInstance() {
+        return INSTANCE;
+    }
+
+    public Observable<File> compressAsync(File imageFile) {
+        return compressAsync(imageFile, null);
+    }
+
+    public Observable<File> compressAsync(File imageFile, ProgressListener progressListener) {
+        return Observable.fromCallable(() -> compress(imageFile, progressListener))
+                .subscribeOn(getLane().getScheduler());
+    }
+
+    /**
+     * Compress on the calling thread, prefer {@link #compressAsync(File, ProgressListener)}.
+     */
+    public File compress(File imageFile, ProgressListener progressListener) throws IOException {
+        QiscusImageCompressionConfig config = getConfig();
+        File compressedImage = new File(QiscusFileUtil.generateFilePath(imageFile.getName(),
+                getExtension(config.getFormat())));
+        compress(imageFile, compressedImage, config, progressListener);
+
+        QiscusFileUtil.notifySystem(compressedImage);
+        notifyProgress(progressListener, 100);
+        return compressedImage;
+    }
+
+    /**
+     * Decode, scale and encode imageFile into compressedImage with the given config, without going through
+     * {@link QiscusCore}.
+     */
+    void compress(File imageFile, File compressedImage, QiscusImageCompressionConfig config,
+                  ProgressListener progressListener) throws IOException {
+        String path = imageFile.getAbsolutePath();
+        notifyProgress(progressListener, 0);
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("Can not decode image " + path);
+        }
+
+        int orientation = getOrientation(path);
+        boolean transposed = orientation >= ExifInterface.ORIENTATION_TRANSPOSE;
+        int displayedWidth = transposed ? options.outHeight : options.outWidth;
+        int displayedHeight = transposed ? options.outWidth : options.outHeight;
+        float scale = Math.min(1f, Math.min(config.getMaxWidth() / displayedWidth,
+                config.getMaxHeight() / displayedHeight));
+        int targetWidth = Math.max(1, Math.round(options.outWidth * scale));
+        int targetHeight = Math.max(1, Math.round(options.outHeight * scale));
+
+        QiscusBitmapPool bitmapPool = getBitmapPool(config);
+        Bitmap bitmap = decode(path, options, targetWidth, targetHeight, bitmapPool);
+        notifyProgress(progressListener, 60);
+
+        Bitmap.CompressFormat format = config.getFormat();
+        boolean keepOrientation = format == Bitmap.CompressFormat.JPEG;
+        if (!keepOrientation && orientation > ExifInterface.ORIENTATION_NORMAL) {
+            Bitmap rotated = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(),
+                    getOrientationMatrix(orientation), true);
+            if (rotated != bitmap) {
+                bitmapPool.put(bitmap);
+            }
+            bitmap = rotated;
+        }
+
+        OutputStream out = null;
+        try {
+            out = new BufferedOutputStream(new FileOutputStream(compressedImage), OUTPUT_BUFFER_SIZE);
+            if (!bitmap.compress(format, config.getQuality(), out)) {
+                throw new IOException("Can not encode image " + path);
+            }
+        } finally {
+            bitmapPool.put(bitmap);
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                    //Do nothing
+                }
+            }
+        }
+        notifyProgress(progressListener, 90);
+
+        if (keepOrientation && orientation > ExifInterface.ORIENTATION_NORMAL) {
+            ExifInterface exif = new ExifInterface(compressedImage.getAbsolutePath());
+            exif.setAttribute(ExifInterface.TAG_ORIENTATION, String.valueOf(orientation));
+            exif.saveAttributes();
+        }
+    }
+
+    public QiscusBitmapPool getBitmapPool() {
+        return getBitmapPool(getConfig());
+    }
+
+    private synchronized QiscusBitmapPool getBitmapPool(QiscusImageCompressionConfig config) {
+        if (bitmapPool == null) {
+            long maxSize = Math.min(Runtime.getRuntime().maxMemory() / (HEAP_BUDGET_DIVIDER * 2),
+                    getMaxConcurrentCompressions(config) * getTargetSize(config));
+            bitmapPool = new QiscusBitmapPool(maxSize);
+        }
+        return bitmapPool;
+    }
+
+    /**
+     * Each compression holds about two target size bitmaps at peak, all of them together may use
+     * a quarter of the heap.
+     */
+    public int getMaxConcurrentCompressions() {
+        return getMaxConcurrentCompressions(getConfig());
+    }
+
+    private static int getMaxConcurrentCompressions(QiscusImageCompressionConfig config) {
+        int configured = config.getMaxConcurrentCompressions();
+        if (configured > 0) {
+            return configured;
+        }
+        long byHeap = Runtime.getRuntime().maxMemory() / HEAP_BUDGET_DIVIDER / (getTargetSize(config) * 2);
+        return (int) Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), byHeap));
+    }
+
+    private static Bitmap decode(String path, BitmapFactory.Options options, int targetWidth, int targetHeight,
+                                 QiscusBitmapPool bitmapPool) throws IOException {
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= targetWidth
+                && options.outHeight / (sampleSize * 2) >= targetHeight) {
+            sampleSize *= 2;
+        }
+        int sampledWidth = (int) Math.ceil((double) options.outWidth / sampleSize);
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inMutable = true;
+        if (sampledWidth > targetWidth) {
+            options.inScaled = true;
+            options.inDensity = sampledWidth;
+            options.inTargetDensity = targetWidth;
+        }
+        options.inBitmap = bitmapPool.get(targetWidth + 1, targetHeight + 1);
+
+        Bitmap bitmap;
+        try {
+            bitmap = BitmapFactory.decodeFile(path, options);
+        } catch (IllegalArgumentException e) {
+            options.inBitmap = null;
+            bitmap = BitmapFactory.decodeFile(path, options);
+        }
+        if (bitmap == null) {
+            throw new IOException("Can not decode image " + path);
+        }
+        return bitmap;
+    }
+
+    private synchronized QiscusExecutorLane getLane() {
+        if (lane == null) {
+            lane = QiscusExecutorLane.create("qiscus-image", getMaxConcurrentCompressions(), 256);
+        }
+        return lane;
+    }
+
+    private static int getOrientation(String path) {
+        try {
+            return new ExifInterface(path).getAttributeInt(ExifInterface.TAG_ORIENTATION,
+                    ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException e) {
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+
+    private static Matrix getOrientationMatrix(int orientation) {
+        Matrix matrix = new Matrix();
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.setScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.setRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.setScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.setRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.setRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.setRotate(-90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.setRotate(-90);
+                break;
+            default:
+                break;
+        }
+        return matrix;
+    }
+
+    private static String getExtension(Bitmap.CompressFormat format) {
+        switch (format) {
+            case PNG:
+                return ".png";
+            case WEBP:
+                return ".webp";
+            default:
+                return ".jpg";
+        }
+    }
+
+    private static long getTargetSize(QiscusImageCompressionConfig config) {
+        return Math.max(1L, (long) (config.getMaxWidth() * config.getMaxHeight()) * BYTES_PER_PIXEL);
+    }
+
+    private static QiscusImageCompressionConfig getConfig() {
+        return QiscusCore.getChatConfig().getQiscusImageCompressionConfig();
+    }
+
+    private static void notifyProgress(ProgressListener progressListener, int percent) {
+        if (progressListener != null) {
+            progressListener.onProgress(percent);
+        }
+    }
+}
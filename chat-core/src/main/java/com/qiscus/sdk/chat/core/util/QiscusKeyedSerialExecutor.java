@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.util;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Run tasks with the same key one by one in submission order, while tasks of different keys run in parallel
+ * on the given executor. A key only holds a thread for a batch of tasks before it goes back to the end of the
+ * executor queue, so a busy key can not starve the others. When a key already has maxPendingPerKey tasks waiting,
+ * new droppable tasks of that key are dropped, and {@link OverflowListener} is told once the key has drained.
+ * Tasks which can not be recovered later are submitted with droppable false, they are always queued.
+ */
+public class QiscusKeyedSerialExecutor<K> {
+
+    private final Executor executor;
+    private final int maxPendingPerKey;
+    private final int batchSize;
+    private final Map<K, KeyQueue> queues;
+    private final AtomicLong droppedCount = new AtomicLong();
+    private volatile OverflowListener<K> overflowListener;
+
+    public QiscusKeyedSerialExecutor(Executor executor, int maxPendingPerKey, int batchSize) {
+        this.executor = executor;
+        this.maxPendingPerKey = Math.max(1, maxPendingPerKey);
+        this.batchSize = Math.max(1, batchSize);
+        queues = new HashMap<>();
+    }
+
+    public void execute(K key, Runnable task) {
+        execute(key, task, true);
+    }
+
+    public void execute(K key, Runnable task, boolean droppable) {
+        KeyQueue queue;
+        boolean schedule;
+        synchronized (queues) {
+            queue = queues.get(key);
+            if (queue == null) {
+                queue = new KeyQueue(key);
+                queues.put(key, queue);
+            }
+            if (droppable && queue.tasks.size() >= maxPendingPerKey) {
+                queue.dropped++;
+                droppedCount.incrementAndGet();
+                return;
+            }
+            queue.tasks.add(task);
+            schedule = !queue.scheduled;
+            queue.scheduled = true;
+        }
+        if (schedule) {
+            executor.execute(queue);
+        }
+    }
+
+    public void setOverflowListener(OverflowListener<K> overflowListener) {
+        this.overflowListener = overflowListener;
+    }
+
+    public int getPendingCount(K key) {
+        synchronized (queues) {
+            KeyQueue queue = queues.get(key);
+            return queue == null ? 0 : queue.tasks.size();
+        }
+    }
+
+    public int getActiveKeyCount() {
+        synchronized (queues) {
+            return queues.size();
+        }
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public interface OverflowListener<K> {
+        /**
+         * Called after every task of the key has run, when some of its tasks had been dropped.
+         */
+        void onOverflowDrained(K key, int droppedCount);
+    }
+
+    private class KeyQueue implements Runnable {
+        private final K key;
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private boolean scheduled;
+        private int dropped;
+
+        private KeyQueue(K key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < batchSize; i++) {
+                Runnable task;
+                synchronized (queues) {
+                    task = tasks.poll();
+                }
+                if (task == null) {
+                    break;
+                }
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    QiscusErrorLogger.print(e);
+                }
+            }
+
+            int droppedTasks;
+            synchronized (queues) {
+                if (!tasks.isEmpty()) {
+                    droppedTasks = -1;
+                } else {
+                    droppedTasks = dropped;
+                    scheduled = false;
+                    queues.remove(key);
+                }
+            }
+
+            if (droppedTasks < 0) {
+                executor.execute(this);
+            } else if (droppedTasks > 0 && overflowListener != null) {
+                overflowListener.onOverflowDrained(key, droppedTasks);
+            }
+        }
+    }
+}
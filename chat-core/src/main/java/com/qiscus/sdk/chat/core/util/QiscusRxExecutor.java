@@ -20,7 +20,6 @@ import rx.Observable;
 import rx.Scheduler;
 import rx.Subscription;
 import rx.android.schedulers.AndroidSchedulers;
-import rx.schedulers.Schedulers;
 
 /**
  * Created on : September 06, 2017
@@ -31,7 +30,7 @@ import rx.schedulers.Schedulers;
 public class QiscusRxExecutor {
 
     public static <T> Subscription execute(Observable<T> observable, Listener<T> listener) {
-        return execute(observable, Schedulers.io(), AndroidSchedulers.mainThread(), listener);
+        return execute(observable, QiscusExecutors.getInstance().getNetworkScheduler(), AndroidSchedulers.mainThread(), listener);
     }
 
     public static <T> Subscription execute(Observable<T> observable, Scheduler subscribeOn,
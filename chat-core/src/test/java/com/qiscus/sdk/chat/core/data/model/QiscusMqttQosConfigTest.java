@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.model;
+
+import com.qiscus.sdk.chat.core.data.remote.QiscusMqttTopic;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class QiscusMqttQosConfigTest {
+
+    @Test
+    public void ephemeralTopicsDefaultToQosZero() {
+        QiscusMqttQosConfig config = new QiscusMqttQosConfig();
+
+        assertEquals(0, qos(config, "r/1349722/+/+/t"));
+        assertEquals(0, qos(config, "u/jarjit@mail.com/s"));
+    }
+
+    @Test
+    public void messageTopicsDefaultToQosOne() {
+        QiscusMqttQosConfig config = new QiscusMqttQosConfig();
+
+        assertEquals(1, qos(config, "a1b2c3d4e5f6/c"));
+        assertEquals(1, qos(config, "sdksample/general-channel/c"));
+        assertEquals(1, qos(config, "a1b2c3d4e5f6/n"));
+        assertEquals(1, qos(config, "r/1349722/+/+/d"));
+        assertEquals(1, qos(config, "r/1349722/+/+/r"));
+        assertEquals(1, qos(config, "r/1349722/1349722/e"));
+        assertEquals(1, qos(config, "sdksample/orders/shipped"));
+    }
+
+    @Test
+    public void everyKindFollowsItsOwnSetting() {
+        QiscusMqttQosConfig config = new QiscusMqttQosConfig()
+                .setCommentQos(2)
+                .setNotificationQos(0)
+                .setTypingQos(1)
+                .setReceiptQos(0)
+                .setPresenceQos(1)
+                .setEventQos(2)
+                .setCustomTopicQos(0);
+
+        assertEquals(2, qos(config, "a1b2c3d4e5f6/c"));
+        assertEquals(2, qos(config, "sdksample/general-channel/c"));
+        assertEquals(0, qos(config, "a1b2c3d4e5f6/n"));
+        assertEquals(1, qos(config, "r/1349722/+/+/t"));
+        assertEquals(0, qos(config, "r/1349722/+/+/d"));
+        assertEquals(0, qos(config, "r/1349722/+/+/r"));
+        assertEquals(1, qos(config, "u/jarjit@mail.com/s"));
+        assertEquals(2, qos(config, "r/1349722/1349722/e"));
+        assertEquals(0, qos(config, "sdksample/orders/shipped"));
+    }
+
+    @Test
+    public void invalidQosIsRejected() {
+        for (int qos : new int[]{-1, 3}) {
+            try {
+                new QiscusMqttQosConfig().setTypingQos(qos);
+                fail("QoS " + qos + " should be rejected");
+            } catch (IllegalArgumentException e) {
+                //Expected
+            }
+        }
+    }
+
+    private static int qos(QiscusMqttQosConfig config, String topic) {
+        return config.getTopicQos(new QiscusMqttTopic(topic).getKind());
+    }
+}
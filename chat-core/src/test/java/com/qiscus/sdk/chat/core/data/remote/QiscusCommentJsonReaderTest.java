@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.remote;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.qiscus.sdk.chat.core.data.model.QiscusComment;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Recorded comment payloads read by {@link QiscusCommentJsonReader} must give the same comments as the Gson tree
+ * parsers in {@link QiscusApiParser}, and both must refuse the same incomplete payloads.
+ */
+public class QiscusCommentJsonReaderTest {
+    private static final long ROOM_ID = 1349722;
+    private static final String[] REALTIME_PAYLOADS = {"realtime_text.json", "realtime_single_buttons.json",
+            "realtime_reply.json", "realtime_file_attachment.json", "realtime_custom.json"};
+    private static final String[] REALTIME_REQUIRED = {"id", "room_id", "unique_temp_id", "comment_before_id",
+            "message", "username", "email", "user_avatar", "unix_nano_timestamp", "room_name", "chat_type", "payload"};
+    private static final String[] REALTIME_NON_NULL = {"id", "room_id", "unique_temp_id", "comment_before_id",
+            "message", "email", "user_avatar", "unix_nano_timestamp", "chat_type"};
+    private static final String[] REALTIME_OPTIONAL = {"room_avatar", "is_deleted", "extras", "type"};
+    private static final String[] REST_REQUIRED = {"id", "comment_before_id", "message", "username", "email",
+            "user_avatar_url", "status", "unix_nano_timestamp"};
+    private static final String[] REST_OPTIONAL = {"room_id", "unique_id", "unique_temp_id", "is_deleted",
+            "room_name", "chat_type", "extras", "type"};
+
+    @Test
+    public void realtimeCommentsMatchTreeParser() throws IOException {
+        for (String name : REALTIME_PAYLOADS) {
+            String json = resource(name);
+            assertSameComment(name, QiscusApiParser.parseRealtimeComment(parse(json).getAsJsonObject()),
+                    QiscusCommentJsonReader.readRealtimeComment(json));
+        }
+    }
+
+    @Test
+    public void realtimeCommentsWithoutOptionalFieldsMatchTreeParser() throws IOException {
+        for (String name : REALTIME_PAYLOADS) {
+            for (String field : REALTIME_OPTIONAL) {
+                JsonObject jsonObject = parse(resource(name)).getAsJsonObject();
+                jsonObject.remove(field);
+                if ("type".equals(field)) {
+                    jsonObject.remove("payload");
+                }
+                assertSameComment(name + " without " + field, QiscusApiParser.parseRealtimeComment(jsonObject),
+                        QiscusCommentJsonReader.readRealtimeComment(jsonObject.toString()));
+            }
+        }
+    }
+
+    @Test
+    public void realtimeCommentsWithoutRequiredFieldsAreRefused() {
+        for (String name : REALTIME_PAYLOADS) {
+            for (String field : REALTIME_REQUIRED) {
+                JsonObject jsonObject = parse(resource(name)).getAsJsonObject();
+                jsonObject.remove(field);
+                assertRealtimeRefused(name + " without " + field, jsonObject);
+            }
+            for (String field : REALTIME_NON_NULL) {
+                JsonObject jsonObject = parse(resource(name)).getAsJsonObject();
+                jsonObject.add(field, JsonNull.INSTANCE);
+                assertRealtimeRefused(name + " with null " + field, jsonObject);
+            }
+        }
+    }
+
+    @Test
+    public void restCommentsMatchTreeParser() throws IOException {
+        String json = resource("rest_comments.json");
+        JsonArray expected = restComments(parse(json));
+
+        List<QiscusComment> actual = QiscusCommentJsonReader.readComments(new StringReader(json), ROOM_ID);
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameComment("comment " + i, QiscusApiParser.parseQiscusComment(expected.get(i), ROOM_ID),
+                    actual.get(i));
+        }
+    }
+
+    @Test
+    public void syncedCommentsTakeTheirOwnRoom() throws IOException {
+        String json = resource("rest_comments.json");
+        JsonArray expected = restComments(parse(json));
+
+        List<QiscusComment> actual = QiscusCommentJsonReader.readComments(new StringReader(json), 0);
+
+        for (int i = 0; i < expected.size(); i++) {
+            long roomId = expected.get(i).getAsJsonObject().get("room_id").getAsLong();
+            assertSameComment("comment " + i, QiscusApiParser.parseQiscusComment(expected.get(i), roomId),
+                    actual.get(i));
+        }
+    }
+
+    @Test
+    public void restCommentsWithoutOptionalFieldsMatchTreeParser() throws IOException {
+        for (String field : REST_OPTIONAL) {
+            JsonElement response = parse(resource("rest_comments.json"));
+            JsonArray comments = restComments(response);
+            for (JsonElement comment : comments) {
+                comment.getAsJsonObject().remove(field);
+                if ("type".equals(field)) {
+                    comment.getAsJsonObject().remove("payload");
+                }
+            }
+
+            List<QiscusComment> actual = QiscusCommentJsonReader.readComments(
+                    new StringReader(response.toString()), ROOM_ID);
+
+            for (int i = 0; i < comments.size(); i++) {
+                assertSameComment("comment " + i + " without " + field,
+                        QiscusApiParser.parseQiscusComment(comments.get(i), ROOM_ID), actual.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void restCommentsWithoutRequiredFieldsAreRefused() {
+        for (String field : REST_REQUIRED) {
+            JsonElement response = parse(resource("rest_comments.json"));
+            JsonObject comment = restComments(response).get(0).getAsJsonObject();
+            comment.remove(field);
+            assertRestRefused("without " + field, response, comment, ROOM_ID);
+
+            comment.add(field, JsonNull.INSTANCE);
+            assertRestRefused("with null " + field, response, comment, ROOM_ID);
+        }
+    }
+
+    @Test
+    public void syncedCommentsWithoutRoomAreRefused() {
+        JsonElement response = parse(resource("rest_comments.json"));
+        JsonObject comment = restComments(response).get(0).getAsJsonObject();
+        comment.remove("room_id");
+
+        try {
+            QiscusCommentJsonReader.readComments(new StringReader(response.toString()), 0);
+            fail("Reader accepted a synced comment without room_id");
+        } catch (IOException e) {
+            //Expected, the tree parser can not read it either
+        }
+    }
+
+    private static void assertRealtimeRefused(String message, JsonObject jsonObject) {
+        try {
+            QiscusApiParser.parseRealtimeComment(jsonObject);
+            fail("Tree parser accepted realtime comment " + message);
+        } catch (RuntimeException e) {
+            //Expected
+        }
+        try {
+            QiscusCommentJsonReader.readRealtimeComment(jsonObject.toString());
+            fail("Reader accepted realtime comment " + message);
+        } catch (IOException e) {
+            //Expected
+        }
+    }
+
+    private static void assertRestRefused(String message, JsonElement response, JsonObject comment, long roomId) {
+        try {
+            QiscusApiParser.parseQiscusComment(comment, roomId);
+            fail("Tree parser accepted comment " + message);
+        } catch (RuntimeException e) {
+            //Expected
+        }
+        try {
+            QiscusCommentJsonReader.readComments(new StringReader(response.toString()), roomId);
+            fail("Reader accepted comment " + message);
+        } catch (IOException e) {
+            //Expected
+        }
+    }
+
+    private static void assertSameComment(String message, QiscusComment expected, QiscusComment actual) {
+        assertNotNull(message, actual);
+        assertEquals(message, expected.getId(), actual.getId());
+        assertEquals(message, expected.getRoomId(), actual.getRoomId());
+        assertEquals(message, expected.getUniqueId(), actual.getUniqueId());
+        assertEquals(message, expected.getCommentBeforeId(), actual.getCommentBeforeId());
+        assertEquals(message, expected.getMessage(), actual.getMessage());
+        assertEquals(message, expected.getSender(), actual.getSender());
+        assertEquals(message, expected.getSenderEmail(), actual.getSenderEmail());
+        assertEquals(message, expected.getSenderAvatar(), actual.getSenderAvatar());
+        assertEquals(message, expected.getTime(), actual.getTime());
+        assertEquals(message, expected.getState(), actual.getState());
+        assertEquals(message, expected.isDeleted(), actual.isDeleted());
+        assertEquals(message, expected.getRoomName(), actual.getRoomName());
+        assertEquals(message, expected.getRoomAvatar(), actual.getRoomAvatar());
+        assertEquals(message, expected.isGroupMessage(), actual.isGroupMessage());
+        assertEquals(message, expected.getRawType(), actual.getRawType());
+        assertEquals(message, expected.getExtraPayload(), actual.getExtraPayload());
+        assertEquals(message, expected.getRawExtras(), actual.getRawExtras());
+    }
+
+    static JsonArray restComments(JsonElement response) {
+        return response.getAsJsonObject().getAsJsonObject("results").getAsJsonArray("comments");
+    }
+
+    static JsonElement parse(String json) {
+        return new JsonParser().parse(json);
+    }
+
+    static String resource(String name) {
+        return QiscusTestResources.read("comments/" + name);
+    }
+}
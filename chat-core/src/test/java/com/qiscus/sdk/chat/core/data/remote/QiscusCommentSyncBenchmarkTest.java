@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.remote;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.qiscus.sdk.chat.core.data.model.QiscusComment;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Reads sync responses of 1k and 10k comments with the streaming reader and with the Gson tree parser it replaced,
+ * and prints the time and memory allocated per response. Nothing is asserted on the numbers, they depend on the
+ * machine running the tests.
+ */
+public class QiscusCommentSyncBenchmarkTest {
+    private static final int[] SIZES = {1000, 10000};
+    private static final int WARM_UP_ROUNDS = 5;
+    private static final int ROUNDS = 10;
+
+    @Test
+    public void syncResponses() throws IOException {
+        for (int size : SIZES) {
+            String response = syncResponse(size);
+            assertEquals(size, readTree(response).size());
+            assertEquals(size, readStream(response).size());
+
+            for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+                readTree(response);
+                readStream(response);
+            }
+
+            Result tree = new Result();
+            Result stream = new Result();
+            for (int i = 0; i < ROUNDS; i++) {
+                tree.start();
+                readTree(response);
+                tree.stop();
+
+                stream.start();
+                readStream(response);
+                stream.stop();
+            }
+
+            System.out.println(String.format(Locale.US, "sync %d comments (%d KB), tree: %s, stream: %s",
+                    size, response.length() / 1024, tree.describe(size), stream.describe(size)));
+        }
+    }
+
+    private static List<QiscusComment> readTree(String response) {
+        JsonArray comments = QiscusCommentJsonReaderTest.restComments(QiscusCommentJsonReaderTest.parse(response));
+        List<QiscusComment> result = new ArrayList<>(comments.size());
+        for (JsonElement comment : comments) {
+            long roomId = comment.getAsJsonObject().get("room_id").getAsLong();
+            result.add(QiscusApiParser.parseQiscusComment(comment, roomId));
+        }
+        return result;
+    }
+
+    private static List<QiscusComment> readStream(String response) throws IOException {
+        return QiscusCommentJsonReader.readComments(new StringReader(response), 0);
+    }
+
+    /**
+     * Builds a response by repeating the recorded comments with distinct ids.
+     */
+    private static String syncResponse(int size) {
+        String recorded = QiscusCommentJsonReaderTest.resource("rest_comments.json");
+        JsonArray templates = QiscusCommentJsonReaderTest.restComments(QiscusCommentJsonReaderTest.parse(recorded));
+
+        StringBuilder response = new StringBuilder("{\"results\":{\"comments\":[");
+        for (int i = 0; i < size; i++) {
+            JsonObject comment = templates.get(i % templates.size()).getAsJsonObject();
+            comment.addProperty("id", 60000000L + i);
+            comment.addProperty("comment_before_id", 60000000L + i - 1);
+            comment.addProperty("unique_id", "android_" + i);
+            comment.addProperty("room_id", 1349722 + i % 20);
+            response.append(i == 0 ? "" : ",").append(comment);
+        }
+        return response.append("]},\"status\":200}").toString();
+    }
+
+    private static class Result {
+        private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        private long nanos;
+        private long allocatedBytes;
+        private long startNanos;
+        private long startAllocatedBytes;
+        private int rounds;
+
+        private void start() {
+            startAllocatedBytes = allocatedBytes();
+            startNanos = System.nanoTime();
+        }
+
+        private void stop() {
+            nanos += System.nanoTime() - startNanos;
+            allocatedBytes += allocatedBytes() - startAllocatedBytes;
+            rounds++;
+        }
+
+        private String describe(int size) {
+            double millis = nanos / 1e6 / rounds;
+            String allocated = allocatedBytes < 0 ? "n/a" : String.valueOf(allocatedBytes / rounds / 1024);
+            return String.format(Locale.US, "%.1f ms, %.0f comments/s, %s KB allocated",
+                    millis, size / millis * 1000, allocated);
+        }
+
+        //Per thread allocation counters are a HotSpot extension, other VMs report n/a
+        private long allocatedBytes() {
+            if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+                return ((com.sun.management.ThreadMXBean) threadMXBean)
+                        .getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+            return -1;
+        }
+    }
+}
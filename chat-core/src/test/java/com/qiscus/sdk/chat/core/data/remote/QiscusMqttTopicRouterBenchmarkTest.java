@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.remote;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Routes a recorded topic corpus through {@link QiscusMqttTopicRouter} and through the if/else chain of
+ * {@code String.split} calls it replaced, and prints the messages per second of both. The handlers do the topic
+ * work of the built in ones in {@link QiscusPusherApi}, without parsing json or posting events.
+ */
+public class QiscusMqttTopicRouterBenchmarkTest {
+    private static final String TOKEN = "a1b2c3d4e5f6";
+    private static final String APP_ID = "sdksample";
+    private static final String EMAIL = "fauzi@mail.com";
+    private static final int WARM_UP_ROUNDS = 2000;
+    private static final int ROUNDS = 20000;
+
+    private long checksum;
+
+    @Test
+    public void recordedTopics() {
+        List<String[]> corpus = corpus();
+        QiscusMqttTopicRouter router = router();
+
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            routeAll(router, corpus);
+            splitAll(corpus);
+        }
+
+        checksum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            routeAll(router, corpus);
+        }
+        long routerNanos = System.nanoTime() - start;
+        long routerChecksum = checksum;
+
+        checksum = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            splitAll(corpus);
+        }
+        long splitNanos = System.nanoTime() - start;
+
+        assertEquals(checksum, routerChecksum);
+        long messages = (long) ROUNDS * corpus.size();
+        System.out.println(String.format(Locale.US, "%d messages, router: %.0f messages/s, split: %.0f messages/s",
+                messages, messages * 1e9 / routerNanos, messages * 1e9 / splitNanos));
+    }
+
+    private void routeAll(QiscusMqttTopicRouter router, List<String[]> corpus) {
+        for (String[] line : corpus) {
+            router.dispatch(line[0], line[1]);
+        }
+    }
+
+    private void splitAll(List<String[]> corpus) {
+        for (String[] line : corpus) {
+            split(line[0], line[1]);
+        }
+    }
+
+    private QiscusMqttTopicRouter router() {
+        return new QiscusMqttTopicRouter()
+                .addHandler("n", (topic, message) -> {
+                    if (topic.getSegmentCount() == 2 && topic.segmentEquals(0, TOKEN)) {
+                        checksum += message.length();
+                    }
+                })
+                .addHandler("c", (topic, message) -> {
+                    if ((topic.getSegmentCount() == 2 && topic.segmentEquals(0, TOKEN))
+                            || topic.getTopic().startsWith(APP_ID)) {
+                        checksum += message.length();
+                    }
+                })
+                .addHandler("t", (topic, message) -> {
+                    if (topic.segmentEquals(0, "r") && !topic.segmentEquals(3, EMAIL)) {
+                        checksum += topic.getSegmentAsLong(1) + topic.getSegment(3).length() + message.length();
+                    }
+                })
+                .addHandler("d", this::routeReceipt)
+                .addHandler("r", this::routeReceipt)
+                .addHandler("s", (topic, message) -> {
+                    if (topic.segmentEquals(0, "u") && !topic.segmentEquals(1, EMAIL)) {
+                        int separator = message.indexOf(':');
+                        checksum += topic.getSegment(1).length()
+                                + Long.parseLong(message.substring(separator + 1, separator + 14));
+                    }
+                })
+                .addHandler("e", (topic, message) -> {
+                    if (topic.segmentEquals(0, "r")) {
+                        checksum += topic.getSegmentAsLong(1) + message.length();
+                    }
+                });
+    }
+
+    private void routeReceipt(QiscusMqttTopic topic, String message) {
+        if (topic.segmentEquals(0, "r") && !topic.segmentEquals(3, EMAIL)) {
+            int separator = message.indexOf(':');
+            int end = message.indexOf(':', separator + 1);
+            checksum += topic.getSegmentAsLong(1) + topic.getSegment(3).length()
+                    + Long.parseLong(message.substring(0, separator))
+                    + message.substring(separator + 1, end < 0 ? message.length() : end).length();
+        }
+    }
+
+    private void split(String topic, String message) {
+        if (topic.equals(TOKEN + "/n")) {
+            checksum += message.length();
+        } else if (topic.equals(TOKEN + "/c") || (topic.startsWith(APP_ID) && topic.endsWith("/c"))) {
+            checksum += message.length();
+        } else if (topic.startsWith("r/") && topic.endsWith("/t")) {
+            String[] data = topic.split("/");
+            if (!data[3].equals(EMAIL)) {
+                checksum += Long.parseLong(data[1]) + data[3].length() + message.length();
+            }
+        } else if (topic.startsWith("r/") && (topic.endsWith("/d") || topic.endsWith("/r"))) {
+            String[] data = topic.split("/");
+            if (!data[3].equals(EMAIL)) {
+                String[] payload = message.split(":");
+                checksum += Long.parseLong(data[1]) + data[3].length() + Long.parseLong(payload[0])
+                        + payload[1].length();
+            }
+        } else if (topic.startsWith("u/") && topic.endsWith("/s")) {
+            String[] data = topic.split("/");
+            if (!data[1].equals(EMAIL)) {
+                String[] status = message.split(":");
+                checksum += data[1].length() + Long.parseLong(status[1].substring(0, 13));
+            }
+        } else if (topic.startsWith("r/") && topic.endsWith("/e")) {
+            String[] data = topic.split("/");
+            checksum += Long.parseLong(data[1]) + message.length();
+        }
+    }
+
+    private static List<String[]> corpus() {
+        List<String[]> corpus = new ArrayList<>();
+        for (String line : QiscusTestResources.read("mqtt/topics.txt").split("\n")) {
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                corpus.add(line.split("\t", 2));
+            }
+        }
+        return corpus;
+    }
+}
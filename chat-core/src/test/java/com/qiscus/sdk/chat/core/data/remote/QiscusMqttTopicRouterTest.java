@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.remote;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class QiscusMqttTopicRouterTest {
+    private static final String[] BUILT_IN_KINDS = {"c", "n", "t", "d", "r", "s", "e"};
+
+    private QiscusMqttTopicRouter router;
+    private List<String> dispatched;
+
+    @Before
+    public void setUp() {
+        router = new QiscusMqttTopicRouter();
+        dispatched = new ArrayList<>();
+        for (String kind : BUILT_IN_KINDS) {
+            router.addHandler(kind, (topic, message) -> dispatched.add(kind + " " + topic + " " + message));
+        }
+    }
+
+    @Test
+    public void builtInTopicsReachTheHandlerOfTheirKind() {
+        assertTrue(router.dispatch("a1b2c3d4e5f6/c", "{}"));
+        assertTrue(router.dispatch("sdksample/general-channel/c", "{}"));
+        assertTrue(router.dispatch("a1b2c3d4e5f6/n", "{}"));
+        assertTrue(router.dispatch("r/1349722/1349722/jarjit@mail.com/t", "1"));
+        assertTrue(router.dispatch("r/1349722/1349722/jarjit@mail.com/d", "58229561:android_1"));
+        assertTrue(router.dispatch("r/1349722/1349722/jarjit@mail.com/r", "58229561:android_1"));
+        assertTrue(router.dispatch("u/jarjit@mail.com/s", "1:1551683565081"));
+        assertTrue(router.dispatch("r/1349722/1349722/e", "{}"));
+
+        assertEquals(Arrays.asList(
+                "c a1b2c3d4e5f6/c {}",
+                "c sdksample/general-channel/c {}",
+                "n a1b2c3d4e5f6/n {}",
+                "t r/1349722/1349722/jarjit@mail.com/t 1",
+                "d r/1349722/1349722/jarjit@mail.com/d 58229561:android_1",
+                "r r/1349722/1349722/jarjit@mail.com/r 58229561:android_1",
+                "s u/jarjit@mail.com/s 1:1551683565081",
+                "e r/1349722/1349722/e {}"), dispatched);
+    }
+
+    @Test
+    public void handlersGetTheSplitTopic() {
+        List<QiscusMqttTopic> topics = new ArrayList<>();
+        router.addHandler("t", (topic, message) -> topics.add(topic));
+
+        router.dispatch("r/1349722/1349722/jarjit@mail.com/t", "1");
+
+        assertEquals(1, topics.size());
+        assertEquals(1349722, topics.get(0).getSegmentAsLong(1));
+        assertEquals("jarjit@mail.com", topics.get(0).getSegment(3));
+    }
+
+    @Test
+    public void customKindReachesItsHandler() {
+        List<String> orders = new ArrayList<>();
+        router.addHandler("shipped", (topic, message) -> orders.add(topic.getSegment(1) + " " + message));
+
+        assertTrue(router.dispatch("sdksample/orders/shipped", "{\"order_id\":8812}"));
+
+        assertEquals(Arrays.asList("orders {\"order_id\":8812}"), orders);
+        assertTrue(dispatched.isEmpty());
+    }
+
+    @Test
+    public void everyHandlerOfAKindIsCalledInOrder() {
+        List<String> calls = new ArrayList<>();
+        router.addHandler("shipped", (topic, message) -> calls.add("first"))
+                .addHandler("shipped", (topic, message) -> calls.add("second"));
+
+        router.dispatch("sdksample/orders/shipped", "{}");
+
+        assertEquals(Arrays.asList("first", "second"), calls);
+    }
+
+    @Test
+    public void topicWithoutHandlerIsNotDispatched() {
+        assertFalse(router.dispatch("sdksample/orders/cancelled", "{}"));
+        assertFalse(router.dispatch("r/1349722/1349722/jarjit@mail.com/T", "1"));
+        assertTrue(dispatched.isEmpty());
+    }
+
+    @Test
+    public void removedHandlerIsNotCalled() {
+        List<String> orders = new ArrayList<>();
+        QiscusMqttTopicRouter.Handler handler = (topic, message) -> orders.add(message);
+        router.addHandler("shipped", handler);
+        router.removeHandler("shipped", handler);
+
+        assertFalse(router.dispatch("sdksample/orders/shipped", "{}"));
+        assertTrue(orders.isEmpty());
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.remote;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class QiscusMqttTopicTest {
+
+    @Test
+    public void roomTopicIsSplitIntoSegments() {
+        QiscusMqttTopic topic = new QiscusMqttTopic("r/1349722/1349722/fauzi@mail.com/t");
+
+        assertEquals(5, topic.getSegmentCount());
+        assertEquals("r", topic.getSegment(0));
+        assertEquals(1349722, topic.getSegmentAsLong(1));
+        assertEquals("1349722", topic.getSegment(2));
+        assertEquals("fauzi@mail.com", topic.getSegment(3));
+        assertEquals("t", topic.getKind());
+    }
+
+    @Test
+    public void segmentEqualsComparesWholeSegment() {
+        QiscusMqttTopic topic = new QiscusMqttTopic("u/fauzi@mail.com/s");
+
+        assertTrue(topic.segmentEquals(0, "u"));
+        assertTrue(topic.segmentEquals(1, "fauzi@mail.com"));
+        assertFalse(topic.segmentEquals(1, "fauzi@mail.co"));
+        assertFalse(topic.segmentEquals(1, "fauzi@mail.com/s"));
+        assertFalse(topic.segmentEquals(1, null));
+    }
+
+    @Test
+    public void topicWithoutSeparatorIsItsOwnKind() {
+        QiscusMqttTopic topic = new QiscusMqttTopic("announcements");
+
+        assertEquals(1, topic.getSegmentCount());
+        assertEquals("announcements", topic.getKind());
+    }
+
+    @Test
+    public void emptySegmentsAreKept() {
+        QiscusMqttTopic topic = new QiscusMqttTopic("a//b/");
+
+        assertEquals(4, topic.getSegmentCount());
+        assertEquals("", topic.getSegment(1));
+        assertEquals("b", topic.getSegment(2));
+        assertEquals("", topic.getKind());
+        assertTrue(topic.segmentEquals(1, ""));
+    }
+
+    @Test
+    public void longTopicsAreSplitCompletely() {
+        StringBuilder builder = new StringBuilder("0");
+        for (int i = 1; i < 20; i++) {
+            builder.append('/').append(i);
+        }
+        QiscusMqttTopic topic = new QiscusMqttTopic(builder.toString());
+
+        assertEquals(20, topic.getSegmentCount());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, topic.getSegmentAsLong(i));
+        }
+        assertEquals("19", topic.getKind());
+    }
+
+    @Test
+    public void missingSegmentIsRejected() {
+        QiscusMqttTopic topic = new QiscusMqttTopic("a1b2c3d4e5f6/c");
+        for (int index : new int[]{-1, 2}) {
+            try {
+                topic.getSegment(index);
+                fail("Segment " + index + " should not exist");
+            } catch (IndexOutOfBoundsException e) {
+                //Expected
+            }
+        }
+    }
+}
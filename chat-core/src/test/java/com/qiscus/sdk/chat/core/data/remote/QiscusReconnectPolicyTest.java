@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.remote;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QiscusReconnectPolicyTest {
+    private static final long BASE_DELAY = 1000;
+    private static final long MAX_DELAY = 30000;
+
+    private long now;
+    private QiscusReconnectPolicy.Clock clock;
+
+    @Before
+    public void setUp() {
+        now = 0;
+        clock = () -> now;
+    }
+
+    @Test
+    public void delayDoublesUntilMaxDelay() {
+        QiscusReconnectPolicy policy = new QiscusReconnectPolicy(BASE_DELAY, MAX_DELAY, clock, new HighestRandom());
+
+        long[] expected = {1000, 2000, 4000, 8000, 16000, 30000, 30000, 30000};
+        for (long delay : expected) {
+            assertEquals(delay, policy.nextDelay());
+        }
+        assertEquals(expected.length, policy.getAttempt());
+    }
+
+    @Test
+    public void delayIsJitteredBetweenZeroAndCeiling() {
+        QiscusReconnectPolicy policy = new QiscusReconnectPolicy(BASE_DELAY, MAX_DELAY, clock, new Random(7));
+
+        long ceiling = BASE_DELAY;
+        for (int i = 0; i < 100; i++) {
+            long delay = policy.nextDelay();
+            assertTrue("Delay " + delay + " is over " + ceiling, delay >= 0 && delay <= ceiling);
+            ceiling = Math.min(ceiling * 2, MAX_DELAY);
+        }
+    }
+
+    @Test
+    public void largeAttemptDoesNotOverflow() {
+        QiscusReconnectPolicy policy = new QiscusReconnectPolicy(BASE_DELAY, Long.MAX_VALUE, clock, new HighestRandom());
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(policy.nextDelay() >= 0);
+        }
+    }
+
+    @Test
+    public void shortConnectionKeepsBackingOff() {
+        QiscusReconnectPolicy policy = new QiscusReconnectPolicy(BASE_DELAY, MAX_DELAY, clock, new HighestRandom());
+        policy.nextDelay();
+        policy.nextDelay();
+
+        policy.onConnected();
+        now += MAX_DELAY - 1;
+
+        assertEquals(4000, policy.nextDelay());
+    }
+
+    @Test
+    public void stableConnectionResetsBackoff() {
+        QiscusReconnectPolicy policy = new QiscusReconnectPolicy(BASE_DELAY, MAX_DELAY, clock, new HighestRandom());
+        policy.nextDelay();
+        policy.nextDelay();
+
+        policy.onConnected();
+        now += MAX_DELAY;
+
+        assertEquals(BASE_DELAY, policy.nextDelay());
+        assertEquals(1, policy.getAttempt());
+    }
+
+    @Test
+    public void resetStartsFromBaseDelay() {
+        QiscusReconnectPolicy policy = new QiscusReconnectPolicy(BASE_DELAY, MAX_DELAY, clock, new HighestRandom());
+        policy.nextDelay();
+        policy.nextDelay();
+        policy.nextDelay();
+
+        policy.reset();
+
+        assertEquals(0, policy.getAttempt());
+        assertEquals(BASE_DELAY, policy.nextDelay());
+    }
+
+    /**
+     * Always picks the longest delay, so tests can check the ceiling of every attempt.
+     */
+    private static class HighestRandom extends Random {
+        @Override
+        public double nextDouble() {
+            return 0.9999999999;
+        }
+    }
+}
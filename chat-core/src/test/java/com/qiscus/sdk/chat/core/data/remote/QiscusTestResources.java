@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.remote;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Reads recorded payloads kept in the test resources.
+ */
+final class QiscusTestResources {
+
+    private QiscusTestResources() {
+
+    }
+
+    static String read(String path) {
+        StringBuilder content = new StringBuilder();
+        try (InputStream in = QiscusTestResources.class.getClassLoader().getResourceAsStream(path)) {
+            assertNotNull(path, in);
+            Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+            char[] buffer = new char[4096];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                content.append(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return content.toString();
+    }
+}
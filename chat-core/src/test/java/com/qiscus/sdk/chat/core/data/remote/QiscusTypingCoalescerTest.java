@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.remote;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class QiscusTypingCoalescerTest {
+    private static final long ROOM_ID = 1;
+    private static final long EXPIRY = 10000;
+
+    private QiscusVirtualTimer timer;
+    private List<String> changes;
+    private QiscusTypingCoalescer coalescer;
+
+    @Before
+    public void setUp() {
+        timer = new QiscusVirtualTimer();
+        changes = new ArrayList<>();
+        coalescer = new QiscusTypingCoalescer((roomId, user, typing) -> changes.add(user + ":" + typing),
+                EXPIRY, timer, timer);
+    }
+
+    @Test
+    public void repeatedTypingIsReportedOnce() {
+        coalescer.onTyping(ROOM_ID, "alice", true);
+        timer.advance(1000);
+        coalescer.onTyping(ROOM_ID, "alice", true);
+        coalescer.onTyping(ROOM_ID, "alice", true);
+
+        assertEquals(1, changes.size());
+        assertEquals("alice:true", changes.get(0));
+    }
+
+    @Test
+    public void stoppedIsReportedOnlyAfterTyping() {
+        coalescer.onTyping(ROOM_ID, "alice", false);
+        coalescer.onTyping(ROOM_ID, "alice", true);
+        coalescer.onTyping(ROOM_ID, "alice", false);
+        coalescer.onTyping(ROOM_ID, "alice", false);
+
+        assertEquals(2, changes.size());
+        assertEquals("alice:false", changes.get(1));
+        assertEquals(0, timer.getPendingCount());
+    }
+
+    @Test
+    public void lostStoppedExpires() {
+        coalescer.onTyping(ROOM_ID, "alice", true);
+        timer.advance(EXPIRY - 1);
+        assertEquals(1, changes.size());
+
+        timer.advance(1);
+
+        assertEquals(2, changes.size());
+        assertEquals("alice:false", changes.get(1));
+    }
+
+    @Test
+    public void refreshedTypingDoesNotExpire() {
+        coalescer.onTyping(ROOM_ID, "alice", true);
+        timer.advance(6000);
+        coalescer.onTyping(ROOM_ID, "alice", true);
+        timer.advance(6000);
+
+        assertEquals(1, changes.size());
+
+        timer.advance(4000);
+
+        assertEquals(2, changes.size());
+        assertEquals("alice:false", changes.get(1));
+    }
+
+    @Test
+    public void usersAreTrackedSeparately() {
+        coalescer.onTyping(ROOM_ID, "alice", true);
+        coalescer.onTyping(ROOM_ID, "bob", true);
+        coalescer.onTyping(ROOM_ID, "alice", false);
+        coalescer.onTyping(ROOM_ID + 1, "alice", true);
+
+        assertEquals(4, changes.size());
+        assertEquals("bob:true", changes.get(1));
+        assertEquals("alice:false", changes.get(2));
+        assertEquals("alice:true", changes.get(3));
+    }
+
+    @Test
+    public void clearCancelsExpiry() {
+        coalescer.onTyping(ROOM_ID, "alice", true);
+        coalescer.clear();
+        timer.advance(EXPIRY);
+
+        assertEquals(1, changes.size());
+        assertEquals(0, timer.getPendingCount());
+    }
+}
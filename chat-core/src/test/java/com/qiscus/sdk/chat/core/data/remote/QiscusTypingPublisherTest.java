@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.remote;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class QiscusTypingPublisherTest {
+    private static final long ROOM_ID = 1;
+    private static final long REFRESH_INTERVAL = 3000;
+    private static final long IDLE_TIMEOUT = 5000;
+
+    private QiscusVirtualTimer timer;
+    private List<Boolean> published;
+    private QiscusTypingPublisher publisher;
+
+    @Before
+    public void setUp() {
+        timer = new QiscusVirtualTimer();
+        published = new ArrayList<>();
+        publisher = new QiscusTypingPublisher((roomId, typing) -> published.add(typing),
+                REFRESH_INTERVAL, IDLE_TIMEOUT, timer, timer);
+    }
+
+    @Test
+    public void firstKeystrokePublishesTyping() {
+        publisher.onTyping(ROOM_ID);
+
+        assertEquals(1, published.size());
+        assertTrue(published.get(0));
+        assertTrue(publisher.isTyping(ROOM_ID));
+    }
+
+    @Test
+    public void keystrokesWithinRefreshIntervalAreNotPublished() {
+        for (int i = 0; i < 10; i++) {
+            publisher.onTyping(ROOM_ID);
+            timer.advance(200);
+        }
+
+        assertEquals(1, published.size());
+    }
+
+    @Test
+    public void continuousTypingIsRefreshed() {
+        publisher.onTyping(ROOM_ID);
+        timer.advance(REFRESH_INTERVAL);
+        publisher.onTyping(ROOM_ID);
+
+        assertEquals(2, published.size());
+        assertTrue(published.get(1));
+    }
+
+    @Test
+    public void idleTimeoutPublishesStopped() {
+        publisher.onTyping(ROOM_ID);
+        timer.advance(IDLE_TIMEOUT - 1);
+        assertTrue(publisher.isTyping(ROOM_ID));
+
+        timer.advance(1);
+
+        assertFalse(publisher.isTyping(ROOM_ID));
+        assertEquals(2, published.size());
+        assertFalse(published.get(1));
+    }
+
+    @Test
+    public void keystrokePushesIdleTimeoutForward() {
+        publisher.onTyping(ROOM_ID);
+        timer.advance(4000);
+        publisher.onTyping(ROOM_ID);
+        timer.advance(4000);
+
+        assertTrue(publisher.isTyping(ROOM_ID));
+
+        timer.advance(1000);
+
+        assertFalse(publisher.isTyping(ROOM_ID));
+        assertFalse(published.get(published.size() - 1));
+    }
+
+    @Test
+    public void idleCheckIsArmedOncePerSession() {
+        publisher.onTyping(ROOM_ID);
+        for (int i = 0; i < 20; i++) {
+            timer.advance(100);
+            publisher.onTyping(ROOM_ID);
+        }
+
+        assertEquals(1, timer.getPendingCount());
+    }
+
+    @Test
+    public void stopTypingPublishesStoppedOnce() {
+        publisher.onTyping(ROOM_ID);
+        publisher.stopTyping(ROOM_ID);
+        publisher.stopTyping(ROOM_ID);
+        timer.advance(IDLE_TIMEOUT);
+
+        assertEquals(2, published.size());
+        assertFalse(published.get(1));
+        assertEquals(0, timer.getPendingCount());
+    }
+
+    @Test
+    public void typingAfterStopStartsNewSession() {
+        publisher.onTyping(ROOM_ID);
+        publisher.stopTyping(ROOM_ID);
+        timer.advance(100);
+        publisher.onTyping(ROOM_ID);
+
+        assertEquals(3, published.size());
+        assertTrue(published.get(2));
+    }
+}
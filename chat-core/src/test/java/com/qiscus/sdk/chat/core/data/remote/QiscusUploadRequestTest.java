@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.remote;
+
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Upload requests against a local server which kills the connection in the middle of the request body.
+ */
+public class QiscusUploadRequestTest {
+    private static final int FILE_SIZE = 256 * 1024;
+    private static final String FILE_URL = "https://files.qiscus.com/photo.jpg";
+    private static final String SUCCESS_BODY = "{\"results\":{\"file\":{\"url\":\"" + FILE_URL + "\"}}}";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private OkHttpClient client;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        //Retries are up to QiscusUploadManager, the client must not resend the request by itself
+        client = new OkHttpClient.Builder()
+                .retryOnConnectionFailure(false)
+                .build();
+
+        byte[] content = new byte[FILE_SIZE];
+        new Random(42).nextBytes(content);
+        file = temporaryFolder.newFile("photo.jpg");
+        BufferedSink sink = Okio.buffer(Okio.sink(file));
+        sink.write(content);
+        sink.close();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void uploadIsSentAgainAfterConnectionIsKilled() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_DURING_REQUEST_BODY));
+        server.enqueue(new MockResponse().setBody(SUCCESS_BODY));
+
+        try {
+            client.newCall(newRequest()).execute();
+            fail("Killed connection must fail the upload");
+        } catch (IOException e) {
+            //Expected, it is retried by QiscusUploadManager
+        }
+
+        String url = QiscusUploadRequest.parseUrl(client.newCall(newRequest()).execute());
+        assertEquals(FILE_URL, url);
+
+        RecordedRequest lastRequest = null;
+        RecordedRequest request;
+        while ((request = server.takeRequest(1, TimeUnit.SECONDS)) != null) {
+            lastRequest = request;
+        }
+        assertNotNull(lastRequest);
+        assertTrue("Retried upload must send the whole file", lastRequest.getBodySize() > FILE_SIZE);
+        assertTrue(lastRequest.getBody().readUtf8().contains("filename=\"photo.jpg\""));
+    }
+
+    @Test
+    public void progressReachesFileSize() throws Exception {
+        server.enqueue(new MockResponse().setBody(SUCCESS_BODY));
+        long[] progress = new long[1];
+
+        Request request = QiscusUploadRequest.create(server.url("/").toString(), "token", file, 8 * 1024,
+                total -> progress[0] = total);
+        //First write of the body is skipped as it may come from HttpLoggingInterceptor
+        request.body().writeTo(new Buffer());
+        QiscusUploadRequest.parseUrl(client.newCall(request).execute());
+
+        assertEquals(FILE_SIZE, progress[0]);
+    }
+
+    @Test(expected = IOException.class)
+    public void serverErrorIsRetryable() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        QiscusUploadRequest.parseUrl(client.newCall(newRequest()).execute());
+    }
+
+    @Test(expected = JSONException.class)
+    public void clientErrorIsNotRetryable() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(400).setBody("{\"error\":{\"message\":\"Invalid file\"}}"));
+
+        QiscusUploadRequest.parseUrl(client.newCall(newRequest()).execute());
+    }
+
+    private Request newRequest() {
+        return QiscusUploadRequest.create(server.url("/").toString(), "token", file, 8 * 1024, total -> {
+            //Do nothing
+        });
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.data.remote;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Clock and timer whose time only moves when a test advances it, scheduled tasks run in due order.
+ */
+class QiscusVirtualTimer implements QiscusReconnectPolicy.Clock, QiscusTypingPublisher.Timer {
+    private final List<ScheduledTask> tasks = new ArrayList<>();
+    private long now;
+
+    @Override
+    public long now() {
+        return now;
+    }
+
+    @Override
+    public Future<?> schedule(Runnable task, long delay) {
+        ScheduledTask scheduledTask = new ScheduledTask(task, now + delay);
+        tasks.add(scheduledTask);
+        return scheduledTask;
+    }
+
+    void advance(long time) {
+        long target = now + time;
+        while (true) {
+            ScheduledTask next = null;
+            for (ScheduledTask task : tasks) {
+                if (task.dueAt <= target && (next == null || task.dueAt < next.dueAt)) {
+                    next = task;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            tasks.remove(next);
+            now = next.dueAt;
+            next.run();
+        }
+        now = target;
+    }
+
+    int getPendingCount() {
+        int count = 0;
+        for (ScheduledTask task : tasks) {
+            if (!task.isCancelled()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static class ScheduledTask extends FutureTask<Void> {
+        private final long dueAt;
+
+        private ScheduledTask(Runnable task, long dueAt) {
+            super(task, null);
+            this.dueAt = dueAt;
+        }
+    }
+}
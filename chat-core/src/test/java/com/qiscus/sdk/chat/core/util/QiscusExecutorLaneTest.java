@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class QiscusExecutorLaneTest {
+    private static final int QUEUE_CAPACITY = 4;
+
+    @Test
+    public void blockWaitsForRoomAndKeepsOrder() throws InterruptedException {
+        QiscusExecutorLane lane = QiscusExecutorLane.create("test", 1, QUEUE_CAPACITY,
+                QiscusExecutorLane.SaturationPolicy.BLOCK);
+        CountDownLatch gate = new CountDownLatch(1);
+        List<Integer> results = Collections.synchronizedList(new ArrayList<>());
+        block(lane, gate);
+        for (int i = 0; i < QUEUE_CAPACITY; i++) {
+            int index = i;
+            lane.execute(() -> results.add(index));
+        }
+
+        AtomicBoolean submitted = new AtomicBoolean();
+        Thread producer = new Thread(() -> {
+            lane.execute(() -> results.add(QUEUE_CAPACITY));
+            submitted.set(true);
+        });
+        producer.start();
+        Thread.sleep(200);
+        assertFalse("Caller should wait while the queue is full", submitted.get());
+
+        gate.countDown();
+        producer.join(5000);
+        assertTrue(submitted.get());
+        drain(lane);
+        assertEquals(1, lane.getBlockedCount());
+        assertEquals(0, lane.getDroppedCount());
+        assertEquals(QUEUE_CAPACITY + 1, results.size());
+        for (int i = 0; i <= QUEUE_CAPACITY; i++) {
+            assertEquals(i, (int) results.get(i));
+        }
+    }
+
+    @Test
+    public void blockNeverWaitsOnItsOwnThread() throws InterruptedException {
+        QiscusExecutorLane lane = QiscusExecutorLane.create("test", 1, QUEUE_CAPACITY,
+                QiscusExecutorLane.SaturationPolicy.BLOCK);
+        int taskCount = QUEUE_CAPACITY * 10;
+        CountDownLatch done = new CountDownLatch(taskCount);
+        List<Integer> results = Collections.synchronizedList(new ArrayList<>());
+        lane.execute(() -> {
+            for (int i = 0; i < taskCount; i++) {
+                int index = i;
+                lane.execute(() -> {
+                    results.add(index);
+                    done.countDown();
+                });
+            }
+        });
+
+        assertTrue("Lane deadlocked on its own submissions", done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, lane.getBlockedCount());
+        for (int i = 0; i < taskCount; i++) {
+            assertEquals(i, (int) results.get(i));
+        }
+    }
+
+    @Test
+    public void dropOldestKeepsLatestTasks() throws InterruptedException {
+        QiscusExecutorLane lane = QiscusExecutorLane.create("test", 1, QUEUE_CAPACITY,
+                QiscusExecutorLane.SaturationPolicy.DROP_OLDEST);
+        CountDownLatch gate = new CountDownLatch(1);
+        List<Integer> results = Collections.synchronizedList(new ArrayList<>());
+        block(lane, gate);
+        int taskCount = QUEUE_CAPACITY * 3;
+        for (int i = 0; i < taskCount; i++) {
+            int index = i;
+            lane.execute(() -> results.add(index));
+        }
+        assertEquals(QUEUE_CAPACITY, lane.getQueueDepth());
+
+        gate.countDown();
+        drain(lane);
+        assertEquals(taskCount - QUEUE_CAPACITY, lane.getDroppedCount());
+        assertEquals(QUEUE_CAPACITY, results.size());
+        for (int i = 0; i < QUEUE_CAPACITY; i++) {
+            assertEquals(taskCount - QUEUE_CAPACITY + i, (int) results.get(i));
+        }
+    }
+
+    @Test
+    public void rejectThrowsAndCounts() throws InterruptedException {
+        QiscusExecutorLane lane = QiscusExecutorLane.create("test", 1, QUEUE_CAPACITY,
+                QiscusExecutorLane.SaturationPolicy.REJECT);
+        CountDownLatch gate = new CountDownLatch(1);
+        block(lane, gate);
+        for (int i = 0; i < QUEUE_CAPACITY; i++) {
+            lane.execute(() -> {
+            });
+        }
+
+        try {
+            lane.execute(() -> {
+            });
+            fail("Expected the full lane to reject");
+        } catch (RejectedExecutionException e) {
+            //Expected
+        }
+        assertEquals(1, lane.getDroppedCount());
+        assertEquals(QUEUE_CAPACITY, lane.getQueueDepth());
+
+        gate.countDown();
+        drain(lane);
+        //The blocking task, the queued ones and the one used to drain
+        assertEquals(QUEUE_CAPACITY + 2, lane.getExecutedCount());
+    }
+
+    /**
+     * Waits until the queue is empty, then until the last started task finished.
+     */
+    private static void drain(QiscusExecutorLane lane) throws InterruptedException {
+        while (lane.getQueueDepth() > 0) {
+            Thread.sleep(10);
+        }
+        CountDownLatch drained = new CountDownLatch(1);
+        lane.execute(drained::countDown);
+        assertTrue(drained.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Occupies the only thread of the lane until the gate opens.
+     */
+    private static void block(QiscusExecutorLane lane, CountDownLatch gate) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        lane.execute(() -> {
+            started.countDown();
+            await(gate);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2016 Qiscus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qiscus.sdk.chat.core.util;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class QiscusKeyedSerialExecutorTest {
+    private static final int KEY_COUNT = 500;
+
+    @Test
+    public void tasksOfSameKeyRunInOrderAndNeverTogether() throws InterruptedException {
+        int tasksPerKey = 20;
+        ExecutorService threadPool = Executors.newFixedThreadPool(8);
+        QiscusKeyedSerialExecutor<Long> executor = new QiscusKeyedSerialExecutor<>(threadPool, tasksPerKey, 4);
+        Map<Long, List<Integer>> results = new ConcurrentHashMap<>();
+        Map<Long, AtomicBoolean> running = new ConcurrentHashMap<>();
+        AtomicInteger overlapCount = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(KEY_COUNT * tasksPerKey);
+
+        for (int i = 0; i < tasksPerKey; i++) {
+            for (long key = 0; key < KEY_COUNT; key++) {
+                results.putIfAbsent(key, Collections.synchronizedList(new ArrayList<>()));
+                running.putIfAbsent(key, new AtomicBoolean());
+                long taskKey = key;
+                int index = i;
+                executor.execute(key, () -> {
+                    if (!running.get(taskKey).compareAndSet(false, true)) {
+                        overlapCount.incrementAndGet();
+                    }
+                    results.get(taskKey).add(index);
+                    running.get(taskKey).set(false);
+                    latch.countDown();
+                });
+            }
+        }
+
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        threadPool.shutdown();
+        assertEquals(0, overlapCount.get());
+        assertEquals(0, executor.getDroppedCount());
+        for (long key = 0; key < KEY_COUNT; key++) {
+            List<Integer> keyResults = results.get(key);
+            assertEquals(tasksPerKey, keyResults.size());
+            for (int i = 0; i < tasksPerKey; i++) {
+                assertEquals("Task of key " + key + " ran out of order", i, (int) keyResults.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void dropsOverflowUnderInterleaved500KeyLoad() {
+        int maxPending = 4;
+        int tasksPerKey = 10;
+        ManualExecutor manualExecutor = new ManualExecutor();
+        QiscusKeyedSerialExecutor<Long> executor = new QiscusKeyedSerialExecutor<>(manualExecutor, maxPending, 2);
+        Map<Long, Integer> overflows = new HashMap<>();
+        executor.setOverflowListener(overflows::put);
+        Map<Long, List<Integer>> results = new HashMap<>();
+
+        for (int i = 0; i < tasksPerKey; i++) {
+            for (long key = 0; key < KEY_COUNT; key++) {
+                long taskKey = key;
+                int index = i;
+                executor.execute(key, () -> {
+                    List<Integer> keyResults = results.get(taskKey);
+                    if (keyResults == null) {
+                        keyResults = new ArrayList<>();
+                        results.put(taskKey, keyResults);
+                    }
+                    keyResults.add(index);
+                });
+            }
+        }
+
+        assertEquals(KEY_COUNT, executor.getActiveKeyCount());
+        assertEquals(maxPending, executor.getPendingCount(0L));
+        assertEquals(KEY_COUNT * (tasksPerKey - maxPending), executor.getDroppedCount());
+
+        manualExecutor.runAll();
+
+        assertEquals(0, executor.getActiveKeyCount());
+        assertEquals(KEY_COUNT, overflows.size());
+        for (long key = 0; key < KEY_COUNT; key++) {
+            assertEquals(tasksPerKey - maxPending, (int) overflows.get(key));
+            assertEquals("Oldest tasks of key " + key + " must be kept", expectedIndexes(maxPending), results.get(key));
+        }
+    }
+
+    @Test
+    public void undroppableTaskIsQueuedOverLimit() {
+        ManualExecutor manualExecutor = new ManualExecutor();
+        QiscusKeyedSerialExecutor<Long> executor = new QiscusKeyedSerialExecutor<>(manualExecutor, 1, 1);
+        List<String> results = new ArrayList<>();
+
+        executor.execute(1L, () -> results.add("comment"));
+        executor.execute(1L, () -> results.add("typing"));
+        executor.execute(1L, () -> results.add("read"), false);
+        manualExecutor.runAll();
+
+        assertEquals(1, executor.getDroppedCount());
+        assertEquals(2, results.size());
+        assertEquals("comment", results.get(0));
+        assertEquals("read", results.get(1));
+    }
+
+    @Test
+    public void busyKeyYieldsAfterBatch() {
+        ManualExecutor manualExecutor = new ManualExecutor();
+        QiscusKeyedSerialExecutor<String> executor = new QiscusKeyedSerialExecutor<>(manualExecutor, 100, 2);
+        List<String> results = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            String task = "busy" + i;
+            executor.execute("busy", () -> results.add(task));
+        }
+        executor.execute("quiet", () -> results.add("quiet"));
+        manualExecutor.runAll();
+
+        assertEquals(6, results.size());
+        assertEquals("quiet", results.get(2));
+        assertFalse(results.subList(0, 2).contains("quiet"));
+    }
+
+    private static List<Integer> expectedIndexes(int count) {
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            indexes.add(i);
+        }
+        return indexes;
+    }
+
+    /**
+     * Runs nothing until asked, so the whole load is queued before any task starts.
+     */
+    private static class ManualExecutor implements Executor {
+        private final Queue<Runnable> runnables = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable runnable) {
+            runnables.add(runnable);
+        }
+
+        void runAll() {
+            Runnable runnable;
+            while ((runnable = runnables.poll()) != null) {
+                runnable.run();
+            }
+        }
+    }
+}
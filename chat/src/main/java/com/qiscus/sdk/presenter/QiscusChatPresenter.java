@@ -22,6 +22,7 @@ import android.webkit.MimeTypeMap;
 import com.qiscus.sdk.Qiscus;
 import com.qiscus.sdk.R;
 import com.qiscus.sdk.chat.core.QiscusCore;
+import com.qiscus.sdk.chat.core.data.local.QiscusAttachmentCache;
 import com.qiscus.sdk.chat.core.data.local.QiscusCacheManager;
 import com.qiscus.sdk.chat.core.data.model.QiscusAccount;
 import com.qiscus.sdk.chat.core.data.model.QiscusChatRoom;
@@ -30,6 +31,7 @@ import com.qiscus.sdk.chat.core.data.model.QiscusContact;
 import com.qiscus.sdk.chat.core.data.model.QiscusLocation;
 import com.qiscus.sdk.chat.core.data.model.QiscusRoomMember;
 import com.qiscus.sdk.chat.core.data.remote.QiscusApi;
+import com.qiscus.sdk.chat.core.data.remote.QiscusDownloadManager;
 import com.qiscus.sdk.chat.core.data.remote.QiscusPusherApi;
 import com.qiscus.sdk.chat.core.data.remote.QiscusResendCommentHelper;
 import com.qiscus.sdk.chat.core.event.QiscusClearCommentsEvent;
@@ -40,7 +42,9 @@ import com.qiscus.sdk.chat.core.event.QiscusMqttStatusEvent;
 import com.qiscus.sdk.chat.core.presenter.QiscusChatRoomEventHandler;
 import com.qiscus.sdk.chat.core.util.QiscusAndroidUtil;
 import com.qiscus.sdk.chat.core.util.QiscusErrorLogger;
+import com.qiscus.sdk.chat.core.util.QiscusExecutors;
 import com.qiscus.sdk.chat.core.util.QiscusFileUtil;
+import com.qiscus.sdk.chat.core.util.QiscusImageCompressor;
 import com.qiscus.sdk.chat.core.util.QiscusTextUtil;
 import com.qiscus.sdk.util.QiscusImageUtil;
 
@@ -50,6 +54,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -62,12 +67,15 @@ import rx.Observable;
 import rx.Subscription;
 import rx.android.schedulers.AndroidSchedulers;
 import rx.functions.Func2;
-import rx.schedulers.Schedulers;
+import rx.subjects.BehaviorSubject;
+import rx.subscriptions.Subscriptions;
 
 public class QiscusChatPresenter extends QiscusPresenter<QiscusChatPresenter.View> implements QiscusChatRoomEventHandler.StateListener {
 
     private QiscusChatRoom room;
     private QiscusAccount qiscusAccount;
+    private static final int POST_FILE_MAX_RETRIES = 2;
+
     private Func2<QiscusComment, QiscusComment, Integer> commentComparator = (lhs, rhs) -> rhs.getTime().compareTo(lhs.getTime());
 
     private Map<QiscusComment, Subscription> pendingTask;
@@ -148,7 +156,7 @@ public class QiscusChatPresenter extends QiscusPresenter<QiscusChatPresenter.Vie
                 .doOnSubscribe(() -> Qiscus.getDataStore().addOrUpdate(qiscusComment))
                 .doOnNext(this::commentSuccess)
                 .doOnError(throwable -> commentFail(throwable, qiscusComment))
-                .subscribeOn(Schedulers.io())
+                .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
                 .observeOn(AndroidSchedulers.mainThread())
                 .compose(bindToLifecycle())
                 .subscribe(commentSend -> {
@@ -206,51 +214,39 @@ public class QiscusChatPresenter extends QiscusPresenter<QiscusChatPresenter.Vie
     }
 
     public void sendFile(File file, String caption) {
-        File compressedFile = file;
-        if (QiscusImageUtil.isImage(file) && !file.getName().endsWith(".gif")) {
-            try {
-                compressedFile = QiscusImageUtil.compressImage(file);
-            } catch (NullPointerException e) {
-                view.showError(QiscusTextUtil.getString(R.string.qiscus_corrupted_file));
-                return;
-            }
-        } else {
-            compressedFile = QiscusFileUtil.saveFile(compressedFile);
-        }
-
         if (!file.exists()) { //File have been removed, so we can not upload it anymore
             view.showError(QiscusTextUtil.getString(R.string.qiscus_corrupted_file));
             return;
         }
 
         QiscusComment qiscusComment = QiscusComment.generateFileAttachmentMessage(room.getId(),
-                compressedFile.getPath(), caption, file.getName());
+                file.getPath(), caption, file.getName());
         qiscusComment.setDownloading(true);
         view.onSendingComment(qiscusComment);
 
-        File finalCompressedFile = compressedFile;
-        Subscription subscription = QiscusApi.getInstance()
-                .uploadFile(compressedFile, percentage -> {
-                    qiscusComment.setProgress((int) percentage);
-                })
-                .subscribeOn(Schedulers.io())
+        Subscription subscription = prepareFile(file)
                 .doOnSubscribe(() -> Qiscus.getDataStore().addOrUpdate(qiscusComment))
-                .flatMap(uri -> {
-                    qiscusComment.updateAttachmentUrl(uri.toString());
+                .doOnNext(preparedFile -> {
+                    qiscusComment.updateAttachmentUrl(preparedFile.getPath());
                     Qiscus.getDataStore().addOrUpdate(qiscusComment);
-                    return QiscusApi.getInstance().postComment(qiscusComment);
-                })
-                .doOnNext(commentSend -> {
-                    Qiscus.getDataStore().addOrUpdate(commentSend);
-                    Qiscus.getDataStore()
-                            .addOrUpdateLocalPath(commentSend.getRoomId(),
-                                    commentSend.getId(), finalCompressedFile.getAbsolutePath());
-                    commentSend.setDownloading(false);
-                    commentSuccess(commentSend);
                 })
-//                .subscribeOn(Schedulers.io())
-//                .observeOn(AndroidSchedulers.mainThread())
-//                .compose(bindToLifecycle())
+                .flatMap(preparedFile -> QiscusApi.getInstance()
+                        .uploadFile(preparedFile, percentage -> {
+                            qiscusComment.setProgress((int) percentage);
+                        })
+                        .flatMap(uri -> {
+                            qiscusComment.updateAttachmentUrl(uri.toString());
+                            Qiscus.getDataStore().addOrUpdate(qiscusComment);
+                            return QiscusApi.getInstance().postComment(qiscusComment);
+                        })
+                        .doOnNext(commentSend -> {
+                            Qiscus.getDataStore().addOrUpdate(commentSend);
+                            Qiscus.getDataStore()
+                                    .addOrUpdateLocalPath(commentSend.getRoomId(),
+                                            commentSend.getId(), preparedFile.getAbsolutePath());
+                            commentSend.setDownloading(false);
+                            commentSuccess(commentSend);
+                        }))
                 .doOnError(throwable -> commentFail(throwable, qiscusComment))
                 .subscribe(commentSend -> {
 
@@ -268,6 +264,151 @@ public class QiscusChatPresenter extends QiscusPresenter<QiscusChatPresenter.Vie
         pendingTask.put(qiscusComment, subscription);
     }
 
+    public void sendFiles(List<File> files, Map<String, String> captions) {
+        sendFiles(files, captions, null);
+    }
+
+    /**
+     * Send every file as its own comment, in the given order. Files are compressed while the earlier ones are still
+     * uploading, at most {@link com.qiscus.sdk.chat.core.data.model.QiscusCoreChatConfig#getMaxConcurrentUploads()}
+     * of them upload at a time, and comments are posted one after another so they keep their order. A file which
+     * fails is marked as failed and can be resent alone, the rest of the batch goes on.
+     *
+     * @param captions         caption of each file keyed by its absolute path, may be null
+     * @param progressListener gets the percentage of the whole batch on main thread, may be null
+     */
+    public void sendFiles(List<File> files, Map<String, String> captions, QiscusApi.ProgressListener progressListener) {
+        FileBatch batch = new FileBatch(progressListener);
+        long time = System.currentTimeMillis();
+        for (File file : files) {
+            if (!file.exists()) { //File have been removed, so we can not upload it anymore
+                view.showError(QiscusTextUtil.getString(R.string.qiscus_corrupted_file));
+                continue;
+            }
+
+            String caption = captions == null ? null : captions.get(file.getAbsolutePath());
+            QiscusComment qiscusComment = QiscusComment.generateFileAttachmentMessage(room.getId(),
+                    file.getPath(), caption, file.getName());
+            //Comments created in the same millisecond must still be shown in the order of the files
+            qiscusComment.setTime(new Date(time + batch.items.size()));
+            qiscusComment.setDownloading(true);
+            view.onSendingComment(qiscusComment);
+
+            FileItem item = new FileItem(file, qiscusComment);
+            pendingTask.put(qiscusComment, Subscriptions.create(item::cancel));
+            batch.items.add(item);
+        }
+
+        if (batch.items.isEmpty()) {
+            return;
+        }
+
+        int maxCompressions = Math.max(1, QiscusImageCompressor.getInstance().getMaxConcurrentCompressions());
+        int maxUploads = Math.max(1, QiscusCore.getChatConfig().getMaxConcurrentUploads());
+        Observable.from(batch.items)
+                .concatMapEager(this::prepareFileItem, batch.items.size(), maxCompressions)
+                .concatMapEager(item -> uploadFileItem(item, batch), batch.items.size(), maxUploads)
+                .concatMap(this::postFileItem)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(item -> {
+                    item.progress = 100;
+                    batch.publishProgress();
+                    //The batch keeps going after the view is detached, only the view callbacks stop
+                    if (view == null || room == null || item.qiscusComment.getRoomId() != room.getId()) {
+                        return;
+                    }
+                    if (item.error == null) {
+                        view.onSuccessSendComment(item.sentComment);
+                    } else {
+                        view.onFailedSendComment(item.qiscusComment);
+                    }
+                }, throwable -> {
+                    QiscusErrorLogger.print(throwable);
+                    throwable.printStackTrace();
+                });
+    }
+
+    private Observable<FileItem> prepareFileItem(FileItem item) {
+        if (item.cancelled) {
+            return Observable.empty();
+        }
+        return prepareFile(item.file)
+                .doOnSubscribe(() -> Qiscus.getDataStore().addOrUpdate(item.qiscusComment))
+                .map(preparedFile -> {
+                    item.preparedFile = preparedFile;
+                    item.qiscusComment.updateAttachmentUrl(preparedFile.getPath());
+                    Qiscus.getDataStore().addOrUpdate(item.qiscusComment);
+                    return item;
+                })
+                .takeUntil(item.cancellation)
+                .onErrorReturn(throwable -> fileFail(item, throwable));
+    }
+
+    private Observable<FileItem> uploadFileItem(FileItem item, FileBatch batch) {
+        if (item.cancelled) {
+            return Observable.empty();
+        }
+        if (item.error != null) {
+            return Observable.just(item);
+        }
+        return QiscusApi.getInstance()
+                .uploadFile(item.preparedFile, percentage -> {
+                    item.qiscusComment.setProgress((int) percentage);
+                    item.progress = (int) percentage;
+                    batch.publishProgress();
+                })
+                .map(uri -> {
+                    item.qiscusComment.updateAttachmentUrl(uri.toString());
+                    Qiscus.getDataStore().addOrUpdate(item.qiscusComment);
+                    return item;
+                })
+                .takeUntil(item.cancellation)
+                .onErrorReturn(throwable -> fileFail(item, throwable));
+    }
+
+    private Observable<FileItem> postFileItem(FileItem item) {
+        if (item.cancelled) {
+            return Observable.empty();
+        }
+        if (item.error != null) {
+            return Observable.just(item);
+        }
+        return QiscusApi.getInstance().postComment(item.qiscusComment)
+                .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
+                .retry((count, throwable) -> count <= POST_FILE_MAX_RETRIES && throwable instanceof IOException)
+                .map(commentSend -> {
+                    Qiscus.getDataStore().addOrUpdate(commentSend);
+                    Qiscus.getDataStore()
+                            .addOrUpdateLocalPath(commentSend.getRoomId(),
+                                    commentSend.getId(), item.preparedFile.getAbsolutePath());
+                    commentSend.setDownloading(false);
+                    commentSuccess(commentSend);
+                    item.sentComment = commentSend;
+                    return item;
+                })
+                .takeUntil(item.cancellation)
+                .onErrorReturn(throwable -> fileFail(item, throwable));
+    }
+
+    private FileItem fileFail(FileItem item, Throwable throwable) {
+        QiscusErrorLogger.print(throwable);
+        item.error = throwable;
+        commentFail(throwable, item.qiscusComment);
+        return item;
+    }
+
+    /**
+     * Compress images or copy other files into app folder, off the calling thread.
+     */
+    private Observable<File> prepareFile(File file) {
+        if (QiscusImageUtil.isImage(file) && !file.getName().endsWith(".gif")) {
+            return QiscusImageCompressor.getInstance().compressAsync(file)
+                    .map(QiscusAttachmentCache.getInstance()::put);
+        }
+        return Observable.fromCallable(() -> QiscusFileUtil.saveFile(file))
+                .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler());
+    }
+
     private void resendFile(QiscusComment qiscusComment) {
         if (qiscusComment.getAttachmentUri().toString().startsWith("http")) { //We forward file message
             forwardFile(qiscusComment);
@@ -299,7 +440,7 @@ public class QiscusChatPresenter extends QiscusPresenter<QiscusChatPresenter.Vie
                     commentSuccess(commentSend);
                 })
                 .doOnError(throwable -> commentFail(throwable, qiscusComment))
-                .subscribeOn(Schedulers.io())
+                .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
                 .observeOn(AndroidSchedulers.mainThread())
                 .compose(bindToLifecycle())
                 .subscribe(commentSend -> {
@@ -329,7 +470,7 @@ public class QiscusChatPresenter extends QiscusPresenter<QiscusChatPresenter.Vie
                     qiscusComment.setDownloading(false);
                     commentFail(throwable, qiscusComment);
                 })
-                .subscribeOn(Schedulers.io())
+                .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
                 .observeOn(AndroidSchedulers.mainThread())
                 .compose(bindToLifecycle())
                 .subscribe(commentSend -> {
@@ -372,23 +513,17 @@ public class QiscusChatPresenter extends QiscusPresenter<QiscusChatPresenter.Vie
 
                     Qiscus.getDataStore().addOrUpdate(roomData.first);
                 })
-                .doOnNext(roomData -> {
-                    for (QiscusComment qiscusComment : roomData.second) {
-                        Qiscus.getDataStore().addOrUpdate(qiscusComment);
-                    }
-                })
-                .subscribeOn(Schedulers.io())
+                .doOnNext(roomData -> Qiscus.getDataStore().addOrUpdateComments(roomData.second))
+                .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
                 .onErrorReturn(throwable -> null);
     }
 
     private Observable<List<QiscusComment>> getCommentsFromNetwork(long lastCommentId) {
         return QiscusApi.getInstance().getComments(room.getId(), lastCommentId)
-                .doOnNext(qiscusComment -> {
-                    QiscusCore.getDataStore().addOrUpdate(qiscusComment);
-                    qiscusComment.setRoomId(room.getId());
-                })
+                .doOnNext(qiscusComment -> qiscusComment.setRoomId(room.getId()))
                 .toSortedList(commentComparator)
-                .subscribeOn(Schedulers.io());
+                .doOnNext(qiscusComments -> QiscusCore.getDataStore().addOrUpdateComments(qiscusComments))
+                .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler());
     }
 
     private Observable<List<QiscusComment>> getLocalComments(int count, boolean forceFailedSendingComment) {
@@ -401,7 +536,7 @@ public class QiscusChatPresenter extends QiscusPresenter<QiscusChatPresenter.Vie
                     }
                     return comments;
                 })
-                .subscribeOn(Schedulers.io());
+                .subscribeOn(QiscusExecutors.getInstance().getDiskScheduler());
     }
 
     public List<QiscusComment> loadLocalComments(int count) {
@@ -412,7 +547,7 @@ public class QiscusChatPresenter extends QiscusPresenter<QiscusChatPresenter.Vie
         Observable.merge(getInitRoomData(), getLocalComments(count, true)
                 .map(comments -> Pair.create(room, comments)))
                 .filter(qiscusChatRoomListPair -> qiscusChatRoomListPair != null)
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
                 .observeOn(AndroidSchedulers.mainThread())
                 .compose(bindToLifecycle())
                 .subscribe(roomData -> {
@@ -499,7 +634,7 @@ public class QiscusChatPresenter extends QiscusPresenter<QiscusChatPresenter.Vie
                             }
                             return comments1;
                         }))
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
                 .observeOn(AndroidSchedulers.mainThread())
                 .compose(bindToLifecycle())
                 .subscribe(comments -> {
@@ -544,7 +679,7 @@ public class QiscusChatPresenter extends QiscusPresenter<QiscusChatPresenter.Vie
                 .doOnNext(qiscusComment -> qiscusComment.setRoomId(room.getId()))
                 .toSortedList(commentComparator)
                 .doOnNext(Collections::reverse)
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
                 .observeOn(AndroidSchedulers.mainThread())
                 .compose(bindToLifecycle())
                 .subscribe(comments -> {
@@ -624,17 +759,13 @@ public class QiscusChatPresenter extends QiscusPresenter<QiscusChatPresenter.Vie
         File file = Qiscus.getDataStore().getLocalPath(qiscusComment.getId());
         if (file == null) {
             qiscusComment.setDownloading(true);
-            QiscusApi.getInstance()
-                    .downloadFile(qiscusComment.getAttachmentUri().toString(), qiscusComment.getAttachmentName(),
-                            percentage -> qiscusComment.setProgress((int) percentage))
-                    .subscribeOn(Schedulers.io())
+            QiscusDownloadManager.getInstance()
+                    .download(qiscusComment, percentage -> qiscusComment.setProgress((int) percentage))
                     .observeOn(AndroidSchedulers.mainThread())
                     .compose(bindToLifecycle())
                     .doOnNext(file1 -> {
                         QiscusFileUtil.notifySystem(file1);
                         qiscusComment.setDownloading(false);
-                        Qiscus.getDataStore().addOrUpdateLocalPath(qiscusComment.getRoomId(), qiscusComment.getId(),
-                                file1.getAbsolutePath());
                     })
                     .subscribe(file1 -> {
                         view.notifyDataChanged();
@@ -695,7 +826,7 @@ public class QiscusChatPresenter extends QiscusPresenter<QiscusChatPresenter.Vie
                 .flatMap(comments -> isValidChainingComments(comments) ?
                         Observable.from(comments).toSortedList(commentComparator) :
                         Observable.just(new ArrayList<QiscusComment>()))
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
                 .observeOn(AndroidSchedulers.mainThread())
                 .compose(bindToLifecycle())
                 .subscribe(comments -> {
@@ -768,7 +899,7 @@ public class QiscusChatPresenter extends QiscusPresenter<QiscusChatPresenter.Vie
                 .map(QiscusComment::getUniqueId)
                 .toList()
                 .flatMap(uniqueIds -> QiscusApi.getInstance().deleteComments(uniqueIds, hardDelete))
-                .subscribeOn(Schedulers.io())
+                .subscribeOn(QiscusExecutors.getInstance().getNetworkScheduler())
                 .observeOn(AndroidSchedulers.mainThread())
                 .compose(bindToLifecycle())
                 .subscribe(deletedComments -> {
@@ -846,6 +977,62 @@ public class QiscusChatPresenter extends QiscusPresenter<QiscusChatPresenter.Vie
         });
     }
 
+    /**
+     * An item can be cancelled while it still waits behind the compression or upload limit, before any stage
+     * subscribed to {@link #cancellation}. So every stage checks {@link #cancelled} first, and the subject replays
+     * the cancellation to stages which subscribe right after.
+     */
+    private static class FileItem {
+        private final File file;
+        private final QiscusComment qiscusComment;
+        private final BehaviorSubject<Void> cancellation = BehaviorSubject.create();
+        private volatile boolean cancelled;
+        private volatile int progress;
+        private File preparedFile;
+        private QiscusComment sentComment;
+        private Throwable error;
+
+        private FileItem(File file, QiscusComment qiscusComment) {
+            this.file = file;
+            this.qiscusComment = qiscusComment;
+        }
+
+        private void cancel() {
+            cancelled = true;
+            //A cancelled file no longer holds back the progress of the batch
+            progress = 100;
+            cancellation.onNext(null);
+        }
+    }
+
+    private static class FileBatch {
+        private final List<FileItem> items = new ArrayList<>();
+        private final QiscusApi.ProgressListener progressListener;
+        private int lastProgress = -1;
+
+        private FileBatch(QiscusApi.ProgressListener progressListener) {
+            this.progressListener = progressListener;
+        }
+
+        private void publishProgress() {
+            if (progressListener == null) {
+                return;
+            }
+            long total = 0;
+            for (FileItem item : items) {
+                total += item.progress;
+            }
+            int progress = (int) (total / items.size());
+            synchronized (this) {
+                if (progress == lastProgress) {
+                    return;
+                }
+                lastProgress = progress;
+            }
+            QiscusAndroidUtil.runOnUIThread(() -> progressListener.onProgress(progress));
+        }
+    }
+
     public interface View extends QiscusPresenter.View {
 
         void showLoadMoreLoading();
@@ -21,8 +21,9 @@ import androidx.core.util.Pair;
 import com.qiscus.sdk.Qiscus;
 import com.qiscus.sdk.R;
 import com.qiscus.sdk.chat.core.data.model.QiscusComment;
-import com.qiscus.sdk.chat.core.data.remote.QiscusApi;
+import com.qiscus.sdk.chat.core.data.remote.QiscusDownloadManager;
 import com.qiscus.sdk.chat.core.util.QiscusErrorLogger;
+import com.qiscus.sdk.chat.core.util.QiscusExecutors;
 import com.qiscus.sdk.chat.core.util.QiscusFileUtil;
 import com.qiscus.sdk.chat.core.util.QiscusTextUtil;
 
@@ -31,6 +32,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import rx.Observable;
 import rx.Subscription;
 import rx.android.schedulers.AndroidSchedulers;
 import rx.schedulers.Schedulers;
@@ -88,17 +90,13 @@ public class QiscusPhotoViewerPresenter extends QiscusPresenter<QiscusPhotoViewe
             return;
         }
         qiscusComment.setDownloading(true);
-        downloadSubscription = QiscusApi.getInstance()
-                .downloadFile(qiscusComment.getAttachmentUri().toString(), qiscusComment.getAttachmentName(),
-                        percentage -> qiscusComment.setProgress((int) percentage))
-                .subscribeOn(Schedulers.io())
+        downloadSubscription = QiscusDownloadManager.getInstance()
+                .download(qiscusComment, percentage -> qiscusComment.setProgress((int) percentage))
                 .observeOn(AndroidSchedulers.mainThread())
                 .compose(bindToLifecycle())
                 .doOnNext(file1 -> {
                     QiscusFileUtil.notifySystem(file1);
                     qiscusComment.setDownloading(false);
-                    Qiscus.getDataStore().addOrUpdateLocalPath(qiscusComment.getRoomId(), qiscusComment.getId(),
-                            file1.getAbsolutePath());
                 })
                 .subscribe(file1 -> view.onFileDownloaded(Pair.create(qiscusComment, file1)), throwable -> {
                     QiscusErrorLogger.print(throwable);
@@ -108,6 +106,30 @@ public class QiscusPhotoViewerPresenter extends QiscusPresenter<QiscusPhotoViewe
                 });
     }
 
+    /**
+     * Forget the local file of the comment, the file itself is deleted by the attachment cache once no other
+     * comment refers to it.
+     */
+    public void deleteFile(QiscusComment qiscusComment) {
+        Observable.fromCallable(() -> {
+            Qiscus.getDataStore().deleteLocalPath(qiscusComment.getId());
+            return qiscusComment;
+        })
+                .subscribeOn(QiscusExecutors.getInstance().getDiskScheduler())
+                .observeOn(AndroidSchedulers.mainThread())
+                .compose(bindToLifecycle())
+                .subscribe(qiscusComment1 -> {
+                    if (view != null) {
+                        view.onFileDeleted(qiscusComment1);
+                    }
+                }, throwable -> {
+                    QiscusErrorLogger.print(throwable);
+                    if (view != null) {
+                        view.showError(QiscusTextUtil.getString(R.string.qiscus_error_can_not_delete_file));
+                    }
+                });
+    }
+
     public void cancelDownloading() {
         if (downloadSubscription != null) {
             downloadSubscription.unsubscribe();
@@ -119,6 +141,8 @@ public class QiscusPhotoViewerPresenter extends QiscusPresenter<QiscusPhotoViewe
 
         void onFileDownloaded(Pair<QiscusComment, File> qiscusPhoto);
 
+        void onFileDeleted(QiscusComment qiscusComment);
+
         void closePage();
     }
 }
@@ -191,19 +191,7 @@ public class QiscusPhotoViewerActivity extends RxAppCompatActivity implements Qi
             presenter.downloadFile(ongoingDownload);
         } else if (i == R.id.action_delete) {
             Pair<QiscusComment, File> qiscusPhoto = qiscusPhotos.get(position);
-            if (qiscusPhoto.second.delete()) {
-                mediaDeleted = true;
-                if (qiscusPhotos.size() == 1) {
-                    onBackPressed();
-                } else {
-                    qiscusPhotos.remove(position);
-                    adapter.getFragments().remove(position);
-                    adapter.notifyDataSetChanged();
-                    bindInfo();
-                }
-            } else {
-                showError(getString(R.string.qiscus_error_can_not_delete_file));
-            }
+            presenter.deleteFile(qiscusPhoto.first);
         } else if (i == R.id.action_forward) {
             ForwardCommentHandler forwardCommentHandler = Qiscus.getChatConfig().getForwardCommentHandler();
             if (forwardCommentHandler == null) {
@@ -270,6 +258,24 @@ public class QiscusPhotoViewerActivity extends RxAppCompatActivity implements Qi
         }
     }
 
+    @Override
+    public void onFileDeleted(QiscusComment qiscusComment) {
+        for (int i = 0; i < qiscusPhotos.size(); i++) {
+            if (qiscusComment.equals(qiscusPhotos.get(i).first)) {
+                mediaDeleted = true;
+                if (qiscusPhotos.size() == 1) {
+                    onBackPressed();
+                } else {
+                    qiscusPhotos.remove(i);
+                    adapter.getFragments().remove(i);
+                    adapter.notifyDataSetChanged();
+                    bindInfo();
+                }
+                return;
+            }
+        }
+    }
+
     @Override
     public void closePage() {
         finish();
@@ -1218,9 +1218,11 @@ public abstract class QiscusBaseChatFragment<T extends QiscusBaseChatAdapter> ex
     }
 
     public void sendFiles(List<File> files) {
-        for (File file : files) {
-            sendFile(file);
-        }
+        sendFiles(files, null);
+    }
+
+    public void sendFiles(List<File> files, Map<String, String> captions) {
+        qiscusChatPresenter.sendFiles(files, captions);
     }
 
     public void sendFile(File file, String caption) {
@@ -1658,9 +1660,11 @@ public abstract class QiscusBaseChatFragment<T extends QiscusBaseChatAdapter> ex
                     data.getSerializableExtra(QiscusSendPhotoConfirmationActivity.EXTRA_CAPTIONS);
             List<QiscusPhoto> qiscusPhotos = data.getParcelableArrayListExtra(QiscusSendPhotoConfirmationActivity.EXTRA_QISCUS_PHOTOS);
             if (qiscusPhotos != null) {
+                List<File> files = new ArrayList<>(qiscusPhotos.size());
                 for (QiscusPhoto qiscusPhoto : qiscusPhotos) {
-                    sendFile(qiscusPhoto.getPhotoFile(), captions.get(qiscusPhoto.getPhotoFile().getAbsolutePath()));
+                    files.add(qiscusPhoto.getPhotoFile());
                 }
+                sendFiles(files, captions);
             } else {
                 showError(getString(R.string.qiscus_chat_error_failed_read_picture));
             }
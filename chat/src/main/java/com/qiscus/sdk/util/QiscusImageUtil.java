@@ -34,11 +34,11 @@ import android.os.Environment;
 import com.qiscus.sdk.chat.core.QiscusCore;
 import com.qiscus.sdk.chat.core.R;
 import com.qiscus.sdk.chat.core.data.local.QiscusCacheManager;
+import com.qiscus.sdk.chat.core.util.QiscusErrorLogger;
 import com.qiscus.sdk.chat.core.util.QiscusFileUtil;
+import com.qiscus.sdk.chat.core.util.QiscusImageCompressor;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -152,33 +152,18 @@ public final class QiscusImageUtil {
         return scaledBitmap;
     }
 
+    /**
+     * Compress on the calling thread, use {@link QiscusImageCompressor#compressAsync(File)} from UI thread.
+     *
+     * @throws NullPointerException when the image can not be decoded, as it used to
+     */
     public static File compressImage(File imageFile) {
-
-        FileOutputStream out = null;
-        String filename = QiscusFileUtil.generateFilePath(imageFile.getName(), ".jpg");
         try {
-            out = new FileOutputStream(filename);
-
-            //write the compressed bitmap at the destination specified by filename.
-            QiscusImageUtil.getScaledBitmap(Uri.fromFile(imageFile)).compress(Bitmap.CompressFormat.JPEG,
-                    QiscusCore.getChatConfig().getQiscusImageCompressionConfig().getQuality(), out);
-
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                if (out != null) {
-                    out.close();
-                }
-            } catch (IOException ignored) {
-                //Do nothing
-            }
+            return QiscusImageCompressor.getInstance().compress(imageFile, null);
+        } catch (IOException e) {
+            QiscusErrorLogger.print(e);
+            throw new NullPointerException(e.getMessage());
         }
-
-        File compressedImage = new File(filename);
-        QiscusFileUtil.notifySystem(compressedImage);
-
-        return compressedImage;
     }
 
     public static int calculateInSampleSize(BitmapFactory.Options options, int reqWidth, int reqHeight) {
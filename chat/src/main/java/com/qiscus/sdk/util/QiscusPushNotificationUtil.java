@@ -94,7 +94,7 @@ public final class QiscusPushNotificationUtil {
 
         Pair<Boolean, Long> lastChatActivity = QiscusCacheManager.getInstance().getLastChatActivity();
         if (!lastChatActivity.first || lastChatActivity.second != qiscusComment.getRoomId()) {
-            updateUnreadCount(qiscusComment);
+            fetchRoomDataIfNeeded(qiscusComment);
         }
 
         if (Qiscus.getChatConfig().isEnablePushNotification()
@@ -109,19 +109,14 @@ public final class QiscusPushNotificationUtil {
         }
     }
 
-    private static void updateUnreadCount(QiscusComment qiscusComment) {
+    /**
+     * Unread count is updated by the data store when the comment is saved, we only need the room itself.
+     */
+    private static void fetchRoomDataIfNeeded(QiscusComment qiscusComment) {
         QiscusChatRoom room = Qiscus.getDataStore().getChatRoom(qiscusComment.getRoomId());
         if (room == null) {
             fetchRoomData(qiscusComment.getRoomId());
-            return;
-        }
-
-        if (qiscusComment.isMyComment()) {
-            room.setUnreadCount(0);
-        } else {
-            room.setUnreadCount(room.getUnreadCount() + 1);
         }
-        Qiscus.getDataStore().addOrUpdate(room);
     }
 
     private static void fetchRoomData(long roomId) {